@@ -0,0 +1,78 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.benchmark;
+
+import ch.rabanti.picoxlsx4j.Address;
+import ch.rabanti.picoxlsx4j.Cell;
+import ch.rabanti.picoxlsx4j.Range;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the parsing and formatting of cell addresses and ranges
+ * @author Raphael Stoeckli
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AddressBenchmark {
+
+    private static final int SAMPLES = 4096; // Power of 2
+    private String[] addresses;
+    private String[] ranges;
+    private int[] columns;
+    private int[] rowNumbers;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        Random random = new Random(42);
+        this.addresses = new String[SAMPLES];
+        this.ranges = new String[SAMPLES];
+        this.columns = new int[SAMPLES];
+        this.rowNumbers = new int[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++)
+        {
+            this.columns[i] = random.nextInt(16384);
+            this.rowNumbers[i] = random.nextInt(1048576);
+            this.addresses[i] = Cell.resolveCellAddress(this.columns[i], this.rowNumbers[i]);
+            this.ranges[i] = "A1:" + this.addresses[i];
+        }
+    }
+
+    @Benchmark
+    public Address resolveCellCoordinate()
+    {
+        return Cell.resolveCellCoordinate(this.addresses[this.index++ & (SAMPLES - 1)]);
+    }
+
+    @Benchmark
+    public Range resolveCellRange()
+    {
+        return Cell.resolveCellRange(this.ranges[this.index++ & (SAMPLES - 1)]);
+    }
+
+    @Benchmark
+    public String resolveCellAddress()
+    {
+        int i = this.index++ & (SAMPLES - 1);
+        return Cell.resolveCellAddress(this.columns[i], this.rowNumbers[i]);
+    }
+
+    @Benchmark
+    public String resolveColumnAddress()
+    {
+        return Cell.resolveColumnAddress(this.columns[this.index++ & (SAMPLES - 1)]);
+    }
+
+}
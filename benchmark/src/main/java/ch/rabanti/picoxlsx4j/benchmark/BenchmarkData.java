@@ -0,0 +1,116 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.benchmark;
+
+import ch.rabanti.picoxlsx4j.Workbook;
+import ch.rabanti.picoxlsx4j.Worksheet;
+import ch.rabanti.picoxlsx4j.style.BasicStyles;
+import ch.rabanti.picoxlsx4j.style.Style;
+
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.Date;
+
+/**
+ * Class with shared methods to prepare the data of the benchmarks
+ * @author Raphael Stoeckli
+ */
+final class BenchmarkData {
+
+// ### C O N S T A N T S ###
+    /**
+     * Number of columns that are written per row in the mixed data sets
+     */
+    static final int COLUMNS = 5;
+    /**
+     * Number of distinct strings in the data sets with repeating strings
+     */
+    static final int DISTINCT_STRINGS = 1000;
+
+// ### S T A T I C   M E T H O D S ###
+    /**
+     * Creates a workbook with one worksheet that is filled with mixed data (string, number, date, boolean and formula)
+     * @param rows Number of rows to generate
+     * @param styled If true, a style is applied on every string cell
+     * @return Prepared workbook
+     */
+    static Workbook createMixedWorkbook(int rows, boolean styled)
+    {
+        Workbook workbook = new Workbook("benchmark.xlsx", "Data");
+        fillMixed(workbook.getCurrentWorksheet(), rows, styled);
+        return workbook;
+    }
+
+    /**
+     * Fills the passed worksheet with mixed data (string, number, date, boolean and formula)
+     * @param worksheet Worksheet to fill
+     * @param rows Number of rows to generate
+     * @param styled If true, a style is applied on every string cell
+     */
+    static void fillMixed(Worksheet worksheet, int rows, boolean styled)
+    {
+        Style bold = BasicStyles.Bold();
+        LocalDate date = LocalDate.of(2019, 5, 21);
+        for (int i = 0; i < rows; i++)
+        {
+            if (styled == true)
+            {
+                worksheet.addNextCell("Value " + (i % DISTINCT_STRINGS), bold);
+            }
+            else
+            {
+                worksheet.addNextCell("Value " + (i % DISTINCT_STRINGS));
+            }
+            worksheet.addNextCell(i * 1.5d);
+            worksheet.addNextCell(date.plusDays(i % 3650));
+            worksheet.addNextCell(i % 2 == 0);
+            worksheet.addNextCellFormula("B" + (i + 1) + "*2");
+            worksheet.goToNextRow();
+        }
+    }
+
+    /**
+     * Creates a date value for the legacy (java.util.Date) code path
+     * @param row Row number as seed
+     * @return Date object
+     */
+    static Date legacyDate(int row)
+    {
+        return new Date(1558396800000L + (row % 3650) * 86400000L);
+    }
+
+// ### S U B  C L A S S E S ###
+    /**
+     * Output stream that discards all data and only counts the written bytes
+     */
+    static final class CountingOutputStream extends OutputStream
+    {
+        private long count;
+
+        /**
+         * Gets the number of written bytes
+         * @return Number of bytes
+         */
+        long getCount()
+        {
+            return this.count;
+        }
+
+        @Override
+        public void write(int b)
+        {
+            this.count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len)
+        {
+            this.count += len;
+        }
+    }
+
+}
@@ -0,0 +1,135 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.benchmark;
+
+import ch.rabanti.picoxlsx4j.Workbook;
+import ch.rabanti.picoxlsx4j.Worksheet;
+import ch.rabanti.picoxlsx4j.style.BasicStyles;
+import ch.rabanti.picoxlsx4j.style.Style;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the insertion of cells by type (without saving)
+ * @author Raphael Stoeckli
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CellInsertionBenchmark {
+
+    /**
+     * Number of inserted rows (one cell per row)
+     */
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    @Benchmark
+    public Workbook insertStrings()
+    {
+        Workbook workbook = new Workbook("benchmark.xlsx", "Data");
+        Worksheet ws = workbook.getCurrentWorksheet();
+        ws.setCurrentCellDirection(Worksheet.CellDirection.RowToRow);
+        for (int i = 0; i < rows; i++)
+        {
+            ws.addNextCell("Value " + (i % BenchmarkData.DISTINCT_STRINGS));
+        }
+        return workbook;
+    }
+
+    @Benchmark
+    public Workbook insertNumbers()
+    {
+        Workbook workbook = new Workbook("benchmark.xlsx", "Data");
+        Worksheet ws = workbook.getCurrentWorksheet();
+        ws.setCurrentCellDirection(Worksheet.CellDirection.RowToRow);
+        for (int i = 0; i < rows; i++)
+        {
+            ws.addNextCell(i * 1.5d);
+        }
+        return workbook;
+    }
+
+    @Benchmark
+    public Workbook insertDates()
+    {
+        Workbook workbook = new Workbook("benchmark.xlsx", "Data");
+        Worksheet ws = workbook.getCurrentWorksheet();
+        ws.setCurrentCellDirection(Worksheet.CellDirection.RowToRow);
+        LocalDate date = LocalDate.of(2019, 5, 21);
+        for (int i = 0; i < rows; i++)
+        {
+            ws.addNextCell(date.plusDays(i % 3650));
+        }
+        return workbook;
+    }
+
+    @Benchmark
+    public Workbook insertLegacyDates()
+    {
+        Workbook workbook = new Workbook("benchmark.xlsx", "Data");
+        Worksheet ws = workbook.getCurrentWorksheet();
+        ws.setCurrentCellDirection(Worksheet.CellDirection.RowToRow);
+        for (int i = 0; i < rows; i++)
+        {
+            ws.addNextCell(BenchmarkData.legacyDate(i));
+        }
+        return workbook;
+    }
+
+    @Benchmark
+    public Workbook insertBooleans()
+    {
+        Workbook workbook = new Workbook("benchmark.xlsx", "Data");
+        Worksheet ws = workbook.getCurrentWorksheet();
+        ws.setCurrentCellDirection(Worksheet.CellDirection.RowToRow);
+        for (int i = 0; i < rows; i++)
+        {
+            ws.addNextCell(i % 2 == 0);
+        }
+        return workbook;
+    }
+
+    @Benchmark
+    public Workbook insertFormulas()
+    {
+        Workbook workbook = new Workbook("benchmark.xlsx", "Data");
+        Worksheet ws = workbook.getCurrentWorksheet();
+        ws.setCurrentCellDirection(Worksheet.CellDirection.RowToRow);
+        for (int i = 0; i < rows; i++)
+        {
+            ws.addNextCellFormula("B" + (i + 1) + "*2");
+        }
+        return workbook;
+    }
+
+    @Benchmark
+    public Workbook insertStyled()
+    {
+        Workbook workbook = new Workbook("benchmark.xlsx", "Data");
+        Worksheet ws = workbook.getCurrentWorksheet();
+        ws.setCurrentCellDirection(Worksheet.CellDirection.RowToRow);
+        Style bold = BasicStyles.Bold();
+        for (int i = 0; i < rows; i++)
+        {
+            ws.addNextCell(i, bold);
+        }
+        return workbook;
+    }
+
+    @Benchmark
+    public Workbook insertMixed()
+    {
+        return BenchmarkData.createMixedWorkbook(rows, false);
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.benchmark;
+
+import ch.rabanti.picoxlsx4j.Workbook;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark to calibrate the memory estimation of the workbook. The retained heap of a filled workbook is measured after a full GC and reported next to the value of Workbook.estimateMemoryUsage (counters estimatedBytes and measuredBytes). The time is not relevant
+ * @author Raphael Stoeckli
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-XX:+UseSerialGC")
+public class MemoryFootprintBenchmark {
+
+    /**
+     * Number of rows (five cells per row)
+     */
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    /**
+     * If true, a style is applied on every string cell
+     */
+    @Param({"false", "true"})
+    public boolean styled;
+
+    /**
+     * Counters of the estimated and measured heap
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint
+    {
+        /**
+         * Estimated retained heap in bytes
+         */
+        public long estimatedBytes;
+        /**
+         * Measured retained heap in bytes
+         */
+        public long measuredBytes;
+
+        @Setup(Level.Iteration)
+        public void reset()
+        {
+            this.estimatedBytes = 0;
+            this.measuredBytes = 0;
+        }
+    }
+
+    @Benchmark
+    public Workbook mixedWorkbook(Footprint footprint)
+    {
+        long before = usedHeap();
+        Workbook workbook = BenchmarkData.createMixedWorkbook(rows, styled);
+        footprint.measuredBytes = usedHeap() - before;
+        footprint.estimatedBytes = workbook.estimateMemoryUsage();
+        return workbook;
+    }
+
+    /**
+     * Gets the used heap after a full GC
+     * @return Used heap in bytes
+     */
+    private static long usedHeap()
+    {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++)
+        {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
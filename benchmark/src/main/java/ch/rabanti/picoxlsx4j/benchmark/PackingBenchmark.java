@@ -0,0 +1,75 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.benchmark;
+
+import ch.rabanti.picoxlsx4j.Workbook;
+import ch.rabanti.picoxlsx4j.exception.IOException;
+import ch.rabanti.picoxlsx4j.lowLevel.LowLevel;
+import ch.rabanti.picoxlsx4j.lowLevel.Packer;
+import org.openjdk.jmh.annotations.*;
+import org.w3c.dom.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the packing (transformation of prepared documents and deflate into the zip container)
+ * @author Raphael Stoeckli
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PackingBenchmark {
+
+    /**
+     * Number of rows (five cells per row)
+     */
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    private LowLevel lowLevel;
+    private List<String> names;
+    private List<Document> documents;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException
+    {
+        Workbook workbook = BenchmarkData.createMixedWorkbook(rows, false);
+        this.lowLevel = new LowLevel(workbook);
+        this.lowLevel.setDocumentInterception(true);
+        this.lowLevel.saveAsStream(new BenchmarkData.CountingOutputStream());
+        this.names = new ArrayList<>();
+        this.documents = new ArrayList<>();
+        int i = 0;
+        for (Map.Entry<String, Document> entry : this.lowLevel.getInterceptedDocuments().entrySet())
+        {
+            this.names.add("xl/part" + i + ".xml");
+            this.documents.add(entry.getValue());
+            i++;
+        }
+        this.lowLevel.setDocumentInterception(false);
+    }
+
+    @Benchmark
+    public long pack() throws IOException
+    {
+        Packer packer = new Packer(this.lowLevel);
+        for (int i = 0; i < this.documents.size(); i++)
+        {
+            packer.addPart(this.names.get(i), "application/xml", this.documents.get(i));
+        }
+        BenchmarkData.CountingOutputStream stream = new BenchmarkData.CountingOutputStream();
+        packer.pack(stream);
+        return stream.getCount();
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.benchmark;
+
+import ch.rabanti.picoxlsx4j.Workbook;
+import ch.rabanti.picoxlsx4j.exception.IOException;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the end-to-end save of a workbook (serialization, transformation and packing)
+ * @author Raphael Stoeckli
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SaveBenchmark {
+
+    /**
+     * Number of rows (five cells per row)
+     */
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    /**
+     * If true, a style is applied on every string cell
+     */
+    @Param({"false", "true"})
+    public boolean styled;
+
+    private Workbook workbook;
+    private File file;
+
+    @Setup(Level.Trial)
+    public void setup() throws java.io.IOException
+    {
+        this.workbook = BenchmarkData.createMixedWorkbook(rows, styled);
+        this.file = File.createTempFile("picoxlsx4j-benchmark", ".xlsx");
+        this.file.deleteOnExit();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        this.file.delete();
+    }
+
+    @Benchmark
+    public long saveAsStream() throws IOException
+    {
+        BenchmarkData.CountingOutputStream stream = new BenchmarkData.CountingOutputStream();
+        this.workbook.saveAsStream(stream);
+        return stream.getCount();
+    }
+
+    @Benchmark
+    public long saveAsFile() throws IOException
+    {
+        this.workbook.saveAs(this.file.getAbsolutePath());
+        return this.file.length();
+    }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.benchmark;
+
+import ch.rabanti.picoxlsx4j.Workbook;
+import ch.rabanti.picoxlsx4j.Worksheet;
+import ch.rabanti.picoxlsx4j.exception.IOException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the shared string handling while saving (unique strings versus repeated strings)
+ * @author Raphael Stoeckli
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SharedStringsBenchmark {
+
+    /**
+     * Number of rows (one string per row)
+     */
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    /**
+     * If true, all strings are unique, otherwise the strings repeat (see BenchmarkData.DISTINCT_STRINGS)
+     */
+    @Param({"true", "false"})
+    public boolean unique;
+
+    private Workbook workbook;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        this.workbook = new Workbook("benchmark.xlsx", "Data");
+        Worksheet ws = this.workbook.getCurrentWorksheet();
+        ws.setCurrentCellDirection(Worksheet.CellDirection.RowToRow);
+        for (int i = 0; i < rows; i++)
+        {
+            if (unique == true)
+            {
+                ws.addNextCell("Unique value " + i);
+            }
+            else
+            {
+                ws.addNextCell("Value " + (i % BenchmarkData.DISTINCT_STRINGS));
+            }
+        }
+    }
+
+    @Benchmark
+    public long save() throws IOException
+    {
+        BenchmarkData.CountingOutputStream stream = new BenchmarkData.CountingOutputStream();
+        this.workbook.saveAsStream(stream);
+        return stream.getCount();
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.benchmark;
+
+import ch.rabanti.picoxlsx4j.Workbook;
+import ch.rabanti.picoxlsx4j.Worksheet;
+import ch.rabanti.picoxlsx4j.style.BasicStyles;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the growth of the style registry (StyleManager) when many distinct styles are assigned
+ * @author Raphael Stoeckli
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StyleRegistryBenchmark {
+
+    /**
+     * Number of distinct styles
+     */
+    @Param({"100", "1000", "5000"})
+    public int styles;
+
+    private String[] colors;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        this.colors = new String[styles];
+        for (int i = 0; i < styles; i++)
+        {
+            this.colors[i] = String.format("%06X", i * 3347 & 0xFFFFFF);
+        }
+    }
+
+    @Benchmark
+    public Workbook distinctStyles()
+    {
+        Workbook workbook = new Workbook("benchmark.xlsx", "Data");
+        Worksheet ws = workbook.getCurrentWorksheet();
+        ws.setCurrentCellDirection(Worksheet.CellDirection.RowToRow);
+        for (int i = 0; i < styles; i++)
+        {
+            ws.addNextCell(i, BasicStyles.colorizedBackground(this.colors[i]));
+        }
+        return workbook;
+    }
+
+    @Benchmark
+    public Workbook repeatedStyles()
+    {
+        Workbook workbook = new Workbook("benchmark.xlsx", "Data");
+        Worksheet ws = workbook.getCurrentWorksheet();
+        ws.setCurrentCellDirection(Worksheet.CellDirection.RowToRow);
+        for (int i = 0; i < styles; i++)
+        {
+            ws.addNextCell(i, BasicStyles.colorizedBackground(this.colors[i % 10]));
+        }
+        return workbook;
+    }
+
+}
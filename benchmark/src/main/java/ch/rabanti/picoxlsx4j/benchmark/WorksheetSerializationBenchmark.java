@@ -0,0 +1,71 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.benchmark;
+
+import ch.rabanti.picoxlsx4j.Workbook;
+import ch.rabanti.picoxlsx4j.exception.IOException;
+import ch.rabanti.picoxlsx4j.lowLevel.LowLevel;
+import org.openjdk.jmh.annotations.*;
+import org.w3c.dom.Document;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the serialization steps of a worksheet part: DOM parsing of the generated XML string and transformation of the DOM into bytes
+ * @author Raphael Stoeckli
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class WorksheetSerializationBenchmark {
+
+    /**
+     * Number of rows (five cells per row)
+     */
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    private LowLevel lowLevel;
+    private Document worksheetDocument;
+    private String worksheetXml;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException
+    {
+        Workbook workbook = BenchmarkData.createMixedWorkbook(rows, false);
+        LowLevel interceptor = new LowLevel(workbook);
+        interceptor.setDocumentInterception(true);
+        interceptor.saveAsStream(new BenchmarkData.CountingOutputStream());
+        for (Map.Entry<String, Document> entry : interceptor.getInterceptedDocuments().entrySet())
+        {
+            if (entry.getKey().startsWith("WORKSHEET"))
+            {
+                this.worksheetDocument = entry.getValue();
+            }
+        }
+        this.worksheetXml = new String(LowLevel.createBytesFromDocument(this.worksheetDocument), StandardCharsets.UTF_8);
+        this.lowLevel = new LowLevel(workbook);
+    }
+
+    @Benchmark
+    public Document parse() throws IOException
+    {
+        return this.lowLevel.createXMLDocument(this.worksheetXml, "WORKSHEET");
+    }
+
+    @Benchmark
+    public byte[] transform() throws IOException
+    {
+        return LowLevel.createBytesFromDocument(this.worksheetDocument);
+    }
+
+}
@@ -0,0 +1,194 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.flow;
+
+import ch.rabanti.picoxlsx4j.SaveCancellationToken;
+import ch.rabanti.picoxlsx4j.Workbook;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Class representing a publisher that emits a saved workbook as chunks of bytes
+ * @author Raphael Stoeckli
+ */
+public class WorkbookPublisher implements Flow.Publisher<ByteBuffer> {
+
+// ### C O N S T A N T S ###
+    /**
+     * Default number of chunks that are buffered for the subscriber
+     */
+    public static final int DEFAULT_BUFFER_CHUNKS = 16;
+
+// ### P R I V A T E  F I E L D S ###
+    private final int bufferChunks;
+    private final Executor deliveryExecutor;
+    private final Executor saveExecutor;
+    private final AtomicBoolean subscribed;
+    private final Workbook workbook;
+
+// ### C O N S T R U C T O R S ###
+    /**
+     * Constructor with workbook. The chunks are delivered in the common fork join pool, while the save process runs in its own thread
+     * @param workbook Workbook to save
+     */
+    public WorkbookPublisher(Workbook workbook)
+    {
+        this(workbook, ForkJoinPool.commonPool(), DEFAULT_BUFFER_CHUNKS);
+    }
+
+    /**
+     * Constructor with workbook, delivery executor and buffer size. The save process runs in its own thread, since it blocks while the buffer is full. Therefore, the executor may also be a single thread executor
+     * @param workbook Workbook to save
+     * @param deliveryExecutor Executor to deliver the chunks to the subscriber
+     * @param bufferChunks Maximum number of chunks that are buffered before the save process blocks
+     */
+    public WorkbookPublisher(Workbook workbook, Executor deliveryExecutor, int bufferChunks)
+    {
+        this(workbook, WorkbookPublisher::startSaveThread, deliveryExecutor, bufferChunks);
+    }
+
+    /**
+     * Constructor with workbook, save executor, delivery executor and buffer size
+     * @param workbook Workbook to save
+     * @param saveExecutor Executor to run the save process. The save process blocks one thread of this executor while the buffer is full
+     * @param deliveryExecutor Executor to deliver the chunks to the subscriber. This must be a different executor than the save executor, otherwise the save process could wait for deliveries that never run
+     * @param bufferChunks Maximum number of chunks that are buffered before the save process blocks
+     * @throws IllegalArgumentException Thrown if the save executor and the delivery executor are the same instance
+     */
+    public WorkbookPublisher(Workbook workbook, Executor saveExecutor, Executor deliveryExecutor, int bufferChunks)
+    {
+        if (saveExecutor == deliveryExecutor)
+        {
+            throw new IllegalArgumentException("The save executor and the delivery executor must be different executors.");
+        }
+        this.workbook = workbook;
+        this.saveExecutor = saveExecutor;
+        this.deliveryExecutor = deliveryExecutor;
+        this.bufferChunks = bufferChunks;
+        this.subscribed = new AtomicBoolean(false);
+    }
+
+// ### M E T H O D S ###
+    /**
+     * Subscribes to the publisher and starts the save process. Only one subscriber is supported
+     * @param subscriber Subscriber to receive the chunks
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber)
+    {
+        if (this.subscribed.compareAndSet(false, true) == false)
+        {
+            subscriber.onSubscribe(new Flow.Subscription()
+            {
+                @Override
+                public void request(long n) {}
+                @Override
+                public void cancel() {}
+            });
+            subscriber.onError(new IllegalStateException("The workbook publisher supports only one subscriber."));
+            return;
+        }
+        SubmissionPublisher<ByteBuffer> publisher = new SubmissionPublisher<>(this.deliveryExecutor, this.bufferChunks);
+        publisher.subscribe(subscriber);
+        SaveCancellationToken token = new SaveCancellationToken();
+        this.saveExecutor.execute(() ->
+        {
+            try
+            {
+                this.workbook.saveAsChannel(new PublisherChannel(publisher, token), token);
+                publisher.close();
+            }
+            catch (Exception e)
+            {
+                publisher.closeExceptionally(e);
+            }
+        });
+    }
+
+// ### S T A T I C   M E T H O D S ###
+    /**
+     * Runs the save process in a new thread that is dedicated to one subscription
+     * @param saveProcess Save process to run
+     */
+    private static void startSaveThread(Runnable saveProcess)
+    {
+        Thread thread = new Thread(saveProcess, "PicoXLSX4j workbook publisher");
+        thread.start();
+    }
+
+// ### S U B  C L A S S E S ###
+    /**
+     * Channel that submits each written block as a new buffer to the publisher. The submission blocks if the buffer of the subscriber is full
+     */
+    private static class PublisherChannel implements WritableByteChannel
+    {
+        private final SubmissionPublisher<ByteBuffer> publisher;
+        private final SaveCancellationToken token;
+        private boolean open;
+
+        /**
+         * Constructor with publisher and cancellation token
+         * @param publisher Publisher to submit the chunks
+         * @param token Token to cancel the save process if the subscriber is gone
+         */
+        PublisherChannel(SubmissionPublisher<ByteBuffer> publisher, SaveCancellationToken token)
+        {
+            this.publisher = publisher;
+            this.token = token;
+            this.open = true;
+        }
+
+        /**
+         * Copies the remaining bytes of the source into a new buffer and submits it
+         * @param source Source buffer
+         * @return Number of written bytes
+         * @throws IOException Thrown if the subscriber cancelled the subscription
+         */
+        @Override
+        public int write(ByteBuffer source) throws IOException
+        {
+            if (this.publisher.hasSubscribers() == false)
+            {
+                this.token.cancel();
+                throw new IOException("The subscriber cancelled the subscription.");
+            }
+            int length = source.remaining();
+            ByteBuffer chunk = ByteBuffer.allocate(length);
+            chunk.put(source);
+            chunk.flip();
+            this.publisher.submit(chunk);
+            return length;
+        }
+
+        /**
+         * Gets whether the channel is open
+         * @return True if open, otherwise false
+         */
+        @Override
+        public boolean isOpen()
+        {
+            return this.open;
+        }
+
+        /**
+         * Closes the channel. The publisher is closed by the save process
+         */
+        @Override
+        public void close()
+        {
+            this.open = false;
+        }
+    }
+
+}
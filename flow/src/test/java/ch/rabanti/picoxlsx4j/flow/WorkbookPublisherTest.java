@@ -0,0 +1,132 @@
+package ch.rabanti.picoxlsx4j.flow;
+
+import ch.rabanti.picoxlsx4j.Workbook;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WorkbookPublisherTest {
+
+    @DisplayName("Should publish the saved workbook as a complete zip package")
+    @Test
+    void publishTest() throws Exception {
+        Workbook workbook = new Workbook("Sheet1");
+        for (int i = 0; i < 1000; i++) {
+            workbook.getCurrentWorksheet().addNextCell("value" + i);
+            workbook.getCurrentWorksheet().goToNextRow();
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            WorkbookPublisher publisher = new WorkbookPublisher(workbook, executor, 2);
+            CollectingSubscriber subscriber = new CollectingSubscriber();
+            publisher.subscribe(subscriber);
+            byte[] data = subscriber.result.get(30, TimeUnit.SECONDS);
+            assertThat(readEntry(data, "xl/worksheets/sheet1.xml"), containsString("<row r=\"1000\""));
+
+            CollectingSubscriber second = new CollectingSubscriber();
+            publisher.subscribe(second);
+            ExecutionException exception = assertThrows(ExecutionException.class, () -> second.result.get(30, TimeUnit.SECONDS));
+            assertThat(exception.getCause(), is(instanceOf(IllegalStateException.class)));
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @DisplayName("Should publish the saved workbook with a single thread delivery executor and a full buffer")
+    @Test
+    void singleThreadPublishTest() throws Exception {
+        Workbook workbook = new Workbook("Sheet1");
+        for (int i = 0; i < 10000; i++) {
+            workbook.getCurrentWorksheet().addNextCell("value" + i);
+            workbook.getCurrentWorksheet().goToNextRow();
+        }
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            WorkbookPublisher publisher = new WorkbookPublisher(workbook, executor, 1);
+            CollectingSubscriber subscriber = new CollectingSubscriber();
+            publisher.subscribe(subscriber);
+            byte[] data = subscriber.result.get(30, TimeUnit.SECONDS);
+            assertThat(readEntry(data, "xl/worksheets/sheet1.xml"), containsString("<row r=\"10000\""));
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @DisplayName("Should throw an exception if the save executor and the delivery executor are the same")
+    @Test
+    void sameExecutorTest() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertThrows(IllegalArgumentException.class, () -> new WorkbookPublisher(new Workbook("Sheet1"), executor, executor, 2));
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static String readEntry(byte[] data, String name) throws java.io.IOException {
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(data))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.getName().equals(name)) {
+                    ByteArrayOutputStream output = new ByteArrayOutputStream();
+                    byte[] buffer = new byte[8192];
+                    int read;
+                    while ((read = zip.read(buffer)) > 0) {
+                        output.write(buffer, 0, read);
+                    }
+                    return new String(output.toByteArray(), StandardCharsets.UTF_8);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static class CollectingSubscriber implements Flow.Subscriber<ByteBuffer> {
+        private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        private final CompletableFuture<byte[]> result = new CompletableFuture<>();
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(ByteBuffer item) {
+            byte[] chunk = new byte[item.remaining()];
+            item.get(chunk);
+            output.write(chunk, 0, chunk.length);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            result.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            result.complete(output.toByteArray());
+        }
+    }
+
+}
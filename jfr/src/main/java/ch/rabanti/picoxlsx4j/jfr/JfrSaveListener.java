@@ -0,0 +1,141 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.jfr;
+
+import ch.rabanti.picoxlsx4j.SaveListener;
+import ch.rabanti.picoxlsx4j.lowLevel.SaveStatistics;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Save listener that emits the timings of the save process as Java Flight Recorder events
+ * @author Raphael Stoeckli
+ */
+public class JfrSaveListener implements SaveListener {
+
+// ### M E T H O D S ###
+    /**
+     * Emits a SavePhase event
+     * @param phase Completed phase
+     * @param partName Name of the processed part or worksheet. Null for workbook wide phases
+     * @param durationNanos Duration of the phase in nanoseconds
+     */
+    @Override
+    public void phaseCompleted(Phase phase, String partName, long durationNanos)
+    {
+        SavePhaseEvent event = new SavePhaseEvent();
+        if (event.isEnabled() == false) { return; }
+        event.phase = phase.name();
+        event.part = partName;
+        event.phaseDuration = durationNanos;
+        event.commit();
+    }
+
+    /**
+     * Emits a PartWritten event
+     * @param partName Name of the part with relative path
+     * @param rawBytes Uncompressed size in bytes
+     * @param compressedBytes Compressed size in bytes
+     */
+    @Override
+    public void partWritten(String partName, long rawBytes, long compressedBytes)
+    {
+        PartWrittenEvent event = new PartWrittenEvent();
+        if (event.isEnabled() == false) { return; }
+        event.part = partName;
+        event.rawBytes = rawBytes;
+        event.compressedBytes = compressedBytes;
+        event.commit();
+    }
+
+    /**
+     * Emits a Save event
+     * @param statistics Aggregated statistics of the save process
+     */
+    @Override
+    public void saveCompleted(SaveStatistics statistics)
+    {
+        SaveEvent event = new SaveEvent();
+        if (event.isEnabled() == false) { return; }
+        event.rows = statistics.getRowCount();
+        event.cells = statistics.getCellCount();
+        event.sharedStrings = statistics.getSharedStringCount();
+        event.uniqueSharedStrings = statistics.getUniqueSharedStringCount();
+        event.rawBytes = statistics.getRawBytes();
+        event.compressedBytes = statistics.getCompressedBytes();
+        event.saveDuration = statistics.getTotalDuration();
+        event.commit();
+    }
+
+// ### S U B  C L A S S E S ###
+    /**
+     * Event of a completed phase of the save process
+     */
+    @Name("ch.rabanti.picoxlsx4j.SavePhase")
+    @Label("Save Phase")
+    @Category({"PicoXLSX4j", "Save"})
+    static class SavePhaseEvent extends Event
+    {
+        @Label("Phase")
+        String phase;
+        @Label("Part")
+        String part;
+        @Label("Duration")
+        @Timespan(Timespan.NANOSECONDS)
+        long phaseDuration;
+    }
+
+    /**
+     * Event of a part that was written into the zip container
+     */
+    @Name("ch.rabanti.picoxlsx4j.PartWritten")
+    @Label("Part Written")
+    @Category({"PicoXLSX4j", "Save"})
+    static class PartWrittenEvent extends Event
+    {
+        @Label("Part")
+        String part;
+        @Label("Raw Size")
+        @DataAmount
+        long rawBytes;
+        @Label("Compressed Size")
+        @DataAmount
+        long compressedBytes;
+    }
+
+    /**
+     * Event of a completed save process
+     */
+    @Name("ch.rabanti.picoxlsx4j.Save")
+    @Label("Save")
+    @Category({"PicoXLSX4j", "Save"})
+    static class SaveEvent extends Event
+    {
+        @Label("Rows")
+        int rows;
+        @Label("Cells")
+        int cells;
+        @Label("Shared Strings")
+        int sharedStrings;
+        @Label("Unique Shared Strings")
+        int uniqueSharedStrings;
+        @Label("Raw Size")
+        @DataAmount
+        long rawBytes;
+        @Label("Compressed Size")
+        @DataAmount
+        long compressedBytes;
+        @Label("Duration")
+        @Timespan(Timespan.NANOSECONDS)
+        long saveDuration;
+    }
+
+}
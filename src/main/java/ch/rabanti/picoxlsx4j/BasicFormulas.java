@@ -224,16 +224,17 @@ public final class BasicFormulas
     */
     private static Cell getVLookup(Worksheet queryTarget, Address address, Object number, Worksheet rangeTarget, Range range, int columnIndex, boolean exactMatch, boolean numericLookup)
     {
-        String arg1, arg2, arg3, arg4;
+        StringBuilder sb = new StringBuilder(48);
+        sb.append("VLOOKUP(");
         if (numericLookup == true)
         {
-            if (number instanceof  Byte)           { arg1 = Byte.toString((byte)number); }
-            else if (number instanceof BigDecimal) { arg1 = number.toString(); }
-            else if (number instanceof  Double)    { arg1 =  Double.toString((double)number); }
-            else if (number instanceof  Float)     { arg1 =  Float.toString((float)number); }
-            else if (number instanceof  Integer)   { arg1 =  Integer.toString((int)number); }
-            else if (number instanceof  Long)      { arg1 =  Long.toString((long)number); }
-            else if (number instanceof  Short)     { arg1 =  Short.toString((short)number); }
+            if (number instanceof  Byte)           { sb.append((byte)number); }
+            else if (number instanceof BigDecimal) { sb.append(number.toString()); }
+            else if (number instanceof  Double)    { sb.append((double)number); }
+            else if (number instanceof  Float)     { sb.append((float)number); }
+            else if (number instanceof  Integer)   { sb.append((int)number); }
+            else if (number instanceof  Long)      { sb.append((long)number); }
+            else if (number instanceof  Short)     { sb.append((short)number); }
             else
             {
                 throw new FormatException("InvalidLookupType", "The lookup variable can only be a cell address or a numeric value. The value '" + number + "' is invalid.");
@@ -241,15 +242,16 @@ public final class BasicFormulas
         }
         else
         {
-            if (queryTarget != null) { arg1 = queryTarget.getSheetName() + "!" + address.toString(); }
-            else { arg1 = address.toString(); }
+            appendReference(sb, queryTarget, address, address);
         }
-        if (rangeTarget != null) { arg2 = rangeTarget.getSheetName() + "!" + range.toString(); }
-        else { arg2 = range.toString(); }
-        arg3 = Integer.toString(columnIndex);
-        if (exactMatch == true) { arg4 = "TRUE"; }
-        else { arg4 = "FALSE"; }
-        return new Cell("VLOOKUP(" + arg1 + "," + arg2 + "," + arg3 + "," + arg4 + ")", CellType.FORMULA);
+        sb.append(',');
+        appendReference(sb, rangeTarget, range.StartAddress, null);
+        sb.append(':').append(range.EndAddress.toString());
+        sb.append(',').append(columnIndex).append(',');
+        if (exactMatch == true) { sb.append("TRUE"); }
+        else { sb.append("FALSE"); }
+        sb.append(')');
+        return new Cell(sb.toString(), CellType.FORMULA);
     }
 
 
@@ -263,13 +265,46 @@ public final class BasicFormulas
 	*/
     private static Cell getBasicFormula(Worksheet target, Range range, String functionName, String postArg)
     {
-        String arg1, arg2, prefix;
-        if (postArg == null) { arg2 = ""; }
-        else { arg2 = "," + postArg; }
-        if (target != null) { prefix = target.getSheetName() + "!"; }
-        else { prefix = ""; }
-        if (range.StartAddress.equals(range.EndAddress)) { arg1 = prefix + range.StartAddress.toString(); }
-        else { arg1 = prefix + range.toString(); }
-        return new Cell(functionName + "(" + arg1 + arg2 + ")", CellType.FORMULA);
-    }    
+        StringBuilder sb = new StringBuilder(32);
+        sb.append(functionName).append('(');
+        appendReference(sb, target, range.StartAddress, range.EndAddress);
+        if (postArg != null) { sb.append(',').append(postArg); }
+        sb.append(')');
+        return new Cell(sb.toString(), CellType.FORMULA);
+    }
+
+    /**
+    * Appends a cell reference with an optional sheet prefix. If the end address is null or identical to the start address, only the start address is appended
+    * @param sb StringBuilder to append
+    * @param target Target worksheet of the reference. Can be null if on the same worksheet
+    * @param start Start address of the reference
+    * @param end End address of the reference. Can be null
+    */
+    private static void appendReference(StringBuilder sb, Worksheet target, Address start, Address end)
+    {
+        if (target != null) { sb.append(target.getSheetName()).append('!'); }
+        sb.append(start.toString());
+        if (end != null && start.equals(end) == false) { sb.append(':').append(end.toString()); }
+    }
+
+    /**
+    * Converts a formula cell (e.g. the result of Sum) into a formula template. The template is parsed once and can be added to any number of cells with Worksheet.addCellFormula. The cells only keep a reference to the template and get the formula with relative references moved by their offset to the anchor cell
+    * @param formulaCell Formula cell to convert
+    * @param anchor Address of the cell, for which the formula of the passed cell is written
+    * @return Formula template
+    * @throws FormatException Thrown if the passed cell is not a formula cell
+    */
+    public static FormulaTemplate toTemplate(Cell formulaCell, Address anchor)
+    {
+        if (formulaCell.getDataType() != CellType.FORMULA)
+        {
+            throw new FormatException("FormatException", "The passed cell is not a formula cell.");
+        }
+        if (formulaCell.getValue() instanceof FormulaTemplate)
+        {
+            return (FormulaTemplate)formulaCell.getValue();
+        }
+        return FormulaTemplate.parse(formulaCell.getValue().toString(), anchor);
+    }
+
 }
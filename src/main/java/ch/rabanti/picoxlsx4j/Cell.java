@@ -12,6 +12,9 @@ import ch.rabanti.picoxlsx4j.exception.StyleException;
 import ch.rabanti.picoxlsx4j.style.Style;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -39,7 +42,7 @@ public class Cell implements Comparable<Cell>{
          */
         NUMBER,
         /**
-         * Type for dates and times (Note: Dates before 1900-01-01 are not allowed)
+         * Type for dates and times (Date, Instant, LocalDateTime and LocalDate. Note: Dates before 1900-01-01 are not allowed)
          */
         DATE,
         /**
@@ -353,6 +356,10 @@ public class Cell implements Comparable<Cell>{
          else if (value instanceof Long)         { this.dataType = CellType.NUMBER; }
          else if (value instanceof Short)        { this.dataType = CellType.NUMBER; } // ushort not existing in Java
          else if (value instanceof Date)         { this.dataType = CellType.DATE; }
+         else if (value instanceof LocalDateTime){ this.dataType = CellType.DATE; }
+         else if (value instanceof LocalDate)    { this.dataType = CellType.DATE; }
+         else if (value instanceof Instant)      { this.dataType = CellType.DATE; }
+         else if (value instanceof FormulaTemplate) { this.dataType = CellType.FORMULA; }
          else { this.dataType = CellType.STRING; } // Default (char, string, object)
      }
 
@@ -409,6 +416,15 @@ public class Cell implements Comparable<Cell>{
        return s;
     }
     
+    /**
+     * Assigns a style that is already managed by the style manager of the workbook, without registering it again
+     * @param style Managed style to assign
+     */
+    void setManagedStyle(Style style)
+    {
+        this.cellStyle = style;
+    }
+    
 // ### S T A T I C   M E T H O D S ###
     
     /**
@@ -449,6 +465,7 @@ public class Cell implements Comparable<Cell>{
             else if (o instanceof Long)       { c = new Cell(o, CellType.NUMBER); }
             else if (o instanceof Short)      { c = new Cell(o, CellType.NUMBER); }
             else if (o instanceof Date)       { c = new Cell(o, CellType.DATE);   }
+            else if (Helper.isDateType(o))    { c = new Cell(o, CellType.DATE);   } // java.time types
             else if (o instanceof String)     { c = new Cell(o, CellType.STRING); }
             else
             {
@@ -6,6 +6,8 @@
  */
 package ch.rabanti.picoxlsx4j;
 
+import ch.rabanti.picoxlsx4j.style.Style;
+
 /**
  * Class representing a column of a worksheet
  * @author Raphael Stoeckli
@@ -15,6 +17,8 @@ public class Column {
 // ### P R I V A T E  F I E L D S ###    
     private boolean autoFilter;
     private String columnAddress;
+    private boolean customWidth;
+    private Style defaultStyle;
     private boolean hidden;
     private int number;
     private float width;
@@ -44,6 +48,22 @@ public class Column {
         this.number = Cell.resolveColumn(columnAddress);
         this.columnAddress = columnAddress;
     }
+    /**
+     * Gets the default style of the column. The style applies to empty cells of the column and to new cells without style
+     * @return Default style (managed by the workbook) or null if not defined
+     */
+    public Style getDefaultStyle() {
+        return defaultStyle;
+    }
+
+    /**
+     * Sets the default style of the column. Use Worksheet.setColumnDefaultStyle to register the style in the workbook
+     * @param defaultStyle Default style (managed by the workbook) or null to remove it
+     */
+    void setDefaultStyle(Style defaultStyle) {
+        this.defaultStyle = defaultStyle;
+    }
+
     /**
      * Gets the column number
      * @return Column number (0 to 16383)
@@ -69,11 +89,20 @@ public class Column {
     }
 
     /**
-     * Sets the width of the column
+     * Sets the width of the column. The width is marked as explicitly defined, even if it is the default width
      * @param width Width of the column
      */
     public void setWidth(float width) {
         this.width = width;
+        this.customWidth = true;
+    }
+
+    /**
+     * Gets whether the width of the column was explicitly defined. An explicit width is not replaced by the automatic column width
+     * @return If true, the width was set by setWidth, otherwise the column has the default width
+     */
+    public boolean hasCustomWidth() {
+        return customWidth;
     }
     /**
      * Gets whether auto filter is enabled on the column
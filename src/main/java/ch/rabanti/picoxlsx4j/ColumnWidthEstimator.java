@@ -0,0 +1,364 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j;
+
+import ch.rabanti.picoxlsx4j.style.Font;
+import ch.rabanti.picoxlsx4j.style.NumberFormat;
+import ch.rabanti.picoxlsx4j.style.Style;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+
+/**
+ * Class to estimate the display width of cell values in the unit of column widths (width of a digit of the default font). The estimation is used for the automatic column width of worksheets and does not require any font rendering<br>
+ * Strings are measured with glyph-width tables, which are calculated once per font instance and cached. Numbers, dates and booleans are estimated by the length of their displayed value
+ * @author Raphael Stoeckli
+ */
+final class ColumnWidthEstimator {
+
+// ### C O N S T A N T S ###
+    /**
+     * Padding of a column in the unit of column widths (5 pixels at a digit width of 7 pixels)
+     */
+    private static final float COLUMN_PADDING = 5f / 7f;
+    /**
+     * Size of the default font
+     */
+    private static final float DEFAULT_FONT_SIZE = 11f;
+    /**
+     * Width of a digit of the default font in pixels
+     */
+    private static final float DIGIT_WIDTH = 7f;
+    /**
+     * Maximum number of characters of a number in the general format
+     */
+    private static final int MAX_GENERAL_LENGTH = 11;
+    /**
+     * Glyph widths of the printable ASCII characters (32 to 126) of the default font (Calibri 11) in pixels
+     */
+    private static final int[] PROPORTIONAL_WIDTHS = {
+        3, 3, 5, 7, 7, 10, 10, 3, 4, 4, 7, 7, 3, 4, 3, 5,       // space ! " # $ % & ' ( ) * + , - . /
+        7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 3, 3, 7, 7, 7, 6,         // 0-9 : ; < = > ?
+        12, 8, 8, 8, 9, 7, 6, 9, 9, 3, 4, 7, 6, 12, 9, 10,      // @ A-O
+        7, 10, 8, 6, 7, 9, 8, 13, 7, 7, 7, 4, 5, 4, 7, 7,       // P-Z [ \ ] ^ _
+        4, 7, 7, 6, 7, 7, 4, 7, 7, 3, 3, 6, 3, 11, 7, 7,        // ` a-o
+        7, 7, 5, 5, 4, 7, 6, 10, 6, 6, 5, 4, 6, 4, 7            // p-z { | } ~
+    };
+
+// ### S T A T I C   F I E L D S ###
+    private static final Font DEFAULT_FONT = new Font();
+    private static final Map<Font, GlyphTable> GLYPH_TABLES = Collections.synchronizedMap(new WeakHashMap<>());
+
+// ### C O N S T R U C T O R S ###
+    /**
+     * Private constructor (static class)
+     */
+    private ColumnWidthEstimator()
+    {
+    }
+
+// ### S T A T I C   M E T H O D S ###
+    /**
+     * Estimates the column width that is needed to display the value of a cell, including the padding of the column. Formulas and empty cells are not measured, since their displayed value is not known
+     * @param cell Cell to measure
+     * @return Column width (0 to 255) or 0 if the cell is not measured
+     */
+    static float estimateWidth(Cell cell)
+    {
+        Object value = cell.getValue();
+        if (value == null || cell.getDataType() == Cell.CellType.FORMULA || cell.getDataType() == Cell.CellType.EMPTY)
+        {
+            return 0f;
+        }
+        Style style = cell.getCellStyle();
+        Font font = style == null ? DEFAULT_FONT : style.getFont();
+        NumberFormat numberFormat = style == null ? null : style.getNumberFormat();
+        float[] table = getGlyphTable(font);
+        float width;
+        switch (cell.getDataType())
+        {
+            case NUMBER:
+                width = estimateNumberLength(value, numberFormat) * table['0'];
+                break;
+            case DATE:
+                width = estimateDateLength(numberFormat) * table['0'];
+                break;
+            case BOOL:
+                width = measureText(value.equals(true) ? "TRUE" : "FALSE", table);
+                break;
+            default:
+                width = measureText(value.toString(), table);
+                break;
+        }
+        width = width + COLUMN_PADDING;
+        if (width > Worksheet.MAX_COLUMN_WIDTH)
+        {
+            return Worksheet.MAX_COLUMN_WIDTH;
+        }
+        return Math.round(width * 100f) / 100f;
+    }
+
+    /**
+     * Estimates the number of characters of a date or time value, depending on its number format
+     * @param numberFormat Number format of the cell or null
+     * @return Number of characters
+     */
+    private static int estimateDateLength(NumberFormat numberFormat)
+    {
+        if (numberFormat == null)
+        {
+            return 10;
+        }
+        switch (numberFormat.getNumber())
+        {
+            case custom:        return getVisibleLength(numberFormat.getCustomFormatCode());
+            case format_15:     return 9;  // d-mmm-yy
+            case format_16:                // d-mmm
+            case format_17:     return 6;  // mmm-yy
+            case format_18:     return 8;  // h:mm AM/PM
+            case format_19:     return 11; // h:mm:ss AM/PM
+            case format_20:                // h:mm
+            case format_45:     return 5;  // mm:ss
+            case format_21:                // h:mm:ss
+            case format_46:     return 8;  // [h]:mm:ss
+            case format_47:     return 7;  // mmss.0
+            case format_22:     return 16; // m/d/yy h:mm
+            default:            return 10; // m/d/yyyy and serial numbers with time fraction
+        }
+    }
+
+    /**
+     * Estimates the number of characters of a numeric value, depending on its number format. All characters are counted with the width of a digit
+     * @param value Numeric value
+     * @param numberFormat Number format of the cell or null
+     * @return Number of characters
+     */
+    private static int estimateNumberLength(Object value, NumberFormat numberFormat)
+    {
+        int length;
+        int integerDigits;
+        if (value instanceof Double || value instanceof Float || value instanceof BigDecimal)
+        {
+            double number = ((Number)value).doubleValue();
+            String text = Double.toString(Math.abs(number));
+            int point = text.indexOf('.');
+            integerDigits = point < 0 || text.indexOf('E') >= 0 ? MAX_GENERAL_LENGTH : point;
+            length = Math.min(text.endsWith(".0") == true ? text.length() - 2 : text.length(), MAX_GENERAL_LENGTH);
+            if (number < 0) { length++; }
+        }
+        else
+        {
+            String text = value instanceof BigInteger ? value.toString() : Long.toString(((Number)value).longValue());
+            length = Math.min(text.length(), MAX_GENERAL_LENGTH);
+            integerDigits = text.charAt(0) == '-' ? text.length() - 1 : text.length();
+        }
+        if (numberFormat == null)
+        {
+            return length;
+        }
+        int separators = Math.max(0, (Math.min(integerDigits, 15) - 1) / 3);
+        switch (numberFormat.getNumber())
+        {
+            case custom:        return Math.max(length, getVisibleLength(numberFormat.getCustomFormatCode()));
+            case format_2:      return integerDigits + 3;                  // 0.00
+            case format_3:                                                 // #,##0
+            case format_37:                                                // #,##0_);(#,##0)
+            case format_38:     return integerDigits + separators + 1;     // #,##0_);[Red](#,##0)
+            case format_4:                                                 // #,##0.00
+            case format_39:                                                // #,##0.00_);(#,##0.00)
+            case format_40:     return integerDigits + separators + 4;     // #,##0.00_);[Red](#,##0.00)
+            case format_5:                                                 // $#,##0_);($#,##0)
+            case format_6:      return integerDigits + separators + 2;     // $#,##0_);[Red]($#,##0)
+            case format_7:                                                 // $#,##0.00_);($#,##0.00)
+            case format_8:      return integerDigits + separators + 5;     // $#,##0.00_);[Red]($#,##0.00)
+            case format_9:      return integerDigits + 3;                  // 0%
+            case format_10:     return integerDigits + 6;                  // 0.00%
+            case format_11:                                                // 0.00E+00
+            case format_48:     return 8;                                  // ##0.0E+0
+            case format_12:     return integerDigits + 4;                  // # ?/?
+            case format_13:     return integerDigits + 6;                  // # ??/??
+            case format_49:     return length;                             // @
+            default:            return length;
+        }
+    }
+
+    /**
+     * Gets the glyph-width table of a font. The table is calculated on the first request and cached for all further requests with the same font instance (fonts of managed styles are shared by all cells with the same style). The table is recalculated if the name, size or weight of the font was changed in the meantime
+     * @param font Font of the cell
+     * @return Table of the glyph widths of the ASCII characters in the unit of column widths
+     */
+    private static float[] getGlyphTable(Font font)
+    {
+        GlyphTable table = GLYPH_TABLES.get(font);
+        if (table == null || table.matches(font) == false)
+        {
+            table = new GlyphTable(font, createGlyphTable(font));
+            GLYPH_TABLES.put(font, table);
+        }
+        return table.widths;
+    }
+
+    /**
+     * Creates the glyph-width table of a font. The widths of the default font are scaled by the font size. Bold fonts are slightly wider. Monospaced fonts have the same width for all characters
+     * @param font Font to process
+     * @return Table of the glyph widths of the ASCII characters (index 0 to 127) in the unit of column widths
+     */
+    private static float[] createGlyphTable(Font font)
+    {
+        float scale = font.getSize() / DEFAULT_FONT_SIZE;
+        if (font.isBold() == true)
+        {
+            scale = scale * 1.08f;
+        }
+        String name = font.getName() == null ? "" : font.getName().toLowerCase();
+        boolean monospaced = name.contains("courier") || name.contains("consolas") || name.contains("mono") || name.contains("console");
+        float[] table = new float[128];
+        for (int i = 0; i < table.length; i++)
+        {
+            if (i < 32 || i > 126)
+            {
+                table[i] = 0f; // Control characters
+            }
+            else if (monospaced == true)
+            {
+                table[i] = 8f / DIGIT_WIDTH * scale;
+            }
+            else
+            {
+                table[i] = PROPORTIONAL_WIDTHS[i - 32] / DIGIT_WIDTH * scale;
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Gets the number of visible characters of a custom format code. Quotes, escape characters, brackets (e.g. colors) and section separators are not counted. Only the first section is considered
+     * @param code Format code
+     * @return Number of characters
+     */
+    private static int getVisibleLength(String code)
+    {
+        if (code == null)
+        {
+            return 0;
+        }
+        int length = 0;
+        boolean bracket = false;
+        for (int i = 0; i < code.length(); i++)
+        {
+            char c = code.charAt(i);
+            if (c == ';' && bracket == false)
+            {
+                break;
+            }
+            else if (c == '[')
+            {
+                bracket = true;
+            }
+            else if (c == ']')
+            {
+                bracket = false;
+            }
+            else if (bracket == false && c != '"' && c != '\\' && c != '_' && c != '*')
+            {
+                length++;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Measures a text with a glyph-width table. Characters beyond the ASCII range are estimated (East Asian wide characters with the double width). The longest line is returned for texts with line breaks
+     * @param text Text to measure
+     * @param table Glyph-width table of the font
+     * @return Width of the longest line in the unit of column widths
+     */
+    private static float measureText(String text, float[] table)
+    {
+        float max = 0f;
+        float width = 0f;
+        float digit = table['0'];
+        int length = text.length();
+        for (int i = 0; i < length; i++)
+        {
+            char c = text.charAt(i);
+            if (c == '\n')
+            {
+                if (width > max) { max = width; }
+                width = 0f;
+            }
+            else if (c < 128)
+            {
+                width += table[c];
+            }
+            else if (Character.isLowSurrogate(c) == true)
+            {
+                continue; // Counted with the high surrogate
+            }
+            else if (Character.isHighSurrogate(c) == true || isWideCharacter(c) == true)
+            {
+                width += digit * 2f;
+            }
+            else
+            {
+                width += digit * 1.1f;
+            }
+        }
+        return Math.max(max, width);
+    }
+
+    /**
+     * Checks whether a character is an East Asian wide character (e.g. CJK ideographs, Hangul or full-width forms)
+     * @param c Character to check
+     * @return True if the character is displayed with the double width
+     */
+    private static boolean isWideCharacter(char c)
+    {
+        return (c >= 0x1100 && c <= 0x115F) || (c >= 0x2E80 && c <= 0xA4CF) || (c >= 0xAC00 && c <= 0xD7A3)
+            || (c >= 0xF900 && c <= 0xFAFF) || (c >= 0xFE30 && c <= 0xFE4F) || (c >= 0xFF00 && c <= 0xFF60) || (c >= 0xFFE0 && c <= 0xFFE6);
+    }
+
+// ### S U B  C L A S S E S ###
+    /**
+     * Cached glyph-width table with the font properties it was calculated for
+     */
+    private static final class GlyphTable
+    {
+        private final String name;
+        private final int size;
+        private final boolean bold;
+        private final float[] widths;
+
+        /**
+         * Constructor with font and glyph widths
+         * @param font Font the widths were calculated for
+         * @param widths Glyph widths of the font
+         */
+        GlyphTable(Font font, float[] widths)
+        {
+            this.name = font.getName();
+            this.size = font.getSize();
+            this.bold = font.isBold();
+            this.widths = widths;
+        }
+
+        /**
+         * Checks whether the table is still valid for the font
+         * @param font Font to check
+         * @return True if name, size and weight of the font are unchanged, otherwise false
+         */
+        boolean matches(Font font)
+        {
+            return this.size == font.getSize() && this.bold == font.isBold() && Objects.equals(this.name, font.getName());
+        }
+    }
+
+}
@@ -0,0 +1,293 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j;
+
+import ch.rabanti.picoxlsx4j.exception.FormatException;
+import ch.rabanti.picoxlsx4j.exception.StyleException;
+import ch.rabanti.picoxlsx4j.style.Style;
+
+/**
+ * Class representing a conditional formatting rule of a worksheet. The rule is applied by Excel on all cells of the range, instead of a computed style per cell<br>
+ * Use the static methods (colorScale, dataBar, cellIs, expression) to create a rule. Styles of cellIs and expression rules are written as differential formats (only font, fill and border are considered)
+ * @author Raphael Stoeckli
+ */
+public class ConditionalFormat {
+
+// ### E N U M S ###
+    /**
+     * Enum to define the type of the rule
+     */
+    public enum RuleType
+    {
+        /**
+         * Gradient of two or three colors between the minimum and maximum value
+         */
+        colorScale,
+        /**
+         * Bar with a length relative to the minimum and maximum value
+         */
+        dataBar,
+        /**
+         * Style applied if the cell value matches the operator and formulas
+         */
+        cellIs,
+        /**
+         * Style applied if the formula evaluates to true
+         */
+        expression
+    }
+
+    /**
+     * Enum to define the operator of a cellIs rule
+     */
+    public enum Operator
+    {
+        /**
+         * Cell value is less than the formula
+         */
+        lessThan,
+        /**
+         * Cell value is less than or equal to the formula
+         */
+        lessThanOrEqual,
+        /**
+         * Cell value is equal to the formula
+         */
+        equal,
+        /**
+         * Cell value is not equal to the formula
+         */
+        notEqual,
+        /**
+         * Cell value is greater than or equal to the formula
+         */
+        greaterThanOrEqual,
+        /**
+         * Cell value is greater than the formula
+         */
+        greaterThan,
+        /**
+         * Cell value is between the two formulas (inclusive)
+         */
+        between,
+        /**
+         * Cell value is not between the two formulas
+         */
+        notBetween
+    }
+
+// ### P R I V A T E  F I E L D S ###
+    private final String[] colors;
+    private final String formula1;
+    private final String formula2;
+    private final Operator operator;
+    private final Range range;
+    private final Style style;
+    private final RuleType type;
+
+// ### G E T T E R S ###
+    /**
+     * Gets the colors of a color scale (minimum, optional midpoint, maximum) or data bar rule as ARGB values
+     * @return Array of colors. Empty for cellIs and expression rules
+     */
+    public String[] getColors() {
+        return colors.clone();
+    }
+
+    /**
+     * Gets the first formula of a cellIs rule or the formula of an expression rule
+     * @return Formula or null
+     */
+    public String getFormula1() {
+        return formula1;
+    }
+
+    /**
+     * Gets the second formula of a cellIs rule with the operator between or notBetween
+     * @return Formula or null
+     */
+    public String getFormula2() {
+        return formula2;
+    }
+
+    /**
+     * Gets the operator of a cellIs rule
+     * @return Operator or null
+     */
+    public Operator getOperator() {
+        return operator;
+    }
+
+    /**
+     * Gets the range of the rule
+     * @return Cell range
+     */
+    public Range getRange() {
+        return range;
+    }
+
+    /**
+     * Gets the style (differential format) of a cellIs or expression rule
+     * @return Style or null
+     */
+    public Style getStyle() {
+        return style;
+    }
+
+    /**
+     * Gets the type of the rule
+     * @return Rule type
+     */
+    public RuleType getType() {
+        return type;
+    }
+
+// ### C O N S T R U C T O R S ###
+    /**
+     * Constructor with all fields
+     * @param type Type of the rule
+     * @param range Range of the rule
+     * @param colors Colors as ARGB values
+     * @param operator Operator of a cellIs rule
+     * @param formula1 First formula
+     * @param formula2 Second formula
+     * @param style Style of the rule
+     */
+    private ConditionalFormat(RuleType type, Range range, String[] colors, Operator operator, String formula1, String formula2, Style style)
+    {
+        this.type = type;
+        this.range = range;
+        this.colors = colors;
+        this.operator = operator;
+        this.formula1 = formula1;
+        this.formula2 = formula2;
+        this.style = style;
+    }
+
+// ### S T A T I C   M E T H O D S ###
+    /**
+     * Creates a two color scale rule from the minimum to the maximum value of the range
+     * @param range Range of the rule
+     * @param minColor Color of the minimum value as RGB value (e.g. F8696B)
+     * @param maxColor Color of the maximum value as RGB value (e.g. 63BE7B)
+     * @return Conditional formatting rule
+     * @throws FormatException Thrown if a color is not a valid RGB value
+     */
+    public static ConditionalFormat colorScale(Range range, String minColor, String maxColor)
+    {
+        return new ConditionalFormat(RuleType.colorScale, range, new String[] { resolveColor(minColor), resolveColor(maxColor) }, null, null, null, null);
+    }
+
+    /**
+     * Creates a three color scale rule from the minimum over the midpoint (50th percentile) to the maximum value of the range
+     * @param range Range of the rule
+     * @param minColor Color of the minimum value as RGB value (e.g. F8696B)
+     * @param midColor Color of the midpoint as RGB value (e.g. FFEB84)
+     * @param maxColor Color of the maximum value as RGB value (e.g. 63BE7B)
+     * @return Conditional formatting rule
+     * @throws FormatException Thrown if a color is not a valid RGB value
+     */
+    public static ConditionalFormat colorScale(Range range, String minColor, String midColor, String maxColor)
+    {
+        return new ConditionalFormat(RuleType.colorScale, range, new String[] { resolveColor(minColor), resolveColor(midColor), resolveColor(maxColor) }, null, null, null, null);
+    }
+
+    /**
+     * Creates a data bar rule from the minimum to the maximum value of the range
+     * @param range Range of the rule
+     * @param color Color of the bars as RGB value (e.g. 638EC6)
+     * @return Conditional formatting rule
+     * @throws FormatException Thrown if the color is not a valid RGB value
+     */
+    public static ConditionalFormat dataBar(Range range, String color)
+    {
+        return new ConditionalFormat(RuleType.dataBar, range, new String[] { resolveColor(color) }, null, null, null, null);
+    }
+
+    /**
+     * Creates a cellIs rule with one formula (comparison value)
+     * @param range Range of the rule
+     * @param operator Operator of the comparison. Must not be between or notBetween
+     * @param formula Formula or value to compare with (e.g. 100 or $B$1)
+     * @param style Style to apply if the condition is true
+     * @return Conditional formatting rule
+     * @throws FormatException Thrown if the operator needs two formulas
+     * @throws StyleException Thrown if no style was defined
+     */
+    public static ConditionalFormat cellIs(Range range, Operator operator, String formula, Style style)
+    {
+        if (operator == Operator.between || operator == Operator.notBetween)
+        {
+            throw new FormatException("FormatException", "The operator " + operator + " needs two formulas.");
+        }
+        return new ConditionalFormat(RuleType.cellIs, range, new String[0], operator, formula, null, validateStyle(style));
+    }
+
+    /**
+     * Creates a cellIs rule with the operator between or notBetween
+     * @param range Range of the rule
+     * @param operator Operator of the comparison (between or notBetween)
+     * @param formula1 Formula or value of the lower limit
+     * @param formula2 Formula or value of the upper limit
+     * @param style Style to apply if the condition is true
+     * @return Conditional formatting rule
+     * @throws FormatException Thrown if the operator is not between or notBetween
+     * @throws StyleException Thrown if no style was defined
+     */
+    public static ConditionalFormat cellIs(Range range, Operator operator, String formula1, String formula2, Style style)
+    {
+        if (operator != Operator.between && operator != Operator.notBetween)
+        {
+            throw new FormatException("FormatException", "The operator " + operator + " needs exactly one formula.");
+        }
+        return new ConditionalFormat(RuleType.cellIs, range, new String[0], operator, formula1, formula2, validateStyle(style));
+    }
+
+    /**
+     * Creates an expression rule. The formula is defined for the first (top left) cell of the range and evaluated with relative references for all other cells
+     * @param range Range of the rule
+     * @param formula Formula that evaluates to true or false (e.g. MOD(ROW(),2)=0)
+     * @param style Style to apply if the formula evaluates to true
+     * @return Conditional formatting rule
+     * @throws StyleException Thrown if no style was defined
+     */
+    public static ConditionalFormat expression(Range range, String formula, Style style)
+    {
+        return new ConditionalFormat(RuleType.expression, range, new String[0], null, formula, null, validateStyle(style));
+    }
+
+    /**
+     * Validates a RGB color and converts it to an ARGB value
+     * @param rgb RGB value (6 hex characters)
+     * @return ARGB value
+     * @throws FormatException Thrown if the color is not a valid RGB value
+     */
+    private static String resolveColor(String rgb)
+    {
+        if (rgb == null || rgb.matches("[0-9A-Fa-f]{6}") == false)
+        {
+            throw new FormatException("FormatException", "The color '" + rgb + "' is not a valid RGB value (e.g. FF0000).");
+        }
+        return "FF" + rgb.toUpperCase();
+    }
+
+    /**
+     * Checks that a style was defined
+     * @param style Style to check
+     * @return Passed style
+     * @throws StyleException Thrown if no style was defined
+     */
+    private static Style validateStyle(Style style)
+    {
+        if (style == null)
+        {
+            throw new StyleException("MissingReferenceException", "No style for the conditional formatting rule was defined");
+        }
+        return style;
+    }
+
+}
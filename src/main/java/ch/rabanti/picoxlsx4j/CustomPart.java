@@ -0,0 +1,233 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j;
+
+import ch.rabanti.picoxlsx4j.exception.FormatException;
+import ch.rabanti.picoxlsx4j.exception.IOException;
+import ch.rabanti.picoxlsx4j.lowLevel.Packer;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * Class representing a custom part (e.g. an image or a prebuilt XML part), which is added unchanged to the XLSX file when the workbook is saved. The data is streamed from its source into the file without loading it completely into memory<br>
+ * A custom part can optionally be referenced by a relationship of the package or of another part. Any further references (e.g. a drawing element in a worksheet) must be part of the custom parts themselves
+ * @author Raphael Stoeckli
+ */
+public class CustomPart {
+
+// ### P R I V A T E  F I E L D S ###
+    private ByteBuffer buffer;
+    private boolean compress;
+    private boolean compressed;
+    private final String contentType;
+    private long crc;
+    private Path file;
+    private final String name;
+    private String relationshipSource;
+    private String relationshipType;
+    private long size;
+    private InputStream stream;
+    private boolean streamUsed;
+
+// ### G E T T E R S  &  S E T T E R S ###
+    /**
+     * Gets the content type of the part (MSXML)
+     * @return Content type
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Gets the name of the part
+     * @return Filename with relative path (e.g. 'xl/media/image1.png')
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the source of the relationship to this part
+     * @return Empty string for the package, name of the source part or null if the part is not referenced by a relationship
+     */
+    public String getRelationshipSource() {
+        return relationshipSource;
+    }
+
+    /**
+     * Gets the type of the relationship to this part
+     * @return Relationship type or null if the part is not referenced by a relationship
+     */
+    public String getRelationshipType() {
+        return relationshipType;
+    }
+
+    /**
+     * Gets whether the part is deflated when saved. Already compressed parts are never deflated again
+     * @return True if the part is deflated, otherwise it is stored without compression
+     */
+    public boolean isCompressed() {
+        return compress || compressed;
+    }
+
+    /**
+     * Sets a relationship to this part. The relationship is added to the rels file of the source when the workbook is saved
+     * @param sourcePart Empty string to reference the part from the package (_rels/.rels) or name of the source part (e.g. 'xl/workbook.xml' for xl/_rels/workbook.xml.rels)
+     * @param type Relationship type (URL)
+     * @throws FormatException Thrown if the source part or the type is not defined
+     */
+    public void setRelationship(String sourcePart, String type)
+    {
+        if (sourcePart == null || type == null || type.isEmpty())
+        {
+            throw new FormatException("FormatException", "The source part and the type of the relationship to the part '" + this.name + "' must be defined.");
+        }
+        this.relationshipSource = sourcePart.startsWith("/") ? sourcePart.substring(1) : sourcePart;
+        this.relationshipType = type;
+    }
+
+// ### C O N S T R U C T O R S ###
+    /**
+     * Constructor with name and content type. Use the static factory methods to create a custom part
+     * @param name Filename with relative path
+     * @param contentType Content type of the part (MSXML)
+     * @throws FormatException Thrown if the name or the content type is not valid
+     */
+    private CustomPart(String name, String contentType)
+    {
+        if (name == null || name.isEmpty() || name.startsWith("/") || name.endsWith("/") || name.contains("\\"))
+        {
+            throw new FormatException("FormatException", "The part name '" + name + "' is not valid. A relative path with forward slashes is expected (e.g. 'xl/media/image1.png').");
+        }
+        if (contentType == null || contentType.isEmpty())
+        {
+            throw new FormatException("FormatException", "The content type of the part '" + name + "' must be defined.");
+        }
+        this.name = name;
+        this.contentType = contentType;
+    }
+
+// ### M E T H O D S ###
+    /**
+     * Adds the part and its relationship to a packer. This is an internal method. There is no need to use it. It must be public to require access from the LowLevel class
+     * @param packer Packer of the XLSX file
+     * @throws IOException Thrown if a stream part was already saved or the relationship could not be created
+     */
+    public void addToPackage(Packer packer) throws IOException
+    {
+        if (this.stream != null)
+        {
+            if (this.streamUsed == true)
+            {
+                throw new IOException("CustomPartException", "The stream of the part '" + this.name + "' was already saved and cannot be read a second time.");
+            }
+            this.streamUsed = true;
+            packer.addPart(this.name, this.contentType, this.stream, true);
+        }
+        else if (this.file != null)
+        {
+            packer.addPart(this.name, this.contentType, this.file, this.compress, true);
+        }
+        else if (this.compressed == true)
+        {
+            packer.addCompressedPart(this.name, this.contentType, this.buffer, this.crc, this.size, true);
+        }
+        else
+        {
+            packer.addPart(this.name, this.contentType, this.buffer, this.compress, true);
+        }
+        if (this.relationshipSource != null)
+        {
+            packer.getRelationship(getRelationshipPath(this.relationshipSource)).addRelationshipEntry("/" + this.name, this.relationshipType);
+        }
+    }
+
+// ### S T A T I C   M E T H O D S ###
+    /**
+     * Creates a custom part from a buffer. The buffer is not copied, so its content must not be modified until the workbook is saved
+     * @param name Filename with relative path (e.g. 'xl/media/image1.png')
+     * @param contentType Content type of the part (e.g. 'image/png')
+     * @param data Buffer with the data between its position and limit (heap or direct buffer)
+     * @param compress If true, the part is deflated when saved, otherwise it is stored without compression
+     * @return Custom part
+     * @throws FormatException Thrown if the name or the content type is not valid
+     */
+    public static CustomPart fromBuffer(String name, String contentType, ByteBuffer data, boolean compress)
+    {
+        CustomPart part = new CustomPart(name, contentType);
+        part.buffer = data.slice();
+        part.compress = compress;
+        return part;
+    }
+
+    /**
+     * Creates a custom part from already deflated data. The data is written into the XLSX file without recompression
+     * @param name Filename with relative path
+     * @param contentType Content type of the part
+     * @param deflatedData Buffer with the raw deflated data (without zlib header, e.g. created by a Deflater with the option nowrap) between its position and limit
+     * @param crc CRC-32 of the uncompressed data
+     * @param size Size of the uncompressed data in bytes
+     * @return Custom part
+     * @throws FormatException Thrown if the name or the content type is not valid
+     */
+    public static CustomPart fromCompressed(String name, String contentType, ByteBuffer deflatedData, long crc, long size)
+    {
+        CustomPart part = new CustomPart(name, contentType);
+        part.buffer = deflatedData.slice();
+        part.compressed = true;
+        part.crc = crc;
+        part.size = size;
+        return part;
+    }
+
+    /**
+     * Creates a custom part from a file. The file is read when the workbook is saved and is not loaded into memory
+     * @param name Filename with relative path (e.g. 'xl/media/image1.png')
+     * @param contentType Content type of the part (e.g. 'image/png')
+     * @param file File with the data
+     * @param compress If true, the part is deflated when saved, otherwise the file is stored without compression (recommended for already compressed formats like PNG or JPEG)
+     * @return Custom part
+     * @throws FormatException Thrown if the name or the content type is not valid
+     */
+    public static CustomPart fromFile(String name, String contentType, Path file, boolean compress)
+    {
+        CustomPart part = new CustomPart(name, contentType);
+        part.file = file;
+        part.compress = compress;
+        return part;
+    }
+
+    /**
+     * Creates a custom part from a stream. The stream is read when the workbook is saved and is always deflated. Since a stream can only be read once, the workbook cannot be saved a second time with this part. The data must not exceed 4 GB, since its size is not known in advance (use a file for larger data). The stream is not closed
+     * @param name Filename with relative path
+     * @param contentType Content type of the part
+     * @param data Stream with the data
+     * @return Custom part
+     * @throws FormatException Thrown if the name or the content type is not valid
+     */
+    public static CustomPart fromStream(String name, String contentType, InputStream data)
+    {
+        CustomPart part = new CustomPart(name, contentType);
+        part.stream = data;
+        part.compress = true;
+        return part;
+    }
+
+    /**
+     * Gets the path of the rels file of a source part
+     * @param sourcePart Empty string for the package or name of the source part
+     * @return Path of the rels file (e.g. 'xl/_rels/workbook.xml.rels')
+     */
+    private static String getRelationshipPath(String sourcePart)
+    {
+        int index = sourcePart.lastIndexOf('/');
+        return sourcePart.substring(0, index + 1) + "_rels/" + sourcePart.substring(index + 1) + ".rels";
+    }
+
+}
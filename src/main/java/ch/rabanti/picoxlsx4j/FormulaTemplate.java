@@ -0,0 +1,530 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j;
+
+import ch.rabanti.picoxlsx4j.exception.FormatException;
+import ch.rabanti.picoxlsx4j.lowLevel.LowLevel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class representing a parsed formula, split into literal text and cell references (A1 notation). The formula is defined for an anchor cell and can be rendered for any other cell with moved relative references, like when copying a cell in Excel<br>
+ * Whole columns (e.g. A:C) and whole rows (e.g. 1:3) are references without row or column. Structured references of tables (e.g. Table1[Amount]) are kept as literal text<br>
+ * A template can be added to many cells (see Worksheet.addCellFormula). The cells only reference the template, the formula string of each cell is rendered directly into the worksheet part when saving
+ * @author Raphael Stoeckli
+ */
+public class FormulaTemplate {
+
+// ### C O N S T A N T S ###
+    /**
+     * Column or row number of a reference to a whole row or column
+     */
+    private static final int UNDEFINED = -1;
+
+// ### P R I V A T E  F I E L D S ###
+    private final boolean[] absoluteColumns;
+    private final boolean[] absoluteRows;
+    private final int anchorColumn;
+    private final int anchorRow;
+    private final int[] columns;
+    private String[] escapedLiterals;
+    private final String[] literals;
+    private final int[] rows;
+
+// ### C O N S T R U C T O R S ###
+    /**
+     * Constructor with the parsed components. The number of literals is the number of references plus one
+     * @param literals Literal text before, between and after the references
+     * @param columns Zero-based column numbers of the references. -1 for whole rows
+     * @param rows Zero-based row numbers of the references. -1 for whole columns
+     * @param absoluteColumns Flags whether the columns of the references are absolute ($A1)
+     * @param absoluteRows Flags whether the rows of the references are absolute (A$1)
+     * @param anchorColumn Column number of the anchor cell (zero-based)
+     * @param anchorRow Row number of the anchor cell (zero-based)
+     */
+    FormulaTemplate(String[] literals, int[] columns, int[] rows, boolean[] absoluteColumns, boolean[] absoluteRows, int anchorColumn, int anchorRow)
+    {
+        this.anchorColumn = anchorColumn;
+        this.anchorRow = anchorRow;
+        this.literals = literals;
+        this.columns = columns;
+        this.rows = rows;
+        this.absoluteColumns = absoluteColumns;
+        this.absoluteRows = absoluteRows;
+    }
+
+// ### M E T H O D S ###
+    /**
+     * Gets the anchor cell of the template. The formula is valid as written for this cell
+     * @return Anchor address
+     */
+    public Address getAnchor()
+    {
+        return new Address(this.anchorColumn, this.anchorRow);
+    }
+
+    /**
+     * Gets the number of cell references in the formula
+     * @return Number of references
+     */
+    public int getReferenceCount()
+    {
+        return this.columns.length;
+    }
+
+    /**
+     * Checks whether this formula is the passed formula, moved by a number of rows (literals, columns and absolute rows are identical, relative rows differ by the offset)
+     * @param other Formula to compare
+     * @param rowOffset Row offset of this formula relative to the other formula
+     * @return True if this formula is the shifted other formula, otherwise false
+     */
+    public boolean isRowShiftOf(FormulaTemplate other, int rowOffset)
+    {
+        if (Arrays.equals(this.literals, other.literals) == false
+                || Arrays.equals(this.columns, other.columns) == false
+                || Arrays.equals(this.absoluteColumns, other.absoluteColumns) == false
+                || Arrays.equals(this.absoluteRows, other.absoluteRows) == false)
+        {
+            return false;
+        }
+        for (int i = 0; i < this.rows.length; i++)
+        {
+            if (this.absoluteRows[i] == true || this.rows[i] == UNDEFINED || other.rows[i] == UNDEFINED)
+            {
+                if (this.rows[i] != other.rows[i]) { return false; }
+            }
+            else if (this.rows[i] != other.rows[i] + rowOffset)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Renders the formula into the passed StringBuilder. Relative references are moved by the passed offsets. References that are moved out of the worksheet are rendered as #REF!
+     * @param sb StringBuilder to append
+     * @param rowOffset Number of rows to move relative references
+     * @param columnOffset Number of columns to move relative references
+     */
+    public void render(StringBuilder sb, int rowOffset, int columnOffset)
+    {
+        render(sb, rowOffset, columnOffset, this.literals);
+    }
+
+    /**
+     * Renders the formula for the defined cell into the passed StringBuilder. Relative references are moved by the offset of the cell to the anchor cell
+     * @param sb StringBuilder to append
+     * @param columnNumber Column number of the cell (zero-based)
+     * @param rowNumber Row number of the cell (zero-based)
+     */
+    public void renderAt(StringBuilder sb, int columnNumber, int rowNumber)
+    {
+        render(sb, rowNumber - this.anchorRow, columnNumber - this.anchorColumn, this.literals);
+    }
+
+    /**
+     * Renders the formula for the defined cell as string. Relative references are moved by the offset of the cell to the anchor cell
+     * @param columnNumber Column number of the cell (zero-based)
+     * @param rowNumber Row number of the cell (zero-based)
+     * @return Rendered formula
+     */
+    public String renderAt(int columnNumber, int rowNumber)
+    {
+        StringBuilder sb = new StringBuilder();
+        renderAt(sb, columnNumber, rowNumber);
+        return sb.toString();
+    }
+
+    /**
+     * Renders the formula for the defined cell with escaped XML characters into the passed StringBuilder. The literal text is escaped only once per template. This is an internal method to write the worksheet part
+     * @param sb StringBuilder to append
+     * @param columnNumber Column number of the cell (zero-based)
+     * @param rowNumber Row number of the cell (zero-based)
+     */
+    public void renderXmlAt(StringBuilder sb, int columnNumber, int rowNumber)
+    {
+        if (this.escapedLiterals == null)
+        {
+            String[] escaped = new String[this.literals.length];
+            for (int i = 0; i < this.literals.length; i++)
+            {
+                escaped[i] = LowLevel.escapeXMLChars(this.literals[i]);
+            }
+            this.escapedLiterals = escaped;
+        }
+        render(sb, rowNumber - this.anchorRow, columnNumber - this.anchorColumn, this.escapedLiterals);
+    }
+
+    /**
+     * Override toString method
+     * @return Formula as valid for the anchor cell
+     */
+    @Override
+    public String toString()
+    {
+        return render(0, 0);
+    }
+
+    /**
+     * Renders the formula with the passed literal text into the passed StringBuilder
+     * @param sb StringBuilder to append
+     * @param rowOffset Number of rows to move relative references
+     * @param columnOffset Number of columns to move relative references
+     * @param literalText Literal text (plain or escaped)
+     */
+    private void render(StringBuilder sb, int rowOffset, int columnOffset, String[] literalText)
+    {
+        int column, row;
+        for (int i = 0; i < this.columns.length; i++)
+        {
+            sb.append(literalText[i]);
+            column = this.columns[i];
+            row = this.rows[i];
+            if (this.absoluteColumns[i] == false && column != UNDEFINED) { column += columnOffset; }
+            if (this.absoluteRows[i] == false && row != UNDEFINED) { row += rowOffset; }
+            if ((this.columns[i] != UNDEFINED && (column < Worksheet.MIN_COLUMN_NUMBER || column > Worksheet.MAX_COLUMN_NUMBER))
+                    || (this.rows[i] != UNDEFINED && (row < Worksheet.MIN_ROW_NUMBER || row > Worksheet.MAX_ROW_NUMBER)))
+            {
+                sb.append("#REF!");
+                continue;
+            }
+            if (column != UNDEFINED)
+            {
+                if (this.absoluteColumns[i] == true) { sb.append('$'); }
+                sb.append(Cell.resolveColumnAddress(column));
+            }
+            if (row != UNDEFINED)
+            {
+                if (this.absoluteRows[i] == true) { sb.append('$'); }
+                sb.append(row + 1);
+            }
+        }
+        sb.append(literalText[this.columns.length]);
+    }
+
+    /**
+     * Renders the formula as string. Relative references are moved by the passed offsets
+     * @param rowOffset Number of rows to move relative references
+     * @param columnOffset Number of columns to move relative references
+     * @return Rendered formula
+     */
+    public String render(int rowOffset, int columnOffset)
+    {
+        StringBuilder sb = new StringBuilder();
+        render(sb, rowOffset, columnOffset);
+        return sb.toString();
+    }
+
+// ### S T A T I C   M E T H O D S ###
+    /**
+     * Parses a formula that is valid for the cell A1. String literals ("..."), quoted sheet names ('...'), structured references ([...]), function names, sheet names and numbers are kept as literal text. Only A1 references, whole columns (A:C) and whole rows (1:3) within the valid worksheet range are recognized as references
+     * @param formula Formula to parse
+     * @return Parsed formula
+     */
+    public static FormulaTemplate parse(String formula)
+    {
+        return parse(formula, Worksheet.MIN_COLUMN_NUMBER, Worksheet.MIN_ROW_NUMBER);
+    }
+
+    /**
+     * Parses a formula that is valid for the defined anchor cell
+     * @param formula Formula to parse
+     * @param anchor Address of the cell, for which the formula is written (e.g. B11 for SUM(B1:B10) as total below the values)
+     * @return Parsed formula
+     */
+    public static FormulaTemplate parse(String formula, Address anchor)
+    {
+        return parse(formula, anchor.Column, anchor.Row);
+    }
+
+    /**
+     * Parses a formula that is valid for the defined anchor cell
+     * @param formula Formula to parse
+     * @param anchor Address of the cell in the format A1 - XFD1048576, for which the formula is written
+     * @return Parsed formula
+     * @throws FormatException Thrown if the passed address is malformed
+     */
+    public static FormulaTemplate parse(String formula, String anchor)
+    {
+        return parse(formula, Cell.resolveCellCoordinate(anchor));
+    }
+
+    /**
+     * Parses a formula that is valid for the defined anchor cell
+     * @param formula Formula to parse
+     * @param anchorColumn Column number of the anchor cell (zero-based)
+     * @param anchorRow Row number of the anchor cell (zero-based)
+     * @return Parsed formula
+     */
+    private static FormulaTemplate parse(String formula, int anchorColumn, int anchorRow)
+    {
+        List<String> literals = new ArrayList<>();
+        List<int[]> references = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int length = formula.length();
+        int i = 0;
+        int end;
+        char c;
+        while (i < length)
+        {
+            c = formula.charAt(i);
+            if (c == '"' || c == '\'')
+            {
+                end = findClosingQuote(formula, i, c);
+                literal.append(formula, i, end);
+                i = end;
+            }
+            else if (c == '[')
+            {
+                end = findClosingBracket(formula, i);
+                literal.append(formula, i, end);
+                i = end;
+            }
+            else if (isIdentifierChar(c) == true)
+            {
+                end = i;
+                while (end < length && isIdentifierChar(formula.charAt(end)) == true) { end++; }
+                if (end < length && formula.charAt(end) == ':')
+                {
+                    int rangeEnd = end + 1;
+                    while (rangeEnd < length && isIdentifierChar(formula.charAt(rangeEnd)) == true) { rangeEnd++; }
+                    int[][] range = parseWholeRange(formula, i, end, rangeEnd);
+                    if (range != null)
+                    {
+                        literals.add(literal.toString());
+                        references.add(range[0]);
+                        literals.add(":");
+                        references.add(range[1]);
+                        literal.setLength(0);
+                        i = rangeEnd;
+                        continue;
+                    }
+                }
+                int[] reference = null;
+                if (end >= length || (formula.charAt(end) != '(' && formula.charAt(end) != '!' && formula.charAt(end) != '['))
+                {
+                    reference = parseReference(formula, i, end);
+                }
+                if (reference == null)
+                {
+                    literal.append(formula, i, end);
+                }
+                else
+                {
+                    literals.add(literal.toString());
+                    literal.setLength(0);
+                    references.add(reference);
+                }
+                i = end;
+            }
+            else
+            {
+                literal.append(c);
+                i++;
+            }
+        }
+        literals.add(literal.toString());
+        int count = references.size();
+        int[] columns = new int[count];
+        int[] rows = new int[count];
+        boolean[] absoluteColumns = new boolean[count];
+        boolean[] absoluteRows = new boolean[count];
+        for (int j = 0; j < count; j++)
+        {
+            int[] reference = references.get(j);
+            columns[j] = reference[0];
+            rows[j] = reference[1];
+            absoluteColumns[j] = reference[2] == 1;
+            absoluteRows[j] = reference[3] == 1;
+        }
+        return new FormulaTemplate(literals.toArray(new String[0]), columns, rows, absoluteColumns, absoluteRows, anchorColumn, anchorRow);
+    }
+
+    /**
+     * Finds the position after the closing quote of a quoted token. Doubled quotes are treated as escaped quotes
+     * @param formula Formula to process
+     * @param start Position of the opening quote
+     * @param quote Quote character
+     * @return Position after the closing quote or the end of the formula if not closed
+     */
+    private static int findClosingQuote(String formula, int start, char quote)
+    {
+        int i = start + 1;
+        while (i < formula.length())
+        {
+            if (formula.charAt(i) == quote)
+            {
+                if (i + 1 < formula.length() && formula.charAt(i + 1) == quote)
+                {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return formula.length();
+    }
+
+    /**
+     * Finds the position after the closing bracket of a structured reference (e.g. [Amount] or [[#This Row],[Amount]]). Nested brackets are considered and characters escaped with an apostrophe are skipped
+     * @param formula Formula to process
+     * @param start Position of the opening bracket
+     * @return Position after the closing bracket or the end of the formula if not closed
+     */
+    private static int findClosingBracket(String formula, int start)
+    {
+        int depth = 0;
+        int i = start;
+        char c;
+        while (i < formula.length())
+        {
+            c = formula.charAt(i);
+            if (c == '\'')
+            {
+                i += 2;
+                continue;
+            }
+            if (c == '[')
+            {
+                depth++;
+            }
+            else if (c == ']')
+            {
+                depth--;
+                if (depth == 0)
+                {
+                    return i + 1;
+                }
+            }
+            i++;
+        }
+        return formula.length();
+    }
+
+    /**
+     * Checks whether a character is part of an identifier, a number or a cell reference
+     * @param c Character to check
+     * @return True if the character is a letter, digit, underscore, dot or dollar sign
+     */
+    private static boolean isIdentifierChar(char c)
+    {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '_' || c == '.' || c == '$';
+    }
+
+    /**
+     * Parses a token as cell reference ($A$1, A1, $A1 or A$1)
+     * @param formula Formula to process
+     * @param start Start position of the token
+     * @param end End position of the token (exclusive)
+     * @return Array with column, row, absolute column flag and absolute row flag or null if the token is not a valid reference
+     */
+    private static int[] parseReference(String formula, int start, int end)
+    {
+        int i = start;
+        int absoluteColumn = 0;
+        int absoluteRow = 0;
+        if (formula.charAt(i) == '$') { absoluteColumn = 1; i++; }
+        int column = 0;
+        int letters = 0;
+        char c;
+        while (i < end)
+        {
+            c = Character.toUpperCase(formula.charAt(i));
+            if (c < 'A' || c > 'Z') { break; }
+            column = column * 26 + (c - 'A' + 1);
+            letters++;
+            i++;
+        }
+        if (letters == 0 || letters > 3) { return null; }
+        if (i < end && formula.charAt(i) == '$') { absoluteRow = 1; i++; }
+        int row = 0;
+        int digits = 0;
+        while (i < end)
+        {
+            c = formula.charAt(i);
+            if (c < '0' || c > '9') { return null; }
+            row = row * 10 + (c - '0');
+            digits++;
+            if (digits > 7) { return null; }
+            i++;
+        }
+        if (digits == 0 || row < 1 || row > Worksheet.MAX_ROW_NUMBER + 1 || column > Worksheet.MAX_COLUMN_NUMBER + 1)
+        {
+            return null;
+        }
+        return new int[] { column - 1, row - 1, absoluteColumn, absoluteRow };
+    }
+
+    /**
+     * Parses two tokens, separated by a colon, as range of whole columns (A:C or $A:$C) or whole rows (1:3 or $1:$3)
+     * @param formula Formula to process
+     * @param start Start position of the first token
+     * @param separator Position of the colon
+     * @param end End position of the second token (exclusive)
+     * @return Two arrays with column, row, absolute column flag and absolute row flag (the row or column is -1) or null if the tokens are not a range of whole columns or rows
+     */
+    private static int[][] parseWholeRange(String formula, int start, int separator, int end)
+    {
+        if (end > formula.length() || (end < formula.length() && (formula.charAt(end) == '(' || formula.charAt(end) == '!' || formula.charAt(end) == '[')))
+        {
+            return null;
+        }
+        int[] first = parseWholeReference(formula, start, separator);
+        int[] second = parseWholeReference(formula, separator + 1, end);
+        if (first == null || second == null || (first[0] == UNDEFINED) != (second[0] == UNDEFINED))
+        {
+            return null;
+        }
+        return new int[][] { first, second };
+    }
+
+    /**
+     * Parses a token as whole column ($A or A) or whole row ($1 or 1)
+     * @param formula Formula to process
+     * @param start Start position of the token
+     * @param end End position of the token (exclusive)
+     * @return Array with column, row, absolute column flag and absolute row flag (the row or column is -1) or null if the token is not a valid column or row
+     */
+    private static int[] parseWholeReference(String formula, int start, int end)
+    {
+        int i = start;
+        int absolute = 0;
+        if (i < end && formula.charAt(i) == '$') { absolute = 1; i++; }
+        if (i >= end || end - i > 7) { return null; }
+        int value = 0;
+        char c;
+        boolean letters = Character.isLetter(formula.charAt(i));
+        for (; i < end; i++)
+        {
+            c = Character.toUpperCase(formula.charAt(i));
+            if (letters == true && c >= 'A' && c <= 'Z')
+            {
+                value = value * 26 + (c - 'A' + 1);
+            }
+            else if (letters == false && c >= '0' && c <= '9')
+            {
+                value = value * 10 + (c - '0');
+            }
+            else
+            {
+                return null;
+            }
+        }
+        if (letters == true)
+        {
+            if (end - start - absolute > 3 || value > Worksheet.MAX_COLUMN_NUMBER + 1) { return null; }
+            return new int[] { value - 1, UNDEFINED, absolute, 0 };
+        }
+        if (value < 1 || value > Worksheet.MAX_ROW_NUMBER + 1) { return null; }
+        return new int[] { UNDEFINED, value - 1, 0, absolute };
+    }
+
+}
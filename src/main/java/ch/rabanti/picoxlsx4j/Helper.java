@@ -8,7 +8,10 @@ package ch.rabanti.picoxlsx4j;
 
 import ch.rabanti.picoxlsx4j.exception.FormatException;
 
-import java.util.Calendar;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Date;
 
 /**
@@ -16,19 +19,20 @@ import java.util.Date;
  * @author Raphael Stoeckli
  */
 public class Helper {
-        
-// ### C O N S T A N T S ###    
-    private static final long ROOT_TICKS;
-    static
-    {
-        Calendar rootCalendar = Calendar.getInstance();
-        rootCalendar.set(1899, Calendar.DECEMBER, 30,0,0,0);
-        ROOT_TICKS = rootCalendar.getTimeInMillis();
-    }
-    
-// ### S T A T I C   M E T H O D S ###    
+
+// ### C O N S T A N T S ###
+    /**
+     * Number of days between the OA date root (1899-12-30) and the Unix epoch (1970-01-01)
+     */
+    private static final long EPOCH_OFFSET_DAYS = 25569L;
     /**
-     * Method to calculate the OA date (OLE automation) of the passed date.<br>
+     * Number of seconds of one day
+     */
+    private static final int SECONDS_PER_DAY = 86400;
+
+// ### S T A T I C   M E T H O D S ###
+    /**
+     * Method to calculate the OA date (OLE automation) of the passed date. The default time zone of the system is used to resolve the local date and time.<br>
      * OA Date format starts at January 1st 1900 (actually 00.01.1900). Dates beyond this date cannot be handled by Excel under normal circumstances and will throw a FormatException
      * @param date Date to convert
      * @exception FormatException Throws a FormatException if the passed date cannot be translated to the OADate format
@@ -36,16 +40,135 @@ public class Helper {
      */
     public static double getOADate(Date date)
     {
-        Calendar dateCal = Calendar.getInstance();
-        dateCal.setTime(date);
-        long currentTicks = dateCal.getTimeInMillis();
-        double d = ((double)(dateCal.get(Calendar.SECOND) + (dateCal.get(Calendar.MINUTE) * 60) + (dateCal.get(Calendar.HOUR_OF_DAY) * 3600)) / 86400) + Math.floor((currentTicks - ROOT_TICKS) / (86400000));
-        if (d < 0)
+        return getOADate(date, ZoneId.systemDefault());
+    }
+
+    /**
+     * Method to calculate the OA date (OLE automation) of the passed date, resolved in the passed time zone
+     * @param date Date to convert
+     * @param zone Time zone to resolve the local date and time of the passed date
+     * @exception FormatException Throws a FormatException if the passed date cannot be translated to the OADate format
+     * @return OA date
+     */
+    public static double getOADate(Date date, ZoneId zone)
+    {
+        return getOADate(Instant.ofEpochMilli(date.getTime()), zone);
+    }
+
+    /**
+     * Method to calculate the OA date (OLE automation) of the passed instant, resolved in the passed time zone
+     * @param instant Instant to convert
+     * @param zone Time zone to resolve the local date and time of the passed instant
+     * @exception FormatException Throws a FormatException if the passed instant cannot be translated to the OADate format
+     * @return OA date
+     */
+    public static double getOADate(Instant instant, ZoneId zone)
+    {
+        long localSeconds = instant.getEpochSecond() + zone.getRules().getOffset(instant).getTotalSeconds();
+        return calculateOADate(Math.floorDiv(localSeconds, SECONDS_PER_DAY), (int)Math.floorMod(localSeconds, SECONDS_PER_DAY));
+    }
+
+    /**
+     * Method to calculate the OA date (OLE automation) of the passed local date and time
+     * @param dateTime Local date and time to convert
+     * @exception FormatException Throws a FormatException if the passed date cannot be translated to the OADate format
+     * @return OA date
+     */
+    public static double getOADate(LocalDateTime dateTime)
+    {
+        return calculateOADate(dateTime.toLocalDate().toEpochDay(), dateTime.toLocalTime().toSecondOfDay());
+    }
+
+    /**
+     * Method to calculate the OA date (OLE automation) of the passed local date. The result has no fraction (midnight)
+     * @param date Local date to convert
+     * @exception FormatException Throws a FormatException if the passed date cannot be translated to the OADate format
+     * @return OA date
+     */
+    public static double getOADate(LocalDate date)
+    {
+        return calculateOADate(date.toEpochDay(), 0);
+    }
+
+    /**
+     * Method to calculate the OA date (OLE automation) of a supported date object (Date, Instant, LocalDateTime or LocalDate)
+     * @param value Date object to convert
+     * @param zone Time zone to resolve the local date and time of Date and Instant objects. Not used for LocalDateTime and LocalDate
+     * @exception FormatException Throws a FormatException if the passed object is not a supported date type or cannot be translated to the OADate format
+     * @return OA date
+     */
+    public static double getOADate(Object value, ZoneId zone)
+    {
+        if (value instanceof Date)                { return getOADate((Date)value, zone); }
+        else if (value instanceof LocalDateTime)  { return getOADate((LocalDateTime)value); }
+        else if (value instanceof LocalDate)      { return getOADate((LocalDate)value); }
+        else if (value instanceof Instant)        { return getOADate((Instant)value, zone); }
+        throw new FormatException("FormatException","The value '" + value + "' is not a supported date type.");
+    }
+
+    /**
+     * Method to convert an OA date (OLE automation) into a local date and time. This is the inverse of getOADate(LocalDateTime). The time fraction is rounded to milliseconds
+     * @param oaDate OA date to convert
+     * @exception FormatException Throws a FormatException if the passed OA date is negative (before the OA root date)
+     * @return Local date and time
+     */
+    public static LocalDateTime getDateFromOADate(double oaDate)
+    {
+        if (oaDate < 0 || Double.isNaN(oaDate) || Double.isInfinite(oaDate))
+        {
+            throw new FormatException("FormatException","The OA date " + oaDate + " is not in a valid range. Dates before 1900-01-01 are not allowed.");
+        }
+        long days = (long)oaDate;
+        long millis = Math.round((oaDate - days) * SECONDS_PER_DAY * 1000d);
+        return LocalDate.ofEpochDay(days - EPOCH_OFFSET_DAYS).atStartOfDay().plusNanos(millis * 1000000L);
+    }
+
+    /**
+     * Method to check whether the passed object is one of the supported date types (Date, Instant, LocalDateTime or LocalDate)
+     * @param value Object to check
+     * @return True if the object can be converted to an OA date, otherwise false
+     */
+    public static boolean isDateType(Object value)
+    {
+        return value instanceof Date || value instanceof LocalDateTime || value instanceof LocalDate || value instanceof Instant;
+    }
+
+    /**
+     * Formats an OA date as string. Dates without a time fraction are written without decimals
+     * @param oaDate OA date to format
+     * @return Formatted OA date
+     */
+    public static String formatOADate(double oaDate)
+    {
+        long days = (long)oaDate;
+        if (days == oaDate)
+        {
+            return Long.toString(days);
+        }
+        return Double.toString(oaDate);
+    }
+
+    /**
+     * Internal method to calculate the OA date from an epoch day and the seconds of the day (local time). Only integer arithmetic is used up to the final division
+     * @param epochDay Days since 1970-01-01
+     * @param secondOfDay Seconds since midnight (0 to 86399)
+     * @exception FormatException Throws a FormatException if the resulting date is before the OA root date
+     * @return OA date
+     */
+    private static double calculateOADate(long epochDay, int secondOfDay)
+    {
+        long days = epochDay + EPOCH_OFFSET_DAYS;
+        if (days < 0)
         {
             throw new FormatException("FormatException","The date is not in a valid range for Excel. Dates before 1900-01-01 are not allowed.");
         }
-        return d;
-    }    
+        if (secondOfDay == 0)
+        {
+            return days;
+        }
+        return days + ((double)secondOfDay / SECONDS_PER_DAY);
+    }
+
     /**
      * Method of a string to check whether its reference is null or the content is empty
      * @param value value / reference to check
@@ -56,6 +179,6 @@ public class Helper {
         if (value == null) { return true; }
         return value.isEmpty();
     }
-   
-    
+
+
 }
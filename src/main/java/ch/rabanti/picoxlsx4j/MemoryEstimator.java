@@ -0,0 +1,116 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j;
+
+/**
+ * Class to estimate the heap usage of workbooks and worksheets from the counters that are already maintained (cells, strings, styles, merged ranges)<br>
+ * The values are calibrated with the MemoryFootprintBenchmark of the benchmark suite (64 bit JVM with compressed references). Strings are estimated with 2 bytes per character (Java 8), so the estimate is an upper bound on JVMs with compact strings
+ * @author Raphael Stoeckli
+ */
+final class MemoryEstimator {
+
+// ### C O N S T A N T S ###
+    /**
+     * Retained bytes per cell (cell object, address key, map entry and boxed value)
+     */
+    static final long BYTES_PER_CELL = 160;
+    /**
+     * Retained bytes per string value (string object and array header), without the characters
+     */
+    static final long BYTES_PER_STRING = 40;
+    /**
+     * Retained bytes per string character
+     */
+    static final long BYTES_PER_STRING_CHARACTER = 2;
+    /**
+     * Retained bytes per merged cell range (key, range and addresses)
+     */
+    static final long BYTES_PER_MERGED_RANGE = 200;
+    /**
+     * Retained bytes per style (style with its components and hashes)
+     */
+    static final long BYTES_PER_STYLE = 1024;
+    /**
+     * Retained bytes per row or column with non-standard properties (height, hidden state, width or default style)
+     */
+    static final long BYTES_PER_ROW_OR_COLUMN = 48;
+    /**
+     * Retained bytes of an empty worksheet
+     */
+    static final long BYTES_PER_WORKSHEET = 4096;
+    /**
+     * Temporary bytes per cell of the worksheet that is currently written (XML string and DOM)
+     */
+    static final long SAVE_BYTES_PER_CELL = 800;
+    /**
+     * Bytes per cell of the already written worksheet parts that are held until packing
+     */
+    static final long SAVE_BYTES_PER_WRITTEN_CELL = 64;
+    /**
+     * Temporary bytes per string cell (shared string table)
+     */
+    static final long SAVE_BYTES_PER_STRING_CELL = 160;
+
+// ### C O N S T R U C T O R S ###
+    /**
+     * Private constructor. The class contains only static methods
+     */
+    private MemoryEstimator()
+    {
+    }
+
+// ### S T A T I C   M E T H O D S ###
+    /**
+     * Estimates the retained heap of a workbook
+     * @param workbook Workbook to estimate
+     * @return Estimated number of bytes
+     */
+    static long estimate(Workbook workbook)
+    {
+        long bytes = workbook.getStyleManager().getStyleNumber() * BYTES_PER_STYLE;
+        for (Worksheet worksheet : workbook.getWorksheets())
+        {
+            bytes += estimate(worksheet);
+        }
+        return bytes;
+    }
+
+    /**
+     * Estimates the retained heap of a worksheet
+     * @param worksheet Worksheet to estimate
+     * @return Estimated number of bytes
+     */
+    static long estimate(Worksheet worksheet)
+    {
+        return BYTES_PER_WORKSHEET
+                + worksheet.getCells().size() * BYTES_PER_CELL
+                + worksheet.getStringCellCount() * BYTES_PER_STRING
+                + worksheet.getStringCharacterCount() * BYTES_PER_STRING_CHARACTER
+                + worksheet.getMergedCells().size() * BYTES_PER_MERGED_RANGE
+                + (worksheet.getColumns().size() + worksheet.getRowHeights().size() + worksheet.getRowStyles().size()) * BYTES_PER_ROW_OR_COLUMN;
+    }
+
+    /**
+     * Estimates the peak heap of a workbook while saving. This is the retained heap plus the temporary data of the largest worksheet, the written parts and the shared strings
+     * @param workbook Workbook to estimate
+     * @return Estimated number of bytes
+     */
+    static long estimateSave(Workbook workbook)
+    {
+        long bytes = estimate(workbook);
+        long largestWorksheet = 0;
+        for (Worksheet worksheet : workbook.getWorksheets())
+        {
+            largestWorksheet = Math.max(largestWorksheet, worksheet.getCells().size());
+            bytes += worksheet.getCells().size() * SAVE_BYTES_PER_WRITTEN_CELL
+                    + worksheet.getStringCellCount() * SAVE_BYTES_PER_STRING_CELL
+                    + worksheet.getStringCharacterCount() * BYTES_PER_STRING_CHARACTER;
+        }
+        return bytes + largestWorksheet * SAVE_BYTES_PER_CELL;
+    }
+
+}
@@ -235,6 +235,29 @@ public class Metadata {
     }
     
 // ### M E T H O D S ###    
+    /**
+     * Method to copy the current object
+     * @return Copy of the current object
+     */
+    public Metadata copy()
+    {
+        Metadata copy = new Metadata();
+        copy.application = this.application;
+        copy.applicationVersion = this.applicationVersion;
+        copy.category = this.category;
+        copy.company = this.company;
+        copy.contentStatus = this.contentStatus;
+        copy.creator = this.creator;
+        copy.description = this.description;
+        copy.hyperlinkBase = this.hyperlinkBase;
+        copy.keywords = this.keywords;
+        copy.manager = this.manager;
+        copy.subject = this.subject;
+        copy.title = this.title;
+        copy.useColorMRU = this.useColorMRU;
+        return copy;
+    }
+
     /**
      * Checks the format of the passed version string
      * @throws FormatException Thrown if the version string is malformed
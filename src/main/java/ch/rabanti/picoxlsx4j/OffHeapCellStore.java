@@ -0,0 +1,503 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j;
+
+import ch.rabanti.picoxlsx4j.exception.WorksheetException;
+import ch.rabanti.picoxlsx4j.style.Style;
+
+import java.io.Closeable;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Class representing an off-heap storage of the rows of a worksheet. The rows are encoded in a compact binary layout into memory-mapped segments of a temporary file, which is opened to be deleted when the store is closed<br>
+ * Layout of a row: row number (int), number of cells (int), length of the cell data in bytes (int), cells. Layout of a cell: column number (int), type tag (byte), style slot (int, -1 = no style), value (depending on the type tag)<br>
+ * Rows must be appended in ascending order. The rows are decoded again into short-living Cell objects while saving, one row at a time
+ * @author Raphael Stoeckli
+ */
+public class OffHeapCellStore implements Closeable {
+
+// ### C O N S T A N T S ###
+    /**
+     * Default size of a memory-mapped segment in bytes (64 MB)
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final byte TAG_EMPTY = 0;
+    private static final byte TAG_FALSE = 1;
+    private static final byte TAG_TRUE = 2;
+    private static final byte TAG_BYTE = 3;
+    private static final byte TAG_SHORT = 4;
+    private static final byte TAG_INTEGER = 5;
+    private static final byte TAG_LONG = 6;
+    private static final byte TAG_FLOAT = 7;
+    private static final byte TAG_DOUBLE = 8;
+    private static final byte TAG_DECIMAL = 9;
+    private static final byte TAG_DATE = 10;
+    private static final byte TAG_INSTANT = 11;
+    private static final byte TAG_LOCAL_DATE = 12;
+    private static final byte TAG_LOCAL_DATE_TIME = 13;
+    private static final byte TAG_STRING = 14;
+    private static final byte TAG_FORMULA = 15;
+
+// ### P R I V A T E  F I E L D S ###
+    private long cellCount;
+    private final FileChannel channel;
+    private boolean closed;
+    private ByteBuffer currentSegment;
+    private final Path directory;
+    private int lastRowNumber;
+    private long mappedSize;
+    private int rowCount;
+    private ByteBuffer scratch;
+    private final int segmentSize;
+    private final List<ByteBuffer> segments;
+    private final IdentityHashMap<Style, Integer> styleSlots;
+    private final List<Style> styles;
+
+// ### G E T T E R S ###
+    /**
+     * Gets the number of stored cells. The number is kept after the store was closed
+     * @return Number of cells
+     */
+    public long getCellCount() {
+        return cellCount;
+    }
+
+    /**
+     * Gets the directory of the temporary file
+     * @return Directory of the store
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Gets the highest stored row number. The number is kept after the store was closed
+     * @return Zero-based row number or -1 if no row was stored
+     */
+    public int getLastRowNumber() {
+        return lastRowNumber;
+    }
+
+    /**
+     * Gets the number of bytes of the mapped segments (off-heap)
+     * @return Mapped size in bytes
+     */
+    public long getMappedSize() {
+        return mappedSize;
+    }
+
+    /**
+     * Gets the number of stored rows. The number is kept after the store was closed
+     * @return Number of rows
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Gets the size of the memory-mapped segments
+     * @return Size in bytes
+     */
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+// ### C O N S T R U C T O R S ###
+    /**
+     * Constructor with the directory of the temporary file and the segment size
+     * @param directory Directory of the temporary file
+     * @param segmentSize Size of a memory-mapped segment in bytes. Larger rows get a segment of their own size
+     * @throws WorksheetException Thrown if the temporary file could not be created
+     */
+    OffHeapCellStore(Path directory, int segmentSize)
+    {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.segments = new ArrayList<>();
+        this.styles = new ArrayList<>();
+        this.styleSlots = new IdentityHashMap<>();
+        this.scratch = ByteBuffer.allocate(4096);
+        this.lastRowNumber = -1;
+        try
+        {
+            Path file = Files.createTempFile(directory, "picoxlsx4j-cells", ".bin");
+            this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+        }
+        catch (java.io.IOException e)
+        {
+            throw new WorksheetException("OffHeapStorageException", "The temporary file of the off-heap storage could not be created in " + directory + ". Please see the inner exception.", e);
+        }
+    }
+
+// ### M E T H O D S ###
+    /**
+     * Encodes a row and appends it to the store
+     * @param rowNumber Zero-based row number
+     * @param cells Cells of the row, sorted by the column number
+     * @throws WorksheetException Thrown if the row number is not higher than the last stored row, if the store was closed or if a segment could not be mapped
+     */
+    void appendRow(int rowNumber, List<Cell> cells)
+    {
+        if (this.closed == true)
+        {
+            throw new WorksheetException("OffHeapStorageException", "The off-heap storage was already closed.");
+        }
+        if (rowNumber <= this.lastRowNumber)
+        {
+            throw new WorksheetException("RowFlushedException", "The row " + (rowNumber + 1) + " is not after the last stored row " + (this.lastRowNumber + 1) + ".");
+        }
+        this.scratch.clear();
+        ensureScratch(12);
+        this.scratch.putInt(rowNumber).putInt(cells.size()).putInt(0);
+        for (Cell cell : cells)
+        {
+            encodeCell(cell);
+        }
+        this.scratch.putInt(8, this.scratch.position() - 12);
+        this.scratch.flip();
+        int length = this.scratch.remaining();
+        if (this.currentSegment == null || this.currentSegment.remaining() < length)
+        {
+            mapSegment(Math.max(this.segmentSize, length));
+        }
+        this.currentSegment.put(this.scratch);
+        this.lastRowNumber = rowNumber;
+        this.rowCount++;
+        this.cellCount += cells.size();
+    }
+
+    /**
+     * Closes the store. The stored rows cannot be read anymore afterwards. The temporary file is deleted when the channel is closed, since it was opened with DELETE_ON_CLOSE<br>
+     * Limitation: Java 8 provides no public API to unmap a memory-mapped segment. The segments are only unmapped when the garbage collector releases them. Until then, the mapped memory stays reserved and the deletion of the file may fail on Windows, where a mapped file cannot be deleted. In this case, the file remains in the directory of the store
+     */
+    @Override
+    public void close()
+    {
+        if (this.closed == true)
+        {
+            return;
+        }
+        this.closed = true;
+        this.segments.clear();
+        this.currentSegment = null;
+        try
+        {
+            this.channel.close();
+        }
+        catch (java.io.IOException e)
+        {
+            // Ignore, the file could not be deleted and remains in the directory of the store
+        }
+    }
+
+    /**
+     * Decodes the value of a cell
+     * @param buffer Buffer at the position of the value
+     * @param tag Type tag of the value
+     * @param column Column number (zero-based)
+     * @param row Row number (zero-based)
+     * @param worksheet Worksheet reference of the cell
+     * @return Decoded cell
+     */
+    private static Cell decodeCell(ByteBuffer buffer, byte tag, int column, int row, Worksheet worksheet)
+    {
+        switch (tag)
+        {
+            case TAG_FALSE:
+                return new Cell(Boolean.FALSE, Cell.CellType.BOOL, column, row, worksheet);
+            case TAG_TRUE:
+                return new Cell(Boolean.TRUE, Cell.CellType.BOOL, column, row, worksheet);
+            case TAG_BYTE:
+                return new Cell(buffer.get(), Cell.CellType.NUMBER, column, row, worksheet);
+            case TAG_SHORT:
+                return new Cell(buffer.getShort(), Cell.CellType.NUMBER, column, row, worksheet);
+            case TAG_INTEGER:
+                return new Cell(buffer.getInt(), Cell.CellType.NUMBER, column, row, worksheet);
+            case TAG_LONG:
+                return new Cell(buffer.getLong(), Cell.CellType.NUMBER, column, row, worksheet);
+            case TAG_FLOAT:
+                return new Cell(buffer.getFloat(), Cell.CellType.NUMBER, column, row, worksheet);
+            case TAG_DOUBLE:
+                return new Cell(buffer.getDouble(), Cell.CellType.NUMBER, column, row, worksheet);
+            case TAG_DECIMAL:
+                return new Cell(new BigDecimal(getString(buffer)), Cell.CellType.NUMBER, column, row, worksheet);
+            case TAG_DATE:
+                return new Cell(new Date(buffer.getLong()), Cell.CellType.DATE, column, row, worksheet);
+            case TAG_INSTANT:
+                return new Cell(Instant.ofEpochSecond(buffer.getLong(), buffer.getInt()), Cell.CellType.DATE, column, row, worksheet);
+            case TAG_LOCAL_DATE:
+                return new Cell(LocalDate.ofEpochDay(buffer.getLong()), Cell.CellType.DATE, column, row, worksheet);
+            case TAG_LOCAL_DATE_TIME:
+                return new Cell(LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC), Cell.CellType.DATE, column, row, worksheet);
+            case TAG_STRING:
+                return new Cell(getString(buffer), Cell.CellType.STRING, column, row, worksheet);
+            case TAG_FORMULA:
+                return new Cell(getString(buffer), Cell.CellType.FORMULA, column, row, worksheet);
+            default:
+                return new Cell(null, Cell.CellType.EMPTY, column, row, worksheet);
+        }
+    }
+
+    /**
+     * Ensures that the store was not closed
+     * @throws IllegalStateException Thrown if the store was already closed
+     */
+    private void ensureOpen()
+    {
+        if (this.closed == true)
+        {
+            throw new IllegalStateException("The off-heap storage was already closed. The stored rows cannot be read anymore.");
+        }
+    }
+
+    /**
+     * Encodes a cell into the scratch buffer
+     * @param cell Cell to encode
+     */
+    private void encodeCell(Cell cell)
+    {
+        cell.resolveCellType();
+        Object value = cell.getValue();
+        ensureScratch(9);
+        this.scratch.putInt(cell.getColumnNumber());
+        int tagPosition = this.scratch.position();
+        this.scratch.put(TAG_EMPTY);
+        this.scratch.putInt(resolveStyleSlot(cell.getCellStyle()));
+        byte tag;
+        ensureScratch(12);
+        switch (cell.getDataType())
+        {
+            case BOOL:
+                tag = (boolean)value == true ? TAG_TRUE : TAG_FALSE;
+                break;
+            case NUMBER:
+                if (value instanceof Byte)            { tag = TAG_BYTE; this.scratch.put((byte)value); }
+                else if (value instanceof Short)      { tag = TAG_SHORT; this.scratch.putShort((short)value); }
+                else if (value instanceof Integer)    { tag = TAG_INTEGER; this.scratch.putInt((int)value); }
+                else if (value instanceof Long)       { tag = TAG_LONG; this.scratch.putLong((long)value); }
+                else if (value instanceof Float)      { tag = TAG_FLOAT; this.scratch.putFloat((float)value); }
+                else if (value instanceof Double)     { tag = TAG_DOUBLE; this.scratch.putDouble((double)value); }
+                else                                  { tag = TAG_DECIMAL; putString(value.toString()); }
+                break;
+            case DATE:
+                if (value instanceof Date)            { tag = TAG_DATE; this.scratch.putLong(((Date)value).getTime()); }
+                else if (value instanceof Instant)    { tag = TAG_INSTANT; this.scratch.putLong(((Instant)value).getEpochSecond()).putInt(((Instant)value).getNano()); }
+                else if (value instanceof LocalDate)  { tag = TAG_LOCAL_DATE; this.scratch.putLong(((LocalDate)value).toEpochDay()); }
+                else
+                {
+                    LocalDateTime dateTime = (LocalDateTime)value;
+                    tag = TAG_LOCAL_DATE_TIME;
+                    this.scratch.putLong(dateTime.toEpochSecond(ZoneOffset.UTC)).putInt(dateTime.getNano());
+                }
+                break;
+            case FORMULA:
+                tag = TAG_FORMULA;
+                putString(resolveFormula(cell, value));
+                break;
+            case EMPTY:
+                tag = TAG_EMPTY;
+                break;
+            default:
+                tag = TAG_STRING;
+                putString(value.toString());
+                break;
+        }
+        this.scratch.put(tagPosition, tag);
+    }
+
+    /**
+     * Ensures that the scratch buffer has the passed number of remaining bytes
+     * @param bytes Number of bytes to write
+     */
+    private void ensureScratch(int bytes)
+    {
+        if (this.scratch.remaining() < bytes)
+        {
+            ByteBuffer buffer = ByteBuffer.allocate(Math.max(this.scratch.capacity() * 2, this.scratch.position() + bytes));
+            this.scratch.flip();
+            buffer.put(this.scratch);
+            this.scratch = buffer;
+        }
+    }
+
+    /**
+     * Reads a string (length as int and UTF-8 bytes)
+     * @param buffer Buffer to read from
+     * @return Decoded string
+     */
+    private static String getString(ByteBuffer buffer)
+    {
+        int length = buffer.getInt();
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Maps a new segment at the end of the temporary file. The current segment is limited to the written data
+     * @param size Size of the segment in bytes
+     * @throws WorksheetException Thrown if the segment could not be mapped
+     */
+    private void mapSegment(int size)
+    {
+        if (this.currentSegment != null)
+        {
+            this.currentSegment.flip();
+        }
+        try
+        {
+            MappedByteBuffer segment = this.channel.map(FileChannel.MapMode.READ_WRITE, this.mappedSize, size);
+            this.segments.add(segment);
+            this.currentSegment = segment;
+            this.mappedSize += size;
+        }
+        catch (java.io.IOException e)
+        {
+            throw new WorksheetException("OffHeapStorageException", "A segment of the off-heap storage could not be mapped. Please see the inner exception.", e);
+        }
+    }
+
+    /**
+     * Writes a string (length as int and UTF-8 bytes) into the scratch buffer
+     * @param value String to write
+     */
+    private void putString(String value)
+    {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensureScratch(4 + bytes.length);
+        this.scratch.putInt(bytes.length).put(bytes);
+    }
+
+    /**
+     * Resolves the text of a formula. Templates and shared formulas are rendered for the position of the cell
+     * @param cell Formula cell
+     * @param value Value of the cell
+     * @return Formula as string
+     */
+    private static String resolveFormula(Cell cell, Object value)
+    {
+        if (value instanceof FormulaTemplate)
+        {
+            return ((FormulaTemplate)value).renderAt(cell.getColumnNumber(), cell.getRowNumber());
+        }
+        else if (value instanceof SharedFormula)
+        {
+            return ((SharedFormula)value).getFormula(cell.getColumnNumber(), cell.getRowNumber());
+        }
+        return value.toString();
+    }
+
+    /**
+     * Resolves the slot of a style. Styles are stored by reference, since the internal IDs are only final when saving
+     * @param style Style of the cell or null
+     * @return Slot of the style or -1 if no style is defined
+     */
+    private int resolveStyleSlot(Style style)
+    {
+        if (style == null)
+        {
+            return -1;
+        }
+        Integer slot = this.styleSlots.get(style);
+        if (slot == null)
+        {
+            slot = this.styles.size();
+            this.styles.add(style);
+            this.styleSlots.put(style, slot);
+        }
+        return slot;
+    }
+
+    /**
+     * Gets an iterator over the stored rows in ascending order. Each row is decoded into new Cell objects when it is requested. This is an internal method. There is no need to use it. It must be public to require access from the LowLevel class
+     * @param worksheet Worksheet reference of the decoded cells
+     * @return Iterator over the rows
+     * @throws IllegalStateException Thrown if the store was already closed, or if the store is closed while iterating
+     */
+    public Iterator<List<Cell>> rows(Worksheet worksheet)
+    {
+        ensureOpen();
+        final List<ByteBuffer> views = new ArrayList<>(this.segments.size());
+        for (ByteBuffer segment : this.segments)
+        {
+            ByteBuffer view = segment.duplicate();
+            if (segment == this.currentSegment)
+            {
+                view.flip();
+            }
+            views.add(view);
+        }
+        final int rows = this.rowCount;
+        return new Iterator<List<Cell>>()
+        {
+            private int index;
+            private int segment;
+
+            @Override
+            public boolean hasNext()
+            {
+                return this.index < rows;
+            }
+
+            @Override
+            public List<Cell> next()
+            {
+                if (this.index >= rows)
+                {
+                    throw new NoSuchElementException();
+                }
+                ensureOpen();
+                while (views.get(this.segment).hasRemaining() == false)
+                {
+                    this.segment++;
+                }
+                ByteBuffer buffer = views.get(this.segment);
+                int rowNumber = buffer.getInt();
+                int count = buffer.getInt();
+                buffer.getInt(); // Length of the cell data
+                List<Cell> cells = new ArrayList<>(count);
+                Cell cell;
+                int column;
+                byte tag;
+                int slot;
+                for (int i = 0; i < count; i++)
+                {
+                    column = buffer.getInt();
+                    tag = buffer.get();
+                    slot = buffer.getInt();
+                    cell = decodeCell(buffer, tag, column, rowNumber, worksheet);
+                    if (slot >= 0)
+                    {
+                        cell.setManagedStyle(styles.get(slot));
+                    }
+                    cells.add(cell);
+                }
+                this.index++;
+                return cells;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,300 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j;
+
+import ch.rabanti.picoxlsx4j.exception.RangeException;
+import ch.rabanti.picoxlsx4j.exception.WorksheetException;
+import ch.rabanti.picoxlsx4j.style.Style;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Class representing a sequential writer, which continues on a new worksheet as soon as the row limit of a worksheet is reached. The new worksheets are named after the first one, e.g. 'Data (2)', 'Data (3)' and so on<br>
+ * The header rows, the column widths, hidden columns and column styles of the first worksheet are repeated on every new worksheet. Cells are added row by row like with addNextCell and goToNextRow of a worksheet (direction column to column)
+ * @author Raphael Stoeckli
+ */
+public class RolloverWriter {
+
+// ### P R I V A T E  F I E L D S ###
+    private final String baseName;
+    private int columnNumber;
+    private final Worksheet firstWorksheet;
+    private final List<HeaderCell> headerCells;
+    private final int headerRowCount;
+    private final int maxRowNumber;
+    private int rowNumber;
+    private Worksheet worksheet;
+    private final List<Worksheet> worksheets;
+
+// ### G E T T E R S  &  S E T T E R S ###
+    /**
+     * Gets the current column number of the writer
+     * @return Zero-based column number
+     */
+    public int getColumnNumber() {
+        return columnNumber;
+    }
+
+    /**
+     * Gets the number of header rows, which are repeated on every new worksheet
+     * @return Number of header rows
+     */
+    public int getHeaderRowCount() {
+        return headerRowCount;
+    }
+
+    /**
+     * Gets the highest row number of a worksheet. The writer continues on a new worksheet after this row
+     * @return Zero-based row number
+     */
+    public int getMaxRowNumber() {
+        return maxRowNumber;
+    }
+
+    /**
+     * Gets the current row number of the writer in the current worksheet
+     * @return Zero-based row number
+     */
+    public int getRowNumber() {
+        return rowNumber;
+    }
+
+    /**
+     * Gets the worksheet, which is currently written
+     * @return Current worksheet
+     */
+    public Worksheet getWorksheet() {
+        return worksheet;
+    }
+
+    /**
+     * Gets all worksheets of the writer, beginning with the first worksheet
+     * @return Unmodifiable list of worksheets
+     */
+    public List<Worksheet> getWorksheets() {
+        return Collections.unmodifiableList(worksheets);
+    }
+
+// ### C O N S T R U C T O R S ###
+    /**
+     * Constructor with worksheet and number of header rows. The row limit is the maximum row number of Excel
+     * @param worksheet First worksheet. The writer starts at the current cell position of the worksheet
+     * @param headerRowCount Number of rows at the top of the first worksheet, which are repeated on every new worksheet. Can be 0
+     * @throws RangeException Thrown if the number of header rows is out of range
+     * @throws WorksheetException Thrown if the worksheet is not referenced in a workbook
+     */
+    public RolloverWriter(Worksheet worksheet, int headerRowCount)
+    {
+        this(worksheet, headerRowCount, Worksheet.MAX_ROW_NUMBER);
+    }
+
+    /**
+     * Constructor with worksheet, number of header rows and row limit
+     * @param worksheet First worksheet. The writer starts at the current cell position of the worksheet
+     * @param headerRowCount Number of rows at the top of the first worksheet, which are repeated on every new worksheet. Can be 0
+     * @param maxRowNumber Highest row number of a worksheet (zero-based). The writer continues on a new worksheet after this row
+     * @throws RangeException Thrown if the row limit or the number of header rows is out of range
+     * @throws WorksheetException Thrown if the worksheet is not referenced in a workbook
+     */
+    public RolloverWriter(Worksheet worksheet, int headerRowCount, int maxRowNumber)
+    {
+        if (worksheet.getWorkbookReference() == null)
+        {
+            throw new WorksheetException("MissingReferenceException", "The worksheet '" + worksheet.getSheetName() + "' is not referenced in a workbook. New worksheets cannot be added.");
+        }
+        if (maxRowNumber < Worksheet.MIN_ROW_NUMBER || maxRowNumber > Worksheet.MAX_ROW_NUMBER)
+        {
+            throw new RangeException("OutOfRangeException", "The row limit (" + maxRowNumber + ") is out of range. Range is from " + Worksheet.MIN_ROW_NUMBER + " to " + Worksheet.MAX_ROW_NUMBER + ".");
+        }
+        if (headerRowCount < 0 || headerRowCount > maxRowNumber)
+        {
+            throw new RangeException("OutOfRangeException", "The number of header rows (" + headerRowCount + ") is out of range. Range is from 0 to " + maxRowNumber + ".");
+        }
+        this.firstWorksheet = worksheet;
+        this.worksheet = worksheet;
+        this.baseName = worksheet.getSheetName();
+        this.headerRowCount = headerRowCount;
+        this.maxRowNumber = maxRowNumber;
+        this.columnNumber = worksheet.getCurrentColumnNumber();
+        this.rowNumber = worksheet.getCurrentRowNumber();
+        this.headerCells = new ArrayList<>();
+        this.worksheets = new ArrayList<>();
+        this.worksheets.add(worksheet);
+        for (Cell cell : worksheet.getCells().values())
+        {
+            if (cell.getRowNumber() < headerRowCount)
+            {
+                this.headerCells.add(new HeaderCell(cell.getValue(), cell.getDataType(), cell.getColumnNumber(), cell.getRowNumber(), cell.getCellStyle()));
+            }
+        }
+    }
+
+// ### M E T H O D S ###
+    /**
+     * Adds a value to the next cell position. If the row limit is exceeded, the writer continues on a new worksheet. See addNextCell(Object) of the worksheet for the supported data types
+     * @param value Unspecified value to insert
+     * @throws RangeException Thrown if the next cell is out of range (column)
+     */
+    public void addNextCell(Object value)
+    {
+        addNextCell(value, null);
+    }
+
+    /**
+     * Adds a value with a style to the next cell position. If the row limit is exceeded, the writer continues on a new worksheet. See addNextCell(Object, Style) of the worksheet for the supported data types
+     * @param value Unspecified value to insert
+     * @param style Style to apply on the cell. If null, no style or the default style will be applied
+     * @throws RangeException Thrown if the next cell is out of range (column)
+     */
+    public void addNextCell(Object value, Style style)
+    {
+        if (this.rowNumber > this.maxRowNumber)
+        {
+            rollover();
+        }
+        if (style == null)
+        {
+            this.worksheet.addCell(value, this.columnNumber, this.rowNumber);
+        }
+        else
+        {
+            this.worksheet.addCell(value, this.columnNumber, this.rowNumber, style);
+        }
+        if (this.worksheet == this.firstWorksheet && this.rowNumber < this.headerRowCount)
+        {
+            Cell cell = this.worksheet.getCell(this.columnNumber, this.rowNumber);
+            this.headerCells.add(new HeaderCell(cell.getValue(), cell.getDataType(), this.columnNumber, this.rowNumber, cell.getCellStyle()));
+        }
+        this.columnNumber++;
+    }
+
+    /**
+     * Adds a list of values as complete row and moves to the next row
+     * @param values List of values to insert, beginning at the first column
+     * @throws RangeException Thrown if the number of values exceeds the number of columns
+     */
+    public void addRow(List<Object> values)
+    {
+        addRow(values, null);
+    }
+
+    /**
+     * Adds a list of values with a style as complete row and moves to the next row
+     * @param values List of values to insert, beginning at the first column
+     * @param style Style to apply on all cells of the row. If null, no style or the default style will be applied
+     * @throws RangeException Thrown if the number of values exceeds the number of columns
+     */
+    public void addRow(List<Object> values, Style style)
+    {
+        this.columnNumber = 0;
+        for (Object value : values)
+        {
+            addNextCell(value, style);
+        }
+        goToNextRow();
+    }
+
+    /**
+     * Moves to the first column of the next row. The new worksheet is only created when the next cell is added after the row limit was exceeded
+     */
+    public void goToNextRow()
+    {
+        this.rowNumber++;
+        this.columnNumber = 0;
+    }
+
+    /**
+     * Adds the next worksheet and repeats the layout and the header rows of the first worksheet. Only explicitly defined column widths are repeated, the automatic column width is estimated separately for each worksheet
+     */
+    private void rollover()
+    {
+        Workbook workbook = this.firstWorksheet.getWorkbookReference();
+        String suffix = " (" + (this.worksheets.size() + 1) + ")";
+        String name = this.baseName.length() + suffix.length() > 31 ? this.baseName.substring(0, 31 - suffix.length()) + suffix : this.baseName + suffix;
+        workbook.addWorksheet(name, true);
+        Worksheet next = workbook.getCurrentWorksheet();
+        next.setDefaultColumnWidth(this.firstWorksheet.getDefaultColumnWidth());
+        next.setDefaultRowHeight(this.firstWorksheet.getDefaultRowHeight());
+        next.setAutoColumnWidth(this.firstWorksheet.isAutoColumnWidth());
+        SortedIntMap<Column> columns = this.firstWorksheet.getColumns();
+        Column column;
+        for (int i = 0; i < columns.size(); i++)
+        {
+            column = columns.valueAt(i);
+            if (column.hasCustomWidth() == true)
+            {
+                next.setColumnWidth(column.getNumber(), column.getWidth());
+            }
+            if (column.isHidden() == true)
+            {
+                next.addHiddenColumn(column.getNumber());
+            }
+            if (column.getDefaultStyle() != null)
+            {
+                next.setColumnDefaultStyle(column.getNumber(), column.getDefaultStyle());
+            }
+        }
+        SortedIntMap<Float> rowHeights = this.firstWorksheet.getRowHeights();
+        for (int i = 0; i < rowHeights.size() && rowHeights.keyAt(i) < this.headerRowCount; i++)
+        {
+            next.setRowHeight(rowHeights.keyAt(i), rowHeights.valueAt(i));
+        }
+        OffHeapCellStore store = this.firstWorksheet.getOffHeapStore();
+        if (store != null)
+        {
+            next.enableOffHeapStorage(store.getDirectory(), store.getSegmentSize());
+        }
+        this.headerCells.sort((a, b) -> a.row != b.row ? Integer.compare(a.row, b.row) : Integer.compare(a.column, b.column));
+        for (HeaderCell cell : this.headerCells)
+        {
+            if (cell.style == null)
+            {
+                next.addCell(new Cell(cell.value, cell.type), cell.column, cell.row);
+            }
+            else
+            {
+                next.addCell(new Cell(cell.value, cell.type), cell.column, cell.row, cell.style);
+            }
+        }
+        this.worksheet = next;
+        this.worksheets.add(next);
+        this.rowNumber = this.headerRowCount;
+    }
+
+// ### S U B  C L A S S E S ###
+    /**
+     * Class representing a cell of the header rows, which is repeated on every new worksheet
+     */
+    private static final class HeaderCell
+    {
+        private final int column;
+        private final int row;
+        private final Style style;
+        private final Cell.CellType type;
+        private final Object value;
+
+        /**
+         * Constructor with all values
+         * @param value Value of the cell
+         * @param type Type of the cell
+         * @param column Column number (zero-based)
+         * @param row Row number (zero-based)
+         * @param style Style of the cell or null
+         */
+        HeaderCell(Object value, Cell.CellType type, int column, int row, Style style)
+        {
+            this.value = value;
+            this.type = type;
+            this.column = column;
+            this.row = row;
+            this.style = style;
+        }
+    }
+
+}
@@ -0,0 +1,216 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j;
+
+import ch.rabanti.picoxlsx4j.exception.RangeException;
+import ch.rabanti.picoxlsx4j.exception.StyleException;
+import ch.rabanti.picoxlsx4j.exception.WorksheetException;
+import ch.rabanti.picoxlsx4j.style.Style;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Class representing a reserved range of rows of a worksheet, which is filled by one producer thread. Row blocks of the same worksheet can be filled concurrently, since every block buffers its cells and styles without any shared state<br>
+ * A row block is not thread-safe by itself and must only be used by one thread. After calling complete(), the block is merged into the worksheet (in row order of all blocks) when the workbook is saved or when mergeRowBlocks() of the worksheet is called
+ * @author Raphael Stoeckli
+ */
+public class RowBlock {
+
+// ### P R I V A T E  F I E L D S ###
+    private final List<Cell> cells;
+    private boolean completed;
+    private final int firstRow;
+    private final int lastRow;
+    private final Worksheet worksheet;
+
+// ### G E T T E R S  &  S E T T E R S ###
+    /**
+     * Gets the number of buffered cells
+     * @return Number of cells
+     */
+    public int getCellCount() {
+        return cells.size();
+    }
+
+    /**
+     * Gets the first reserved row number (zero-based)
+     * @return Zero-based row number
+     */
+    public int getFirstRow() {
+        return firstRow;
+    }
+
+    /**
+     * Gets the last reserved row number (zero-based)
+     * @return Zero-based row number
+     */
+    public int getLastRow() {
+        return lastRow;
+    }
+
+    /**
+     * Gets the worksheet of the row block
+     * @return Worksheet
+     */
+    public Worksheet getWorksheet() {
+        return worksheet;
+    }
+
+    /**
+     * Gets whether the row block was completed. No cells can be added to a completed block
+     * @return If true, the block is completed
+     */
+    public boolean isCompleted() {
+        return completed;
+    }
+
+// ### C O N S T R U C T O R S ###
+    /**
+     * Constructor with worksheet and row range. Row blocks are created by the method reserveRows of the worksheet
+     * @param worksheet Worksheet of the row block
+     * @param firstRow First reserved row number (zero-based)
+     * @param lastRow Last reserved row number (zero-based)
+     */
+    RowBlock(Worksheet worksheet, int firstRow, int lastRow)
+    {
+        this.worksheet = worksheet;
+        this.firstRow = firstRow;
+        this.lastRow = lastRow;
+        this.cells = new ArrayList<>();
+    }
+
+// ### M E T H O D S ###
+    /**
+     * Adds an object to the defined cell address of the reserved rows. If the type of the value does not match with one of the supported data types, it will be casted to a String. A prepared object of the type Cell will not be casted but adjusted<br>
+     * The default column and row styles, as well as the date style, are applied when the block is merged. The active style of the worksheet is not applied
+     * @param value Unspecified value to insert
+     * @param columnAddress Column number (zero based)
+     * @param rowAddress Row number (zero based)
+     * @throws RangeException Thrown if the column is out of range or the row is not reserved by this block
+     * @throws WorksheetException Thrown if the block was already completed
+     */
+    public void addCell(Object value, int columnAddress, int rowAddress)
+    {
+        addCell(value, columnAddress, rowAddress, null);
+    }
+
+    /**
+     * Adds an object to the defined cell address of the reserved rows. If the type of the value does not match with one of the supported data types, it will be casted to a String. A prepared object of the type Cell will not be casted but adjusted<br>
+     * The style is registered in the workbook when the block is merged. Every distinct style object is only registered once per block
+     * @param value Unspecified value to insert
+     * @param columnAddress Column number (zero based)
+     * @param rowAddress Row number (zero based)
+     * @param style Style to apply on the cell. If null, no style or the default style will be applied
+     * @throws RangeException Thrown if the column is out of range or the row is not reserved by this block
+     * @throws StyleException Thrown if a style is passed, but the worksheet is not referenced in a workbook
+     * @throws WorksheetException Thrown if the block was already completed
+     */
+    public void addCell(Object value, int columnAddress, int rowAddress, Style style)
+    {
+        if (this.completed == true)
+        {
+            throw new WorksheetException("RowBlockCompletedException", "The row block (rows " + (this.firstRow + 1) + " to " + (this.lastRow + 1) + ") was already completed.");
+        }
+        if (rowAddress < this.firstRow || rowAddress > this.lastRow)
+        {
+            throw new RangeException("OutOfRangeException", "The row number (" + rowAddress + ") is not reserved by this block. Range is from " + this.firstRow + " to " + this.lastRow + ".");
+        }
+        if (columnAddress < Worksheet.MIN_COLUMN_NUMBER || columnAddress > Worksheet.MAX_COLUMN_NUMBER)
+        {
+            throw new RangeException("OutOfRangeException", "The column number (" + columnAddress + ") is out of range. Range is from " + Worksheet.MIN_COLUMN_NUMBER + " to " + Worksheet.MAX_COLUMN_NUMBER + " (" + (Worksheet.MAX_COLUMN_NUMBER + 1) + " columns).");
+        }
+        if (style != null && this.worksheet.getWorkbookReference() == null)
+        {
+            throw new StyleException("MissingReferenceException", "No workbook reference was defined on the worksheet while trying to set a style to a cell");
+        }
+        Cell cell;
+        if (value instanceof Cell)
+        {
+            cell = (Cell)value;
+            cell.setWorksheetReference(this.worksheet);
+            cell.setCellAddress2(new Address(columnAddress, rowAddress));
+        }
+        else
+        {
+            cell = new Cell(value, Cell.CellType.DEFAULT, columnAddress, rowAddress, this.worksheet);
+        }
+        if (style != null)
+        {
+            cell.setManagedStyle(style); // Registered in the workbook when merging
+        }
+        this.cells.add(cell);
+    }
+
+    /**
+     * Adds an object to the defined cell address of the reserved rows. See addCell(Object, int, int) for details
+     * @param value Unspecified value to insert
+     * @param address Cell address in the format A1 - XFD1048576
+     * @throws ch.rabanti.picoxlsx4j.exception.FormatException Thrown if the passed address is malformed
+     * @throws RangeException Thrown if the row is not reserved by this block
+     * @throws WorksheetException Thrown if the block was already completed
+     */
+    public void addCell(Object value, String address)
+    {
+        Address adr = Cell.resolveCellCoordinate(address);
+        addCell(value, adr.Column, adr.Row, null);
+    }
+
+    /**
+     * Adds an object to the defined cell address of the reserved rows. See addCell(Object, int, int, Style) for details
+     * @param value Unspecified value to insert
+     * @param address Cell address in the format A1 - XFD1048576
+     * @param style Style to apply on the cell. If null, no style or the default style will be applied
+     * @throws ch.rabanti.picoxlsx4j.exception.FormatException Thrown if the passed address is malformed
+     * @throws RangeException Thrown if the row is not reserved by this block
+     * @throws StyleException Thrown if a style is passed, but the worksheet is not referenced in a workbook
+     * @throws WorksheetException Thrown if the block was already completed
+     */
+    public void addCell(Object value, String address, Style style)
+    {
+        Address adr = Cell.resolveCellCoordinate(address);
+        addCell(value, adr.Column, adr.Row, style);
+    }
+
+    /**
+     * Completes the row block. No further cells can be added. The block is handed over to the worksheet and merged on the next save (or call of mergeRowBlocks)
+     * @throws WorksheetException Thrown if the block was already completed
+     */
+    public void complete()
+    {
+        if (this.completed == true)
+        {
+            throw new WorksheetException("RowBlockCompletedException", "The row block (rows " + (this.firstRow + 1) + " to " + (this.lastRow + 1) + ") was already completed.");
+        }
+        this.completed = true;
+        this.worksheet.completeRowBlock(this);
+    }
+
+    /**
+     * Checks whether the passed row range overlaps with the rows of this block
+     * @param first First row number of the range (zero-based)
+     * @param last Last row number of the range (zero-based)
+     * @return True if at least one row is in both ranges
+     */
+    boolean overlaps(int first, int last)
+    {
+        return first <= this.lastRow && last >= this.firstRow;
+    }
+
+    /**
+     * Gets the buffered cells in row order. The styles of the cells are not registered yet. The buffered cells are kept until the block is released by the worksheet, so that a failed merge can be repeated. This method must only be called by the merging thread of the worksheet
+     * @return List of cells, sorted by row number. Cells of the same row remain in the order they were added
+     */
+    List<Cell> getSortedCells()
+    {
+        List<Cell> result = new ArrayList<>(this.cells);
+        result.sort(Comparator.comparingInt(Cell::getRowNumber));
+        return result;
+    }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j;
+
+import ch.rabanti.picoxlsx4j.exception.IOException;
+
+/**
+ * Class representing a token to cancel a running save process. The token can be cancelled from any thread. The save process checks the token between rows and parts and aborts with an IOException (title: SaveCancelledException). Once the package was written completely, the save process completes the token and cannot be cancelled anymore
+ * @author Raphael Stoeckli
+ */
+public class SaveCancellationToken {
+
+// ### P R I V A T E  F I E L D S ###
+    private boolean cancelled;
+    private boolean completed;
+
+// ### G E T T E R S  &  S E T T E R S ###
+    /**
+     * Gets whether the token was cancelled
+     * @return True if cancelled, otherwise false
+     */
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Gets whether the save process was completed. A completed save process cannot be cancelled anymore
+     * @return True if completed, otherwise false
+     */
+    public synchronized boolean isCompleted() {
+        return completed;
+    }
+
+// ### M E T H O D S ###
+    /**
+     * Requests the cancellation of the save process. The process stops at the next check (after the current row or part) or at the latest when it would be completed
+     * @return True if the cancellation was requested, false if the save process was already completed and cannot be stopped anymore
+     */
+    public synchronized boolean cancel()
+    {
+        if (this.completed == true)
+        {
+            return false;
+        }
+        this.cancelled = true;
+        return true;
+    }
+
+    /**
+     * Throws an IOException if the token was cancelled
+     * @throws IOException Thrown if the token was cancelled (title: SaveCancelledException)
+     */
+    public synchronized void throwIfCancelled() throws IOException
+    {
+        if (this.cancelled == true)
+        {
+            throw new IOException("SaveCancelledException","The save process was cancelled.");
+        }
+    }
+
+    /**
+     * Marks the save process as completed. Further cancellations are rejected. If the token was cancelled before, the save process must be aborted<br>
+     * This is an internal method. There is no need to use it. It must be public to require access from the LowLevel class
+     * @throws IOException Thrown if the token was cancelled before (title: SaveCancelledException)
+     */
+    public synchronized void complete() throws IOException
+    {
+        throwIfCancelled();
+        this.completed = true;
+    }
+
+}
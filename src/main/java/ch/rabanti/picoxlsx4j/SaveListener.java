@@ -0,0 +1,102 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j;
+
+import ch.rabanti.picoxlsx4j.lowLevel.SaveStatistics;
+
+/**
+ * Interface for listeners that receive timings and statistics while a workbook is saved. All methods have an empty default implementation, so that only the relevant methods have to be implemented<br>
+ * The methods are called synchronously on the saving thread. Implementations should return quickly
+ * @author Raphael Stoeckli
+ */
+public interface SaveListener {
+
+// ### E N U M S ###
+    /**
+     * Enum defines the measured phases of the save process
+     */
+    enum Phase
+    {
+        /**
+         * Resolving of merged cells in all worksheets (workbook wide)
+         */
+        RESOLVE_MERGED_CELLS,
+        /**
+         * Sorting of the cells of a worksheet into rows
+         */
+        SORT_CELLS,
+        /**
+         * Generation of the row strings of a worksheet (including shared string lookups)
+         */
+        CREATE_ROWS,
+        /**
+         * Parsing of a generated XML string into a DOM document
+         */
+        PARSE_DOCUMENT,
+        /**
+         * Transformation of a DOM document into bytes
+         */
+        TRANSFORM_DOCUMENT,
+        /**
+         * Compression and writing of a part into the zip container
+         */
+        PACK
+    }
+
+// ### M E T H O D S ###
+    /**
+     * Called when the save process starts
+     * @param workbook Workbook to be saved
+     */
+    default void saveStarted(Workbook workbook) {}
+
+    /**
+     * Called when a phase of the save process was completed
+     * @param phase Completed phase
+     * @param partName Name of the processed part or worksheet. Null for workbook wide phases
+     * @param durationNanos Duration of the phase in nanoseconds
+     */
+    default void phaseCompleted(Phase phase, String partName, long durationNanos) {}
+
+    /**
+     * Called when all rows of a worksheet were generated
+     * @param worksheet Processed worksheet
+     * @param rowCount Number of written rows
+     * @param cellCount Number of written cells
+     */
+    default void worksheetCompleted(Worksheet worksheet, int rowCount, int cellCount) {}
+
+    /**
+     * Called periodically while the rows of a worksheet are generated (every 1000 rows and after the last row)
+     * @param worksheet Processed worksheet
+     * @param completedRows Number of generated rows
+     * @param totalRows Total number of rows of the worksheet
+     */
+    default void rowsCompleted(Worksheet worksheet, int completedRows, int totalRows) {}
+
+    /**
+     * Called after each part that was written into the zip container
+     * @param completedParts Number of written parts (including content types and relationships)
+     * @param totalParts Total number of parts
+     */
+    default void partsCompleted(int completedParts, int totalParts) {}
+
+    /**
+     * Called when a part was written into the zip container
+     * @param partName Name of the part with relative path (e.g. xl/worksheets/sheet1.xml)
+     * @param rawBytes Uncompressed size of the part in bytes
+     * @param compressedBytes Compressed size of the part in bytes
+     */
+    default void partWritten(String partName, long rawBytes, long compressedBytes) {}
+
+    /**
+     * Called when the save process was completed successfully
+     * @param statistics Aggregated statistics of the save process
+     */
+    default void saveCompleted(SaveStatistics statistics) {}
+
+}
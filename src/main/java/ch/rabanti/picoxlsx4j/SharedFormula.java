@@ -0,0 +1,85 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j;
+
+/**
+ * Class representing a formula that is shared over a range of cells. The formula is defined for the first (top left) cell of the range. The other cells use the formula with relative references moved by their offset to the first cell<br>
+ * All cells of the range reference the same instance, so the formula is only stored once
+ * @author Raphael Stoeckli
+ */
+public class SharedFormula {
+
+// ### P R I V A T E  F I E L D S ###
+    private final String formula;
+    private final Range range;
+    private FormulaTemplate template;
+
+// ### G E T T E R S ###
+    /**
+     * Gets the formula of the first cell of the range
+     * @return Formula as string
+     */
+    public String getFormula() {
+        return formula;
+    }
+
+    /**
+     * Gets the range of the shared formula
+     * @return Cell range
+     */
+    public Range getRange() {
+        return range;
+    }
+
+    /**
+     * Gets the parsed formula. The formula is parsed on the first call
+     * @return Parsed formula
+     */
+    public FormulaTemplate getTemplate()
+    {
+        if (this.template == null)
+        {
+            this.template = FormulaTemplate.parse(this.formula, this.range.StartAddress);
+        }
+        return this.template;
+    }
+
+// ### C O N S T R U C T O R S ###
+    /**
+     * Constructor with formula and range
+     * @param formula Formula of the first cell of the range
+     * @param range Range of the shared formula
+     */
+    public SharedFormula(String formula, Range range)
+    {
+        this.formula = formula;
+        this.range = range;
+    }
+
+// ### M E T H O D S ###
+    /**
+     * Gets the formula of a cell within the range
+     * @param columnNumber Column number of the cell (zero-based)
+     * @param rowNumber Row number of the cell (zero-based)
+     * @return Formula with relative references moved by the offset of the cell to the first cell
+     */
+    public String getFormula(int columnNumber, int rowNumber)
+    {
+        return getTemplate().renderAt(columnNumber, rowNumber);
+    }
+
+    /**
+     * Override toString method
+     * @return Formula of the first cell of the range
+     */
+    @Override
+    public String toString()
+    {
+        return this.formula;
+    }
+
+}
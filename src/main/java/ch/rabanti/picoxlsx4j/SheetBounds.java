@@ -0,0 +1,216 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+
+/**
+ * Class representing the incrementally maintained bounds of the cells of a worksheet. Insertions update the bounds in O(1). Removals are handled lazily by counting the cells per row and column
+ * @author Raphael Stoeckli
+ */
+class SheetBounds {
+
+// ### C O N S T A N T S ###
+    /**
+     * Initial size of the count arrays
+     */
+    private static final int INITIAL_SIZE = 64;
+
+// ### P R I V A T E  F I E L D S ###
+    private int[] columnCounts;
+    private int[] columnLastRows;
+    private int firstColumn;
+    private int firstRow;
+    private int lastColumn;
+    private int lastRow;
+    private int[] rowCounts;
+    private final BitSet staleColumns;
+
+// ### C O N S T R U C T O R S ###
+    /**
+     * Default constructor
+     */
+    public SheetBounds()
+    {
+        this.rowCounts = new int[INITIAL_SIZE];
+        this.columnCounts = new int[INITIAL_SIZE];
+        this.columnLastRows = new int[INITIAL_SIZE];
+        Arrays.fill(this.columnLastRows, -1);
+        this.staleColumns = new BitSet();
+        clear();
+    }
+
+// ### G E T T E R S ###
+    /**
+     * Gets the first column number with at least one cell
+     * @return Zero-based column number or -1 if empty
+     */
+    public int getFirstColumn() {
+        return firstColumn;
+    }
+
+    /**
+     * Gets the first row number with at least one cell
+     * @return Zero-based row number or -1 if empty
+     */
+    public int getFirstRow() {
+        return firstRow;
+    }
+
+    /**
+     * Gets the last column number with at least one cell
+     * @return Zero-based column number or -1 if empty
+     */
+    public int getLastColumn() {
+        return lastColumn;
+    }
+
+    /**
+     * Gets the last row number with at least one cell
+     * @return Zero-based row number or -1 if empty
+     */
+    public int getLastRow() {
+        return lastRow;
+    }
+
+// ### M E T H O D S ###
+    /**
+     * Registers a new cell (the address must not be occupied yet)
+     * @param column Zero-based column number
+     * @param row Zero-based row number
+     */
+    public void add(int column, int row)
+    {
+        if (row >= this.rowCounts.length)
+        {
+            this.rowCounts = Arrays.copyOf(this.rowCounts, newSize(this.rowCounts.length, row, Worksheet.MAX_ROW_NUMBER));
+        }
+        if (column >= this.columnCounts.length)
+        {
+            int oldSize = this.columnCounts.length;
+            int size = newSize(oldSize, column, Worksheet.MAX_COLUMN_NUMBER);
+            this.columnCounts = Arrays.copyOf(this.columnCounts, size);
+            this.columnLastRows = Arrays.copyOf(this.columnLastRows, size);
+            Arrays.fill(this.columnLastRows, oldSize, size, -1);
+        }
+        this.rowCounts[row]++;
+        this.columnCounts[column]++;
+        if (row > this.columnLastRows[column])
+        {
+            this.columnLastRows[column] = row;
+        }
+        if (this.lastRow < 0)
+        {
+            this.firstRow = row;
+            this.lastRow = row;
+            this.firstColumn = column;
+            this.lastColumn = column;
+            return;
+        }
+        if (row < this.firstRow) { this.firstRow = row; }
+        if (row > this.lastRow) { this.lastRow = row; }
+        if (column < this.firstColumn) { this.firstColumn = column; }
+        if (column > this.lastColumn) { this.lastColumn = column; }
+    }
+
+    /**
+     * Unregisters a removed cell. The bounds are only moved if the last cell of a boundary row or column was removed
+     * @param column Zero-based column number
+     * @param row Zero-based row number
+     */
+    public void remove(int column, int row)
+    {
+        this.rowCounts[row]--;
+        this.columnCounts[column]--;
+        if (this.columnCounts[column] == 0)
+        {
+            this.columnLastRows[column] = -1;
+            this.staleColumns.clear(column);
+        }
+        else if (row == this.columnLastRows[column])
+        {
+            this.staleColumns.set(column);
+        }
+        while (this.lastRow >= 0 && this.rowCounts[this.lastRow] == 0)
+        {
+            this.lastRow--;
+        }
+        if (this.lastRow < 0)
+        {
+            clear();
+            return;
+        }
+        while (this.rowCounts[this.firstRow] == 0) { this.firstRow++; }
+        while (this.columnCounts[this.lastColumn] == 0) { this.lastColumn--; }
+        while (this.columnCounts[this.firstColumn] == 0) { this.firstColumn++; }
+    }
+
+    /**
+     * Gets the last row number with at least one cell in the defined column. If cells were removed from the end of the column, the column is recalculated once with the passed cells
+     * @param column Zero-based column number
+     * @param cells All cells of the worksheet
+     * @return Zero-based row number or -1 if the column is empty
+     */
+    public int getLastRow(int column, Collection<Cell> cells)
+    {
+        if (column >= this.columnLastRows.length) { return -1; }
+        if (this.staleColumns.isEmpty() == false)
+        {
+            recalculateStaleColumns(cells);
+        }
+        return this.columnLastRows[column];
+    }
+
+    /**
+     * Resets the bounds to an empty worksheet
+     */
+    private void clear()
+    {
+        this.firstRow = -1;
+        this.lastRow = -1;
+        this.firstColumn = -1;
+        this.lastColumn = -1;
+    }
+
+    /**
+     * Recalculates the last row of all columns, where the last cell was removed
+     * @param cells All cells of the worksheet
+     */
+    private void recalculateStaleColumns(Collection<Cell> cells)
+    {
+        for (int i = this.staleColumns.nextSetBit(0); i >= 0; i = this.staleColumns.nextSetBit(i + 1))
+        {
+            this.columnLastRows[i] = -1;
+        }
+        int column;
+        for (Cell cell : cells)
+        {
+            column = cell.getColumnNumber();
+            if (this.staleColumns.get(column) == true && cell.getRowNumber() > this.columnLastRows[column])
+            {
+                this.columnLastRows[column] = cell.getRowNumber();
+            }
+        }
+        this.staleColumns.clear();
+    }
+
+    /**
+     * Calculates the new size of a count array
+     * @param size Current size
+     * @param index Index that must fit into the array
+     * @param maxIndex Maximum possible index
+     * @return New size
+     */
+    private static int newSize(int size, int index, int maxIndex)
+    {
+        int newSize = Math.max(size * 2, index + 1);
+        return Math.min(newSize, maxIndex + 1);
+    }
+
+}
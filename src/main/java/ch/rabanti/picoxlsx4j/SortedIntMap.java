@@ -0,0 +1,340 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Class representing a map with primitive int keys (e.g. row or column numbers), stored in ascending order in a sorted array. Keys are not boxed when using the int methods (get, put, containsKey, remove)<br>
+ * Appending keys in ascending order is done in O(1), lookups in O(log n). The class implements the Map interface for compatibility. The iteration order is always the ascending key order
+ * @param <V> Type of the values
+ * @author Raphael Stoeckli
+ */
+public class SortedIntMap<V> extends AbstractMap<Integer, V> {
+
+// ### C O N S T A N T S ###
+    /**
+     * Initial size of the key and value arrays
+     */
+    private static final int INITIAL_SIZE = 16;
+
+// ### P R I V A T E  F I E L D S ###
+    private int[] keys;
+    private int modificationCount;
+    private int size;
+    private Object[] values;
+
+// ### C O N S T R U C T O R S ###
+    /**
+     * Default constructor
+     */
+    public SortedIntMap()
+    {
+        this.keys = new int[INITIAL_SIZE];
+        this.values = new Object[INITIAL_SIZE];
+        this.size = 0;
+    }
+
+// ### M E T H O D S ###
+    /**
+     * Gets the index of the first entry with a key equal or greater than the passed key
+     * @param key Key to search
+     * @return Index of the entry or the size of the map if all keys are smaller
+     */
+    public int ceilingIndex(int key)
+    {
+        int index = indexOf(key);
+        return index < 0 ? -(index + 1) : index;
+    }
+
+    /**
+     * Removes all entries of the map
+     */
+    @Override
+    public void clear()
+    {
+        Arrays.fill(this.values, 0, this.size, null);
+        this.size = 0;
+        this.modificationCount++;
+    }
+
+    /**
+     * Gets whether the specified key exists in the map
+     * @param key Key to check
+     * @return True if the entry exists, otherwise false
+     */
+    public boolean containsKey(int key)
+    {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * Gets whether the specified key exists in the map
+     * @param key Key to check (Integer)
+     * @return True if the entry exists, otherwise false
+     */
+    @Override
+    public boolean containsKey(Object key)
+    {
+        return key instanceof Integer && containsKey(((Integer)key).intValue());
+    }
+
+    /**
+     * Gets the entries of the map in ascending key order. Entries can be removed by the iterator
+     * @return Set of entries
+     */
+    @Override
+    public Set<Map.Entry<Integer, V>> entrySet()
+    {
+        return new AbstractSet<Map.Entry<Integer, V>>()
+        {
+            @Override
+            public Iterator<Map.Entry<Integer, V>> iterator()
+            {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size()
+            {
+                return SortedIntMap.this.size;
+            }
+        };
+    }
+
+    /**
+     * Gets the value of the specified key
+     * @param key Key of the entry
+     * @return The value of the entry. If the key was not found, null is returned
+     */
+    public V get(int key)
+    {
+        int index = indexOf(key);
+        return index < 0 ? null : valueAt(index);
+    }
+
+    /**
+     * Gets the value of the specified key
+     * @param key Key of the entry (Integer)
+     * @return The value of the entry. If the key was not found, null is returned
+     */
+    @Override
+    public V get(Object key)
+    {
+        if (key instanceof Integer == false)
+        {
+            return null;
+        }
+        return get(((Integer)key).intValue());
+    }
+
+    /**
+     * Gets the index of the passed key. The last key is checked first, since keys are mostly added in ascending order
+     * @param key Key to search
+     * @return Index of the entry or (-(insertion point) - 1) if the key was not found
+     */
+    public int indexOf(int key)
+    {
+        if (this.size == 0 || key > this.keys[this.size - 1])
+        {
+            return -(this.size + 1);
+        }
+        if (key == this.keys[this.size - 1])
+        {
+            return this.size - 1;
+        }
+        return Arrays.binarySearch(this.keys, 0, this.size, key);
+    }
+
+    /**
+     * Gets the key at the passed index
+     * @param index Index of the entry (0 to size - 1)
+     * @return Key of the entry
+     */
+    public int keyAt(int index)
+    {
+        return this.keys[index];
+    }
+
+    /**
+     * Adds or replaces an entry
+     * @param key Key of the entry
+     * @param value Value of the entry
+     * @return Previous value of the key or null if the key was not present
+     */
+    public V put(int key, V value)
+    {
+        int index = indexOf(key);
+        if (index >= 0)
+        {
+            V previous = valueAt(index);
+            this.values[index] = value;
+            return previous;
+        }
+        index = -(index + 1);
+        if (this.size == this.keys.length)
+        {
+            this.keys = Arrays.copyOf(this.keys, this.size * 2);
+            this.values = Arrays.copyOf(this.values, this.size * 2);
+        }
+        if (index < this.size)
+        {
+            System.arraycopy(this.keys, index, this.keys, index + 1, this.size - index);
+            System.arraycopy(this.values, index, this.values, index + 1, this.size - index);
+        }
+        this.keys[index] = key;
+        this.values[index] = value;
+        this.size++;
+        this.modificationCount++;
+        return null;
+    }
+
+    /**
+     * Adds or replaces an entry
+     * @param key Key of the entry (Integer)
+     * @param value Value of the entry
+     * @return Previous value of the key or null if the key was not present
+     */
+    @Override
+    public V put(Integer key, V value)
+    {
+        return put(key.intValue(), value);
+    }
+
+    /**
+     * Removes an entry
+     * @param key Key of the entry
+     * @return Removed value or null if the key was not present
+     */
+    public V remove(int key)
+    {
+        int index = indexOf(key);
+        if (index < 0)
+        {
+            return null;
+        }
+        V previous = valueAt(index);
+        removeAt(index);
+        return previous;
+    }
+
+    /**
+     * Removes an entry
+     * @param key Key of the entry (Integer)
+     * @return Removed value or null if the key was not present
+     */
+    @Override
+    public V remove(Object key)
+    {
+        if (key instanceof Integer == false)
+        {
+            return null;
+        }
+        return remove(((Integer)key).intValue());
+    }
+
+    /**
+     * Removes the entry at the passed index
+     * @param index Index of the entry (0 to size - 1)
+     */
+    public void removeAt(int index)
+    {
+        System.arraycopy(this.keys, index + 1, this.keys, index, this.size - index - 1);
+        System.arraycopy(this.values, index + 1, this.values, index, this.size - index - 1);
+        this.size--;
+        this.values[this.size] = null;
+        this.modificationCount++;
+    }
+
+    /**
+     * Gets the size of the map
+     * @return Number of entries in the map
+     */
+    @Override
+    public int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * Gets the value at the passed index
+     * @param index Index of the entry (0 to size - 1)
+     * @return Value of the entry
+     */
+    @SuppressWarnings("unchecked")
+    public V valueAt(int index)
+    {
+        return (V)this.values[index];
+    }
+
+// ### S U B  C L A S S E S ###
+    /**
+     * Iterator over the entries in ascending key order
+     */
+    private class EntryIterator implements Iterator<Map.Entry<Integer, V>>
+    {
+        private int expectedModificationCount = modificationCount;
+        private int index;
+        private boolean removable;
+
+        @Override
+        public boolean hasNext()
+        {
+            return this.index < size;
+        }
+
+        @Override
+        public Map.Entry<Integer, V> next()
+        {
+            if (this.expectedModificationCount != modificationCount)
+            {
+                throw new ConcurrentModificationException();
+            }
+            if (this.index >= size)
+            {
+                throw new NoSuchElementException();
+            }
+            final int entryIndex = this.index;
+            this.index++;
+            this.removable = true;
+            return new AbstractMap.SimpleEntry<Integer, V>(keys[entryIndex], valueAt(entryIndex))
+            {
+                @Override
+                public V setValue(V value)
+                {
+                    values[entryIndex] = value;
+                    return super.setValue(value);
+                }
+            };
+        }
+
+        @Override
+        public void remove()
+        {
+            if (this.removable == false)
+            {
+                throw new IllegalStateException();
+            }
+            if (this.expectedModificationCount != modificationCount)
+            {
+                throw new ConcurrentModificationException();
+            }
+            this.index--;
+            removeAt(this.index);
+            this.expectedModificationCount = modificationCount;
+            this.removable = false;
+        }
+    }
+
+}
@@ -0,0 +1,291 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j;
+
+import ch.rabanti.picoxlsx4j.exception.FormatException;
+import ch.rabanti.picoxlsx4j.exception.RangeException;
+
+/**
+ * Class representing a table (list object) of a worksheet. The formatting (banded rows, header row, filter buttons) is defined declaratively by a built-in table style for the whole range, without styles on the individual cells<br>
+ * The first row of the range is the header row. Its cells should contain unique text values, which are used as column names. Missing column names are generated (Column1, Column2...)
+ * @author Raphael Stoeckli
+ */
+public class Table {
+
+// ### C O N S T A N T S ###
+    /**
+     * Default style category of a table (as in Excel)
+     */
+    public static final StyleCategory DEFAULT_STYLE_CATEGORY = StyleCategory.medium;
+    /**
+     * Default style number of a table (as in Excel)
+     */
+    public static final int DEFAULT_STYLE_NUMBER = 2;
+
+// ### E N U M S ###
+    /**
+     * Enum to define the category of the built-in table styles
+     */
+    public enum StyleCategory
+    {
+        /**
+         * No table style is applied
+         */
+        none(0),
+        /**
+         * Light table styles (TableStyleLight1 to TableStyleLight21)
+         */
+        light(21),
+        /**
+         * Medium table styles (TableStyleMedium1 to TableStyleMedium28)
+         */
+        medium(28),
+        /**
+         * Dark table styles (TableStyleDark1 to TableStyleDark11)
+         */
+        dark(11);
+
+        private final int maxNumber;
+
+        StyleCategory(int maxNumber) {
+            this.maxNumber = maxNumber;
+        }
+
+        /**
+         * Gets the highest style number of the category
+         * @return Highest style number
+         */
+        public int getMaxNumber() {
+            return maxNumber;
+        }
+    }
+
+// ### P R I V A T E  F I E L D S ###
+    private final String name;
+    private final Range range;
+    private boolean showColumnStripes;
+    private boolean showFilterButtons;
+    private boolean showFirstColumn;
+    private boolean showLastColumn;
+    private boolean showRowStripes;
+    private StyleCategory styleCategory;
+    private int styleNumber;
+
+// ### G E T T E R S  &  S E T T E R S ###
+    /**
+     * Gets the name of the table. The name is used as name and display name in the workbook
+     * @return Name of the table
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the range of the table, including the header row
+     * @return Range of the table
+     */
+    public Range getRange() {
+        return range;
+    }
+
+    /**
+     * Gets whether the columns are banded
+     * @return If true, the columns are banded
+     */
+    public boolean isShowColumnStripes() {
+        return showColumnStripes;
+    }
+
+    /**
+     * Sets whether the columns are banded
+     * @param showColumnStripes If true, the columns are banded
+     */
+    public void setShowColumnStripes(boolean showColumnStripes) {
+        this.showColumnStripes = showColumnStripes;
+    }
+
+    /**
+     * Gets whether the filter buttons are shown in the header row
+     * @return If true, the header row has filter buttons
+     */
+    public boolean isShowFilterButtons() {
+        return showFilterButtons;
+    }
+
+    /**
+     * Sets whether the filter buttons are shown in the header row
+     * @param showFilterButtons If true, the header row has filter buttons
+     */
+    public void setShowFilterButtons(boolean showFilterButtons) {
+        this.showFilterButtons = showFilterButtons;
+    }
+
+    /**
+     * Gets whether the first column is highlighted
+     * @return If true, the first column is highlighted
+     */
+    public boolean isShowFirstColumn() {
+        return showFirstColumn;
+    }
+
+    /**
+     * Sets whether the first column is highlighted
+     * @param showFirstColumn If true, the first column is highlighted
+     */
+    public void setShowFirstColumn(boolean showFirstColumn) {
+        this.showFirstColumn = showFirstColumn;
+    }
+
+    /**
+     * Gets whether the last column is highlighted
+     * @return If true, the last column is highlighted
+     */
+    public boolean isShowLastColumn() {
+        return showLastColumn;
+    }
+
+    /**
+     * Sets whether the last column is highlighted
+     * @param showLastColumn If true, the last column is highlighted
+     */
+    public void setShowLastColumn(boolean showLastColumn) {
+        this.showLastColumn = showLastColumn;
+    }
+
+    /**
+     * Gets whether the rows are banded
+     * @return If true, the rows are banded
+     */
+    public boolean isShowRowStripes() {
+        return showRowStripes;
+    }
+
+    /**
+     * Sets whether the rows are banded
+     * @param showRowStripes If true, the rows are banded
+     */
+    public void setShowRowStripes(boolean showRowStripes) {
+        this.showRowStripes = showRowStripes;
+    }
+
+    /**
+     * Gets the category of the built-in table style
+     * @return Style category
+     */
+    public StyleCategory getStyleCategory() {
+        return styleCategory;
+    }
+
+    /**
+     * Gets the number of the built-in table style within the category
+     * @return Style number (1 based)
+     */
+    public int getStyleNumber() {
+        return styleNumber;
+    }
+
+    /**
+     * Gets the name of the built-in table style (e.g. TableStyleMedium2)
+     * @return Name of the table style or null if no style is applied
+     */
+    public String getStyleName()
+    {
+        switch (this.styleCategory)
+        {
+            case light:
+                return "TableStyleLight" + this.styleNumber;
+            case medium:
+                return "TableStyleMedium" + this.styleNumber;
+            case dark:
+                return "TableStyleDark" + this.styleNumber;
+            default:
+                return null;
+        }
+    }
+
+// ### C O N S T R U C T O R S ###
+    /**
+     * Constructor with name and range. The table gets the default style (TableStyleMedium2) with banded rows and filter buttons
+     * @param name Name of the table
+     * @param range Range of the table, including the header row
+     * @throws FormatException Thrown if the name is not a valid table name
+     * @throws RangeException Thrown if the range has less than two rows
+     */
+    Table(String name, Range range)
+    {
+        validateName(name);
+        if (range.EndAddress.Row - range.StartAddress.Row < 1)
+        {
+            throw new RangeException("OutOfRangeException", "The range '" + range + "' of the table '" + name + "' must contain a header row and at least one data row.");
+        }
+        this.name = name;
+        this.range = range;
+        this.showFilterButtons = true;
+        this.showRowStripes = true;
+        this.styleCategory = DEFAULT_STYLE_CATEGORY;
+        this.styleNumber = DEFAULT_STYLE_NUMBER;
+    }
+
+// ### M E T H O D S ###
+    /**
+     * Sets the built-in table style
+     * @param category Style category
+     * @param number Style number within the category (1 based). Not considered if the category is none
+     * @throws RangeException Thrown if the number is not a valid style number of the category
+     */
+    public void setStyle(StyleCategory category, int number)
+    {
+        if (category != StyleCategory.none && (number < 1 || number > category.getMaxNumber()))
+        {
+            throw new RangeException("OutOfRangeException", "The style number " + number + " is not valid for the category " + category + ". Valid values are 1 to " + category.getMaxNumber() + ".");
+        }
+        this.styleCategory = category;
+        this.styleNumber = category == StyleCategory.none ? 0 : number;
+    }
+
+    /**
+     * Checks whether the table overlaps with the passed range
+     * @param other Range to check
+     * @return True if at least one cell is in both ranges, otherwise false
+     */
+    public boolean overlaps(Range other)
+    {
+        return this.range.StartAddress.Column <= other.EndAddress.Column && other.StartAddress.Column <= this.range.EndAddress.Column
+                && this.range.StartAddress.Row <= other.EndAddress.Row && other.StartAddress.Row <= this.range.EndAddress.Row;
+    }
+
+    /**
+     * Validates a table name. The name must start with a letter, an underscore or a backslash and must only contain letters, numbers, periods and underscores. Names like cell references (e.g. A1 or R1C1) are not allowed
+     * @param name Name to check
+     * @throws FormatException Thrown if the name is not valid
+     */
+    private static void validateName(String name)
+    {
+        if (Helper.isNullOrEmpty(name) == true || name.length() > 255)
+        {
+            throw new FormatException("FormatException", "The table name must have a length between 1 and 255 characters.");
+        }
+        char c = name.charAt(0);
+        if (Character.isLetter(c) == false && c != '_' && c != '\\')
+        {
+            throw new FormatException("FormatException", "The table name '" + name + "' must start with a letter, an underscore or a backslash.");
+        }
+        for (int i = 1; i < name.length(); i++)
+        {
+            c = name.charAt(i);
+            if (Character.isLetterOrDigit(c) == false && c != '_' && c != '.' && c != '\\')
+            {
+                throw new FormatException("FormatException", "The table name '" + name + "' contains the invalid character '" + c + "'.");
+            }
+        }
+        if (name.matches("(?i)[A-Z]{1,3}[0-9]+|R[0-9]*C[0-9]*|[RC]"))
+        {
+            throw new FormatException("FormatException", "The table name '" + name + "' must not be a cell reference.");
+        }
+    }
+
+}
@@ -7,14 +7,25 @@
 package ch.rabanti.picoxlsx4j;
 
 import ch.rabanti.picoxlsx4j.exception.*;
+import ch.rabanti.picoxlsx4j.lowLevel.AppendSource;
 import ch.rabanti.picoxlsx4j.lowLevel.LowLevel;
 import ch.rabanti.picoxlsx4j.style.*;
 
 import java.io.OutputStream;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Class representing a workbook
@@ -23,12 +34,20 @@ import java.util.Map;
 public class Workbook {
     
 // ### P R I V A T E  F I E L D S ###    
+    private AppendSource appendSource;
     private Worksheet currentWorksheet;
+    private Set<String> customPartNames;
+    private List<CustomPart> customParts;
+    private ZoneId dateTimeZone;
+    private Style dateStyle;
     private String filename;
     private boolean lockStructureIfProtected;
     private boolean lockWindowsIfProtected;
+    private long memoryBudget;
+    private SaveListener saveListener;
     private int selectedWorksheet;
     private StyleManager styleManager;
+    private WorkbookTemplate template;
     private boolean useWorkbookProtection;
     private Metadata workbookMetadata;
     private String workbookProtectionPassword;
@@ -40,6 +59,14 @@ public class Workbook {
     public Shortener WS;
     
 // ### G E T T E R S  &  S E T T E R S ###    
+    /**
+     * Gets the existing file, to which the worksheets of this workbook are appended
+     * @return Existing file or null if the workbook was not opened for appending
+     */
+    public AppendSource getAppendSource() {
+        return appendSource;
+    }
+
     /**
      * Gets the current worksheet
      * @return Current worksheet reference
@@ -47,8 +74,32 @@ public class Workbook {
     public Worksheet getCurrentWorksheet() {
         return currentWorksheet;
     }
+
+    /**
+     * Gets the custom parts (e.g. images), which are added to the file when the workbook is saved
+     * @return Unmodifiable list of custom parts
+     */
+    public List<CustomPart> getCustomParts() {
+        return Collections.unmodifiableList(customParts);
+    }
     
     
+    /**
+     * Gets the time zone that is used to resolve the local date and time of Date and Instant values when saving
+     * @return Time zone. If null, the default time zone of the system is used
+     */
+    public ZoneId getDateTimeZone() {
+        return dateTimeZone;
+    }
+
+    /**
+     * Sets the time zone that is used to resolve the local date and time of Date and Instant values when saving. LocalDate and LocalDateTime values are not affected
+     * @param dateTimeZone Time zone. If null, the default time zone of the system is used
+     */
+    public void setDateTimeZone(ZoneId dateTimeZone) {
+        this.dateTimeZone = dateTimeZone;
+    }
+
     /**
      * Gets the filename of the workbook
      * @return Filename of the workbook
@@ -64,6 +115,42 @@ public class Workbook {
     public void setFilename(String filename) {
         this.filename = filename;
     }
+    /**
+     * Gets the memory budget of the workbook in bytes. If 0, no budget is defined
+     * @return Memory budget in bytes
+     */
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Sets the memory budget of the workbook in bytes. If the estimated heap usage while saving (see estimateSaveMemoryUsage) exceeds the budget, a MemoryBudgetException is thrown when adding cells or before saving, instead of running out of memory
+     * @param memoryBudget Memory budget in bytes. If 0, no budget is defined
+     * @throws RangeException Thrown if the budget is negative
+     */
+    public void setMemoryBudget(long memoryBudget) {
+        if (memoryBudget < 0)
+        {
+            throw new RangeException("OutOfRangeException","The memory budget (" + memoryBudget + ") must not be negative.");
+        }
+        this.memoryBudget = memoryBudget;
+    }
+    /**
+     * Gets the listener that receives timings and statistics while the workbook is saved
+     * @return Save listener or null if not defined
+     */
+    public SaveListener getSaveListener() {
+        return saveListener;
+    }
+
+    /**
+     * Sets the listener that receives timings and statistics while the workbook is saved
+     * @param saveListener Save listener. If null, no timings are reported
+     */
+    public void setSaveListener(SaveListener saveListener) {
+        this.saveListener = saveListener;
+    }
+
     /**
      * Gets the selected worksheet. The selected worksheet is not the current worksheet while design time but the selected sheet in the output file
      * @return Zero-based worksheet index
@@ -175,6 +262,14 @@ public class Workbook {
     public StyleManager getStyleManager() {
         return styleManager;
     }
+
+    /**
+     * Gets the template of the workbook
+     * @return Template or null if the workbook was not created from a template
+     */
+    public WorkbookTemplate getTemplate() {
+        return template;
+    }
     
     
 // ### C O N S T R U C T O R S ###
@@ -228,12 +323,62 @@ public class Workbook {
         this.filename = filename;
         addWorksheet(Worksheet.sanitizeWorksheetName(sheetName, this));
     }    
+
+    /**
+     * Constructor for a workbook that is created from a template. The worksheets are copies of the layout worksheets. The metadata is a copy of the layout metadata. The style manager is layered on the frozen styles of the layout, so that styles added to the workbook are not visible in other workbooks of the template
+     * @param template Template of the workbook
+     * @param filename Filename of the workbook
+     */
+    Workbook(WorkbookTemplate template, String filename)
+    {
+        Workbook layout = template.getLayout();
+        this.worksheets = new ArrayList<>();
+        this.customParts = new ArrayList<>();
+        this.customPartNames = new HashSet<>();
+        this.styleManager = new StyleManager(layout.styleManager);
+        this.workbookMetadata = layout.workbookMetadata.copy();
+        this.WS = new Shortener();
+        this.template = template;
+        this.filename = filename;
+        this.dateStyle = layout.dateStyle;
+        this.dateTimeZone = layout.dateTimeZone;
+        this.lockStructureIfProtected = layout.lockStructureIfProtected;
+        this.lockWindowsIfProtected = layout.lockWindowsIfProtected;
+        this.memoryBudget = layout.memoryBudget;
+        this.selectedWorksheet = layout.selectedWorksheet;
+        this.useWorkbookProtection = layout.useWorkbookProtection;
+        this.workbookProtectionPassword = layout.workbookProtectionPassword;
+        for (Worksheet worksheet : layout.worksheets)
+        {
+            this.worksheets.add(worksheet.copyLayout(this));
+        }
+        int index = layout.worksheets.indexOf(layout.currentWorksheet);
+        if (index >= 0)
+        {
+            this.currentWorksheet = this.worksheets.get(index);
+            this.WS.setCurrentWorksheet(this.currentWorksheet);
+        }
+    }
     
 // ### M E T H O D S ###
 
 
     /**
-     * Adds a style to the style manager
+     * Adds a custom part (e.g. an image or a prebuilt XML part), which is added unchanged to the file when the workbook is saved
+     * @param part Custom part to add
+     * @throws FormatException Thrown if a custom part with the same name was already added
+     */
+    public void addCustomPart(CustomPart part)
+    {
+        if (this.customPartNames.add(part.getName()) == false)
+        {
+            throw new FormatException("CustomPartAlreadyExistsException", "The custom part with the name '" + part.getName() + "' already exists.");
+        }
+        this.customParts.add(part);
+    }
+
+    /**
+     * Adds a style to the style manager. This method is thread-safe, so different worksheets of the workbook can be filled by different threads
      * @param style Style to add
      * @return The managed style of the style manager
      */
@@ -242,6 +387,54 @@ public class Workbook {
        return this.styleManager.addStyle(style);
     }
     
+    /**
+     * Checks the estimated heap usage while saving against the memory budget. Nothing is checked if no budget is defined
+     * @throws MemoryBudgetException Thrown if the estimate exceeds the memory budget
+     */
+    public void checkMemoryBudget()
+    {
+        if (this.memoryBudget == 0)
+        {
+            return;
+        }
+        long estimate = MemoryEstimator.estimateSave(this);
+        if (estimate > this.memoryBudget)
+        {
+            throw new MemoryBudgetException("MemoryBudgetExceededException","The estimated heap usage while saving (" + estimate + " bytes) exceeds the memory budget of the workbook (" + this.memoryBudget + " bytes).", estimate, this.memoryBudget);
+        }
+    }
+
+    /**
+     * Estimates the retained heap of the workbook (cells, strings, styles, merged cells, rows and columns)
+     * @return Estimated number of bytes
+     */
+    public long estimateMemoryUsage()
+    {
+        return MemoryEstimator.estimate(this);
+    }
+
+    /**
+     * Estimates the peak heap while saving the workbook. This is the retained heap plus the temporary data of the largest worksheet, the already written parts and the shared strings
+     * @return Estimated number of bytes
+     */
+    public long estimateSaveMemoryUsage()
+    {
+        return MemoryEstimator.estimateSave(this);
+    }
+
+    /**
+     * Gets the managed date style of this workbook. The style is registered only once in the style manager and cached afterwards
+     * @return Managed date style (see BasicStyles.DateFormat)
+     */
+    Style getDateStyle()
+    {
+        if (this.dateStyle == null)
+        {
+            this.dateStyle = this.styleManager.addStyle(BasicStyles.DateFormat());
+        }
+        return this.dateStyle;
+    }
+
     /**
      * Adds a style component to a style
      * @param baseStyle Style to append a component
@@ -289,6 +482,10 @@ public class Workbook {
                 throw new WorksheetException("WorksheetNameAlreadyExistsException","The worksheet with the name '" + name + "' already exists.");
             }
         }
+        if (this.appendSource != null && this.appendSource.getSheetNames().contains(name))
+        {
+            throw new WorksheetException("WorksheetNameAlreadyExistsException","The worksheet with the name '" + name + "' already exists in the file to append to.");
+        }
         int number = this.worksheets.size() + 1;
         Worksheet newWs = new Worksheet(name, number, this);
         this.currentWorksheet = newWs;
@@ -331,6 +528,10 @@ public class Workbook {
                 throw new WorksheetException("WorksheetNameAlreadyExistsException","The worksheet with the name '" + worksheet.getSheetName() + "' already exists.");
             }
         }
+        if (this.appendSource != null && this.appendSource.getSheetNames().contains(worksheet.getSheetName()))
+        {
+            throw new WorksheetException("WorksheetNameAlreadyExistsException","The worksheet with the name '" + worksheet.getSheetName() + "' already exists in the file to append to.");
+        }
         int number = this.worksheets.size() + 1;
         worksheet.setSheetID(number);
         worksheet.setWorkbookReference(this);
@@ -344,6 +545,8 @@ public class Workbook {
     private void init()
     {
         this.worksheets = new ArrayList<>();
+        this.customParts = new ArrayList<>();
+        this.customPartNames = new HashSet<>();
         this.styleManager = new StyleManager();
         this.styleManager.addStyle(new Style("default", 0, true));
         Style borderStyle = new Style("default_border_style", 1, true);
@@ -401,6 +604,7 @@ public class Workbook {
         {
             throw new StyleException("MissingReferenceException","The style to remove is not defined (no name specified)");
         }
+        this.dateStyle = null; // The cached date style may be affected
         
         if (onlyIfUnused == true)
         {
@@ -501,6 +705,11 @@ public class Workbook {
         for (int i = 0; i < this.worksheets.size(); i++)
         {
             sheet = this.worksheets.get(i);
+            if (sheet.isOffHeapStorage() == true)
+            {
+                sheet.resolveOffHeapMergedCells(); // Resolved row by row when the rows are moved into the storage
+                continue;
+            }
             itr = sheet.getMergedCells().entrySet().iterator();
             while (itr.hasNext())
             {
@@ -542,6 +751,36 @@ public class Workbook {
         LowLevel l = new LowLevel(this);
         l.save();
     }
+
+    /**
+    * Saves the workbook. The save process can be cancelled by the passed token. A partially written file is deleted in this case
+    * @param cancellationToken Token to cancel the save process
+    * @throws IOException Throws IOException in case of an error or if the save process was cancelled (title: SaveCancelledException)
+    */
+    public void save(SaveCancellationToken cancellationToken) throws IOException
+    {
+        LowLevel l = new LowLevel(this, cancellationToken);
+        l.save();
+    }
+
+    /**
+    * Saves the workbook asynchronously in the common fork join pool. Cancelling the returned future cancels the save process. The future is completed as cancelled after the save process has stopped and a partially written file was deleted
+    * @return Future that completes when the workbook was saved
+    */
+    public CompletableFuture<Void> saveAsync()
+    {
+        return saveAsync(ForkJoinPool.commonPool());
+    }
+
+    /**
+    * Saves the workbook asynchronously. Cancelling the returned future cancels the save process. The future is completed as cancelled after the save process has stopped and a partially written file was deleted
+    * @param executor Executor to run the save process
+    * @return Future that completes when the workbook was saved
+    */
+    public CompletableFuture<Void> saveAsync(Executor executor)
+    {
+        return runAsync(this::save, executor);
+    }
     
     /**
     * Saves the workbook with the defined name
@@ -556,6 +795,48 @@ public class Workbook {
         l.save();
         this.filename = backup;
     }
+
+    /**
+    * Saves the workbook with the defined name. The save process can be cancelled by the passed token. A partially written file is deleted in this case
+    * @param filename filename of the saved workbook
+    * @param cancellationToken Token to cancel the save process
+    * @throws IOException Thrown in case of an error or if the save process was cancelled (title: SaveCancelledException)
+    */
+    public void saveAs(String filename, SaveCancellationToken cancellationToken) throws IOException
+    {
+        String backup = this.filename;
+        this.filename = filename;
+        try
+        {
+            LowLevel l = new LowLevel(this, cancellationToken);
+            l.save();
+        }
+        finally
+        {
+            this.filename = backup;
+        }
+    }
+
+    /**
+    * Saves the workbook asynchronously with the defined name in the common fork join pool. Cancelling the returned future cancels the save process. The future is completed as cancelled after the save process has stopped and a partially written file was deleted
+    * @param filename filename of the saved workbook
+    * @return Future that completes when the workbook was saved
+    */
+    public CompletableFuture<Void> saveAsAsync(String filename)
+    {
+        return saveAsAsync(filename, ForkJoinPool.commonPool());
+    }
+
+    /**
+    * Saves the workbook asynchronously with the defined name. Cancelling the returned future cancels the save process. The future is completed as cancelled after the save process has stopped and a partially written file was deleted
+    * @param filename filename of the saved workbook
+    * @param executor Executor to run the save process
+    * @return Future that completes when the workbook was saved
+    */
+    public CompletableFuture<Void> saveAsAsync(String filename, Executor executor)
+    {
+        return runAsync(token -> saveAs(filename, token), executor);
+    }
     
     /**
      * Save the workbook to a output stream
@@ -567,6 +848,115 @@ public class Workbook {
         LowLevel l = new LowLevel(this);
         l.saveAsStream(stream);
     }
+
+    /**
+     * Save the workbook to a output stream. The save process can be cancelled by the passed token. The stream is left incomplete in this case
+     * @param stream Output Stream
+     * @param cancellationToken Token to cancel the save process
+     * @throws IOException Thrown in case of an error or if the save process was cancelled (title: SaveCancelledException)
+     */
+    public void saveAsStream(OutputStream stream, SaveCancellationToken cancellationToken) throws IOException
+    {
+        LowLevel l = new LowLevel(this, cancellationToken);
+        l.saveAsStream(stream);
+    }
+
+    /**
+     * Save the workbook asynchronously to a output stream in the common fork join pool. Cancelling the returned future cancels the save process
+     * @param stream Output Stream
+     * @return Future that completes when the workbook was saved
+     */
+    public CompletableFuture<Void> saveAsStreamAsync(OutputStream stream)
+    {
+        return saveAsStreamAsync(stream, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Save the workbook asynchronously to a output stream. Cancelling the returned future cancels the save process
+     * @param stream Output Stream
+     * @param executor Executor to run the save process
+     * @return Future that completes when the workbook was saved
+     */
+    public CompletableFuture<Void> saveAsStreamAsync(OutputStream stream, Executor executor)
+    {
+        return runAsync(token -> saveAsStream(stream, token), executor);
+    }
+
+    /**
+     * Save the workbook to a channel (e.g. a FileChannel or a channel of a network socket). The data is written through a direct buffer. A seekable channel (e.g. a FileChannel) is truncated after the written data, so that an existing, larger file is overwritten completely. The channel is closed after saving
+     * @param channel Channel to write into
+     * @throws IOException Thrown in case of an error
+     */
+    public void saveAsChannel(WritableByteChannel channel) throws IOException
+    {
+        LowLevel l = new LowLevel(this);
+        l.saveAsChannel(channel);
+    }
+
+    /**
+     * Save the workbook to a channel. The save process can be cancelled by the passed token. The channel is closed after saving or cancellation
+     * @param channel Channel to write into
+     * @param cancellationToken Token to cancel the save process
+     * @throws IOException Thrown in case of an error or if the save process was cancelled (title: SaveCancelledException)
+     */
+    public void saveAsChannel(WritableByteChannel channel, SaveCancellationToken cancellationToken) throws IOException
+    {
+        LowLevel l = new LowLevel(this, cancellationToken);
+        l.saveAsChannel(channel);
+    }
+
+    /**
+     * Save the workbook asynchronously to an asynchronous file channel in the common fork join pool. The file is written from position 0 without blocking on each write and truncated after the written data. Cancelling the returned future cancels the save process. The channel is closed after saving
+     * @param channel Channel to write into
+     * @return Future that completes when the workbook was saved
+     */
+    public CompletableFuture<Void> saveAsChannelAsync(AsynchronousFileChannel channel)
+    {
+        return saveAsChannelAsync(channel, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Save the workbook asynchronously to an asynchronous file channel. The file is written from position 0 without blocking on each write and truncated after the written data. Cancelling the returned future cancels the save process. The channel is closed after saving
+     * @param channel Channel to write into
+     * @param executor Executor to run the save process
+     * @return Future that completes when the workbook was saved
+     */
+    public CompletableFuture<Void> saveAsChannelAsync(AsynchronousFileChannel channel, Executor executor)
+    {
+        return runAsync(token -> new LowLevel(this, token).saveAsChannel(channel), executor);
+    }
+
+    /**
+     * Runs a save action asynchronously. The cancellation of the returned future is forwarded to the cancellation token of the action. The future is only completed (as cancelled) when the action has exited, so that a partially written file was already deleted when the future completes. Errors thrown by the action complete the future exceptionally
+     * @param action Save action to run
+     * @param executor Executor to run the action
+     * @return Future that completes when the action was executed
+     */
+    private CompletableFuture<Void> runAsync(SaveAction action, Executor executor)
+    {
+        SaveCancellationToken token = new SaveCancellationToken();
+        SaveFuture future = new SaveFuture(token);
+        executor.execute(() ->
+        {
+            try
+            {
+                action.run(token);
+                future.complete(null);
+            }
+            catch (Throwable e)
+            {
+                if (token.isCancelled() == true && e instanceof Exception)
+                {
+                    future.completeCancelled();
+                }
+                else
+                {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+        return future;
+    }
     
     /**
      * Sets the current worksheet
@@ -614,6 +1004,77 @@ public class Workbook {
             this.useWorkbookProtection = state;
         }
     }
+
+// ### S T A T I C   M E T H O D S ###
+    /**
+     * Opens an existing XLSX file (created by PicoXLSX4j) to append new worksheets. The returned workbook contains no worksheets. Only the added worksheets are created when saving. All other entries of the existing file (e.g. worksheets, shared strings and metadata) are copied as compressed bytes without inflating them, and only the workbook, relationships, content types and style sheet are rewritten<br>
+     * The added worksheets use inline strings instead of shared strings. The workbook can be saved to the existing file, or to another file or stream. The existing file must not be modified before saving
+     * @param filename Filename of the existing file. This is also the filename of the returned workbook
+     * @return Workbook to add the new worksheets to
+     * @throws IOException Thrown if the file could not be read or is not a supported XLSX file
+     */
+    public static Workbook openForAppend(String filename) throws IOException
+    {
+        Workbook workbook = new Workbook(false);
+        workbook.appendSource = AppendSource.open(Paths.get(filename));
+        workbook.filename = filename;
+        return workbook;
+    }
+
+// ### S U B  C L A S S E S ###
+    /**
+     * Functional interface for a save action that can be cancelled by a token
+     */
+    @FunctionalInterface
+    private interface SaveAction
+    {
+        /**
+         * Runs the save action
+         * @param cancellationToken Token to cancel the save process
+         * @throws IOException Thrown in case of an error
+         */
+        void run(SaveCancellationToken cancellationToken) throws IOException;
+    }
+
+    /**
+     * Future of an asynchronous save process. Cancelling the future only requests the cancellation of the save process. The future is completed as cancelled when the save process has stopped. Once the package was written completely, the save process cannot be cancelled anymore and the future completes normally
+     */
+    private static class SaveFuture extends CompletableFuture<Void>
+    {
+        private final SaveCancellationToken token;
+
+        /**
+         * Constructor with cancellation token
+         * @param token Token of the save process
+         */
+        SaveFuture(SaveCancellationToken token)
+        {
+            this.token = token;
+        }
+
+        /**
+         * Requests the cancellation of the save process. The future is not completed until the save process has stopped
+         * @param mayInterruptIfRunning Ignored, the save process is never interrupted
+         * @return True if the cancellation was requested or the future is already cancelled, false if the future was already completed otherwise or the save process cannot be stopped anymore
+         */
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning)
+        {
+            if (isDone() == true)
+            {
+                return isCancelled();
+            }
+            return this.token.cancel();
+        }
+
+        /**
+         * Completes the future as cancelled. Called when the cancelled save process has stopped
+         */
+        void completeCancelled()
+        {
+            super.cancel(false);
+        }
+    }
     
     
     
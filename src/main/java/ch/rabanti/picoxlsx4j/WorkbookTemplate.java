@@ -0,0 +1,100 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j;
+
+import ch.rabanti.picoxlsx4j.exception.IOException;
+import ch.rabanti.picoxlsx4j.exception.WorksheetException;
+import ch.rabanti.picoxlsx4j.lowLevel.PartCache;
+
+import java.io.OutputStream;
+
+/**
+ * Class representing a reusable template of a workbook. The template freezes the styles, the worksheet layout (columns, rows, merged cells, default styles, static cells) and the metadata of a layout workbook once, and keeps the rendered static parts (e.g. styles, workbook, relationships) in a cache<br>
+ * Workbooks created from the template only get the per-report data. Static parts are reused as long as they are unchanged, otherwise they are rendered again. The template is thread-safe, so reports can be created and saved concurrently
+ * @author Raphael Stoeckli
+ */
+public class WorkbookTemplate {
+
+// ### P R I V A T E  F I E L D S ###
+    private final Workbook layout;
+    private final PartCache partCache;
+
+// ### G E T T E R S  &  S E T T E R S ###
+    /**
+     * Gets the layout workbook of the template. The layout must not be modified after the template was created
+     * @return Layout workbook
+     */
+    public Workbook getLayout() {
+        return layout;
+    }
+
+    /**
+     * Gets the cache of the rendered static parts<br>
+     * This is an internal method. There is no need to use it. It must be public to require access from the LowLevel class
+     * @return Part cache
+     */
+    public PartCache getPartCache() {
+        return partCache;
+    }
+
+// ### C O N S T R U C T O R S ###
+    /**
+     * Constructor with layout workbook. The layout is rendered once to fill the cache of static parts. Completed row blocks of the layout are merged before
+     * @param layout Workbook with styles, worksheets, column widths, static cells and metadata
+     * @throws WorksheetException Thrown if a worksheet of the layout contains tables or uses off-heap storage
+     * @throws IOException Thrown in case of an error while rendering the layout
+     */
+    public WorkbookTemplate(Workbook layout) throws IOException
+    {
+        for (Worksheet worksheet : layout.getWorksheets())
+        {
+            if (worksheet.getTables().isEmpty() == false)
+            {
+                throw new WorksheetException("UnsupportedTemplateException", "The worksheet '" + worksheet.getSheetName() + "' contains tables. Tables are not supported in templates.");
+            }
+            if (worksheet.isOffHeapStorage() == true)
+            {
+                throw new WorksheetException("UnsupportedTemplateException", "The worksheet '" + worksheet.getSheetName() + "' uses off-heap storage. Off-heap storage is not supported in templates.");
+            }
+            worksheet.mergeRowBlocks();
+        }
+        this.layout = layout;
+        this.partCache = new PartCache();
+        createWorkbook(layout.getFilename()).saveAsStream(new DiscardingOutputStream());
+    }
+
+// ### M E T H O D S ###
+    /**
+     * Creates a new workbook from the template. The worksheets are copies of the layout worksheets, with the same current worksheet. The metadata is a copy of the layout metadata and styles added to the workbook are only registered in the workbook
+     * @param filename Filename of the workbook
+     * @return Workbook with the layout of the template
+     */
+    public Workbook createWorkbook(String filename)
+    {
+        return new Workbook(this, filename);
+    }
+
+// ### S U B  C L A S S E S ###
+    /**
+     * Output stream that discards all written data. It is used to render the layout once
+     */
+    private static final class DiscardingOutputStream extends OutputStream
+    {
+        @Override
+        public void write(int b)
+        {
+            // Discarded
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len)
+        {
+            // Discarded
+        }
+    }
+
+}
@@ -13,6 +13,8 @@ import ch.rabanti.picoxlsx4j.exception.WorksheetException;
 import ch.rabanti.picoxlsx4j.style.BasicStyles;
 import ch.rabanti.picoxlsx4j.style.Style;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -65,6 +67,10 @@ public class Worksheet {
      * Minimum row height as constant
      */
     public static final float MIN_ROW_HEIGHT = 0f;
+    /**
+     * Number of added cells after which the memory budget of the workbook is checked
+     */
+    private static final int MEMORY_CHECK_INTERVAL = 1024;
 
 // ### E N U M S ###
     /**
@@ -155,29 +161,79 @@ public class Worksheet {
     
 // ### P R I V A T E  F I E L D S ###    
     private Style activeStyle;
+    private float[] autoColumnWidths;
     private Range autoFilterRange;
+    private SheetBounds bounds;
     private Map<String, Cell> cells;
-    private Map<Integer, Column> columns;
+    private Map<String, Cell> cellsView;
+    private SortedIntMap<Column> columns;
+    private List<ConditionalFormat> conditionalFormats;
     private CellDirection currentCellDirection;
     private int currentColumnNumber;
     private int currentRowNumber;
     private float defaultColumnWidth;
     private float defaultRowHeight;
-    private Map<Integer, Boolean> hiddenRows;
+    private boolean hasDefaultStyles;
+    private BitSet hiddenRows;
     private Map<String, Range> mergedCells;
-    private Map<Integer, Float> rowHeights;
+    private OffHeapCellStore offHeapStore;
+    private int openRowNumber;
+    private List<RowBlock> completedRowBlocks;
+    private List<RowBlock> reservedRowBlocks;
+    private SortedIntMap<Float> rowHeights;
+    private SortedIntMap<Style> rowStyles;
     private Range selectedCells;
     private int sheetID;
     private String sheetName;
     private String sheetProtectionPassword;
     private List<SheetProtectionValue> sheetProtectionValues;
+    private int stringCellCount;
+    private long stringCharacterCount;
+    private List<Table> tables;
     private boolean useSheetProtection;
     private boolean useActiveStyle;
+    private boolean useSharedFormulaDetection;
     private Workbook workbookReference;
     
 
 // ### G E T T E R S  &  S E T T E R S ###    
    
+    /**
+     * Gets the estimated column widths of the automatic column width, with the zero-based column number as index. This is an internal method. There is no need to use it. It must be public to require access from the LowLevel class
+     * @return Array of widths (0 for columns without measured cells) or null if the automatic column width is disabled
+     */
+    public float[] getAutoColumnWidths() {
+        return autoColumnWidths;
+    }
+    /**
+     * Gets whether the automatic column width is enabled
+     * @return If true, the widths of columns without a defined width are estimated from their cells
+     */
+    public boolean isAutoColumnWidth() {
+        return autoColumnWidths != null;
+    }
+    /**
+     * Sets whether the automatic column width is enabled. If enabled, a running maximum of the display width is kept per column while cells are added, so no additional pass over the cells is needed when saving<br>
+     * Existing cells are measured once when enabling. The width only grows (removed or replaced cells do not shrink it) and is never smaller than the default column width. Columns with a defined width (setColumnWidth) keep this width. Formulas are not measured
+     * @param autoColumnWidth If true, the automatic column width is enabled. If false, all estimated widths are discarded
+     */
+    public void setAutoColumnWidth(boolean autoColumnWidth)
+    {
+        if (autoColumnWidth == false)
+        {
+            this.autoColumnWidths = null;
+            return;
+        }
+        if (this.autoColumnWidths != null)
+        {
+            return;
+        }
+        this.autoColumnWidths = new float[16];
+        for (Cell cell : this.cells.values())
+        {
+            updateAutoColumnWidth(cell);
+        }
+    }
     /**
      * Sets the column auto filter within the defined column range
      * @param range Range to apply auto filter on. The range could be 'A1:C10' for instance. The end row will be recalculated automatically when saving the file
@@ -198,19 +254,26 @@ public class Worksheet {
         return autoFilterRange;
     }
     /**
-     * Gets the cells of the worksheet as map with the cell address as key and the cell object as value
+     * Gets the cells of the worksheet as map with the cell address as key and the cell object as value. The map is read-only. Use the addCell and removeCell methods to modify it
      * @return List of Cell objects
      */
     public Map<String, Cell> getCells() {
-        return cells;
+        return cellsView;
     }
     /**
-     * Gets all columns with non-standard properties, like auto filter applied or a special width as map with the zero-based column index as key and the column object as value
+     * Gets all columns with non-standard properties, like auto filter applied or a special width as map with the zero-based column index as key and the column object as value. The columns are sorted by the column index
      * @return map of columns
      */
-    public Map<Integer, Column> getColumns() {
+    public SortedIntMap<Column> getColumns() {
         return columns;
     }
+    /**
+     * Gets the conditional formatting rules of the worksheet in the order of their priority
+     * @return List of conditional formatting rules
+     */
+    public List<ConditionalFormat> getConditionalFormats() {
+        return conditionalFormats;
+    }
     
     /**
      * Gets the direction when using AddNextCell method
@@ -310,10 +373,22 @@ public class Worksheet {
         this.defaultRowHeight = defaultRowHeight;
     }
     /**
-     * Gets the hidden rows as map with the zero-based row number as key and a boolean as value. True indicates hidden, false visible. Entries with the value false are not affecting the worksheet. These entries can be removed<br>
+     * Gets the hidden rows as map with the zero-based row number as key and the value true. The map is a copy. Use the addHiddenRow and removeHiddenRow methods to modify the hidden rows
      * @return Map with hidden rows
      */
     public Map<Integer, Boolean> getHiddenRows() {
+        SortedIntMap<Boolean> rows = new SortedIntMap<>();
+        for (int row = hiddenRows.nextSetBit(0); row >= 0; row = hiddenRows.nextSetBit(row + 1))
+        {
+            rows.put(row, Boolean.TRUE);
+        }
+        return rows;
+    }
+    /**
+     * Gets the hidden rows as bit set with the zero-based row number as index. This is an internal method. There is no need to use it. It must be public to require access from the LowLevel class
+     * @return Bit set of hidden rows
+     */
+    public BitSet getHiddenRowSet() {
         return hiddenRows;
     }
     /**
@@ -323,14 +398,35 @@ public class Worksheet {
     public Map<String, Range> getMergedCells() {
         return mergedCells;
     }
+    /**
+     * Gets the off-heap storage of the worksheet. This is an internal method. There is no need to use it. It must be public to require access from the LowLevel class
+     * @return Off-heap storage or null if the worksheet stores all cells on the heap
+     */
+    public OffHeapCellStore getOffHeapStore() {
+        return offHeapStore;
+    }
+    /**
+     * Gets whether the rows of the worksheet are moved into an off-heap storage
+     * @return If true, only the current row is kept on the heap
+     */
+    public boolean isOffHeapStorage() {
+        return offHeapStore != null;
+    }
 
     /**
      * Gets defined row heights as map with the zero-based row number as key and the height (float from 0 to 409.5) as value
-     * @return Map of row heights
+     * @return Map of row heights, sorted by the row number
      */
-    public Map<Integer, Float> getRowHeights() {
+    public SortedIntMap<Float> getRowHeights() {
         return rowHeights;
     }
+    /**
+     * Gets the default styles of rows as map with the zero-based row number as key and the style (managed by the workbook) as value
+     * @return map of row styles, sorted by the row number
+     */
+    public SortedIntMap<Style> getRowStyles() {
+        return rowStyles;
+    }
     /**
      * Gets the range of selected cells of this worksheet. Null if no cells are selected
      * @return Cell range of the selected cells
@@ -338,6 +434,20 @@ public class Worksheet {
     public Range getSelectedCells() {
         return selectedCells;
     }
+    /**
+     * Gets the number of cells with a string value (including formulas)
+     * @return Number of string cells
+     */
+    int getStringCellCount() {
+        return stringCellCount;
+    }
+    /**
+     * Gets the total number of characters of the cells with a string value (including formulas)
+     * @return Number of characters
+     */
+    long getStringCharacterCount() {
+        return stringCharacterCount;
+    }
     /**
      * Sets the selected cells on this worksheet
      * @param range Cell range to select
@@ -392,6 +502,21 @@ public class Worksheet {
     public void setUseSheetProtection(boolean useSheetProtection) {
         this.useSheetProtection = useSheetProtection;
     }
+
+    /**
+     * Gets whether formulas in consecutive rows of a column, that differ only by the row offset, are written as shared formulas
+     * @return If true, shared formulas are detected when saving
+     */
+    public boolean isUseSharedFormulaDetection() {
+        return useSharedFormulaDetection;
+    }
+    /**
+     * Sets whether formulas in consecutive rows of a column, that differ only by the row offset, are written as shared formulas. This reduces the size of the worksheet part
+     * @param useSharedFormulaDetection If true, shared formulas are detected when saving
+     */
+    public void setUseSharedFormulaDetection(boolean useSharedFormulaDetection) {
+        this.useSharedFormulaDetection = useSharedFormulaDetection;
+    }
     
     /**
      * Gets the password used for sheet protection
@@ -423,6 +548,13 @@ public class Worksheet {
     public List<SheetProtectionValue> getSheetProtectionValues() {
         return sheetProtectionValues;
     }
+    /**
+     * Gets the tables of the worksheet
+     * @return List of tables
+     */
+    public List<Table> getTables() {
+        return tables;
+    }
     /**
      * Gets the Reference to the parent Workbook
      * @return Workbook reference
@@ -478,7 +610,7 @@ public class Worksheet {
     
     /**
      * Adds an object to the next cell position. If the type of the value does not match with one of the supported data types, it will be casted to a String. A prepared object of the type Cell will not be casted but adjusted<br>
-     * Recognized are the following data types: Cell (prepared object), String, int, double, float, long, Date, boolean. All other types will be casted into a String using the default toString() method
+     * Recognized are the following data types: Cell (prepared object), String, int, double, float, long, Date, Instant, LocalDateTime, LocalDate, boolean. All other types will be casted into a String using the default toString() method
      * @param value Unspecified value to insert
      * @throws RangeException Thrown if the next cell is out of range (on row or column)
      */
@@ -489,7 +621,7 @@ public class Worksheet {
 
      /**
      * Adds an object to the next cell position. If the type of the value does not match with one of the supported data types, it will be casted to a String.A prepared object of the type Cell will not be casted but adjusted<br>
-     * Recognized are the following data types: Cell (prepared object), String, int, double, float, long, Date, boolean. All other types will be casted into a String using the default toString() method
+     * Recognized are the following data types: Cell (prepared object), String, int, double, float, long, Date, Instant, LocalDateTime, LocalDate, boolean. All other types will be casted into a String using the default toString() method
      * @param value Unspecified value to insert
      * @param style Style object to apply on this cell
      * @throws StyleException Thrown if the default style was malformed
@@ -510,6 +642,10 @@ public class Worksheet {
      */
     private void addNextCell(Cell cell, boolean incremental, Style style)
     {
+        if (this.offHeapStore != null)
+        {
+            prepareOffHeapRow(cell.getRowNumber());
+        }
         cell.setWorksheetReference(this);
         if (this.activeStyle != null && this.useActiveStyle == true && style == null)
         {
@@ -519,12 +655,11 @@ public class Worksheet {
         {
             cell.setStyle(style);
         }
-        else if (style == null && cell.getDataType() == Cell.CellType.DATE)
+        else
         {
-            cell.setStyle(BasicStyles.DateFormat());
+            applyDefaultStyle(cell);
         }
-        String address = cell.getCellAddress();
-        this.cells.put(address, cell);
+        putCell(cell);
         if (incremental == true)
         {
             if (this.getCurrentCellDirection() == CellDirection.ColumnToColumn)
@@ -553,11 +688,81 @@ public class Worksheet {
         }
     }
     
+    /**
+     * Applies the default column or row style, or the date style on a cell without explicit style
+     * @param cell Cell to process
+     * @throws StyleException Thrown if the cell is a date and the worksheet is not referenced in a workbook
+     */
+    private void applyDefaultStyle(Cell cell)
+    {
+        if (this.hasDefaultStyles == true && getDefaultStyle(cell.getColumnNumber(), cell.getRowNumber()) != null)
+        {
+            cell.setManagedStyle(getDefaultStyle(cell.getColumnNumber(), cell.getRowNumber()));
+        }
+        else if (cell.getDataType() == Cell.CellType.DATE)
+        {
+            if (this.workbookReference == null)
+            {
+                cell.setStyle(BasicStyles.DateFormat()); // Throws the appropriate exception
+            }
+            else
+            {
+                cell.setManagedStyle(this.workbookReference.getDateStyle());
+            }
+        }
+    }
+
+    /**
+     * Puts a cell into the cell table, replaces an existing cell of the same address and updates the bounds and memory counters. The memory budget is checked before the cell is put
+     * @param cell Cell to put
+     * @throws ch.rabanti.picoxlsx4j.exception.MemoryBudgetException Thrown if the estimated heap usage exceeds the memory budget of the workbook. The cell is not put in this case
+     */
+    private void putCell(Cell cell)
+    {
+        String address = cell.getCellAddress();
+        if (this.workbookReference != null && (this.cells.size() + 1) % MEMORY_CHECK_INTERVAL == 0 && this.cells.containsKey(address) == false)
+        {
+            this.workbookReference.checkMemoryBudget();
+        }
+        Cell previous = this.cells.put(address, cell);
+        if (previous == null)
+        {
+            this.bounds.add(cell.getColumnNumber(), cell.getRowNumber());
+        }
+        else
+        {
+            countStrings(previous, -1);
+        }
+        countStrings(cell, 1);
+        if (this.autoColumnWidths != null)
+        {
+            updateAutoColumnWidth(cell);
+        }
+    }
+    
+    /**
+     * Updates the running maximum of the estimated column width with the passed cell
+     * @param cell Added cell
+     */
+    private void updateAutoColumnWidth(Cell cell)
+    {
+        float width = ColumnWidthEstimator.estimateWidth(cell);
+        int column = cell.getColumnNumber();
+        if (column >= this.autoColumnWidths.length)
+        {
+            this.autoColumnWidths = Arrays.copyOf(this.autoColumnWidths, Math.min(Math.max(column + 1, this.autoColumnWidths.length * 2), MAX_COLUMN_NUMBER + 1));
+        }
+        if (width > this.autoColumnWidths[column])
+        {
+            this.autoColumnWidths[column] = width;
+        }
+    }
+    
 // ### M E T H O D S  -  A D D C E L L ###
    
     /**
      * Adds an object to the defined cell address. If the type of the value does not match with one of the supported data types, it will be casted to a String. A prepared object of the type Cell will not be casted but adjusted<br>
-     * Recognized are the following data types: Cell (prepared object), String, int, double, float, long, Date, boolean. All other types will be casted into a String using the default toString() method
+     * Recognized are the following data types: Cell (prepared object), String, int, double, float, long, Date, Instant, LocalDateTime, LocalDate, boolean. All other types will be casted into a String using the default toString() method
      * @param value Unspecified value to insert
      * @param columnAddress Column number (zero based)
      * @param rowAddress Row number (zero based)
@@ -571,7 +776,7 @@ public class Worksheet {
     
     /**
      * Adds an object to the defined cell address. If the type of the value does not match with one of the supported data types, it will be casted to a String. A prepared object of the type Cell will not be casted but adjusted<br>
-     * Recognized are the following data types: Cell (prepared object), String, int, double, float, long, Date, boolean. All other types will be casted into a String using the default toString() method
+     * Recognized are the following data types: Cell (prepared object), String, int, double, float, long, Date, Instant, LocalDateTime, LocalDate, boolean. All other types will be casted into a String using the default toString() method
      * @param value Unspecified value to insert
      * @param columnAddress Column number (zero based)
      * @param rowAddress Row number (zero based)
@@ -587,7 +792,7 @@ public class Worksheet {
     
     /**
      * Adds an object to the defined cell address. If the type of the value does not match with one of the supported data types, it will be casted to a String. A prepared object of the type Cell will not be casted but adjusted<br>
-     * Recognized are the following data types: Cell (prepared object), String, int, double, float, long, Date, boolean. All other types will be casted into a String using the default toString() method
+     * Recognized are the following data types: Cell (prepared object), String, int, double, float, long, Date, Instant, LocalDateTime, LocalDate, boolean. All other types will be casted into a String using the default toString() method
      * @param value Unspecified value to insert
      * @param address Cell address in the format A1 - XFD1048576
      * @throws FormatException Thrown if the passed address is malformed
@@ -602,7 +807,7 @@ public class Worksheet {
     
     /**
      * Adds an object to the defined cell address. If the type of the value does not match with one of the supported data types, it will be casted to a String. A prepared object of the type Cell will not be casted but adjusted<br>
-     * Recognized are the following data types: Cell (prepared object), String, int, double, float, long, Date, boolean. All other types will be casted into a String using the default toString() method
+     * Recognized are the following data types: Cell (prepared object), String, int, double, float, long, Date, Instant, LocalDateTime, LocalDate, boolean. All other types will be casted into a String using the default toString() method
      * @param value Unspecified value to insert
      * @param address Cell address in the format A1 - XFD1048576
      * @param style Style to apply on the cell
@@ -702,13 +907,142 @@ public class Worksheet {
         Cell c = new Cell(formula, Cell.CellType.FORMULA, this.currentColumnNumber, this.currentRowNumber, this);
         addNextCell(c, true, style);
     }   
+
+    /**
+     * Adds a formula template to the defined cell address. The cell keeps only a reference to the template. The formula is rendered with relative references moved by the offset of the cell to the anchor of the template
+     * @param template Formula template to insert
+     * @param address Cell address in the format A1 - XFD1048576
+     * @throws FormatException Thrown if the passed address is malformed
+     * @throws StyleException Thrown if the default style was malformed
+     * @throws RangeException Thrown if the next cell is out of range (on row or column)
+     */
+    public void addCellFormula(FormulaTemplate template, String address)
+    {
+        Address adr = Cell.resolveCellCoordinate(address);
+        addCellFormula(template, adr.Column, adr.Row, null);
+    }
+
+    /**
+     * Adds a formula template to the defined cell address
+     * @param template Formula template to insert
+     * @param address Cell address in the format A1 - XFD1048576
+     * @param style Style to apply on the cell
+     * @throws FormatException Thrown if the passed address is malformed
+     * @throws StyleException Thrown if the passed style was malformed
+     * @throws RangeException Thrown if the next cell is out of range (on row or column)
+     */
+    public void addCellFormula(FormulaTemplate template, String address, Style style)
+    {
+        Address adr = Cell.resolveCellCoordinate(address);
+        addCellFormula(template, adr.Column, adr.Row, style);
+    }
+
+    /**
+     * Adds a formula template to the defined cell address
+     * @param template Formula template to insert
+     * @param columnAddress Column number (zero based)
+     * @param rowAddress Row number (zero based)
+     * @throws StyleException Thrown if the default style was malformed
+     * @throws RangeException Thrown if the next cell is out of range (on row or column)
+     */
+    public void addCellFormula(FormulaTemplate template, int columnAddress, int rowAddress)
+    {
+        addCellFormula(template, columnAddress, rowAddress, null);
+    }
+
+    /**
+     * Adds a formula template to the defined cell address
+     * @param template Formula template to insert
+     * @param columnAddress Column number (zero based)
+     * @param rowAddress Row number (zero based)
+     * @param style Style to apply on the cell
+     * @throws StyleException Thrown if the passed style was malformed
+     * @throws RangeException Thrown if the next cell is out of range (on row or column)
+     */
+    public void addCellFormula(FormulaTemplate template, int columnAddress, int rowAddress, Style style)
+    {
+        Cell c = new Cell(template, Cell.CellType.FORMULA, columnAddress, rowAddress, this);
+        addNextCell(c, false, style);
+    }
+
+    /**
+     * Adds a formula template to the next cell position
+     * @param template Formula template to insert
+     * @throws StyleException Thrown if the default style was malformed
+     * @throws RangeException Thrown if the next cell is out of range (on row or column)
+     */
+    public void addNextCellFormula(FormulaTemplate template)
+    {
+        addNextCellFormula(template, null);
+    }
+
+    /**
+     * Adds a formula template to the next cell position
+     * @param template Formula template to insert
+     * @param style Style to apply on the cell
+     * @throws StyleException Thrown if the passed style was malformed
+     * @throws RangeException Thrown if the next cell is out of range (on row or column)
+     */
+    public void addNextCellFormula(FormulaTemplate template, Style style)
+    {
+        Cell c = new Cell(template, Cell.CellType.FORMULA, this.currentColumnNumber, this.currentRowNumber, this);
+        addNextCell(c, true, style);
+    }
     
     
+    /**
+     * Adds a formula that is shared over a range. The formula is defined for the first (top left) cell of the range. The other cells get the formula with relative references moved by their offset, like when copying a cell in Excel
+     * @param formula Formula of the first cell
+     * @param range Cell range in the format A1:D10
+     * @throws FormatException Thrown if the passed range is malformed
+     * @throws StyleException Thrown if the default style was malformed
+     * @throws RangeException Thrown if the range is out of range (on row or column)
+     */
+    public void addSharedFormula(String formula, String range)
+    {
+        addSharedFormula(formula, Cell.resolveCellRange(range), null);
+    }
+
+    /**
+     * Adds a formula that is shared over a range. The formula is defined for the first (top left) cell of the range. The other cells get the formula with relative references moved by their offset, like when copying a cell in Excel
+     * @param formula Formula of the first cell
+     * @param range Cell range
+     * @throws StyleException Thrown if the default style was malformed
+     * @throws RangeException Thrown if the range is out of range (on row or column)
+     */
+    public void addSharedFormula(String formula, Range range)
+    {
+        addSharedFormula(formula, range, null);
+    }
+
+    /**
+     * Adds a formula that is shared over a range. The formula is defined for the first (top left) cell of the range. The other cells get the formula with relative references moved by their offset, like when copying a cell in Excel
+     * @param formula Formula of the first cell
+     * @param range Cell range
+     * @param style Style to apply on all cells of the range
+     * @throws StyleException Thrown if the passed style was malformed
+     * @throws RangeException Thrown if the range is out of range (on row or column)
+     */
+    public void addSharedFormula(String formula, Range range, Style style)
+    {
+        Address start = range.StartAddress;
+        Address end = range.EndAddress;
+        Range normalized = new Range(new Address(Math.min(start.Column, end.Column), Math.min(start.Row, end.Row)), new Address(Math.max(start.Column, end.Column), Math.max(start.Row, end.Row)));
+        SharedFormula sharedFormula = new SharedFormula(formula, normalized);
+        for (int row = normalized.StartAddress.Row; row <= normalized.EndAddress.Row; row++)
+        {
+            for (int column = normalized.StartAddress.Column; column <= normalized.EndAddress.Column; column++)
+            {
+                addNextCell(new Cell(sharedFormula, Cell.CellType.FORMULA, column, row, this), false, style);
+            }
+        }
+    }
+
 // ### M E T H O D S  -  A D D C E L L R A N G E ###
 
     /**
      * Adds a list of object values to a defined cell range. If the type of the a particular value does not match with one of the supported data types, it will be casted to a String. A prepared object of the type Cell will not be casted but adjusted<br>
-     * Recognized are the following data types: Cell (prepared object), String, int, double, float, long, Date, boolean. All other types will be casted into a String using the default toString() method
+     * Recognized are the following data types: Cell (prepared object), String, int, double, float, long, Date, Instant, LocalDateTime, LocalDate, boolean. All other types will be casted into a String using the default toString() method
      * @param values List of unspecified objects to insert
      * @param startAddress Start address
      * @param endAddress End address
@@ -722,7 +1056,7 @@ public class Worksheet {
     
    /**
      * Adds a list of object values to a defined cell range. If the type of the a particular value does not match with one of the supported data types, it will be casted to a String. A prepared object of the type Cell will not be casted but adjusted<br>
-     * Recognized are the following data types: Cell (prepared object), String, int, double, float, long, Date, boolean. All other types will be casted into a String using the default toString() method
+     * Recognized are the following data types: Cell (prepared object), String, int, double, float, long, Date, Instant, LocalDateTime, LocalDate, boolean. All other types will be casted into a String using the default toString() method
      * @param values List of unspecified objects to insert
      * @param startAddress Start address
      * @param endAddress End address
@@ -737,7 +1071,7 @@ public class Worksheet {
 
     /**
      * Adds a list of object values to a defined cell range. If the type of the a particular value does not match with one of the supported data types, it will be casted to a String. A prepared object of the type Cell will not be casted but adjusted<br>
-     * The data types in the passed list can be mixed. Recognized are the following data types: Cell (prepared object), String, int, double, float, long, Date, boolean. All other types will be casted into a String using the default toString() method
+     * The data types in the passed list can be mixed. Recognized are the following data types: Cell (prepared object), String, int, double, float, long, Date, Instant, LocalDateTime, LocalDate, boolean. All other types will be casted into a String using the default toString() method
      * @param values List of unspecified objects to insert
      * @param cellRange Cell range as string in the format like A1:D1 or X10:X22
      * @throws FormatException Thrown if the passed address is malformed
@@ -752,7 +1086,7 @@ public class Worksheet {
     
     /**
      * Adds a list of object values to a defined cell range. If the type of the a particular value does not match with one of the supported data types, it will be casted to a String. A prepared object of the type Cell will not be casted but adjusted<br>
-     * The data types in the passed list can be mixed. Recognized are the following data types: Cell (prepared object), String, int, double, float, long, Date, boolean. All other types will be casted into a String using the default toString() method
+     * The data types in the passed list can be mixed. Recognized are the following data types: Cell (prepared object), String, int, double, float, long, Date, Instant, LocalDateTime, LocalDate, boolean. All other types will be casted into a String using the default toString() method
      * @param values List of unspecified objects to insert
      * @param cellRange Cell range as string in the format like A1:D1 or X10:X22
      * @param style Style to apply on the all cells of the range
@@ -806,9 +1140,11 @@ public class Worksheet {
     public boolean removeCell(int columnAddress, int rowAddress)
     {
         String address = Cell.resolveCellAddress(columnAddress, rowAddress);
-        if (this.cells.containsKey(address))
+        Cell cell = this.cells.remove(address);
+        if (cell != null)
         {
-            this.cells.remove(address);
+            countStrings(cell, -1);
+            this.bounds.remove(columnAddress, rowAddress);
             return true;
         }
         else
@@ -828,7 +1164,407 @@ public class Worksheet {
         Address adr = Cell.resolveCellCoordinate(address);
         return removeCell(adr.Column, adr.Row);
     }    
+
+// ### M E T H O D S  -  O F F - H E A P   S T O R A G E ###
+
+    /**
+     * Moves the rows of the worksheet into an off-heap storage (memory-mapped temporary file in the default temporary directory). See enableOffHeapStorage(Path, int) for the restrictions
+     * @throws WorksheetException Thrown if the worksheet already contains cells or tables, or if the temporary file could not be created
+     */
+    public void enableOffHeapStorage()
+    {
+        enableOffHeapStorage(Paths.get(System.getProperty("java.io.tmpdir")), OffHeapCellStore.DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Moves the rows of the worksheet into an off-heap storage. Only the current (highest) row is kept as cells on the heap. As soon as a cell of a higher row is added, the current row is encoded into a memory-mapped temporary file and its cells are removed from the heap. The rows are written directly from the storage when saving<br>
+     * Cells must be added in ascending row order. Stored rows can neither be read (getCells, getCell) nor changed or removed anymore. Tables and the shared formula detection are not supported on stored rows. Cells can only be merged if the range begins after the last stored row. The merged cells are resolved when their rows are stored
+     * @param directory Directory of the temporary file
+     * @param segmentSize Size of the memory-mapped segments in bytes
+     * @throws WorksheetException Thrown if the worksheet already contains cells or tables, or if the temporary file could not be created
+     * @throws RangeException Thrown if the segment size is smaller than 1 KB
+     */
+    public void enableOffHeapStorage(Path directory, int segmentSize)
+    {
+        if (this.cells.isEmpty() == false || this.tables.isEmpty() == false)
+        {
+            throw new WorksheetException("OffHeapStorageException", "The off-heap storage can only be enabled on a worksheet without cells and tables.");
+        }
+        if (segmentSize < 1024)
+        {
+            throw new RangeException("OutOfRangeException", "The segment size (" + segmentSize + ") must be at least 1024 bytes.");
+        }
+        releaseOffHeapStorage();
+        this.offHeapStore = new OffHeapCellStore(directory, segmentSize);
+        this.openRowNumber = -1;
+    }
+
+    /**
+     * Prepares the off-heap storage for a cell of the passed row. The current row is moved into the storage if the passed row is higher
+     * @param rowNumber Row number of the new cell
+     * @throws WorksheetException Thrown if the row was already moved into the storage
+     */
+    private void prepareOffHeapRow(int rowNumber)
+    {
+        if (rowNumber <= this.offHeapStore.getLastRowNumber() || (this.cells.isEmpty() == false && rowNumber < this.openRowNumber))
+        {
+            throw new WorksheetException("RowFlushedException", "The row " + (rowNumber + 1) + " was already moved into the off-heap storage. Cells must be added in ascending row order.");
+        }
+        if (rowNumber > this.openRowNumber)
+        {
+            flushOffHeapRows(rowNumber);
+        }
+        this.openRowNumber = rowNumber;
+    }
+
+    /**
+     * Moves the current row and all rows of merged cells before the passed row into the off-heap storage. The merged cells of each row are resolved before the row is stored
+     * @param nextRowNumber Row number of the next row, which is kept on the heap
+     */
+    private void flushOffHeapRows(int nextRowNumber)
+    {
+        int rowNumber = this.cells.isEmpty() == true ? getNextMergedRow(this.offHeapStore.getLastRowNumber() + 1) : this.openRowNumber;
+        List<Cell> row;
+        while (rowNumber >= 0 && rowNumber < nextRowNumber)
+        {
+            this.openRowNumber = rowNumber;
+            resolveMergedRow(rowNumber);
+            row = new ArrayList<>(this.cells.values());
+            row.sort(Comparator.comparingInt(Cell::getColumnNumber));
+            this.offHeapStore.appendRow(rowNumber, row);
+            for (Cell cell : row)
+            {
+                countStrings(cell, -1);
+            }
+            this.cells.clear();
+            rowNumber = getNextMergedRow(rowNumber + 1);
+        }
+    }
+
+    /**
+     * Gets the next row at or after the passed row, which is part of a merged cell range
+     * @param rowNumber First row number to check
+     * @return Row number or -1 if no merged cell range ends at or after the passed row
+     */
+    private int getNextMergedRow(int rowNumber)
+    {
+        int next = -1;
+        int start;
+        for (Range range : this.mergedCells.values())
+        {
+            if (Math.max(range.StartAddress.Row, range.EndAddress.Row) < rowNumber)
+            {
+                continue;
+            }
+            start = Math.max(rowNumber, Math.min(range.StartAddress.Row, range.EndAddress.Row));
+            if (next < 0 || start < next)
+            {
+                next = start;
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Resolves the merged cells of the current row of a worksheet with off-heap storage. Missing cells of merged ranges are added, all cells except the first cell of a range are emptied and get the merge style
+     * @param rowNumber Row number of the current row
+     */
+    private void resolveMergedRow(int rowNumber)
+    {
+        Style mergeStyle = null;
+        int startColumn, endColumn, startRow;
+        Cell cell;
+        for (Range range : this.mergedCells.values())
+        {
+            startRow = Math.min(range.StartAddress.Row, range.EndAddress.Row);
+            if (rowNumber < startRow || rowNumber > Math.max(range.StartAddress.Row, range.EndAddress.Row))
+            {
+                continue;
+            }
+            startColumn = Math.min(range.StartAddress.Column, range.EndAddress.Column);
+            endColumn = Math.max(range.StartAddress.Column, range.EndAddress.Column);
+            for (int column = startColumn; column <= endColumn; column++)
+            {
+                cell = this.cells.get(Cell.resolveCellAddress(column, rowNumber));
+                if (cell == null)
+                {
+                    cell = new Cell();
+                    cell.setDataType(Cell.CellType.EMPTY);
+                    cell.setRowNumber(rowNumber);
+                    cell.setColumnNumber(column);
+                    cell.setWorksheetReference(this);
+                    putCell(cell);
+                }
+                if (column == startColumn && rowNumber == startRow)
+                {
+                    continue; // The first cell keeps its value
+                }
+                cell.setDataType(Cell.CellType.EMPTY);
+                if (this.workbookReference != null)
+                {
+                    if (mergeStyle == null)
+                    {
+                        mergeStyle = this.workbookReference.addStyle(BasicStyles.MergeCellStyle());
+                    }
+                    cell.setManagedStyle(mergeStyle);
+                }
+            }
+        }
+    }
+
+    /**
+     * Resolves the merged cells of a worksheet with off-heap storage. All rows up to the last row of a merged cell range are moved into the storage, after their merged cells were resolved. This is an internal method. There is no need to use it. It must be public to require access from the LowLevel class
+     */
+    public void resolveOffHeapMergedCells()
+    {
+        if (this.offHeapStore == null || this.mergedCells.isEmpty() == true)
+        {
+            return;
+        }
+        int lastRow = -1;
+        for (Range range : this.mergedCells.values())
+        {
+            lastRow = Math.max(lastRow, Math.max(range.StartAddress.Row, range.EndAddress.Row));
+        }
+        if (lastRow > this.offHeapStore.getLastRowNumber())
+        {
+            flushOffHeapRows(lastRow + 1);
+        }
+    }
+
+    /**
+     * Closes the off-heap storage and deletes its temporary file. All rows in the storage are discarded. The cells of the current row remain on the heap
+     */
+    public void releaseOffHeapStorage()
+    {
+        if (this.offHeapStore != null)
+        {
+            this.offHeapStore.close();
+            this.offHeapStore = null;
+        }
+    }
+
+// ### M E T H O D S  -  R O W   B L O C K S ###
+
+    /**
+     * Hands over a completed row block for the next merge. Called by the method complete of the row block
+     * @param block Completed row block
+     */
+    void completeRowBlock(RowBlock block)
+    {
+        synchronized (this.reservedRowBlocks)
+        {
+            this.completedRowBlocks.add(block);
+        }
+    }
+
+    /**
+     * Merges all completed row blocks into the worksheet, in ascending row order. Cells of a block replace existing cells with the same address. The styles of each block are registered in the workbook during the merge. A block is only released after all of its cells were merged. If the merge fails, the block and all following blocks remain reserved<br>
+     * This method is called automatically when the workbook is saved. It must not be called concurrently with other modifications of the worksheet (except adding cells to row blocks)
+     * @throws WorksheetException Thrown if a reserved row block was not completed yet
+     */
+    public void mergeRowBlocks()
+    {
+        List<RowBlock> blocks;
+        synchronized (this.reservedRowBlocks)
+        {
+            if (this.reservedRowBlocks.isEmpty() == true)
+            {
+                return;
+            }
+            if (this.completedRowBlocks.size() < this.reservedRowBlocks.size())
+            {
+                throw new WorksheetException("IncompleteRowBlockException", "There are " + (this.reservedRowBlocks.size() - this.completedRowBlocks.size()) + " reserved row blocks that were not completed yet.");
+            }
+            blocks = new ArrayList<>(this.completedRowBlocks);
+        }
+        blocks.sort(Comparator.comparingInt(RowBlock::getFirstRow));
+        Map<Style, Style> registeredStyles = new IdentityHashMap<>();
+        Style style;
+        for (RowBlock block : blocks)
+        {
+            registeredStyles.clear(); // Style objects are cached per block
+            for (Cell cell : block.getSortedCells())
+            {
+                if (this.offHeapStore != null)
+                {
+                    prepareOffHeapRow(cell.getRowNumber());
+                }
+                style = cell.getCellStyle();
+                if (style == null)
+                {
+                    applyDefaultStyle(cell);
+                }
+                else
+                {
+                    if (registeredStyles.containsKey(style) == false)
+                    {
+                        registeredStyles.put(style, this.workbookReference.addStyle(style));
+                    }
+                    cell.setManagedStyle(registeredStyles.get(style));
+                }
+                putCell(cell);
+            }
+            synchronized (this.reservedRowBlocks)
+            {
+                this.reservedRowBlocks.remove(block); // The block is only released after all of its cells were merged
+                this.completedRowBlocks.remove(block);
+            }
+        }
+    }
+
+    /**
+     * Reserves a range of rows for a producer thread. The returned row block buffers the cells of the range until it is completed and merged. Row ranges of different blocks cannot overlap. This method is thread-safe
+     * @param firstRow First row number to reserve (zero-based)
+     * @param rowCount Number of rows to reserve
+     * @return Row block to fill the reserved rows
+     * @throws RangeException Thrown if the range is out of the valid row range or overlaps with another reserved row block
+     * @throws WorksheetException Thrown if the off-heap storage is enabled and the range starts at a row that was already moved into the storage
+     */
+    public RowBlock reserveRows(int firstRow, int rowCount)
+    {
+        if (rowCount < 1)
+        {
+            throw new RangeException("OutOfRangeException", "The number of rows to reserve (" + rowCount + ") must be at least 1.");
+        }
+        if (firstRow < MIN_ROW_NUMBER || (long)firstRow + rowCount - 1 > MAX_ROW_NUMBER)
+        {
+            throw new RangeException("OutOfRangeException", "The rows " + firstRow + " to " + ((long)firstRow + rowCount - 1) + " are out of range. Range is from " + MIN_ROW_NUMBER + " to " + MAX_ROW_NUMBER + " (" + (MAX_ROW_NUMBER + 1) + " rows).");
+        }
+        if (this.offHeapStore != null && (firstRow <= this.offHeapStore.getLastRowNumber() || (this.cells.isEmpty() == false && firstRow < this.openRowNumber)))
+        {
+            throw new WorksheetException("RowFlushedException", "The row " + (firstRow + 1) + " was already moved into the off-heap storage. Rows can only be reserved after the current row.");
+        }
+        int lastRow = firstRow + rowCount - 1;
+        synchronized (this.reservedRowBlocks)
+        {
+            for (RowBlock existing : this.reservedRowBlocks)
+            {
+                if (existing.overlaps(firstRow, lastRow) == true)
+                {
+                    throw new RangeException("RangeOverlapException", "The rows " + firstRow + " to " + lastRow + " overlap with the reserved rows " + existing.getFirstRow() + " to " + existing.getLastRow() + ".");
+                }
+            }
+            RowBlock block = new RowBlock(this, firstRow, lastRow);
+            this.reservedRowBlocks.add(block);
+            return block;
+        }
+    }
+
+// ### M E T H O D S  -  T A B L E S ###
+
+    /**
+     * Adds a table with the default table style (TableStyleMedium2) to the defined range. The first row of the range is the header row. The column names are derived from the header cells when the workbook is saved, without changing the cells (see getTableColumnNames)
+     * @param name Name of the table. The name must be unique in the workbook
+     * @param range Cell range in the format A1:D10
+     * @return The added table, to define further options
+     * @throws FormatException Thrown if the passed range or name is malformed
+     * @throws RangeException Thrown if the range has less than two rows or overlaps with another table, merged cells or the auto filter of the worksheet
+     * @throws WorksheetException Thrown if a table with the same name already exists
+     */
+    public Table addTable(String name, String range)
+    {
+        return addTable(name, Cell.resolveCellRange(range));
+    }
+
+    /**
+     * Adds a table with the default table style (TableStyleMedium2) to the defined range. The first row of the range is the header row. The column names are derived from the header cells when the workbook is saved, without changing the cells (see getTableColumnNames)
+     * @param name Name of the table. The name must be unique in the workbook
+     * @param range Cell range
+     * @return The added table, to define further options
+     * @throws FormatException Thrown if the passed name is malformed
+     * @throws RangeException Thrown if the range has less than two rows or overlaps with another table, merged cells or the auto filter of the worksheet
+     * @throws WorksheetException Thrown if a table with the same name already exists or the worksheet uses the off-heap storage
+     */
+    public Table addTable(String name, Range range)
+    {
+        if (this.offHeapStore != null)
+        {
+            throw new WorksheetException("OffHeapStorageException", "Tables are not supported on a worksheet with off-heap storage.");
+        }
+        Range normalized = normalizeRange(range);
+        Table table = new Table(name, normalized);
+        if (tableExists(name, this.workbookReference) == true || getTable(name) != null)
+        {
+            throw new WorksheetException("TableNameAlreadyExistsException", "The table with the name '" + name + "' already exists.");
+        }
+        for (Table existing : this.tables)
+        {
+            if (existing.overlaps(normalized) == true)
+            {
+                throw new RangeException("RangeOverlapException", "The range " + normalized + " overlaps with the table '" + existing.getName() + "' (" + existing.getRange() + ").");
+            }
+        }
+        for (Range merged : this.mergedCells.values())
+        {
+            if (table.overlaps(normalizeRange(merged)) == true)
+            {
+                throw new RangeException("RangeOverlapException", "The range " + normalized + " overlaps with the merged cells " + merged + ".");
+            }
+        }
+        if (this.autoFilterRange != null && table.overlaps(new Range(new Address(this.autoFilterRange.StartAddress.Column, MIN_ROW_NUMBER), new Address(this.autoFilterRange.EndAddress.Column, MAX_ROW_NUMBER))) == true)
+        {
+            // The auto filter of the worksheet covers its columns down to the last row with data
+            throw new RangeException("RangeOverlapException", "The range " + normalized + " overlaps with the auto filter of the worksheet (" + this.autoFilterRange + ").");
+        }
+        this.tables.add(table);
+        return table;
+    }
+
+    /**
+     * Gets a table of the worksheet by its name (case-insensitive)
+     * @param name Name of the table
+     * @return Table or null if not found
+     */
+    public Table getTable(String name)
+    {
+        for (Table table : this.tables)
+        {
+            if (table.getName().equalsIgnoreCase(name))
+            {
+                return table;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes a table of the worksheet by its name (case-insensitive). The cells of the table are not affected
+     * @param name Name of the table
+     * @return Returns true if the table could be removed (existed), otherwise false (did not exist)
+     */
+    public boolean removeTable(String name)
+    {
+        Table table = getTable(name);
+        if (table == null)
+        {
+            return false;
+        }
+        this.tables.remove(table);
+        return true;
+    }
     
+// ### M E T H O D S  -  C O N D I T I O N A L   F O R M A T T I N G ###
+
+    /**
+     * Adds a conditional formatting rule (e.g. ConditionalFormat.colorScale). Rules added first have the higher priority
+     * @param conditionalFormat Rule to add
+     */
+    public void addConditionalFormat(ConditionalFormat conditionalFormat)
+    {
+        this.conditionalFormats.add(conditionalFormat);
+    }
+
+    /**
+     * Removes a previous added conditional formatting rule
+     * @param conditionalFormat Rule to remove
+     * @return Returns true if the rule could be removed (existed), otherwise false (did not exist)
+     */
+    public boolean removeConditionalFormat(ConditionalFormat conditionalFormat)
+    {
+        return this.conditionalFormats.remove(conditionalFormat);
+    }
+
 // ### C O M M O N   M E T H O D S ###   
     
     /**
@@ -956,13 +1692,78 @@ public class Worksheet {
         return hasCell(new Address(columnNumber, rowNumber));
     }
 
+    /**
+     * Updates the counters of the string cells, used for the memory estimation
+     * @param cell Added or removed cell
+     * @param sign 1 if the cell was added, -1 if it was removed
+     */
+    private void countStrings(Cell cell, int sign)
+    {
+        if (cell.getValue() instanceof String)
+        {
+            this.stringCellCount += sign;
+            this.stringCharacterCount += sign * ((String)cell.getValue()).length();
+        }
+    }
+
+    /**
+     * Estimates the retained heap of the worksheet (cells, strings, merged cells, rows and columns). Styles are managed by the workbook and not considered
+     * @return Estimated number of bytes
+     */
+    public long estimateMemoryUsage()
+    {
+        return MemoryEstimator.estimate(this);
+    }
+
+    /**
+     * Gets the default style of a cell position. The row style has precedence over the column style
+     * @param columnNumber Column number (zero-based)
+     * @param rowNumber Row number (zero-based)
+     * @return Default style or null if neither the row nor the column has a default style
+     */
+    public Style getDefaultStyle(int columnNumber, int rowNumber)
+    {
+        if (this.rowStyles.isEmpty() == false)
+        {
+            Style rowStyle = this.rowStyles.get(rowNumber);
+            if (rowStyle != null)
+            {
+                return rowStyle;
+            }
+        }
+        Column column = this.columns.get(columnNumber);
+        if (column == null)
+        {
+            return null;
+        }
+        return column.getDefaultStyle();
+    }
+
+    /**
+     * Gets the first existing column number in the current worksheet (zero-based)
+     * @return Zero-based column number. In case of a empty worksheet, -1 will be returned
+     */
+    public int getFirstColumnNumber()
+    {
+        return this.bounds.getFirstColumn();
+    }
+
+    /**
+     * Gets the first existing row number in the current worksheet (zero-based)
+     * @return Zero-based row number. In case of a empty worksheet, -1 will be returned
+     */
+    public int getFirstRowNumber()
+    {
+        return this.bounds.getFirstRow();
+    }
+
     /**
      * Gets the last existing column number in the current worksheet (zero-based)
      * @return Zero-based column number. In case of a empty worksheet, -1 will be returned
      */
     public int getLastColumnNumber()
     {
-        return getLastAddress(true);
+        return this.bounds.getLastColumn();
     }
 
     /**
@@ -971,34 +1772,27 @@ public class Worksheet {
      */
     public int getLastRowNumber()
     {
-        return getLastAddress(false);
+        return this.bounds.getLastRow();
     }
 
     /**
-     * Gets the last existing row or column number of the current worksheet (zero-based)
-     * @param column If true, the output will be the last column, otherwise the last row
-     * @return Row or column number (zero-based)
+     * Gets the last existing row number in the defined column of the current worksheet (zero-based)
+     * @param columnNumber Zero-based column number
+     * @return Zero-based row number. In case of a empty column, -1 will be returned
      */
-    private int getLastAddress(boolean column)
+    public int getLastRowNumber(int columnNumber)
     {
-        int max = -1;
-        int number;
-        for(Map.Entry<String, Cell> cell : this.cells.entrySet())
-        {
-            if (column == true)
-            {
-                number = cell.getValue().getColumnNumber();
-            }
-            else
-            {
-                number = cell.getValue().getRowNumber();
-            }
-            if (number > max)
-            {
-                max = number;
-            }
-        }
-        return max;
+        return this.bounds.getLastRow(columnNumber, this.cells.values());
+    }
+
+    /**
+     * Gets the range from the first to the last existing row and column of the current worksheet
+     * @return Used range or null in case of a empty worksheet
+     */
+    public Range getUsedRange()
+    {
+        if (this.bounds.getLastRow() < 0) { return null; }
+        return new Range(new Address(this.bounds.getFirstColumn(), this.bounds.getFirstRow()), new Address(this.bounds.getLastColumn(), this.bounds.getLastRow()));
     }
 
     /**
@@ -1114,17 +1908,81 @@ public class Worksheet {
     {
         this.currentCellDirection = CellDirection.ColumnToColumn;
         this.cells = new HashMap<>();
+        this.cellsView = Collections.unmodifiableMap(this.cells);
+        this.bounds = new SheetBounds();
         this.currentRowNumber = 0;
         this.currentColumnNumber = 0;
         this.defaultColumnWidth = DEFAULT_COLUMN_WIDTH;
         this.defaultRowHeight = DEFAULT_ROW_HEIGHT;
-        this.rowHeights = new HashMap<>();
+        this.rowHeights = new SortedIntMap<>();
+        this.rowStyles = new SortedIntMap<>();
         this.activeStyle = null;
         this.workbookReference = null;
         this.mergedCells = new HashMap<>();    
         this.sheetProtectionValues = new ArrayList<>();
-        this.hiddenRows = new HashMap<>();
-        this.columns = new HashMap<>();
+        this.tables = new ArrayList<>();
+        this.conditionalFormats = new ArrayList<>();
+        this.hiddenRows = new BitSet();
+        this.columns = new SortedIntMap<>();
+        this.reservedRowBlocks = new ArrayList<>();
+        this.completedRowBlocks = new ArrayList<>();
+    }
+
+    /**
+     * Creates a copy of the worksheet layout for a workbook that was created from a template. The settings (columns, rows, default styles, merged cells, auto filter, conditional formatting, selection and protection) and the cells are copied. Styles and rules are referenced, since they are shared with the template
+     * @param reference Workbook of the copy
+     * @return Copied worksheet
+     */
+    Worksheet copyLayout(Workbook reference)
+    {
+        Worksheet copy = new Worksheet(this.sheetName, this.sheetID, reference);
+        copy.activeStyle = this.activeStyle;
+        copy.autoColumnWidths = this.autoColumnWidths == null ? null : this.autoColumnWidths.clone();
+        copy.autoFilterRange = this.autoFilterRange;
+        Column column;
+        for (int i = 0; i < this.columns.size(); i++)
+        {
+            column = new Column(this.columns.keyAt(i));
+            column.setAutoFilter(this.columns.valueAt(i).hasAutoFilter());
+            column.setDefaultStyle(this.columns.valueAt(i).getDefaultStyle());
+            column.setHidden(this.columns.valueAt(i).isHidden());
+            if (this.columns.valueAt(i).hasCustomWidth() == true)
+            {
+                column.setWidth(this.columns.valueAt(i).getWidth());
+            }
+            copy.columns.put(this.columns.keyAt(i), column);
+        }
+        copy.conditionalFormats.addAll(this.conditionalFormats);
+        copy.currentCellDirection = this.currentCellDirection;
+        copy.currentColumnNumber = this.currentColumnNumber;
+        copy.currentRowNumber = this.currentRowNumber;
+        copy.defaultColumnWidth = this.defaultColumnWidth;
+        copy.defaultRowHeight = this.defaultRowHeight;
+        copy.hasDefaultStyles = this.hasDefaultStyles;
+        copy.hiddenRows.or(this.hiddenRows);
+        copy.mergedCells.putAll(this.mergedCells);
+        for (int i = 0; i < this.rowHeights.size(); i++)
+        {
+            copy.rowHeights.put(this.rowHeights.keyAt(i), this.rowHeights.valueAt(i));
+        }
+        for (int i = 0; i < this.rowStyles.size(); i++)
+        {
+            copy.rowStyles.put(this.rowStyles.keyAt(i), this.rowStyles.valueAt(i));
+        }
+        copy.selectedCells = this.selectedCells;
+        copy.sheetProtectionPassword = this.sheetProtectionPassword;
+        copy.sheetProtectionValues.addAll(this.sheetProtectionValues);
+        copy.useActiveStyle = this.useActiveStyle;
+        copy.useSharedFormulaDetection = this.useSharedFormulaDetection;
+        copy.useSheetProtection = this.useSheetProtection;
+        Cell cell;
+        for (Cell source : this.cells.values())
+        {
+            cell = new Cell(source.getValue(), source.getDataType(), source.getColumnNumber(), source.getRowNumber(), copy);
+            cell.setManagedStyle(source.getCellStyle());
+            copy.putCell(cell);
+        }
+        return copy;
     }
     
     /**
@@ -1150,13 +2008,19 @@ public class Worksheet {
     }    
     
     /**
-     * Merges the defined cell range
+     * Merges the defined cell range. On a worksheet with off-heap storage, the merged cells are resolved when their rows are moved into the storage
      * @param startAddress Start address of the merged cell range
      * @param endAddress End address of the merged cell range
      * @return Returns the validated range of the merged cells (e.g. 'A1:B12')
+     * @throws WorksheetException Thrown if the worksheet uses off-heap storage and the range begins in a row that was already moved into the storage
      */
     public String mergeCells(Address startAddress, Address endAddress)
     {
+        int startRow = Math.min(startAddress.Row, endAddress.Row);
+        if (this.offHeapStore != null && (startRow <= this.offHeapStore.getLastRowNumber() || (this.cells.isEmpty() == false && startRow < this.openRowNumber)))
+        {
+            throw new WorksheetException("RowFlushedException", "The row " + (startRow + 1) + " was already moved into the off-heap storage. Cells of stored rows cannot be merged.");
+        }
         String key = startAddress.toString() + ":" + endAddress.toString();
         Range value = new Range(startAddress, endAddress);
         if (this.mergedCells.containsKey(key) == false)
@@ -1174,44 +2038,75 @@ public class Worksheet {
         int start = this.autoFilterRange.StartAddress.Column;
         int end = this.autoFilterRange.EndAddress.Column;
         int endRow = 0;
-        for(Map.Entry<String, Cell> item  : this.getCells().entrySet())
+        int lastRow;
+        for(int i = start; i <= end; i++)
         {
-            if (item.getValue().getColumnNumber() < start || item.getValue().getColumnNumber() > end) { continue; }
-            if (item.getValue().getRowNumber() > endRow) {endRow = item.getValue().getRowNumber();}
+            lastRow = getLastRowNumber(i);
+            if (lastRow > endRow) { endRow = lastRow; }
         }
         Column c;
         for(int i = start; i <= end; i++)
         {
-            if (this.columns.containsKey(i) == false)
+            c = this.columns.get(i);
+            if (c == null)
             {
                 c = new Column(i);
-                c.setAutoFilter(true);
                 this.columns.put(i, c);
             }
+            c.setAutoFilter(true);
+        }
+        this.autoFilterRange = new Range(new Address(start, 0), new Address(end, endRow));
+    }
+    /**
+     * Gets the column names of a table of this worksheet. The names are derived from the header cells without changing them: Missing, empty or formula header cells get a generated column name (ColumnN), other values are converted into text and duplicate names are numbered, since Excel requires unique column names. This is an internal method. There is no need to use it. It must be public to require access from the LowLevel class
+     * @param table Table to process
+     * @return List of unique column names, in column order
+     */
+    public List<String> getTableColumnNames(Table table)
+    {
+        Set<String> names = new HashSet<>();
+        List<String> columnNames = new ArrayList<>();
+        Cell cell;
+        String name, candidate;
+        int suffix;
+        int row = table.getRange().StartAddress.Row;
+        for (int column = table.getRange().StartAddress.Column; column <= table.getRange().EndAddress.Column; column++)
+        {
+            cell = this.cells.get(Cell.resolveCellAddress(column, row));
+            if (cell == null || cell.getDataType() == Cell.CellType.FORMULA || cell.getDataType() == Cell.CellType.EMPTY || Helper.isNullOrEmpty(cell.getValue().toString()) == true)
+            {
+                name = "Column" + (column - table.getRange().StartAddress.Column + 1);
+            }
             else
             {
-                this.getColumns().get(i).setAutoFilter(true);
+                name = cell.getValue().toString();
             }
+            candidate = name;
+            suffix = 2;
+            while (names.add(candidate.toLowerCase()) == false)
+            {
+                candidate = name + suffix;
+                suffix++;
+            }
+            columnNames.add(candidate);
         }
-        this.autoFilterRange = new Range(new Address(start, 0), new Address(end, endRow));
+        return columnNames;
     }
+
     /**
      * Method to recalculate the collection of columns of this worksheet. This is an internal method. There is no need to use it. It must be public to require access from the LowLevel class
      */
     public void recalculateColumns()
     {
-        ArrayList<Integer> columnsToDelete = new ArrayList<>();
-        for(Map.Entry<Integer, Column> col  : this.getColumns().entrySet())
+        Column col;
+        for(int i = this.columns.size() - 1; i >= 0; i--)
         {
-            if (col.getValue().hasAutoFilter() == false && col.getValue().isHidden() == false && col.getValue().getWidth() == Worksheet.DEFAULT_COLUMN_WIDTH)
+            col = this.columns.valueAt(i);
+            if (col.hasAutoFilter() == false && col.isHidden() == false && col.hasCustomWidth() == false && col.getDefaultStyle() == null)
             {
-                columnsToDelete.add(col.getKey());
+                this.columns.removeAt(i);
             }
         }
-        for(Iterator<Integer> index = columnsToDelete.iterator(); index.hasNext(); )
-        {
-            this.columns.remove(index.next());
-        }
     }
     /**
      * Removes auto filters from the worksheet
@@ -1332,9 +2227,10 @@ public class Worksheet {
         {
             throw new RangeException("OutOfRangeException","The column number (" + columnNumber + ") is out of range. Range is from 0 to "+ MAX_COLUMN_NUMBER +" ("+ (MAX_COLUMN_NUMBER + 1) +" columns).");
         }
-        if (this.columns.containsKey(columnNumber) && state == true)
+        Column column = this.columns.get(columnNumber);
+        if (column != null && state == true)
         {
-            this.columns.get(columnNumber).setHidden(state);
+            column.setHidden(state);
         }
         else if (state == true)
         {
@@ -1343,6 +2239,64 @@ public class Worksheet {
             this.columns.put(columnNumber, c);
         }
     } 
+    /**
+     * Sets the default style of the passed column number (zero-based). The style applies to empty cells of the column and to new cells without style. Cells that were already added are not changed
+     * @param columnNumber Column number (zero-based, 0 to 16383)
+     * @param style Style to apply or null to remove the default style
+     * @throws RangeException Thrown if the column number is out of the valid range
+     * @throws StyleException Thrown if no workbook reference was defined
+     */
+    public void setColumnDefaultStyle(int columnNumber, Style style)
+    {
+        if (columnNumber > MAX_COLUMN_NUMBER || columnNumber < MIN_COLUMN_NUMBER)
+        {
+            throw new RangeException("OutOfRangeException","The column number (" + columnNumber + ") is out of range. Range is from "+ MIN_COLUMN_NUMBER + " to "+ MAX_COLUMN_NUMBER +" ("+ (MAX_COLUMN_NUMBER + 1) +" columns).");
+        }
+        Column column = this.columns.get(columnNumber);
+        if (style == null)
+        {
+            if (column != null)
+            {
+                column.setDefaultStyle(null);
+            }
+            return;
+        }
+        if (column == null)
+        {
+            column = new Column(columnNumber);
+            this.columns.put(columnNumber, column);
+        }
+        column.setDefaultStyle(registerDefaultStyle(style));
+    }
+
+    /**
+     * Sets the default style of the passed column address. The style applies to empty cells of the column and to new cells without style. Cells that were already added are not changed
+     * @param columnAddress Column address (A - XFD)
+     * @param style Style to apply or null to remove the default style
+     * @throws RangeException Thrown if the column address is out of the valid range
+     * @throws StyleException Thrown if no workbook reference was defined
+     */
+    public void setColumnDefaultStyle(String columnAddress, Style style)
+    {
+        setColumnDefaultStyle(Cell.resolveColumn(columnAddress), style);
+    }
+
+    /**
+     * Registers a default style of a row or column in the workbook
+     * @param style Style to register
+     * @return Style managed by the workbook
+     * @throws StyleException Thrown if no workbook reference was defined
+     */
+    private Style registerDefaultStyle(Style style)
+    {
+        if (this.workbookReference == null)
+        {
+            throw new StyleException("MissingReferenceException","No workbook reference was defined while trying to set a default style");
+        }
+        this.hasDefaultStyles = true;
+        return this.workbookReference.addStyle(style);
+    }
+
     /**
      * Sets the width of the passed column number (zero-based)
      * @param columnNumber Column number (zero-based, from 0 to 16383)
@@ -1359,9 +2313,10 @@ public class Worksheet {
         {
             throw new RangeException("OutOfRangeException","The column width (" + width + ") is out of range. Range is from "+ MIN_COLUMN_WIDTH + " to "+ MAX_COLUMN_WIDTH + " (chars).");
         }
-        if (this.columns.containsKey(columnNumber))
+        Column column = this.columns.get(columnNumber);
+        if (column != null)
         {
-            this.columns.get(columnNumber).setWidth(width);
+            column.setWidth(width);
         }
         else
         {
@@ -1381,6 +2336,27 @@ public class Worksheet {
         setCurrentColumnNumber(columnAddress);
         setCurrentRowNumber(rowAddress);
     }
+    /**
+     * Sets the default style of the passed row number (zero-based). The style applies to empty cells of the row and to new cells without style (precedence over a column style). Cells that were already added are not changed
+     * @param rowNumber Row number (zero-based, 0 to 1048575)
+     * @param style Style to apply or null to remove the default style
+     * @throws RangeException Thrown if the address is out of the valid range. Range is from 0 to 1048575 (1048576 rows)
+     * @throws StyleException Thrown if no workbook reference was defined
+     */
+    public void setRowDefaultStyle(int rowNumber, Style style)
+    {
+        if (rowNumber > MAX_ROW_NUMBER || rowNumber < MIN_ROW_NUMBER)
+        {
+            throw new RangeException("OutOfRangeException","The row number (" + rowNumber + ") is out of range. Range is from "+ MIN_ROW_NUMBER +" to "+ MAX_ROW_NUMBER +" ("+ (MAX_ROW_NUMBER + 1) +" rows).");
+        }
+        if (style == null)
+        {
+            this.rowStyles.remove(rowNumber);
+            return;
+        }
+        this.rowStyles.put(rowNumber, registerDefaultStyle(style));
+    }
+
     /**
      * Sets the height of the passed row number (zero-based)
      * @param rowNumber Row number (zero-based, 0 to 1048575)
@@ -1397,7 +2373,7 @@ public class Worksheet {
         {
             throw new RangeException("OutOfRangeException","The row height (" + height + ") is out of range. Range is from 0 to 409.5 (equals 546px).");
         }
-        this.rowHeights.put(rowNumber, height);
+        this.rowHeights.put(rowNumber, Float.valueOf(height));
     }
     /**
      * Sets the defined row as hidden or visible
@@ -1411,21 +2387,7 @@ public class Worksheet {
         {
             throw new RangeException("OutOfRangeException","The row number (" + rowNumber + ") is out of range. Range is from "+ MIN_ROW_NUMBER +" to "+ MAX_ROW_NUMBER +" ("+ (MAX_ROW_NUMBER + 1) +" rows).");
         }
-        if (this.hiddenRows.containsKey(rowNumber))
-        {
-            if (state == true)
-            {
-                this.hiddenRows.put(rowNumber, state);
-            }
-            else
-            {
-                this.hiddenRows.remove(rowNumber);
-            }
-        }
-        else if (state == true)
-        {
-            this.hiddenRows.put(rowNumber, state);
-        }
+        this.hiddenRows.set(rowNumber, state);
     }
     
     /**
@@ -1440,7 +2402,19 @@ public class Worksheet {
  
     //### S T A T I C   M E T H O D S
     /**
-     * Sanitizes a worksheet name
+     * Normalizes a range, so that the start address is the upper left and the end address is the lower right cell of the range
+     * @param range Range to normalize
+     * @return Normalized range
+     */
+    private static Range normalizeRange(Range range)
+    {
+        Address start = range.StartAddress;
+        Address end = range.EndAddress;
+        return new Range(new Address(Math.min(start.Column, end.Column), Math.min(start.Row, end.Row)), new Address(Math.max(start.Column, end.Column), Math.max(start.Row, end.Row)));
+    }
+
+    /**
+     * Sanitizes a worksheet name. The existing names of the workbook are collected once, so that every candidate name is checked in constant time
      * @param input Name to sanitize
      * @param workbook Workbook reference
      * @return Name of the sanitized worksheet
@@ -1466,10 +2440,11 @@ public class Worksheet {
         }
         String name = sb.toString();
         String originalName = name;
+        Set<String> existingNames = Worksheet.getWorksheetNames(workbook);
         int number = 1;
         while(true)
         {
-            if (Worksheet.worksheetExists(name, workbook) == false) { break; } // OK
+            if (existingNames.contains(name) == false) { break; } // OK
             if (originalName.length() + (number/10) >= 31)
             {
                 name = originalName.substring(0,30-number/10) + number;
@@ -1483,22 +2458,44 @@ public class Worksheet {
         return name;
     }
     /**
-     * Checks whether a worksheet with the given name exists
+     * Gets the names of all worksheets of the workbook, including the worksheets of the file to append to
+     * @param workbook Workbook reference. Can be null
+     * @return Set of names. The set is empty if no workbook is referenced
+     */
+    private static Set<String> getWorksheetNames(Workbook workbook)
+    {
+        Set<String> names = new HashSet<>();
+        if (workbook == null) { return names; }
+        int len = workbook.getWorksheets().size();
+        for(int i = 0; i < len; i++)
+        {
+            names.add(workbook.getWorksheets().get(i).getSheetName());
+        }
+        if (workbook.getAppendSource() != null)
+        {
+            names.addAll(workbook.getAppendSource().getSheetNames());
+        }
+        return names;
+    }   
+
+    /**
+     * Checks whether a table with the given name (case-insensitive) exists in any worksheet of the workbook
      * @param name Name to check
-     * @param workbook Workbook reference
+     * @param workbook Workbook reference. Can be null
      * @return True if the name exits, otherwise false
      */
-    private static boolean worksheetExists(String name, Workbook workbook)
+    private static boolean tableExists(String name, Workbook workbook)
     {
+        if (workbook == null) { return false; }
         int len = workbook.getWorksheets().size();
         for(int i = 0; i < len; i++)
         {
-            if (workbook.getWorksheets().get(i).getSheetName().equals(name))
+            if (workbook.getWorksheets().get(i).getTable(name) != null)
             {
                 return true;
             }
         }
         return false;
-    }   
+    }
     
 }
@@ -0,0 +1,78 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.exception;
+
+/**
+ * Class for exceptions regarding the memory budget of a workbook. The exception is thrown before the estimated heap usage exceeds the budget
+ * @author Raphael Stoeckli
+ */
+public class MemoryBudgetException extends RuntimeException{
+
+    private long budget;
+    private long estimate;
+    private String exceptionTitle;
+
+    /**
+     * Gets the memory budget of the workbook
+     * @return Budget in bytes
+     */
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * Gets the estimated heap usage that exceeded the budget
+     * @return Estimate in bytes
+     */
+    public long getEstimate() {
+        return estimate;
+    }
+
+    /**
+     * Gets the title of the exception
+     * @return Title as string
+     */
+    public String getExceptionTitle() {
+        return exceptionTitle;
+    }
+
+
+    /**
+     * Default constructor
+     */
+    public MemoryBudgetException()
+    {
+        super();
+    }
+
+    /**
+     * Constructor with passed message
+     * @param title Title of the exception
+     * @param message Message of the exception
+     */
+    public MemoryBudgetException(String title, String message)
+    {
+        super(title + ": " + message);
+        this.exceptionTitle = title;
+    }
+
+    /**
+     * Constructor with passed message, estimate and budget
+     * @param title Title of the exception
+     * @param message Message of the exception
+     * @param estimate Estimated heap usage in bytes
+     * @param budget Memory budget in bytes
+     */
+    public MemoryBudgetException(String title, String message, long estimate, long budget)
+    {
+        this(title, message);
+        this.estimate = estimate;
+        this.budget = budget;
+    }
+
+
+}
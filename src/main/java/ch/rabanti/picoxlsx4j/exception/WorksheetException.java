@@ -41,6 +41,18 @@ public class WorksheetException extends RuntimeException{
         super(title + ": " + message);
         this.exceptionTitle = title;
     }
+
+    /**
+     * Constructor with passed message and inner exception
+     * @param title Title of the exception
+     * @param message Message of the exception
+     * @param inner Inner exception
+     */
+    public WorksheetException(String title, String message, Exception inner)
+    {
+        super(title + ": " + message, inner);
+        this.exceptionTitle = title;
+    }
     
     
 }
@@ -0,0 +1,793 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+import ch.rabanti.picoxlsx4j.Worksheet;
+import ch.rabanti.picoxlsx4j.exception.IOException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.Inflater;
+
+/**
+ * Class representing an existing XLSX file (created by PicoXLSX4j), which is extended by appending new worksheets. Only the central directory and the small index parts (workbook, relationships, content types and style sheet) are read<br>
+ * When saving, the unchanged entries (e.g. the existing worksheets and shared strings) are copied as compressed bytes without inflating them. Only the index parts are rewritten and the new parts are added. This class is only for internal use
+ * @author Raphael Stoeckli
+ */
+public class AppendSource {
+
+// ### C O N S T A N T S ###
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int MAX_COMMENT_LENGTH = 65535;
+    private static final Pattern RELATIONSHIP_ID_PATTERN = Pattern.compile("rId(\\d+)");
+    private static final Pattern TABLE_PART_PATTERN = Pattern.compile("xl/tables/table(\\d+)\\.xml");
+    private static final String STYLES_PART = "xl/styles.xml";
+    private static final String WORKBOOK_PART = "xl/workbook.xml";
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+
+// ### P R I V A T E  F I E L D S ###
+    private final Map<String, Entry> entries;
+    private final long lastModified;
+    private int maxSheetId;
+    private int maxTableId;
+    private final Path path;
+    private final long size;
+    private final List<String> sheetNames;
+
+// ### G E T T E R S  &  S E T T E R S ###
+    /**
+     * Gets the number of entries in the existing file
+     * @return Number of entries
+     */
+    public int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the highest worksheet ID of the existing file. The IDs of the appended worksheets are added to this value
+     * @return Worksheet ID
+     */
+    public int getMaxSheetId() {
+        return maxSheetId;
+    }
+
+    /**
+     * Gets the highest table ID of the existing file. Tables of the appended worksheets are numbered after this value
+     * @return Table ID or 0 if the file contains no tables
+     */
+    public int getMaxTableId() {
+        return maxTableId;
+    }
+
+    /**
+     * Gets the path of the existing file
+     * @return Path
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Gets the names of the existing worksheets
+     * @return Unmodifiable list of names
+     */
+    public List<String> getSheetNames() {
+        return Collections.unmodifiableList(sheetNames);
+    }
+
+// ### C O N S T R U C T O R S ###
+    /**
+     * Constructor with path. Use the method open to read the file
+     * @param path Path of the existing file
+     * @param size Size of the file in bytes
+     * @param lastModified Modification time of the file in milliseconds
+     */
+    private AppendSource(Path path, long size, long lastModified)
+    {
+        this.path = path;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.entries = new LinkedHashMap<>();
+        this.sheetNames = new ArrayList<>();
+    }
+
+// ### M E T H O D S ###
+    /**
+     * Checks whether the existing file was modified since it was opened. The offsets of the central directory would not be valid anymore in this case
+     * @throws IOException Thrown if the file was modified or cannot be accessed
+     */
+    void checkUnchanged() throws IOException
+    {
+        try
+        {
+            if (Files.size(this.path) != this.size || Files.getLastModifiedTime(this.path).toMillis() != this.lastModified)
+            {
+                throw new IOException("SourceChangedException", "The file '" + this.path + "' was modified since it was opened for appending. Open it again to append worksheets.");
+            }
+        }
+        catch (java.io.IOException e)
+        {
+            throw new IOException("SourceChangedException", "The file '" + this.path + "' cannot be accessed anymore. Please see the inner exception:" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Checks whether the existing file contains an entry
+     * @param name Entry name with relative path
+     * @return True if the entry exists
+     */
+    boolean containsEntry(String name)
+    {
+        return this.entries.containsKey(name);
+    }
+
+    /**
+     * Copies an entry as compressed bytes into the zip writer. The data is not inflated
+     * @param name Entry name with relative path
+     * @param channel Open channel of the existing file
+     * @param writer Zip writer to copy the entry into
+     * @return Written entry
+     * @throws java.io.IOException Thrown in case of an error while reading or writing, or if the local header is invalid
+     */
+    ZipWriter.Entry copyEntry(String name, FileChannel channel, ZipWriter writer) throws java.io.IOException
+    {
+        Entry entry = this.entries.get(name);
+        return writer.writeRawEntry(name, entry.method, entry.crc, entry.compressedSize, entry.size, entry.dosTime, channel, getDataOffset(entry, channel));
+    }
+
+    /**
+     * Gets the names of all entries in the order of the central directory
+     * @return Collection of entry names
+     */
+    Collection<String> getEntryNames()
+    {
+        return this.entries.keySet();
+    }
+
+    /**
+     * Gets the highest relationship ID (rId...) of a relationship part
+     * @param name Name of the relationship part
+     * @return Highest number of the IDs, or 0 if the part does not exist or contains no relationships
+     * @throws IOException Thrown if the part could not be read
+     */
+    int getMaxRelationshipId(String name) throws IOException
+    {
+        if (containsEntry(name) == false)
+        {
+            return 0;
+        }
+        NodeList relationships = readDocument(name).getElementsByTagName("Relationship");
+        int max = 0;
+        Matcher matcher;
+        for (int i = 0; i < relationships.getLength(); i++)
+        {
+            matcher = RELATIONSHIP_ID_PATTERN.matcher(((Element)relationships.item(i)).getAttribute("Id"));
+            if (matcher.matches() == true)
+            {
+                max = Math.max(max, Integer.parseInt(matcher.group(1)));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Merges the content types of the new parts into the existing main content type file. Overrides of already existing part names are not duplicated
+     * @param name Name of the content type file
+     * @param partNames Names of the new parts with relative path
+     * @param contentTypes Content types of the new parts
+     * @return Serialized content type file
+     * @throws IOException Thrown if the part could not be read or serialized
+     */
+    byte[] mergeContentTypes(String name, List<String> partNames, List<String> contentTypes) throws IOException
+    {
+        Document document = readDocument(name);
+        Element root = document.getDocumentElement();
+        Set<String> existing = new HashSet<>();
+        NodeList overrides = document.getElementsByTagName("Override");
+        for (int i = 0; i < overrides.getLength(); i++)
+        {
+            existing.add(((Element)overrides.item(i)).getAttribute("PartName"));
+        }
+        Element override;
+        for (int i = 0; i < partNames.size(); i++)
+        {
+            if (existing.add("/" + partNames.get(i)) == false) { continue; }
+            override = document.createElement("Override");
+            override.setAttribute("PartName", "/" + partNames.get(i));
+            override.setAttribute("ContentType", contentTypes.get(i));
+            root.appendChild(override);
+        }
+        return LowLevel.createBytesFromDocument(document);
+    }
+
+    /**
+     * Merges new relationship entries into an existing relationship part
+     * @param name Name of the relationship part
+     * @param ids IDs of the new entries. The IDs must not exist in the part
+     * @param targets Targets of the new entries
+     * @param types Types of the new entries
+     * @return Serialized relationship part
+     * @throws IOException Thrown if the part could not be read or serialized
+     */
+    byte[] mergeRelationships(String name, List<String> ids, List<String> targets, List<String> types) throws IOException
+    {
+        Document document = readDocument(name);
+        Element root = document.getDocumentElement();
+        Element relationship;
+        for (int i = 0; i < ids.size(); i++)
+        {
+            relationship = document.createElement("Relationship");
+            relationship.setAttribute("Target", targets.get(i));
+            relationship.setAttribute("Type", types.get(i));
+            relationship.setAttribute("Id", ids.get(i));
+            root.appendChild(relationship);
+        }
+        return LowLevel.createBytesFromDocument(document);
+    }
+
+    /**
+     * Merges the style sheet of the appended worksheets into the existing style sheet. The existing components keep their indices. The new number formats, fonts, fills, borders, cell formats and differential formats are appended and their references are shifted accordingly
+     * @param styleSheet Serialized style sheet of the workbook with the appended worksheets
+     * @return Merged style sheet with the offsets of the appended cell and differential formats
+     * @throws IOException Thrown if the style sheets could not be read or serialized
+     */
+    MergedStyleSheet mergeStyleSheet(byte[] styleSheet) throws IOException
+    {
+        Document document = readDocument(STYLES_PART);
+        Document additions = parseDocument(styleSheet, STYLES_PART);
+        Element root = document.getDocumentElement();
+        Map<String, String> numberFormatIds = new HashMap<>();
+        Element numberFormats = getSection(document, "numFmts", true);
+        int nextNumberFormatId = 163; // Custom number formats start at 164
+        for (Element numberFormat : getChildElements(numberFormats))
+        {
+            nextNumberFormatId = Math.max(nextNumberFormatId, Integer.parseInt(numberFormat.getAttribute("numFmtId")));
+        }
+        Element imported;
+        for (Element numberFormat : getChildElements(getSection(additions, "numFmts", false)))
+        {
+            nextNumberFormatId++;
+            numberFormatIds.put(numberFormat.getAttribute("numFmtId"), Integer.toString(nextNumberFormatId));
+            imported = (Element)document.importNode(numberFormat, true);
+            imported.setAttribute("numFmtId", Integer.toString(nextNumberFormatId));
+            numberFormats.appendChild(imported);
+        }
+        int fontOffset = appendSection(document, additions, "fonts");
+        int fillOffset = appendSection(document, additions, "fills");
+        int borderOffset = appendSection(document, additions, "borders");
+        Element cellFormats = getSection(document, "cellXfs", true);
+        int styleOffset = getChildElements(cellFormats).size();
+        for (Element cellFormat : getChildElements(getSection(additions, "cellXfs", false)))
+        {
+            imported = (Element)document.importNode(cellFormat, true);
+            shiftAttribute(imported, "fontId", fontOffset);
+            shiftAttribute(imported, "fillId", fillOffset);
+            shiftAttribute(imported, "borderId", borderOffset);
+            if (numberFormatIds.containsKey(imported.getAttribute("numFmtId")) == true)
+            {
+                imported.setAttribute("numFmtId", numberFormatIds.get(imported.getAttribute("numFmtId")));
+            }
+            cellFormats.appendChild(imported);
+        }
+        int differentialFormatOffset = appendSection(document, additions, "dxfs");
+        for (String section : new String[]{"numFmts", "fonts", "fills", "borders", "cellXfs", "dxfs"})
+        {
+            Element element = getSection(document, section, false);
+            if (element == null) { continue; }
+            if (getChildElements(element).isEmpty() == true)
+            {
+                root.removeChild(element);
+            }
+            else
+            {
+                element.setAttribute("count", Integer.toString(getChildElements(element).size()));
+            }
+        }
+        return new MergedStyleSheet(LowLevel.createBytesFromDocument(document), styleOffset, differentialFormatOffset);
+    }
+
+    /**
+     * Merges the appended worksheets into the existing workbook part. The existing worksheets, views and the protection are kept
+     * @param worksheets Appended worksheets
+     * @param sheetIds Worksheet IDs in the merged workbook
+     * @param relationshipIds Relationship IDs of the appended worksheet parts
+     * @return Serialized workbook part
+     * @throws IOException Thrown if the part could not be read or serialized
+     */
+    byte[] mergeWorkbook(List<Worksheet> worksheets, List<Integer> sheetIds, List<String> relationshipIds) throws IOException
+    {
+        Document document = readDocument(WORKBOOK_PART);
+        Element sheets = getSection(document, "sheets", true);
+        Element sheet;
+        for (int i = 0; i < worksheets.size(); i++)
+        {
+            sheet = document.createElement("sheet");
+            sheet.setAttribute("r:id", relationshipIds.get(i));
+            sheet.setAttribute("sheetId", Integer.toString(sheetIds.get(i)));
+            sheet.setAttribute("name", worksheets.get(i).getSheetName());
+            sheets.appendChild(sheet);
+        }
+        return LowLevel.createBytesFromDocument(document);
+    }
+
+    /**
+     * Reads the central directory of the file and the worksheets of the workbook part
+     * @throws java.io.IOException Thrown in case of an error while reading
+     * @throws IOException Thrown if the file is not a supported XLSX file
+     */
+    private void readPackage() throws java.io.IOException, IOException
+    {
+        try (FileChannel channel = FileChannel.open(this.path, StandardOpenOption.READ))
+        {
+            int tailLength = (int)Math.min(this.size, END_OF_CENTRAL_DIRECTORY_SIZE + MAX_COMMENT_LENGTH);
+            ByteBuffer tail = read(channel, this.size - tailLength, tailLength);
+            int index = -1;
+            for (int i = tailLength - END_OF_CENTRAL_DIRECTORY_SIZE; i >= 0; i--)
+            {
+                if (tail.getInt(i) == END_OF_CENTRAL_DIRECTORY_SIGNATURE)
+                {
+                    index = i;
+                    break;
+                }
+            }
+            if (index < 0)
+            {
+                throw new IOException("AppendException", "The file '" + this.path + "' is not a valid zip file (no central directory found).");
+            }
+            long entryCount = tail.getShort(index + 10) & 0xFFFF;
+            long directorySize = tail.getInt(index + 12) & 0xFFFFFFFFL;
+            long directoryOffset = tail.getInt(index + 16) & 0xFFFFFFFFL;
+            long endPosition = this.size - tailLength + index;
+            if (endPosition >= ZIP64_LOCATOR_SIZE && read(channel, endPosition - ZIP64_LOCATOR_SIZE, 4).getInt(0) == ZIP64_LOCATOR_SIGNATURE)
+            {
+                long zip64Position = read(channel, endPosition - ZIP64_LOCATOR_SIZE + 8, 8).getLong(0);
+                ByteBuffer zip64End = read(channel, zip64Position, 56);
+                if (zip64End.getInt(0) != ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE)
+                {
+                    throw new IOException("AppendException", "The Zip64 end of central directory record of the file '" + this.path + "' is invalid.");
+                }
+                entryCount = zip64End.getLong(32);
+                directorySize = zip64End.getLong(40);
+                directoryOffset = zip64End.getLong(48);
+            }
+            if (directorySize > Integer.MAX_VALUE)
+            {
+                throw new IOException("AppendException", "The central directory of the file '" + this.path + "' is too large to be read.");
+            }
+            ByteBuffer directory = read(channel, directoryOffset, (int)directorySize);
+            int position = 0;
+            Entry entry;
+            byte[] name;
+            for (int i = 0; i < entryCount; i++)
+            {
+                if (directory.getInt(position) != CENTRAL_HEADER_SIGNATURE)
+                {
+                    throw new IOException("AppendException", "The central directory of the file '" + this.path + "' is invalid.");
+                }
+                entry = new Entry();
+                entry.method = directory.getShort(position + 10) & 0xFFFF;
+                entry.dosTime = directory.getInt(position + 12);
+                entry.crc = directory.getInt(position + 16) & 0xFFFFFFFFL;
+                entry.compressedSize = directory.getInt(position + 20) & 0xFFFFFFFFL;
+                entry.size = directory.getInt(position + 24) & 0xFFFFFFFFL;
+                int nameLength = directory.getShort(position + 28) & 0xFFFF;
+                int extraLength = directory.getShort(position + 30) & 0xFFFF;
+                int commentLength = directory.getShort(position + 32) & 0xFFFF;
+                entry.offset = directory.getInt(position + 42) & 0xFFFFFFFFL;
+                name = new byte[nameLength];
+                directory.position(position + 46);
+                directory.get(name);
+                readZip64Extra(entry, directory, position + 46 + nameLength, extraLength);
+                if (entry.method != ZipWriter.STORED && entry.method != ZipWriter.DEFLATED)
+                {
+                    throw new IOException("AppendException", "The compression method of the entry '" + new String(name, StandardCharsets.UTF_8) + "' is not supported.");
+                }
+                this.entries.put(new String(name, StandardCharsets.UTF_8), entry);
+                position += 46 + nameLength + extraLength + commentLength;
+            }
+        }
+        if (containsEntry(WORKBOOK_PART) == false || containsEntry(STYLES_PART) == false)
+        {
+            throw new IOException("AppendException", "The file '" + this.path + "' is not a valid XLSX file (workbook or style sheet missing).");
+        }
+        NodeList sheets = readDocument(WORKBOOK_PART).getElementsByTagName("sheet");
+        Element sheet;
+        for (int i = 0; i < sheets.getLength(); i++)
+        {
+            sheet = (Element)sheets.item(i);
+            this.sheetNames.add(sheet.getAttribute("name"));
+            this.maxSheetId = Math.max(this.maxSheetId, Integer.parseInt(sheet.getAttribute("sheetId")));
+        }
+        Matcher matcher;
+        for (String name : this.entries.keySet())
+        {
+            matcher = TABLE_PART_PATTERN.matcher(name);
+            if (matcher.matches() == true)
+            {
+                this.maxTableId = Math.max(this.maxTableId, Integer.parseInt(matcher.group(1)));
+            }
+        }
+    }
+
+    /**
+     * Reads and inflates an entry of the existing file
+     * @param name Entry name with relative path
+     * @return Uncompressed data
+     * @throws IOException Thrown if the entry does not exist or could not be read
+     */
+    private byte[] readEntry(String name) throws IOException
+    {
+        Entry entry = this.entries.get(name);
+        if (entry == null)
+        {
+            throw new IOException("AppendException", "The entry '" + name + "' does not exist in the file '" + this.path + "'.");
+        }
+        try (FileChannel channel = FileChannel.open(this.path, StandardOpenOption.READ))
+        {
+            ByteBuffer compressed = read(channel, getDataOffset(entry, channel), (int)entry.compressedSize);
+            if (entry.method == ZipWriter.STORED)
+            {
+                return compressed.array();
+            }
+            Inflater inflater = new Inflater(true);
+            try
+            {
+                inflater.setInput(compressed.array());
+                ByteArrayOutputStream output = new ByteArrayOutputStream((int)entry.size);
+                byte[] buffer = new byte[8192];
+                int length;
+                while (inflater.finished() == false)
+                {
+                    length = inflater.inflate(buffer);
+                    if (length == 0 && (inflater.needsInput() == true || inflater.needsDictionary() == true))
+                    {
+                        throw new java.io.IOException("The compressed data is truncated.");
+                    }
+                    output.write(buffer, 0, length);
+                }
+                return output.toByteArray();
+            }
+            finally
+            {
+                inflater.end();
+            }
+        }
+        catch (Exception e)
+        {
+            throw new IOException("AppendException", "The entry '" + name + "' could not be read. Please see the inner exception:" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads and parses an XML entry of the existing file
+     * @param name Entry name with relative path
+     * @return XML document
+     * @throws IOException Thrown if the entry could not be read or parsed
+     */
+    private Document readDocument(String name) throws IOException
+    {
+        return parseDocument(readEntry(name), name);
+    }
+
+// ### S T A T I C   M E T H O D S ###
+    /**
+     * Opens an existing XLSX file for appending. The central directory and the workbook part are read. The file is not kept open
+     * @param path Path of the existing file
+     * @return Append source
+     * @throws IOException Thrown if the file could not be read or is not a supported XLSX file
+     */
+    public static AppendSource open(Path path) throws IOException
+    {
+        try
+        {
+            AppendSource source = new AppendSource(path, Files.size(path), Files.getLastModifiedTime(path).toMillis());
+            source.readPackage();
+            return source;
+        }
+        catch (java.io.IOException e)
+        {
+            throw new IOException("AppendException", "The file '" + path + "' could not be opened for appending. Please see the inner exception:" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Appends the child elements of a section of the new style sheet to the same section of the existing one. The section is created if it does not exist
+     * @param document Existing style sheet
+     * @param additions New style sheet
+     * @param name Name of the section
+     * @return Number of elements in the section before appending (offset of the appended elements)
+     */
+    private static int appendSection(Document document, Document additions, String name)
+    {
+        Element section = getSection(document, name, true);
+        int offset = getChildElements(section).size();
+        for (Element child : getChildElements(getSection(additions, name, false)))
+        {
+            section.appendChild(document.importNode(child, true));
+        }
+        return offset;
+    }
+
+    /**
+     * Gets the direct child elements of an element
+     * @param element Parent element. Can be null
+     * @return List of elements. The list is empty if the parent is null
+     */
+    private static List<Element> getChildElements(Element element)
+    {
+        if (element == null)
+        {
+            return Collections.emptyList();
+        }
+        List<Element> children = new ArrayList<>();
+        NodeList nodes = element.getChildNodes();
+        for (int i = 0; i < nodes.getLength(); i++)
+        {
+            if (nodes.item(i).getNodeType() == Node.ELEMENT_NODE)
+            {
+                children.add((Element)nodes.item(i));
+            }
+        }
+        return children;
+    }
+
+    /**
+     * Gets the position of the compressed data of an entry, behind its local header
+     * @param entry Entry to process
+     * @param channel Open channel of the file
+     * @return Position in the file
+     * @throws java.io.IOException Thrown in case of an error while reading or if the local header is invalid
+     */
+    private static long getDataOffset(Entry entry, FileChannel channel) throws java.io.IOException
+    {
+        ByteBuffer header = read(channel, entry.offset, 30);
+        if (header.getInt(0) != LOCAL_HEADER_SIGNATURE)
+        {
+            throw new java.io.IOException("Invalid local header at position " + entry.offset + ".");
+        }
+        return entry.offset + 30 + (header.getShort(26) & 0xFFFF) + (header.getShort(28) & 0xFFFF);
+    }
+
+    /**
+     * Gets a direct child element of the root element of a document by its name. Sections of the style sheet are created in the order of the schema
+     * @param document Document to process
+     * @param name Name of the element
+     * @param create If true, the element is created and inserted if it does not exist
+     * @return Element or null if it does not exist and create is false
+     */
+    private static Element getSection(Document document, String name, boolean create)
+    {
+        Element root = document.getDocumentElement();
+        for (Element child : getChildElements(root))
+        {
+            if (child.getTagName().equals(name) == true)
+            {
+                return child;
+            }
+        }
+        if (create == false)
+        {
+            return null;
+        }
+        Element section = document.createElement(name);
+        Node successor = null;
+        if (name.equals("numFmts") == true)
+        {
+            successor = root.getFirstChild();
+        }
+        else if (name.equals("dxfs") == true)
+        {
+            for (Element child : getChildElements(root))
+            {
+                if (child.getTagName().equals("tableStyles") || child.getTagName().equals("colors") || child.getTagName().equals("extLst"))
+                {
+                    successor = child;
+                    break;
+                }
+            }
+        }
+        root.insertBefore(section, successor);
+        return section;
+    }
+
+    /**
+     * Creates a DOM factory for the parts of the existing file. Doctype declarations and external entities are not supported
+     * @return Factory
+     * @throws ParserConfigurationException Thrown if a feature is not supported by the parser
+     */
+    private static DocumentBuilderFactory createDocumentBuilderFactory() throws ParserConfigurationException
+    {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+        factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
+        factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+        factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        factory.setXIncludeAware(false);
+        factory.setExpandEntityReferences(false);
+        return factory;
+    }
+
+    /**
+     * Parses a serialized XML part. Parts with a doctype declaration are rejected
+     * @param data Serialized part (UTF-8)
+     * @param name Name of the part (for the error message)
+     * @return XML document
+     * @throws IOException Thrown if the part could not be parsed
+     */
+    private static Document parseDocument(byte[] data, String name) throws IOException
+    {
+        try
+        {
+            Document document = createDocumentBuilderFactory().newDocumentBuilder().parse(new ByteArrayInputStream(data));
+            document.setXmlStandalone(true);
+            return document;
+        }
+        catch (Exception e)
+        {
+            throw new IOException("XmlDocumentException", "The part '" + name + "' could not be parsed. Please see the inner exception:" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads a range of a file channel completely
+     * @param channel Channel to read from
+     * @param position Start position
+     * @param length Number of bytes to read
+     * @return Buffer in little endian order with the read bytes (backed by an array)
+     * @throws java.io.IOException Thrown in case of an error while reading or if the file is too short
+     */
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws java.io.IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        int read;
+        while (buffer.hasRemaining() == true)
+        {
+            read = channel.read(buffer, position + buffer.position());
+            if (read < 0)
+            {
+                throw new java.io.IOException("Unexpected end of file at position " + (position + buffer.position()) + ".");
+            }
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Reads the 64 bit sizes and offset of an entry from the Zip64 extra field of its central directory header, if the 32 bit fields are set to their maximum
+     * @param entry Entry with the values of the 32 bit fields
+     * @param directory Central directory
+     * @param start Position of the extra fields in the central directory
+     * @param length Total length of the extra fields
+     */
+    private static void readZip64Extra(Entry entry, ByteBuffer directory, int start, int length)
+    {
+        int position = start;
+        int id;
+        int size;
+        while (position + 4 <= start + length)
+        {
+            id = directory.getShort(position) & 0xFFFF;
+            size = directory.getShort(position + 2) & 0xFFFF;
+            if (id == ZIP64_EXTRA_ID)
+            {
+                // Only the values, which exceed the 32 bit fields, are present in this order
+                int index = position + 4;
+                if (entry.size == 0xFFFFFFFFL) { entry.size = directory.getLong(index); index += 8; }
+                if (entry.compressedSize == 0xFFFFFFFFL) { entry.compressedSize = directory.getLong(index); index += 8; }
+                if (entry.offset == 0xFFFFFFFFL) { entry.offset = directory.getLong(index); }
+                return;
+            }
+            position += 4 + size;
+        }
+    }
+
+    /**
+     * Adds an offset to a numeric attribute of an element, if the attribute exists
+     * @param element Element to process
+     * @param attribute Name of the attribute
+     * @param offset Offset to add
+     */
+    private static void shiftAttribute(Element element, String attribute, int offset)
+    {
+        if (element.hasAttribute(attribute) == true)
+        {
+            element.setAttribute(attribute, Integer.toString(Integer.parseInt(element.getAttribute(attribute)) + offset));
+        }
+    }
+
+// ### S U B  C L A S S E S ###
+    /**
+     * Class representing an entry of the central directory
+     */
+    private static final class Entry
+    {
+        private long compressedSize;
+        private long crc;
+        private int dosTime;
+        private int method;
+        private long offset;
+        private long size;
+    }
+
+    /**
+     * Class representing a merged style sheet with the offsets of the appended formats
+     */
+    static final class MergedStyleSheet
+    {
+        private final byte[] data;
+        private final int differentialFormatOffset;
+        private final int styleOffset;
+
+        /**
+         * Gets the serialized style sheet
+         * @return Serialized part (UTF-8)
+         */
+        byte[] getData() {
+            return data;
+        }
+
+        /**
+         * Gets the index of the first appended differential format
+         * @return Offset of the differential format IDs
+         */
+        int getDifferentialFormatOffset() {
+            return differentialFormatOffset;
+        }
+
+        /**
+         * Gets the index of the first appended cell format
+         * @return Offset of the style IDs
+         */
+        int getStyleOffset() {
+            return styleOffset;
+        }
+
+        /**
+         * Constructor with all values
+         * @param data Serialized style sheet
+         * @param styleOffset Index of the first appended cell format
+         * @param differentialFormatOffset Index of the first appended differential format
+         */
+        MergedStyleSheet(byte[] data, int styleOffset, int differentialFormatOffset)
+        {
+            this.data = data;
+            this.styleOffset = styleOffset;
+            this.differentialFormatOffset = differentialFormatOffset;
+        }
+    }
+
+}
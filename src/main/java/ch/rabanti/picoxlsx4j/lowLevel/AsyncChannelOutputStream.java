@@ -0,0 +1,167 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Class representing an output stream that writes into an asynchronous file channel. Two direct buffers are used alternately, so that the compression of the next block overlaps with the pending write of the previous block
+ * @author Raphael Stoeckli
+ */
+class AsyncChannelOutputStream extends OutputStream {
+
+// ### P R I V A T E  F I E L D S ###
+    private ByteBuffer buffer;
+    private final AsynchronousFileChannel channel;
+    private boolean closed;
+    private ByteBuffer pendingBuffer;
+    private Future<Integer> pendingWrite;
+    private long position;
+
+// ### C O N S T R U C T O R S ###
+    /**
+     * Constructor with channel and buffer size
+     * @param channel Channel to write into. The output starts at position 0 and the channel is truncated after the output when the stream is closed
+     * @param bufferSize Size of each of the two direct buffers in bytes
+     */
+    public AsyncChannelOutputStream(AsynchronousFileChannel channel, int bufferSize)
+    {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.pendingBuffer = ByteBuffer.allocateDirect(bufferSize);
+        this.position = 0;
+    }
+
+// ### M E T H O D S ###
+    /**
+     * Writes one byte into the buffer
+     * @param b Byte to write
+     * @throws IOException Thrown in case of an error while writing into the channel
+     */
+    @Override
+    public void write(int b) throws IOException
+    {
+        if (this.buffer.hasRemaining() == false)
+        {
+            submit();
+        }
+        this.buffer.put((byte)b);
+    }
+
+    /**
+     * Writes a range of bytes into the buffer. A full buffer is submitted to the channel and the second buffer is used meanwhile
+     * @param b Source array
+     * @param off Start offset in the source array
+     * @param len Number of bytes to write
+     * @throws IOException Thrown in case of an error while writing into the channel
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+        while (len > 0)
+        {
+            if (this.buffer.hasRemaining() == false)
+            {
+                submit();
+            }
+            int length = Math.min(len, this.buffer.remaining());
+            this.buffer.put(b, off, length);
+            off += length;
+            len -= length;
+        }
+    }
+
+    /**
+     * Submits the buffered bytes and waits until all writes are completed
+     * @throws IOException Thrown in case of an error while writing into the channel
+     */
+    @Override
+    public void flush() throws IOException
+    {
+        submit();
+        awaitPendingWrite();
+    }
+
+    /**
+     * Writes all buffered bytes, truncates the channel after the last written byte and closes the channel. A previous, larger content of the file is therefore removed
+     * @throws IOException Thrown in case of an error while writing into, truncating or closing the channel
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (this.closed == true) { return; }
+        this.closed = true;
+        try
+        {
+            flush();
+            this.channel.truncate(this.position);
+        }
+        finally
+        {
+            this.channel.close();
+        }
+    }
+
+    /**
+     * Waits for the pending write, then starts the write of the current buffer and swaps the buffers
+     * @throws IOException Thrown in case of an error while writing into the channel
+     */
+    private void submit() throws IOException
+    {
+        awaitPendingWrite();
+        this.buffer.flip();
+        if (this.buffer.hasRemaining() == false)
+        {
+            this.buffer.clear();
+            return;
+        }
+        ByteBuffer current = this.buffer;
+        this.pendingWrite = this.channel.write(current, this.position);
+        this.buffer = this.pendingBuffer;
+        this.pendingBuffer = current;
+    }
+
+    /**
+     * Waits until the pending write is completed. Partial writes are continued until the whole buffer is written
+     * @throws IOException Thrown in case of an error while writing into the channel
+     */
+    private void awaitPendingWrite() throws IOException
+    {
+        try
+        {
+            while (this.pendingWrite != null)
+            {
+                this.position += this.pendingWrite.get();
+                if (this.pendingBuffer.hasRemaining() == true)
+                {
+                    this.pendingWrite = this.channel.write(this.pendingBuffer, this.position);
+                }
+                else
+                {
+                    this.pendingWrite = null;
+                    this.pendingBuffer.clear();
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("The write into the channel was interrupted.");
+        }
+        catch (ExecutionException e)
+        {
+            throw new IOException("The write into the channel failed.", e.getCause());
+        }
+    }
+
+}
@@ -0,0 +1,194 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.CRC32;
+
+/**
+ * Class representing an output stream that writes into a channel through a direct byte buffer. Data of file channels can be written into the channel without passing the heap
+ * @author Raphael Stoeckli
+ */
+class ChannelOutputStream extends OutputStream {
+
+// ### P R I V A T E  F I E L D S ###
+    private final ByteBuffer buffer;
+    private final WritableByteChannel channel;
+    private boolean closed;
+
+// ### C O N S T R U C T O R S ###
+    /**
+     * Constructor with channel and buffer size
+     * @param channel Channel to write into
+     * @param bufferSize Size of the direct buffer in bytes
+     */
+    public ChannelOutputStream(WritableByteChannel channel, int bufferSize)
+    {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+// ### G E T T E R S  &  S E T T E R S ###
+    /**
+     * Gets the channel of the stream as file channel, e.g. to write positioned data. Buffered bytes must be flushed before
+     * @return File channel or null if the stream writes into another kind of channel
+     */
+    FileChannel getFileChannel() {
+        return channel instanceof FileChannel ? (FileChannel)channel : null;
+    }
+
+// ### M E T H O D S ###
+    /**
+     * Writes one byte into the buffer
+     * @param b Byte to write
+     * @throws IOException Thrown in case of an error while writing into the channel
+     */
+    @Override
+    public void write(int b) throws IOException
+    {
+        if (this.buffer.hasRemaining() == false)
+        {
+            drain();
+        }
+        this.buffer.put((byte)b);
+    }
+
+    /**
+     * Writes a range of bytes into the buffer. The buffer is written into the channel whenever it is full
+     * @param b Source array
+     * @param off Start offset in the source array
+     * @param len Number of bytes to write
+     * @throws IOException Thrown in case of an error while writing into the channel
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+        while (len > 0)
+        {
+            if (this.buffer.hasRemaining() == false)
+            {
+                drain();
+            }
+            int length = Math.min(len, this.buffer.remaining());
+            this.buffer.put(b, off, length);
+            off += length;
+            len -= length;
+        }
+    }
+
+    /**
+     * Writes the buffered bytes into the channel
+     * @throws IOException Thrown in case of an error while writing into the channel
+     */
+    @Override
+    public void flush() throws IOException
+    {
+        drain();
+    }
+
+    /**
+     * Writes the buffered bytes into the channel and closes the channel. A seekable channel (e.g. a FileChannel) is truncated after the last written byte before, so that a previous, larger content of the file is removed
+     * @throws IOException Thrown in case of an error while writing into, truncating or closing the channel
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (this.closed == true) { return; }
+        this.closed = true;
+        try
+        {
+            drain();
+            if (this.channel instanceof SeekableByteChannel)
+            {
+                SeekableByteChannel seekable = (SeekableByteChannel)this.channel;
+                seekable.truncate(seekable.position());
+            }
+        }
+        finally
+        {
+            this.channel.close();
+        }
+    }
+
+    /**
+     * Writes the buffered bytes and then a range of a file channel into the channel with FileChannel.transferTo. Between two file channels, the data is copied by the operating system without passing the heap
+     * @param source File channel to read from
+     * @param offset Position of the first byte in the source
+     * @param length Number of bytes to write
+     * @return Number of written bytes. Less than the length if the source ends before the range
+     * @throws IOException Thrown in case of an error while reading or writing
+     */
+    long transferFrom(FileChannel source, long offset, long length) throws IOException
+    {
+        drain();
+        long remaining = length;
+        long transferred;
+        while (remaining > 0)
+        {
+            transferred = source.transferTo(offset, remaining, this.channel);
+            if (transferred <= 0)
+            {
+                break;
+            }
+            offset += transferred;
+            remaining -= transferred;
+        }
+        return length - remaining;
+    }
+
+    /**
+     * Writes the buffered bytes and then a file channel completely into the channel. The data is read once into the direct buffer, which updates the CRC and is written into the channel, so the data does not pass the heap
+     * @param source File channel to read from. All bytes from position 0 to the size of the channel are written
+     * @param crc CRC to update with the written data
+     * @return Number of written bytes
+     * @throws IOException Thrown in case of an error while reading or writing
+     */
+    long transferFrom(FileChannel source, CRC32 crc) throws IOException
+    {
+        drain();
+        long size = source.size();
+        long offset = 0;
+        int read;
+        while (offset < size)
+        {
+            read = source.read(this.buffer, offset);
+            if (read < 0)
+            {
+                break;
+            }
+            offset += read;
+            this.buffer.flip();
+            crc.update(this.buffer.duplicate());
+            while (this.buffer.hasRemaining() == true)
+            {
+                this.channel.write(this.buffer);
+            }
+            this.buffer.clear();
+        }
+        return offset;
+    }
+
+    /**
+     * Writes the content of the buffer completely into the channel
+     * @throws IOException Thrown in case of an error while writing into the channel
+     */
+    private void drain() throws IOException
+    {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining() == true)
+        {
+            this.channel.write(this.buffer);
+        }
+        this.buffer.clear();
+    }
+
+}
@@ -8,25 +8,31 @@ package ch.rabanti.picoxlsx4j.lowLevel;
 
 import ch.rabanti.picoxlsx4j.*;
 import ch.rabanti.picoxlsx4j.exception.IOException;
+import ch.rabanti.picoxlsx4j.exception.MemoryBudgetException;
 import ch.rabanti.picoxlsx4j.exception.RangeException;
 import ch.rabanti.picoxlsx4j.exception.StyleException;
 import ch.rabanti.picoxlsx4j.style.*;
 import org.w3c.dom.Document;
-import org.xml.sax.InputSource;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.transform.*;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-import java.io.ByteArrayOutputStream;
-import java.io.FileOutputStream;
+import java.io.File;
 import java.io.OutputStream;
-import java.io.StringReader;
+import java.io.Writer;
 import java.math.BigDecimal;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.time.ZoneId;
 import java.util.*;
+import java.util.function.Supplier;
 
 
 /**
@@ -35,12 +41,40 @@ import java.util.*;
  */
 public class LowLevel {
      
+// ### C O N S T A N T S ###
+    /**
+     * Number of rows after which the progress is reported and the cancellation token is checked
+     */
+    private static final int ROW_PROGRESS_INTERVAL = 1000;
+    /**
+     * Size of the direct buffers when saving to a channel
+     */
+    private static final int CHANNEL_BUFFER_SIZE = 262144;
+    /**
+     * Number of cells from which the part of a worksheet on the heap is streamed into a temporary part file instead of a byte array. This avoids the size limit of arrays (2 GB) and the XML document of very large worksheets
+     */
+    private static final int LARGE_WORKSHEET_CELLS = 2000000;
+    /**
+     * Number of characters after which the XML string of a worksheet is flushed into its temporary part file
+     */
+    private static final int SPILL_THRESHOLD = 1048576;
+
 // ### P R I V A T E  F I E L D S ###    
+    private final SaveCancellationToken cancellationToken;
+    private final LinkedHashMap<String, Integer> differentialFormats;
+    private int differentialFormatOffset;
     private final SortedMap sharedStrings;
     private int sharedStringsTotalCount;
     private final Workbook workbook;
+    private final ZoneId dateTimeZone;
     private boolean interceptDocuments;
+    private final PartCache partCache;
     private HashMap<String, Document> interceptedDocuments;
+    private SaveContext saveContext;
+    private final SaveListener saveListener;
+    private final SaveStatistics saveStatistics;
+    private int styleOffset;
+    private boolean useInlineStrings;
     
 // ### G E T T E R S   &   S E T T E R S ###
 
@@ -85,13 +119,55 @@ public class LowLevel {
      * @param workbook Workbook to process
      */
     public LowLevel(Workbook workbook)
+    {
+       this(workbook, null);
+    }
+
+    /**
+     * Constructor with defined workbook object and cancellation token
+     * @param workbook Workbook to process
+     * @param cancellationToken Token to cancel the save process. Can be null
+     */
+    public LowLevel(Workbook workbook, SaveCancellationToken cancellationToken)
     {
        this.workbook = workbook;
+       this.cancellationToken = cancellationToken;
+       this.differentialFormats = new LinkedHashMap<>();
        this.sharedStrings = new SortedMap();
        this.sharedStringsTotalCount = 0;
+       this.partCache = workbook.getTemplate() == null ? null : workbook.getTemplate().getPartCache();
+       if (workbook.getDateTimeZone() == null)
+       {
+           this.dateTimeZone = ZoneId.systemDefault();
+       }
+       else
+       {
+           this.dateTimeZone = workbook.getDateTimeZone();
+       }
+       this.saveListener = workbook.getSaveListener();
+       if (this.saveListener == null)
+       {
+           this.saveStatistics = null;
+       }
+       else
+       {
+           this.saveStatistics = new SaveStatistics();
+       }
     }
 
 // ### M E T H O D S ###    
+    /**
+     * Method to append a row without cells, but with attributes (height, hidden state or default style)
+     * @param sb StringBuilder to append
+     * @param rowNumber Row number (zero-based)
+     * @param rowAttributes Cursor over the row attributes of the worksheet
+     */
+    private static void appendEmptyRow(StringBuilder sb, int rowNumber, RowAttributeCursor rowAttributes)
+    {
+        sb.append("<row r=\"").append(rowNumber + 1).append("\"");
+        rowAttributes.appendAttributes(sb, rowNumber);
+        sb.append("/>");
+    }
     /**
      * Method to append a simple XML tag with an enclosed value to the passed StringBuilder
      * @param sb StringBuilder to append
@@ -124,17 +200,22 @@ public class LowLevel {
    
     
     /**
-     * Method to create the app-properties (part of meta data) as XML document
-     * @return Formatted XML document
+     * Method to create the app-properties (part of meta data) as serialized part. The part of a template is frozen as long as the app-properties of the metadata are unchanged
+     * @return Serialized part (UTF-8)
      * @throws IOException Thrown in case of an error while creating the XML document
      */
-    private Document createAppPropertiesDocument() throws IOException
+    private StaticPart createAppPropertiesPart() throws IOException
     {
-        StringBuilder sb = new StringBuilder();
-        sb.append("<Properties xmlns=\"http://schemas.openxmlformats.org/officeDocument/2006/extended-properties\" xmlns:vt=\"http://schemas.openxmlformats.org/officeDocument/2006/docPropsVTypes\">");
-        sb.append(createAppString());
-        sb.append("</Properties>");
-        return createXMLDocument(sb.toString(), "APPPROPERTIES");
+        Metadata md = this.workbook.getWorkbookMetadata();
+        Object state = md == null ? Collections.emptyList() : Arrays.asList(md.getApplication(), md.getManager(), md.getCompany(), md.getHyperlinkBase(), md.getApplicationVersion());
+        return createStaticPart("docProps/app.xml", state, () ->
+        {
+            StringBuilder sb = new StringBuilder();
+            sb.append("<Properties xmlns=\"http://schemas.openxmlformats.org/officeDocument/2006/extended-properties\" xmlns:vt=\"http://schemas.openxmlformats.org/officeDocument/2006/docPropsVTypes\">");
+            sb.append(createAppString());
+            sb.append("</Properties>");
+            return sb.toString();
+        }, "APPPROPERTIES");
     }    
     /**
      * Method to create the XML string for the app-properties document
@@ -159,30 +240,57 @@ public class LowLevel {
         return sb.toString();
     }
     /**
-     * Method to create the columns as XML string. This is used to define the width of columns
+     * Method to create the columns as XML string. This is used to define the width of columns. Columns without an explicitly defined width (see Column.hasCustomWidth) get the estimated width of the automatic column width, if enabled and wider than the default width
      * @param worksheet Worksheet to process
      * @return String with formatted XML data
      */
     private String createColsString(Worksheet worksheet)
     {
-        if (worksheet.getColumns().size() > 0)
+        SortedIntMap<Column> columns = worksheet.getColumns();
+        float[] autoWidths = worksheet.getAutoColumnWidths();
+        int autoCount = autoWidths == null ? 0 : autoWidths.length;
+        if (columns.size() > 0 || autoCount > 0)
         {
             String col;
-            String hidden = "";
+            String hidden;
             StringBuilder sb = new StringBuilder();
-            
-            for (Map.Entry<Integer, Column> column : worksheet.getColumns().entrySet())
-            {
-                if (column.getValue().getWidth() == worksheet.getDefaultColumnWidth() && column.getValue().isHidden() == false) { continue; }
-                if (worksheet.getColumns().containsKey(column.getKey()))
+            int lastColumn = Math.max(columns.size() > 0 ? columns.keyAt(columns.size() - 1) : -1, autoCount - 1);
+            int index = 0;
+            Column column;
+            float width;
+            boolean customWidth;
+            for (int number = 0; number <= lastColumn; number++)
+            {
+                column = null;
+                if (index < columns.size() && columns.keyAt(index) == number)
                 {
-                    if (worksheet.getColumns().get(column.getKey()).isHidden() == true)
-                    {
-                        hidden = " hidden=\"1\"";
-                    }
+                    column = columns.valueAt(index);
+                    index++;
+                }
+                customWidth = column != null && column.hasCustomWidth() == true;
+                width = customWidth == true ? column.getWidth() : worksheet.getDefaultColumnWidth();
+                if (customWidth == false && number < autoCount && autoWidths[number] > width)
+                {
+                    width = autoWidths[number];
+                }
+                if (customWidth == false && width == worksheet.getDefaultColumnWidth() && (column == null || (column.isHidden() == false && column.getDefaultStyle() == null))) { continue; }
+                hidden = "";
+                if (column != null && column.isHidden() == true)
+                {
+                    hidden = " hidden=\"1\"";
+                }
+                col = Integer.toString(number + 1); // Add 1 for Address
+                sb.append("<col");
+                if (customWidth == true || width != worksheet.getDefaultColumnWidth())
+                {
+                    sb.append(" customWidth=\"1\"");
+                }
+                sb.append(" width=\"").append(width).append("\" max=\"").append(col).append("\" min=\"").append(col).append("\"").append(hidden);
+                if (column != null && column.getDefaultStyle() != null)
+                {
+                    sb.append(" style=\"").append(column.getDefaultStyle().getInternalID() + this.styleOffset).append("\"");
                 }
-                col = Integer.toString(column.getKey() + 1); // Add 1 for Address
-                sb.append("<col customWidth=\"1\" width=\"").append(column.getValue().getWidth()).append("\" max=\"").append(col).append("\" min=\"").append(col).append("\"").append(hidden).append("/>");
+                sb.append("/>");
             }
             String value = sb.toString();
             if (value.length() > 0)
@@ -201,17 +309,95 @@ public class LowLevel {
     }
     
     /**
-     * Method to create the core-properties (part of meta data) as XML document
-     * @return Formatted XML document
+     * Method to create the conditional formatting rules of the passed worksheet. Rules with the same range are grouped, the priority is defined by the order of the rules. The differential formats must be registered before (style sheet)
+     * @param worksheet Worksheet to process
+     * @return Formatted string with the conditional formatting rules or an empty string if no rules are defined
+     */
+    private String createConditionalFormattingString(Worksheet worksheet)
+    {
+        if (worksheet.getConditionalFormats().isEmpty() == true)
+        {
+            return "";
+        }
+        List<ConditionalFormat> rules = worksheet.getConditionalFormats();
+        LinkedHashMap<String, List<Integer>> groups = new LinkedHashMap<>();
+        List<Integer> group;
+        for (int i = 0; i < rules.size(); i++)
+        {
+            group = groups.get(rules.get(i).getRange().toString());
+            if (group == null)
+            {
+                group = new ArrayList<>();
+                groups.put(rules.get(i).getRange().toString(), group);
+            }
+            group.add(i);
+        }
+        StringBuilder sb = new StringBuilder();
+        ConditionalFormat conditionalFormat;
+        String[] colors;
+        for (Map.Entry<String, List<Integer>> entry : groups.entrySet())
+        {
+            sb.append("<conditionalFormatting sqref=\"").append(entry.getKey()).append("\">");
+            for (int index : entry.getValue())
+            {
+                conditionalFormat = rules.get(index);
+                colors = conditionalFormat.getColors();
+                sb.append("<cfRule type=\"").append(conditionalFormat.getType().name()).append("\"");
+                if (conditionalFormat.getStyle() != null)
+                {
+                    sb.append(" dxfId=\"").append(this.differentialFormats.get(createDifferentialFormatString(conditionalFormat.getStyle())) + this.differentialFormatOffset).append("\"");
+                }
+                sb.append(" priority=\"").append(index + 1).append("\"");
+                if (conditionalFormat.getOperator() != null)
+                {
+                    sb.append(" operator=\"").append(conditionalFormat.getOperator().name()).append("\"");
+                }
+                sb.append(">");
+                if (conditionalFormat.getType() == ConditionalFormat.RuleType.colorScale)
+                {
+                    sb.append("<colorScale><cfvo type=\"min\"/>");
+                    if (colors.length == 3)
+                    {
+                        sb.append("<cfvo type=\"percentile\" val=\"50\"/>");
+                    }
+                    sb.append("<cfvo type=\"max\"/>");
+                    for (String color : colors)
+                    {
+                        sb.append("<color rgb=\"").append(color).append("\"/>");
+                    }
+                    sb.append("</colorScale>");
+                }
+                else if (conditionalFormat.getType() == ConditionalFormat.RuleType.dataBar)
+                {
+                    sb.append("<dataBar><cfvo type=\"min\"/><cfvo type=\"max\"/><color rgb=\"").append(colors[0]).append("\"/></dataBar>");
+                }
+                else
+                {
+                    sb.append("<formula>").append(escapeXMLChars(conditionalFormat.getFormula1())).append("</formula>");
+                    if (conditionalFormat.getFormula2() != null)
+                    {
+                        sb.append("<formula>").append(escapeXMLChars(conditionalFormat.getFormula2())).append("</formula>");
+                    }
+                }
+                sb.append("</cfRule>");
+            }
+            sb.append("</conditionalFormatting>");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Method to create the core-properties (part of meta data) as serialized part
+     * @return Serialized part (UTF-8)
      * @throws IOException Thrown in case of an error while creating the XML document
      */
-    private Document createCorePropertiesDocument() throws IOException
+    private StaticPart createCorePropertiesPart() throws IOException
     {
         StringBuilder sb = new StringBuilder();
         sb.append("<cp:coreProperties xmlns:cp=\"http://schemas.openxmlformats.org/package/2006/metadata/core-properties\" xmlns:dc=\"http://purl.org/dc/elements/1.1/\" xmlns:dcterms=\"http://purl.org/dc/terms/\" xmlns:dcmitype=\"http://purl.org/dc/dcmitype/\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\">");
         sb.append(createCorePropertiesString());
         sb.append("</cp:coreProperties>");
-        return createXMLDocument(sb.toString(),"COREPROPERTIES");
+        return createStaticPart("docProps/core.xml", sb.toString(), "COREPROPERTIES");
     }    
     /**
      * Method to create the XML string for the core-properties document
@@ -243,6 +429,91 @@ public class LowLevel {
         
         return sb.toString();
     }    
+    /**
+     * Method to create a differential format (dxf) of a conditional formatting rule. Only the font (bold, italic, strike, underline, color), a solid fill and the borders are considered
+     * @param style Style to process
+     * @return Formatted string of the differential format
+     */
+    private static String createDifferentialFormatString(Style style)
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<dxf>");
+        Font font = style.getFont();
+        if (font.isDefaultFont() == false)
+        {
+            sb.append("<font>");
+            if (font.isBold() == true) { sb.append("<b/>"); }
+            if (font.isItalic() == true) { sb.append("<i/>"); }
+            if (font.isStrike() == true) { sb.append("<strike/>"); }
+            if (Helper.isNullOrEmpty(font.getColorValue()) == false) { sb.append("<color rgb=\"").append(font.getColorValue()).append("\"/>"); }
+            if (font.isUnderline() == true) { sb.append("<u/>"); }
+            if (font.isDoubleUnderline() == true) { sb.append("<u val=\"double\"/>"); }
+            sb.append("</font>");
+        }
+        Fill fill = style.getFill();
+        if (fill.getPatternFill() == Fill.PatternValue.solid)
+        {
+            sb.append("<fill><patternFill patternType=\"solid\"><fgColor rgb=\"").append(fill.getForegroundColor()).append("\"/>");
+            sb.append("<bgColor rgb=\"").append(fill.getForegroundColor()).append("\"/></patternFill></fill>");
+        }
+        Border border = style.getBorder();
+        if (border.isEmpty() == false)
+        {
+            sb.append("<border>");
+            appendDifferentialBorder(sb, "left", border.getLeftStyle(), border.getLeftColor());
+            appendDifferentialBorder(sb, "right", border.getRightStyle(), border.getRightColor());
+            appendDifferentialBorder(sb, "top", border.getTopStyle(), border.getTopColor());
+            appendDifferentialBorder(sb, "bottom", border.getBottomStyle(), border.getBottomColor());
+            sb.append("</border>");
+        }
+        sb.append("</dxf>");
+        return sb.toString();
+    }
+
+    /**
+     * Appends one side of a border of a differential format, if a border style is defined
+     * @param sb StringBuilder to append
+     * @param name Name of the side (e.g. left)
+     * @param styleValue Border style of the side
+     * @param color Color of the side as ARGB value. Can be null or empty
+     */
+    private static void appendDifferentialBorder(StringBuilder sb, String name, Border.StyleValue styleValue, String color)
+    {
+        if (styleValue == Border.StyleValue.none) { return; }
+        sb.append("<").append(name).append(" style=\"").append(Border.getStyleName(styleValue)).append("\">");
+        if (Helper.isNullOrEmpty(color) == false) { sb.append("<color rgb=\"").append(color).append("\"/>"); }
+        else { sb.append("<color auto=\"1\"/>"); }
+        sb.append("</").append(name).append(">");
+    }
+
+    /**
+     * Method to register the differential formats (dxf) of all conditional formatting rules of the workbook. Identical formats are only registered once
+     * @return String with formatted XML data of all differential formats
+     */
+    private String createDifferentialFormatsString()
+    {
+        this.differentialFormats.clear();
+        String dxf;
+        for (Worksheet worksheet : this.workbook.getWorksheets())
+        {
+            for (ConditionalFormat conditionalFormat : worksheet.getConditionalFormats())
+            {
+                if (conditionalFormat.getStyle() == null) { continue; }
+                dxf = createDifferentialFormatString(conditionalFormat.getStyle());
+                if (this.differentialFormats.containsKey(dxf) == false)
+                {
+                    this.differentialFormats.put(dxf, this.differentialFormats.size());
+                }
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String format : this.differentialFormats.keySet())
+        {
+            sb.append(format);
+        }
+        return sb.toString();
+    }
+
     /**
      * Method to create the merged cells string of the passed worksheet
      * @param sheet Worksheet to process
@@ -314,49 +585,55 @@ public class LowLevel {
         }
     }
     /**
-     * Method to create a row string
-     * @param columnFields List of cells
+     * Method to create the reference of the dimension element (used range) of a worksheet
      * @param worksheet Worksheet to process
-     * @return Formatted row string
+     * @return Range like A1:D10, a single address if only one cell is used or A1 in case of an empty worksheet
      */
-    private String createRowString(List<Cell> columnFields, Worksheet worksheet)
+    private String createDimensionString(Worksheet worksheet)
     {
-        int rowNumber = columnFields.get(0).getRowNumber();
-        String height = "";
-        String hidden = "";
-        if (worksheet.getRowHeights().containsKey(rowNumber))
+        Range range = worksheet.getUsedRange();
+        if (range == null)
         {
-            if (worksheet.getRowHeights().get(rowNumber) != worksheet.getDefaultRowHeight())
-            {
-                height = " x14ac:dyDescent=\"0.25\" customHeight=\"1\" ht=\"" + worksheet.getRowHeights().get(rowNumber) + "\"";
-            }
+            return "A1";
         }
-        if (worksheet.getHiddenRows().containsKey(rowNumber))
+        if (range.StartAddress.equals(range.EndAddress))
         {
-            if (worksheet.getHiddenRows().get(rowNumber) == true)
-            {
-                hidden = " hidden=\"1\"";
-            }
+            return range.StartAddress.getAddress();
         }
+        return range.toString();
+    }
+
+    /**
+     * Method to append a row string to the string builder of the worksheet
+     * @param sb String builder of the worksheet
+     * @param columnFields List of cells
+     * @param worksheet Worksheet to process
+     * @param formulaWriter Writer for the formulas of the worksheet
+     * @param rowAttributes Cursor over the row heights, hidden rows and row styles of the worksheet
+     */
+    private void appendRowString(StringBuilder sb, List<Cell> columnFields, Worksheet worksheet, SharedFormulaWriter formulaWriter, RowAttributeCursor rowAttributes)
+    {
+        int rowNumber = columnFields.get(0).getRowNumber();
         int colNum = columnFields.size();
-        StringBuilder sb = new StringBuilder(43 * colNum); // A row string size is according to statistics (random value) 43 times the column number
-        //StringBuilder sb = new StringBuilder();
         if (colNum > 0)
         {
             sb.append("<row r=\"");
             sb.append((rowNumber + 1));
-            sb.append("\"").append(height).append(hidden).append(">");
+            sb.append("\" spans=\"");
+            sb.append(columnFields.get(0).getColumnNumber() + 1).append(':').append(columnFields.get(colNum - 1).getColumnNumber() + 1);
+            sb.append("\"");
+            rowAttributes.appendAttributes(sb, rowNumber);
+            sb.append(">");
         }
         else
         {
-            sb.append("<row").append(height).append(">");
+            sb.append("<row>");
         }
         String typeAttribute;
         String sValue, tValue;
         String value = "";
         boolean bVal;
         
-        Date dVal;
         int col = 0;
         Cell item;
         for (int i = 0; i < colNum; i++)
@@ -365,7 +642,7 @@ public class LowLevel {
             tValue = " ";
             if (item.getCellStyle() != null)
             {
-                sValue = " s=\"" + item.getCellStyle().getInternalID() + "\" ";
+                sValue = " s=\"" + (item.getCellStyle().getInternalID() + this.styleOffset) + "\" ";
             }
             else
             {
@@ -399,8 +676,7 @@ public class LowLevel {
             else if (item.getDataType() == Cell.CellType.DATE)
             {
                 typeAttribute = "d";
-                dVal = (Date)item.getValue();
-                value = Double.toString(Helper.getOADate(dVal));
+                value = Helper.formatOADate(Helper.getOADate(item.getValue(), this.dateTimeZone));
             }
             // String parsing
             else
@@ -418,6 +694,11 @@ public class LowLevel {
                         typeAttribute = "str";
                         value = item.getValue().toString();
                     }
+                    else if (this.useInlineStrings == true)
+                    {
+                        typeAttribute = "inlineStr";
+                        value = item.getValue().toString();
+                    }
                     else
                     {
                         typeAttribute = "s";
@@ -437,7 +718,11 @@ public class LowLevel {
                 sb.append("<c").append(tValue).append("r=\"").append(item.getCellAddress()).append("\"").append(sValue).append(">");
                 if (item.getDataType() == Cell.CellType.FORMULA)
                 {
-                    sb.append("<f>").append(LowLevel.escapeXMLChars(item.getValue().toString())).append("</f>");
+                    formulaWriter.appendFormula(sb, item);
+                }
+                else if (typeAttribute.equals("inlineStr") == true)
+                {
+                    sb.append("<is><t>").append(LowLevel.escapeXMLChars(value)).append("</t></is>");
                 }
                 else
                 {
@@ -452,7 +737,6 @@ public class LowLevel {
             col++;
         }
         sb.append("</row>");
-        return sb.toString();
     }
     
      /**
@@ -729,13 +1013,31 @@ public class LowLevel {
         return sb.toString();
     }
     /**
-     * Method to create a style sheet as XML document
-     * @return Formatted XML document
+     * Method to create a style sheet as serialized part. The differential formats of the conditional formatting rules are always registered. The part of a template is frozen as long as no styles were added to the workbook and the differential formats are unchanged
+     * @return Serialized part (UTF-8)
      * @throws StyleException Thrown if a style was not referenced in the style sheet
      * @throws RangeException Thrown if a referenced cell was out of range
      * @throws IOException Thrown in case of an error while creating the XML document
      */
-    private Document createStyleSheetDocument() throws IOException
+    private StaticPart createStyleSheetPart() throws IOException
+    {
+        String differentialFormatsString = createDifferentialFormatsString();
+        Object state = null;
+        if (this.workbook.getStyleManager().isBaseUnchanged() == true)
+        {
+            Metadata md = this.workbook.getWorkbookMetadata();
+            state = Arrays.asList(differentialFormatsString, md == null ? null : md.isUseColorMRU());
+        }
+        return createStaticPart("xl/styles.xml", state, () -> createStyleSheetString(differentialFormatsString), "STYLESHEET");
+    }
+
+    /**
+     * Method to create the XML string of a style sheet
+     * @param differentialFormatsString String with the registered differential formats
+     * @return String with formatted XML data
+     * @throws StyleException Thrown if a style was not referenced in the style sheet
+     */
+    private String createStyleSheetString(String differentialFormatsString)
     {
         String bordersString = createStyleBorderString();
         String fillsString = createStyleFillString();
@@ -770,6 +1072,13 @@ public class LowLevel {
         sb.append(this.workbook.getStyleManager().getStyleNumber());
         sb.append("\">");
         sb.append(xfsStings).append("</cellXfs>");
+        if (this.differentialFormats.isEmpty() == false)
+        {
+            sb.append("<dxfs count=\"");
+            sb.append(this.differentialFormats.size());
+            sb.append("\">");
+            sb.append(differentialFormatsString).append("</dxfs>");
+        }
         if (this.workbook.getWorkbookMetadata() != null)
         {
             if (Helper.isNullOrEmpty(mruColorString) == false && this.workbook.getWorkbookMetadata().isUseColorMRU() == true)
@@ -780,7 +1089,7 @@ public class LowLevel {
             }
         }
         sb.append("</styleSheet>");
-        return createXMLDocument(sb.toString(), "STYLESHEET");
+        return sb.toString();
     }
     
     /**
@@ -916,12 +1225,52 @@ public class LowLevel {
         return sb.toString();
     }    
     /**
-     * Method to create a workbook as XML document
+     * Method to create a table part as XML document. The column names are derived from the header cells (see Worksheet.getTableColumnNames)
+     * @param table Table to process
+     * @param worksheet Worksheet of the table
+     * @param id Table ID (unique in the workbook)
      * @return Formatted XML document
+     * @throws IOException Thrown in case of an error while creating the XML document
+     */
+    private Document createTableDocument(Table table, Worksheet worksheet, int id) throws IOException
+    {
+        Range range = table.getRange();
+        StringBuilder sb = new StringBuilder();
+        sb.append("<table xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" id=\"").append(id);
+        sb.append("\" name=\"").append(escapeXMLAttributeChars(table.getName()));
+        sb.append("\" displayName=\"").append(escapeXMLAttributeChars(table.getName()));
+        sb.append("\" ref=\"").append(range.toString()).append("\" totalsRowShown=\"0\">");
+        if (table.isShowFilterButtons() == true)
+        {
+            sb.append("<autoFilter ref=\"").append(range.toString()).append("\"/>");
+        }
+        List<String> columnNames = worksheet.getTableColumnNames(table);
+        sb.append("<tableColumns count=\"").append(columnNames.size()).append("\">");
+        for (int i = 0; i < columnNames.size(); i++)
+        {
+            sb.append("<tableColumn id=\"").append(i + 1).append("\" name=\"").append(escapeXMLAttributeChars(columnNames.get(i))).append("\"/>");
+        }
+        sb.append("</tableColumns>");
+        sb.append("<tableStyleInfo");
+        if (table.getStyleName() != null)
+        {
+            sb.append(" name=\"").append(table.getStyleName()).append("\"");
+        }
+        sb.append(" showFirstColumn=\"").append(table.isShowFirstColumn() == true ? 1 : 0);
+        sb.append("\" showLastColumn=\"").append(table.isShowLastColumn() == true ? 1 : 0);
+        sb.append("\" showRowStripes=\"").append(table.isShowRowStripes() == true ? 1 : 0);
+        sb.append("\" showColumnStripes=\"").append(table.isShowColumnStripes() == true ? 1 : 0).append("\"/>");
+        sb.append("</table>");
+        return createXMLDocument(sb.toString(), "TABLE: " + table.getName());
+    }
+
+    /**
+     * Method to create a workbook as serialized part
+     * @return Serialized part (UTF-8)
      * @throws RangeException Thrown if a referenced cell was out of range
      * @throws IOException Thrown in case of an error while creating the XML document
      */
-    private Document createWorkbookDocument() throws IOException
+    private StaticPart createWorkbookPart() throws IOException
     {
         if (this.workbook.getWorksheets().isEmpty())
         {
@@ -967,23 +1316,39 @@ public class LowLevel {
         }
         sb.append("</sheets>");
         sb.append("</workbook>");
-        return createXMLDocument(sb.toString(), "WORKBOOK");
+        return createStaticPart("xl/workbook.xml", sb.toString(), "WORKBOOK");
     }
     /**
      * Method to create a worksheet part as XML document
      * @param worksheet worksheet object to process
      * @return Formatted XML document
      * @throws IOException Thrown in case of an error while creating the XML document
+     * @throws java.io.IOException Not thrown, since no writer is used
+     */
+    private Document createWorksheetPart(Worksheet worksheet) throws IOException, java.io.IOException
+    {
+        return createWorksheetPart(worksheet, null);
+    }
+
+    /**
+     * Method to create a worksheet part as XML document or to write it into a writer. If a writer is passed, the XML string is flushed into it in chunks and no document is created. Rows of an off-heap storage are written before the rows on the heap
+     * @param worksheet worksheet object to process
+     * @param spill Writer to flush the XML string into, or null to create a document
+     * @return Formatted XML document, or null if a writer was passed
+     * @throws IOException Thrown in case of an error while creating the XML document
+     * @throws java.io.IOException Thrown in case of an error while writing into the writer
      */
-    private Document createWorksheetPart(Worksheet worksheet) throws IOException
+    private Document createWorksheetPart(Worksheet worksheet, Writer spill) throws IOException, java.io.IOException
     {
         worksheet.recalculateAutoFilter();
         worksheet.recalculateColumns();
+        long startTime = System.nanoTime();
         List<List<Cell>> celldata = getSortedSheetData(worksheet);
-        StringBuilder sb = new StringBuilder();
-        String line;
-        sb.append("<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" xmlns:mc=\"http://schemas.openxmlformats.org/markup-compatibility/2006\" mc:Ignorable=\"x14ac\" xmlns:x14ac=\"http://schemas.microsoft.com/office/spreadsheetml/2009/9/ac\">");
-        
+        reportPhase(SaveListener.Phase.SORT_CELLS, worksheet.getSheetName(), startTime);
+        StringBuilder sb = this.saveContext.getStringBuilder();
+        sb.append("<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\" xmlns:mc=\"http://schemas.openxmlformats.org/markup-compatibility/2006\" mc:Ignorable=\"x14ac\" xmlns:x14ac=\"http://schemas.microsoft.com/office/spreadsheetml/2009/9/ac\">");
+        sb.append("<dimension ref=\"").append(createDimensionString(worksheet)).append("\"/>");
+
         if (worksheet.getSelectedCells() != null)
         {
             sb.append("<sheetViews><sheetView workbookViewId=\"0\"");
@@ -1011,12 +1376,66 @@ public class LowLevel {
             sb.append("</cols>");
         }
         sb.append("<sheetData>");
-        for(int i = 0; i < celldata.size(); i++)
+        startTime = System.nanoTime();
+        SharedFormulaWriter formulaWriter = new SharedFormulaWriter(worksheet, celldata);
+        RowAttributeCursor rowAttributes = new RowAttributeCursor(worksheet, this.styleOffset);
+        int attributeRow = rowAttributes.nextRow(0);
+        int rowNumber;
+        int cellCount = 0;
+        int storedRows = 0;
+        Iterator<List<Cell>> storedData = null;
+        if (worksheet.getOffHeapStore() != null)
         {
-            line = createRowString(celldata.get(i), worksheet);
-            sb.append(line);
+            storedRows = worksheet.getOffHeapStore().getRowCount();
+            storedData = worksheet.getOffHeapStore().rows(worksheet);
+        }
+        int rowCount = storedRows + celldata.size();
+        List<Cell> row;
+        for(int i = 0; i < rowCount; i++)
+        {
+            row = i < storedRows ? storedData.next() : celldata.get(i - storedRows);
+            rowNumber = row.get(0).getRowNumber();
+            while (attributeRow >= 0 && attributeRow < rowNumber)
+            {
+                appendEmptyRow(sb, attributeRow, rowAttributes);
+                attributeRow = rowAttributes.nextRow(attributeRow + 1);
+            }
+            if (attributeRow == rowNumber)
+            {
+                attributeRow = rowAttributes.nextRow(rowNumber + 1);
+            }
+            appendRowString(sb, row, worksheet, formulaWriter, rowAttributes);
+            cellCount += row.size();
+            if (spill != null && sb.length() >= SPILL_THRESHOLD)
+            {
+                spill.write(sb.toString());
+                sb.setLength(0);
+            }
+            if ((i + 1) % ROW_PROGRESS_INTERVAL == 0)
+            {
+                checkCancellation();
+                if (this.saveListener != null)
+                {
+                    this.saveListener.rowsCompleted(worksheet, i + 1, rowCount);
+                }
+            }
+        }
+        while (attributeRow >= 0)
+        {
+            appendEmptyRow(sb, attributeRow, rowAttributes);
+            attributeRow = rowAttributes.nextRow(attributeRow + 1);
+        }
+        if (this.saveListener != null && (rowCount == 0 || rowCount % ROW_PROGRESS_INTERVAL != 0))
+        {
+            this.saveListener.rowsCompleted(worksheet, rowCount, rowCount);
         }
         sb.append("</sheetData>");
+        reportPhase(SaveListener.Phase.CREATE_ROWS, worksheet.getSheetName(), startTime);
+        if (this.saveListener != null)
+        {
+            this.saveStatistics.addWorksheet(rowCount, cellCount);
+            this.saveListener.worksheetCompleted(worksheet, rowCount, cellCount);
+        }
         
         sb.append(createMergedCellsString(worksheet));
         sb.append(createSheetProtectionString(worksheet));
@@ -1024,14 +1443,84 @@ public class LowLevel {
         {
             sb.append("<autoFilter ref=\"").append(worksheet.getAutoFilterRange().toString()).append("\"/>");
         }
+        sb.append(createConditionalFormattingString(worksheet));
+        if (worksheet.getTables().isEmpty() == false)
+        {
+            sb.append("<tableParts count=\"").append(worksheet.getTables().size()).append("\">");
+            for (int i = 0; i < worksheet.getTables().size(); i++)
+            {
+                sb.append("<tablePart r:id=\"rId").append(i + 1).append("\"/>");
+            }
+            sb.append("</tableParts>");
+        }
         sb.append("</worksheet>");
 
         //testing.Performance.SaveLoggedValues("LineLength.xlsx");
+        if (spill != null)
+        {
+            spill.write(sb.toString());
+            return null;
+        }
         return createXMLDocument(sb.toString(), "WORKSHEET: " + worksheet.getSheetName());
     }
     
     /**
-     * Creates a XML document from a string
+     * Creates a serialized static part from a string. If the workbook was created from a template, the cached part of the template is reused as long as the string is unchanged
+     * @param name Part name with relative path
+     * @param rawInput String to process
+     * @param title Title for interception / debugging purpose
+     * @return Serialized part (UTF-8)
+     * @throws IOException Thrown in case of an error while creating or transforming the XML document
+     */
+    StaticPart createStaticPart(String name, String rawInput, String title) throws IOException
+    {
+        return createStaticPart(name, null, () -> rawInput, title);
+    }
+
+    /**
+     * Creates a serialized static part. If the workbook was created from a template, the cached part of the template is reused without generating the string as long as the frozen state is equal, otherwise as long as the string is unchanged. A new part is created, transformed, deflated and put into the cache
+     * @param name Part name with relative path
+     * @param state Frozen state of the part or null if the part cannot be frozen. The state must define the string completely
+     * @param rawInput Generator of the string to process
+     * @param title Title for interception / debugging purpose
+     * @return Serialized part (UTF-8). Parts of a template are compressed
+     * @throws IOException Thrown in case of an error while creating or transforming the XML document
+     */
+    private StaticPart createStaticPart(String name, Object state, Supplier<String> rawInput, String title) throws IOException
+    {
+        StaticPart part;
+        if (this.partCache != null && state != null)
+        {
+            part = this.partCache.get(name, state);
+            if (part != null)
+            {
+                return part;
+            }
+        }
+        String raw = rawInput.get();
+        if (this.partCache != null)
+        {
+            part = this.partCache.get(name, state, raw);
+            if (part != null)
+            {
+                return part;
+            }
+        }
+        Document document = createXMLDocument(raw, title);
+        long startTime = System.nanoTime();
+        byte[] data = transformDocument(document);
+        reportPhase(SaveListener.Phase.TRANSFORM_DOCUMENT, name, startTime);
+        if (this.partCache == null)
+        {
+            return new StaticPart(data);
+        }
+        part = StaticPart.deflate(data, this.saveContext);
+        this.partCache.put(name, state, raw, part);
+        return part;
+    }
+
+    /**
+     * Creates a XML document from a string. The document builder of the save context is reused
      * @param rawInput String to process
      * @param title Title for interception / debugging purpose
      * @return Formatted XML document
@@ -1039,13 +1528,11 @@ public class LowLevel {
      */
     public Document createXMLDocument(String rawInput, String title) throws IOException
     {
+        long startTime = System.nanoTime();
+        SaveContext context = this.saveContext != null ? this.saveContext : SaveContext.acquire();
         try
         {
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();   
-        DocumentBuilder docBuilder = factory.newDocumentBuilder();
-        InputSource input = new InputSource(new StringReader( rawInput ));
-        input.setEncoding("UTF-8");
-        Document doc = docBuilder.parse( input );
+        Document doc = context.parse(rawInput);
         doc.setXmlVersion("1.0");
         doc.setXmlStandalone(true);
         if (this.interceptDocuments == true)
@@ -1053,13 +1540,43 @@ public class LowLevel {
             this.interceptedDocuments.put(title, doc);
             System.out.println("DEBUG: Document '" + title + "' was intercepted");
         }
+        reportPhase(SaveListener.Phase.PARSE_DOCUMENT, title, startTime);
         return doc;
         }
         catch(Exception e)
         {
             throw new IOException("XmlDocumentException","There was an error while creating the XML document. Please see the inner exception.", e);
         }
+        finally
+        {
+            if (context != this.saveContext)
+            {
+                SaveContext.release(context);
+            }
+        }
     }    
+
+    /**
+     * Converts a XML document into a byte array with the transformer of the save context
+     * @param document Document to process
+     * @return array of bytes (UTF-8)
+     * @throws IOException Thrown if the document could not be converted to a byte array
+     */
+    byte[] transformDocument(Document document) throws IOException
+    {
+        if (this.saveContext == null)
+        {
+            return createBytesFromDocument(document);
+        }
+        try
+        {
+            return this.saveContext.transform(document);
+        }
+        catch(Exception e)
+        {
+            throw new IOException("ByteSteamException","There was an error while creating the byte array. Please see the inner exception.", e);
+        }
+    }
     
     /**
      * Gets the number of custom number formats
@@ -1121,88 +1638,413 @@ public class LowLevel {
     /**
      * Method to save the workbook
      * @throws IOException Thrown in case of an error
+     * @throws MemoryBudgetException Thrown if the estimated heap usage exceeds the memory budget of the workbook. The file is not created in this case
      */
     public void save() throws IOException
     {
+        this.workbook.checkMemoryBudget();
+        FileChannel dest = null;
+        Path target = Paths.get(this.workbook.getFilename());
+        Path output = target;
         try
         {
-            FileOutputStream dest = new FileOutputStream(this.workbook.getFilename());
-            saveAsStream(dest);
+            AppendSource source = this.workbook.getAppendSource();
+            if (source != null && Files.exists(target) == true && Files.isSameFile(target, source.getPath()) == true)
+            {
+                // The existing file is read while saving, so the new file is moved over it afterwards
+                output = Files.createTempFile(target.toAbsolutePath().getParent(), "picoxlsx4j-append", ".xlsx");
+                if (Files.getFileStore(target).supportsFileAttributeView(PosixFileAttributeView.class) == true)
+                {
+                    Files.setPosixFilePermissions(output, Files.getPosixFilePermissions(target));
+                }
+            }
+            dest = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            saveAsChannel(dest);
+            if (output != target)
+            {
+                Files.move(output, target, StandardCopyOption.REPLACE_EXISTING);
+            }
         }
         catch (Exception e)
         {
+            if (dest != null)
+            {
+                try
+                {
+                    dest.close();
+                }
+                catch (java.io.IOException ex)
+                {
+                    // Ignore, the original exception is thrown
+                }
+            }
+            if (output != target)
+            {
+                new File(output.toString()).delete(); // The existing file is kept
+            }
+            if (isCancelled() == true && e instanceof IOException)
+            {
+                if (output == target)
+                {
+                    new File(this.workbook.getFilename()).delete();
+                }
+                throw (IOException)e;
+            }
             throw new IOException("SaveException","There was an error while creating the workbook document during saving to a file. Please see the inner exception:" + e.getMessage(), e);
         }   
     }
     
+    /**
+     * Method to save the workbook to a channel. The data is written through a direct buffer. A seekable channel is truncated after the written data. The channel is closed after saving
+     * @param channel Channel to write into
+     * @throws IOException Thrown in case of an error or if the save process was cancelled (title: SaveCancelledException)
+     */
+    public void saveAsChannel(WritableByteChannel channel) throws IOException
+    {
+        saveAsStream(new ChannelOutputStream(channel, CHANNEL_BUFFER_SIZE));
+    }
+
+    /**
+     * Method to save the workbook to an asynchronous file channel, starting at position 0. The compression of the next block overlaps with the pending write of the previous one. The channel is truncated after the written data and closed after saving
+     * @param channel Channel to write into
+     * @throws IOException Thrown in case of an error or if the save process was cancelled (title: SaveCancelledException)
+     */
+    public void saveAsChannel(AsynchronousFileChannel channel) throws IOException
+    {
+        saveAsStream(new AsyncChannelOutputStream(channel, CHANNEL_BUFFER_SIZE));
+    }
+
+    /**
+     * Method to save the workbook to a stream. The stream is closed after saving
+     * @param stream Stream to write into
+     * @throws IOException Thrown in case of an error or if the save process was cancelled (title: SaveCancelledException)
+     * @throws MemoryBudgetException Thrown if the estimated heap usage exceeds the memory budget of the workbook. Nothing is written in this case
+     */
     public void saveAsStream(OutputStream stream) throws IOException
     {
+        this.workbook.checkMemoryBudget();
+        List<Path> partFiles = new ArrayList<>();
+        this.saveContext = SaveContext.acquire();
           try
         {
+            long saveStartTime = System.nanoTime();
+            if (this.saveListener != null)
+            {
+                this.saveListener.saveStarted(this.workbook);
+            }
+            long startTime = System.nanoTime();
+            for (Worksheet worksheet : this.workbook.getWorksheets())
+            {
+                worksheet.mergeRowBlocks();
+            }
             this.workbook.resolveMergedCells();
-            Document doc;
-            Document app = createAppPropertiesDocument();
-            Document core = createCorePropertiesDocument();
-            Document styles = createStyleSheetDocument();
-            Document book = createWorkbookDocument();
-            String file;
-            Worksheet sheet;
-            Packer p = new Packer(this);
-            Packer.Relationship rel = p.createRelationship("_rels/.rels");
-            rel.addRelationshipEntry("/xl/workbook.xml", "http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument");
-            rel.addRelationshipEntry("/docProps/core.xml", "http://schemas.openxmlformats.org/package/2006/relationships/metadata/core-properties");
-            rel.addRelationshipEntry("/docProps/app.xml", "http://schemas.openxmlformats.org/officeDocument/2006/relationships/extended-properties");
-            rel = p.createRelationship("xl/_rels/workbook.xml.rels");
-            for(int i = 0; i < this.workbook.getWorksheets().size(); i++)
-            {
-                sheet = this.workbook.getWorksheets().get(i);
-                doc = createWorksheetPart(sheet);
-                file = "sheet" + sheet.getSheetID() + ".xml";
-                rel.addRelationshipEntry("/xl/worksheets/" + file, "http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet");
-                p.addPart("xl/worksheets/" + file, "application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml", doc);
-            }
-            rel.addRelationshipEntry("/xl/styles.xml", "http://schemas.openxmlformats.org/officeDocument/2006/relationships/styles");
-            rel.addRelationshipEntry("/xl/sharedStrings.xml", "http://schemas.openxmlformats.org/officeDocument/2006/relationships/sharedStrings");
-            p.addPart("docProps/core.xml", "application/vnd.openxmlformats-package.core-properties+xml", core);
-            p.addPart("docProps/app.xml", "application/vnd.openxmlformats-officedocument.extended-properties+xml", app);
-            p.addPart("xl/sharedStrings.xml", "application/vnd.openxmlformats-officedocument.spreadsheetml.sharedStrings+xml", createSharedStringsDocument());
-            p.addPart("xl/workbook.xml", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml", book, false);
-            p.addPart("xl/styles.xml", "application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml", styles);
+            reportPhase(SaveListener.Phase.RESOLVE_MERGED_CELLS, null, startTime);
+            Packer p;
+            if (this.workbook.getAppendSource() != null)
+            {
+                p = createAppendedPackage(this.workbook.getAppendSource(), partFiles);
+            }
+            else
+            {
+                p = createPackage(partFiles);
+            }
             p.pack(stream);
+            if (this.cancellationToken != null)
+            {
+                this.cancellationToken.complete(); // A cancellation after the last check aborts here, so that the output is discarded
+            }
+            if (this.saveListener != null)
+            {
+                this.saveStatistics.setSharedStrings(this.sharedStringsTotalCount, this.sharedStrings.size());
+                this.saveStatistics.setTotalDuration(System.nanoTime() - saveStartTime);
+                this.saveListener.saveCompleted(this.saveStatistics);
+            }
         }
         catch (Exception e)
         {
+            if (isCancelled() == true && e instanceof IOException)
+            {
+                throw (IOException)e;
+            }
             throw new IOException("SaveException","There was an error while creating the workbook document during writing to a stream. Please see the inner exception:" + e.getMessage(), e);
-        }      
-    }    
+        }
+        finally
+        {
+            SaveContext.release(this.saveContext);
+            this.saveContext = null;
+            for (Path partFile : partFiles)
+            {
+                try
+                {
+                    Files.deleteIfExists(partFile);
+                }
+                catch (java.io.IOException e)
+                {
+                    partFile.toFile().deleteOnExit();
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates the parts of a new XLSX file and adds them to a packer
+     * @param partFiles List of temporary part files to delete after packing. Part files of worksheets with off-heap storage and of very large worksheets are added to this list
+     * @return Packer with all parts
+     * @throws IOException Thrown in case of an error while creating the parts
+     * @throws java.io.IOException Thrown in case of an error while writing a temporary part file
+     */
+    private Packer createPackage(List<Path> partFiles) throws IOException, java.io.IOException
+    {
+        StaticPart app = createAppPropertiesPart();
+        StaticPart core = createCorePropertiesPart();
+        StaticPart styles = createStyleSheetPart();
+        StaticPart book = createWorkbookPart();
+        Worksheet sheet;
+        int tableId = 1;
+        Packer p = new Packer(this);
+        Packer.Relationship rel = p.createRelationship("_rels/.rels");
+        rel.addRelationshipEntry("/xl/workbook.xml", "http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument");
+        rel.addRelationshipEntry("/docProps/core.xml", "http://schemas.openxmlformats.org/package/2006/relationships/metadata/core-properties");
+        rel.addRelationshipEntry("/docProps/app.xml", "http://schemas.openxmlformats.org/officeDocument/2006/relationships/extended-properties");
+        rel = p.createRelationship("xl/_rels/workbook.xml.rels");
+        for(int i = 0; i < this.workbook.getWorksheets().size(); i++)
+        {
+            checkCancellation();
+            sheet = this.workbook.getWorksheets().get(i);
+            tableId = addWorksheetParts(p, rel, sheet, sheet.getSheetID(), tableId, partFiles);
+        }
+        rel.addRelationshipEntry("/xl/styles.xml", "http://schemas.openxmlformats.org/officeDocument/2006/relationships/styles");
+        rel.addRelationshipEntry("/xl/sharedStrings.xml", "http://schemas.openxmlformats.org/officeDocument/2006/relationships/sharedStrings");
+        p.addPart("docProps/core.xml", "application/vnd.openxmlformats-package.core-properties+xml", core, true);
+        p.addPart("docProps/app.xml", "application/vnd.openxmlformats-officedocument.extended-properties+xml", app, true);
+        p.addPart("xl/sharedStrings.xml", "application/vnd.openxmlformats-officedocument.spreadsheetml.sharedStrings+xml", createSharedStringsDocument());
+        p.addPart("xl/workbook.xml", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml", book, false);
+        p.addPart("xl/styles.xml", "application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml", styles, true);
+        addCustomParts(p, null);
+        return p;
+    }
+
+    /**
+     * Creates the parts of the appended worksheets and the merged index parts (workbook, relationships, style sheet) of an existing XLSX file and adds them to a packer. All other entries of the existing file are copied by the packer. The appended worksheets use inline strings, so that the shared strings of the existing file are copied unchanged
+     * @param source Existing file to append to
+     * @param partFiles List of temporary part files to delete after packing. Part files of worksheets with off-heap storage and of very large worksheets are added to this list
+     * @return Packer with the new and merged parts
+     * @throws IOException Thrown in case of an error while creating or merging the parts, or if the existing file was modified
+     * @throws java.io.IOException Thrown in case of an error while writing a temporary part file
+     */
+    private Packer createAppendedPackage(AppendSource source, List<Path> partFiles) throws IOException, java.io.IOException
+    {
+        source.checkUnchanged();
+        AppendSource.MergedStyleSheet styles = source.mergeStyleSheet(createStyleSheetPart().getData());
+        this.styleOffset = styles.getStyleOffset();
+        this.differentialFormatOffset = styles.getDifferentialFormatOffset();
+        this.useInlineStrings = true;
+        Packer p = new Packer(this, source);
+        Packer.Relationship rel = p.createRelationship("xl/_rels/workbook.xml.rels", source.getMaxRelationshipId("xl/_rels/workbook.xml.rels") + 1);
+        List<Integer> sheetIds = new ArrayList<>();
+        int tableId = source.getMaxTableId() + 1;
+        int id;
+        for (Worksheet sheet : this.workbook.getWorksheets())
+        {
+            checkCancellation();
+            id = source.getMaxSheetId() + sheet.getSheetID();
+            if (source.containsEntry("xl/worksheets/sheet" + id + ".xml") == true)
+            {
+                throw new IOException("AppendException", "The worksheet part 'xl/worksheets/sheet" + id + ".xml' already exists in the file '" + source.getPath() + "'.");
+            }
+            sheetIds.add(id);
+            tableId = addWorksheetParts(p, rel, sheet, id, tableId, partFiles);
+        }
+        p.addPart("xl/workbook.xml", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml", source.mergeWorkbook(this.workbook.getWorksheets(), sheetIds, rel.getIdList()), false);
+        p.addPart("xl/styles.xml", "application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml", styles.getData(), true);
+        addCustomParts(p, source);
+        return p;
+    }
+
+    /**
+     * Adds the custom parts of the workbook and their relationships to a packer. The custom parts must not replace generated parts or entries of an existing file
+     * @param p Packer to add the parts to
+     * @param source Existing file to append to or null if a new file is packed
+     * @throws IOException Thrown if the name of a custom part is already used, or if a custom part cannot be added
+     */
+    private void addCustomParts(Packer p, AppendSource source) throws IOException
+    {
+        List<CustomPart> customParts = this.workbook.getCustomParts();
+        for (CustomPart part : customParts)
+        {
+            if (p.containsPart(part.getName()) == true || (source != null && source.containsEntry(part.getName()) == true))
+            {
+                throw new IOException("PackingException", "The custom part '" + part.getName() + "' cannot be added, since a part with the same name already exists.");
+            }
+        }
+        for (CustomPart part : customParts)
+        {
+            part.addToPackage(p);
+        }
+        for (CustomPart part : customParts)
+        {
+            if (p.containsRelationship(part.getName()) == true)
+            {
+                throw new IOException("PackingException", "The custom part '" + part.getName() + "' cannot be added, since it has the name of a relationship part.");
+            }
+        }
+    }
+
+    /**
+     * Creates the part of a worksheet and the parts of its tables, and adds them to a packer
+     * @param p Packer to add the parts to
+     * @param rel Relationship of the workbook part
+     * @param sheet Worksheet to process
+     * @param id Number of the worksheet part (sheet[id].xml)
+     * @param tableId ID of the first table of the worksheet (unique in the workbook)
+     * @param partFiles List of temporary part files to delete after packing. The part file of a worksheet with off-heap storage or of a very large worksheet is added to this list
+     * @return ID of the next table
+     * @throws IOException Thrown in case of an error while creating the parts
+     * @throws java.io.IOException Thrown in case of an error while writing a temporary part file
+     */
+    private int addWorksheetParts(Packer p, Packer.Relationship rel, Worksheet sheet, int id, int tableId, List<Path> partFiles) throws IOException, java.io.IOException
+    {
+        String file = "sheet" + id + ".xml";
+        rel.addRelationshipEntry("/xl/worksheets/" + file, "http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet");
+        if (sheet.isOffHeapStorage() == true || (sheet.getCells().size() >= LARGE_WORKSHEET_CELLS && this.interceptDocuments == false))
+        {
+            p.addPart("xl/worksheets/" + file, "application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml", createWorksheetPartFile(sheet, partFiles));
+        }
+        else
+        {
+            p.addPart("xl/worksheets/" + file, "application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml", createWorksheetPart(sheet));
+        }
+        if (sheet.getTables().isEmpty() == false)
+        {
+            Packer.Relationship sheetRel = p.createRelationship("xl/worksheets/_rels/" + file + ".rels");
+            for (Table table : sheet.getTables())
+            {
+                sheetRel.addRelationshipEntry("/xl/tables/table" + tableId + ".xml", "http://schemas.openxmlformats.org/officeDocument/2006/relationships/table");
+                p.addPart("xl/tables/table" + tableId + ".xml", "application/vnd.openxmlformats-officedocument.spreadsheetml.table+xml", createTableDocument(table, sheet, tableId));
+                tableId++;
+            }
+        }
+        return tableId;
+    }
+
+    /**
+     * Writes the worksheet part of a worksheet with off-heap storage or a very large worksheet into a temporary file. The file is created in the directory of the storage or in the default temporary directory. The rows are streamed into the file and no XML document is created
+     * @param worksheet Worksheet with off-heap storage or with at least LARGE_WORKSHEET_CELLS cells
+     * @param partFiles List of temporary part files to delete after packing. The new file is added to this list
+     * @return Temporary file with the serialized worksheet part
+     * @throws IOException Thrown in case of an error while creating the worksheet part
+     * @throws java.io.IOException Thrown in case of an error while writing the temporary file
+     */
+    private Path createWorksheetPartFile(Worksheet worksheet, List<Path> partFiles) throws IOException, java.io.IOException
+    {
+        Path partFile;
+        if (worksheet.getOffHeapStore() != null)
+        {
+            partFile = Files.createTempFile(worksheet.getOffHeapStore().getDirectory(), "picoxlsx4j-sheet", ".xml");
+        }
+        else
+        {
+            partFile = Files.createTempFile("picoxlsx4j-sheet", ".xml");
+        }
+        partFiles.add(partFile);
+        try (Writer writer = Files.newBufferedWriter(partFile, StandardCharsets.UTF_8))
+        {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+            createWorksheetPart(worksheet, writer);
+        }
+        return partFile;
+    }
     
+    /**
+     * Gets the context of the current save process
+     * @return Context with the reusable resources or null if no save process is running
+     */
+    SaveContext getSaveContext()
+    {
+        return this.saveContext;
+    }
+
+    /**
+     * Checks whether the save process was cancelled
+     * @return True if a cancellation token is defined and was cancelled, otherwise false
+     */
+    boolean isCancelled()
+    {
+        return this.cancellationToken != null && this.cancellationToken.isCancelled();
+    }
+
+    /**
+     * Throws an IOException if the save process was cancelled
+     * @throws IOException Thrown if the cancellation token was cancelled (title: SaveCancelledException)
+     */
+    void checkCancellation() throws IOException
+    {
+        if (this.cancellationToken != null)
+        {
+            this.cancellationToken.throwIfCancelled();
+        }
+    }
+
+    /**
+     * Reports a completed phase of the save process to the save listener of the workbook, if defined
+     * @param phase Completed phase
+     * @param partName Name of the processed part or worksheet. Null for workbook wide phases
+     * @param startTime Start time of the phase (System.nanoTime)
+     */
+    void reportPhase(SaveListener.Phase phase, String partName, long startTime)
+    {
+        if (this.saveListener == null) { return; }
+        long duration = System.nanoTime() - startTime;
+        this.saveStatistics.addPhaseDuration(phase, duration);
+        this.saveListener.phaseCompleted(phase, partName, duration);
+    }
+
+    /**
+     * Reports a written part of the zip container to the save listener of the workbook, if defined
+     * @param partName Name of the part with relative path
+     * @param rawBytes Uncompressed size in bytes
+     * @param compressedBytes Compressed size in bytes
+     */
+    void reportPart(String partName, long rawBytes, long compressedBytes)
+    {
+        if (this.saveListener == null) { return; }
+        this.saveStatistics.addPart(rawBytes, compressedBytes);
+        this.saveListener.partWritten(partName, rawBytes, compressedBytes);
+    }
+
+    /**
+     * Reports the number of written parts to the save listener of the workbook, if defined
+     * @param completedParts Number of written parts
+     * @param totalParts Total number of parts
+     */
+    void reportPartsCompleted(int completedParts, int totalParts)
+    {
+        if (this.saveListener == null) { return; }
+        this.saveListener.partsCompleted(completedParts, totalParts);
+    }
+
 // ### S T A T I C   M E T H O D S ###        
     /**
-     * Method to convert an XML document to a byte array
+     * Method to convert an XML document to a byte array. The transformer is taken from the pool of save contexts
      * @param document Document to process
      * @return array of bytes (UTF-8)
      * @throws IOException Thrown if the document could not be converted to a byte array
      */
     public static byte[] createBytesFromDocument(Document document) throws IOException
     {
+        SaveContext context = SaveContext.acquire();
         try
         {
-            Transformer transformer = TransformerFactory.newInstance().newTransformer();
-            transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
-            ByteArrayOutputStream bs = new ByteArrayOutputStream();
-            Result output = new StreamResult(bs);
-            Source input = new DOMSource(document);
-            
-            transformer.transform(input, output);
-            bs.flush();
-            byte[] bytes = bs.toByteArray();
-            bs.close();
-            return bytes;
+            return context.transform(document);
         }
         catch(Exception e)
         {
             throw new IOException("ByteSteamException","There was an error while creating the byte array. Please see the inner exception.", e);
         }
+        finally
+        {
+            SaveContext.release(context);
+        }
     }    
 
     /**
@@ -1221,7 +2063,7 @@ public class LowLevel {
      * @param input Input string to process
      * @return Escaped string
      */
-    private static String escapeXMLChars(String input)
+    public static String escapeXMLChars(String input)
     {
         int len = input.length();
         List<Integer> illegalCharacters = new ArrayList<>(len);
@@ -6,18 +6,25 @@
  */
 package ch.rabanti.picoxlsx4j.lowLevel;
 
+import ch.rabanti.picoxlsx4j.SaveListener;
 import org.w3c.dom.Document;
 
 import java.io.BufferedOutputStream;
+import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.charset.Charset;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.Set;
 
 /**
- * Class representing packer to compile XLSX files
+ * Class representing packer to compile XLSX files<br>
+ * Besides XML documents, binary parts (e.g. images or prebuilt XML) can be added from files, buffers or streams. They are streamed into the package without loading them completely into memory. Already deflated data can be added with its CRC and size and is written without recompression
  * @author Raphael Stoeckli
  */
 public class Packer {
@@ -30,12 +37,13 @@ public class Packer {
     private static final String CONTENT_TYPE_DOCUMENT = "[Content_Types].xml";
     
 // ### P R I V A T E  F I E L D S ###    
-    private final List<String> contentTypeList;
-    private final List<byte[]> dataList;
-    private final List<Boolean> includeContentType;
-    private final List<String> pathList;
+    private final AppendSource appendSource;
+    private final Set<String> partNames;
+    private final List<PartData> parts;
     private final List<Relationship> relationships;
     private final LowLevel lowLevelReference;
+    private int completedParts;
+    private int totalParts;
     
 // ### C O N S T R U C T O R S ###
     /**
@@ -44,11 +52,20 @@ public class Packer {
      */
     public Packer(LowLevel reference)
     {
-        dataList = new ArrayList<>();
-        pathList = new ArrayList<>();
-        contentTypeList = new ArrayList<>();
+        this(reference, null);
+    }
+
+    /**
+     * Constructor with an existing file to append to. The unchanged entries of the file are copied as compressed bytes, the content types and existing relationships are merged
+     * @param reference Reference to the low level instance
+     * @param appendSource Existing file to append to. If null, a new file is packed
+     */
+    Packer(LowLevel reference, AppendSource appendSource)
+    {
+        this.appendSource = appendSource;
+        parts = new ArrayList<>();
+        partNames = new HashSet<>();
         relationships = new ArrayList<>();
-        includeContentType = new ArrayList<>();
         this.lowLevelReference = reference;
     }
     
@@ -62,10 +79,145 @@ public class Packer {
      */
     public void addPart(String name, String contentType, Document document) throws ch.rabanti.picoxlsx4j.exception.IOException
     {
-        dataList.add(LowLevel.createBytesFromDocument(document));
-        pathList.add(name);
-        contentTypeList.add(contentType);
-        includeContentType.add(true);
+        addPart(name, contentType, transformDocument(name, document), true);
+    }
+
+    /**
+     * Adds an already serialized Part to the file
+     * @param name Filename with relative path
+     * @param contentType URL with information about the content type (MSXML).<br>This information is used in the main content type file
+     * @param data Serialized XML data (UTF-8)
+     * @param includeInContentType If true, the content type will be added in the main content type file, otherwise not
+     */
+    void addPart(String name, String contentType, byte[] data, boolean includeInContentType)
+    {
+        PartData part = new PartData(name, contentType, includeInContentType);
+        part.data = data;
+        part.compress = true;
+        addPartData(part);
+    }
+
+    /**
+     * Adds a static Part to the file. A compressed part is written without recompression
+     * @param name Filename with relative path
+     * @param contentType URL with information about the content type (MSXML).<br>This information is used in the main content type file
+     * @param part Serialized static part
+     * @param includeInContentType If true, the content type will be added in the main content type file, otherwise not
+     */
+    void addPart(String name, String contentType, StaticPart part, boolean includeInContentType)
+    {
+        if (part.isCompressed() == true)
+        {
+            addCompressedPart(name, contentType, ByteBuffer.wrap(part.getDeflatedData()), part.getCrc(), part.getData().length, includeInContentType);
+        }
+        else
+        {
+            addPart(name, contentType, part.getData(), includeInContentType);
+        }
+    }
+
+    /**
+     * Adds a Part to the file, which is streamed from an already serialized (UTF-8) file while packing. The file is not deleted by the packer
+     * @param name Filename with relative path
+     * @param contentType URL with information about the content type (MSXML).<br>This information is used in the main content type file
+     * @param file File with the serialized XML data
+     */
+    void addPart(String name, String contentType, Path file)
+    {
+        addPart(name, contentType, file, true, true);
+    }
+
+    /**
+     * Adds a binary Part to the file, which is streamed from a file while packing (e.g. an image). The file is not loaded into memory and not deleted by the packer. Uncompressed parts are read once and written into the package without passing the heap, if the package is written into a file channel
+     * @param name Filename with relative path
+     * @param contentType URL with information about the content type (MSXML).<br>This information is used in the main content type file
+     * @param file File with the data of the part
+     * @param compress If true, the part will be deflated, otherwise it is stored without compression (recommended for already compressed formats like PNG or JPEG)
+     * @param includeInContentType If true, the content type will be added in the main content type file, otherwise not
+     */
+    public void addPart(String name, String contentType, Path file, boolean compress, boolean includeInContentType)
+    {
+        PartData part = new PartData(name, contentType, includeInContentType);
+        part.file = file;
+        part.compress = compress;
+        addPartData(part);
+    }
+
+    /**
+     * Adds a binary Part to the file from a buffer. The bytes between the position and the limit of the buffer are written while packing. The buffer is not copied, so its content must not be modified until the file is packed
+     * @param name Filename with relative path
+     * @param contentType URL with information about the content type (MSXML).<br>This information is used in the main content type file
+     * @param data Buffer with the data of the part (heap or direct buffer)
+     * @param compress If true, the part will be deflated, otherwise it is stored without compression
+     * @param includeInContentType If true, the content type will be added in the main content type file, otherwise not
+     */
+    public void addPart(String name, String contentType, ByteBuffer data, boolean compress, boolean includeInContentType)
+    {
+        PartData part = new PartData(name, contentType, includeInContentType);
+        part.buffer = data.slice();
+        part.compress = compress;
+        addPartData(part);
+    }
+
+    /**
+     * Adds a binary Part to the file, which is read from a stream while packing. The part is always deflated, since the size and CRC of the data are not known in advance. For the same reason, the data must not exceed 4 GB (use a file part for larger data). The stream is read to its end but not closed by the packer
+     * @param name Filename with relative path
+     * @param contentType URL with information about the content type (MSXML).<br>This information is used in the main content type file
+     * @param data Stream with the data of the part
+     * @param includeInContentType If true, the content type will be added in the main content type file, otherwise not
+     */
+    public void addPart(String name, String contentType, InputStream data, boolean includeInContentType)
+    {
+        PartData part = new PartData(name, contentType, includeInContentType);
+        part.stream = data;
+        part.compress = true;
+        addPartData(part);
+    }
+
+    /**
+     * Adds an already deflated Part to the file. The data is written into the package without recompression
+     * @param name Filename with relative path
+     * @param contentType URL with information about the content type (MSXML).<br>This information is used in the main content type file
+     * @param deflatedData Buffer with the raw deflated data (without zlib header, e.g. created by a Deflater with the option nowrap) between its position and limit. The buffer is not copied
+     * @param crc CRC-32 of the uncompressed data
+     * @param size Size of the uncompressed data in bytes
+     * @param includeInContentType If true, the content type will be added in the main content type file, otherwise not
+     */
+    public void addCompressedPart(String name, String contentType, ByteBuffer deflatedData, long crc, long size, boolean includeInContentType)
+    {
+        PartData part = new PartData(name, contentType, includeInContentType);
+        part.buffer = deflatedData.slice();
+        part.compressed = true;
+        part.crc = crc;
+        part.size = size;
+        addPartData(part);
+    }
+
+    /**
+     * Checks whether a Part with the defined name was already added. The main content type file and the rels files of the created relationships are considered as parts
+     * @param name Filename with relative path
+     * @return True if the part exists
+     */
+    boolean containsPart(String name)
+    {
+        return this.partNames.contains(name) || CONTENT_TYPE_DOCUMENT.equals(name) || containsRelationship(name);
+    }
+
+    /**
+     * Checks whether a relationship of a rels file was already created
+     * @param path relative path and filename to rels file (e.g. _rels/.rels)
+     * @return True if the relationship exists
+     */
+    boolean containsRelationship(String path)
+    {
+        for (Relationship relationship : this.relationships)
+        {
+            if (relationship.getRootFolder().equals(path) == true)
+            {
+                return true;
+            }
+        }
+        return false;
     }
     
     /**
@@ -78,11 +230,18 @@ public class Packer {
      */
     public void addPart(String name, String contentType, Document document, boolean includeInContentType) throws ch.rabanti.picoxlsx4j.exception.IOException
     {
-        dataList.add(LowLevel.createBytesFromDocument(document));
-        pathList.add(name);
-        contentTypeList.add(contentType);
-        includeContentType.add(includeInContentType);
-    }    
+        addPart(name, contentType, transformDocument(name, document), includeInContentType);
+    }
+
+    /**
+     * Adds the data of a Part to the list of parts
+     * @param part Part to add
+     */
+    private void addPartData(PartData part)
+    {
+        this.parts.add(part);
+        this.partNames.add(part.name);
+    }
     
     
     /**
@@ -90,25 +249,36 @@ public class Packer {
      * @return Returns the byte array to add into the compilation
      * @throws ch.rabanti.picoxlsx4j.exception.IOException Thrown if the document could not be converted to a byte array
      */
-    private byte[] createContentTypeDocument() throws ch.rabanti.picoxlsx4j.exception.IOException
+    private StaticPart createContentTypeDocument() throws ch.rabanti.picoxlsx4j.exception.IOException
     {
+        if (this.appendSource != null)
+        {
+            List<String> names = new ArrayList<>();
+            List<String> contentTypes = new ArrayList<>();
+            for (PartData part : this.parts)
+            {
+                if (part.includeInContentType == false) { continue; }
+                names.add(part.name);
+                contentTypes.add(part.contentType);
+            }
+            return new StaticPart(this.appendSource.mergeContentTypes(CONTENT_TYPE_DOCUMENT, names, contentTypes));
+        }
         StringBuilder sb = new StringBuilder();
         sb.append("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">\r\n");
         sb.append("<Default Extension=\"xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\" />\r\n");        
         sb.append("<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\" />\r\n");
 
-        for (int i = 0; i < this.contentTypeList.size(); i++)
+        for (PartData part : this.parts)
         {
-            if (this.includeContentType.get(i) == false) { continue; }
+            if (part.includeInContentType == false) { continue; }
             sb.append("<Override PartName=\"/");
-            sb.append(this.pathList.get(i));
+            sb.append(part.name);
             sb.append("\" ContentType=\"");
-            sb.append(this.contentTypeList.get(i));
+            sb.append(part.contentType);
             sb.append("\" />\r\n");
         }
         sb.append("</Types>");
-        Document d = this.lowLevelReference.createXMLDocument(sb.toString(), "CONTENTTYPE");
-        return LowLevel.createBytesFromDocument(d);
+        return this.lowLevelReference.createStaticPart(CONTENT_TYPE_DOCUMENT, sb.toString(), "CONTENTTYPE");
     }
     /**
      * Creates a relationship. This will be used to generate a .rels file in the compilation (MSXML)
@@ -121,6 +291,41 @@ public class Packer {
         this.relationships.add(r);
         return r;
     }
+
+    /**
+     * Creates a relationship with a defined first ID. This is used to continue the IDs of an existing relationship file when appending
+     * @param path relative path and filename to rels file (e.g. xl/_rels/workbook.xml.rels)
+     * @param firstId Number of the first ID (rId...)
+     * @return Returns the object reference to add relationship entries
+     */
+    Relationship createRelationship(String path, int firstId)
+    {
+        Relationship r = createRelationship(path);
+        r.currentId = firstId;
+        return r;
+    }
+
+    /**
+     * Gets the relationship of a rels file. If the relationship was not created yet, it is created. When appending to an existing file, the IDs of a new relationship continue the IDs of the existing rels file
+     * @param path relative path and filename to rels file (e.g. xl/_rels/workbook.xml.rels)
+     * @return Returns the object reference to add relationship entries
+     * @throws ch.rabanti.picoxlsx4j.exception.IOException Thrown if the existing rels file could not be read
+     */
+    public Relationship getRelationship(String path) throws ch.rabanti.picoxlsx4j.exception.IOException
+    {
+        for (Relationship relationship : this.relationships)
+        {
+            if (relationship.getRootFolder().equals(path) == true)
+            {
+                return relationship;
+            }
+        }
+        if (this.appendSource != null)
+        {
+            return createRelationship(path, this.appendSource.getMaxRelationshipId(path) + 1);
+        }
+        return createRelationship(path);
+    }
     
     /**
      * Creates a relationship file (MSXML)
@@ -128,8 +333,12 @@ public class Packer {
      * @return  Returns the byte array to add into the compilation
      * @throws ch.rabanti.picoxlsx4j.exception.IOException Thrown if the document could not be converted to a byte array
      */
-    private byte[] createRelationshipDocument(Relationship rel) throws ch.rabanti.picoxlsx4j.exception.IOException
+    private StaticPart createRelationshipDocument(Relationship rel) throws ch.rabanti.picoxlsx4j.exception.IOException
     {
+        if (this.appendSource != null && this.appendSource.containsEntry(rel.getRootFolder()) == true)
+        {
+            return new StaticPart(this.appendSource.mergeRelationships(rel.getRootFolder(), rel.getIdList(), rel.getTargetList(), rel.getTypeList()));
+        }
         StringBuilder sb = new StringBuilder();
         sb.append("<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">\r\n");
         for (int i = 0; i < rel.getIdList().size(); i++)
@@ -143,8 +352,7 @@ public class Packer {
             sb.append("\"/>\r\n");
         }
         sb.append("</Relationships>");
-        Document d = this.lowLevelReference.createXMLDocument(sb.toString(), "REL: " + rel.currentId);
-        return LowLevel.createBytesFromDocument(d);
+        return this.lowLevelReference.createStaticPart(rel.getRootFolder(), sb.toString(), "REL: " + rel.currentId);
     }    
     /**
      * Method to pack the data into a XLSX file. This is the actual compiling and writing method (to a OutputStream)
@@ -153,40 +361,242 @@ public class Packer {
      */
     public void pack(OutputStream stream) throws ch.rabanti.picoxlsx4j.exception.IOException
     {
+        if (this.appendSource != null)
+        {
+            packAppended(stream);
+            return;
+        }
+        ZipWriter out = null;
         try
         {
-            byte[] contentTypes = createContentTypeDocument();
-            
-            ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(stream), Charset.forName("UTF-8"));
-            out.setMethod(ZipOutputStream.DEFLATED);
-            ZipEntry entry = new ZipEntry(CONTENT_TYPE_DOCUMENT);
-            out.putNextEntry(entry);
-            out.write(contentTypes, 0, contentTypes.length);
-            byte[] data;
+            StaticPart contentTypes = createContentTypeDocument();
+            out = new ZipWriter(stream instanceof ChannelOutputStream ? stream : new BufferedOutputStream(stream), this.lowLevelReference.getSaveContext());
+            this.totalParts = 1 + this.relationships.size() + this.parts.size();
+            this.completedParts = 0;
+            writeEntry(out, CONTENT_TYPE_DOCUMENT, contentTypes);
             for (int i = 0; i < this.relationships.size(); i++)
             {
-                data = createRelationshipDocument(this.relationships.get(i));
-                entry = new ZipEntry(this.relationships.get(i).getRootFolder());
-                out.putNextEntry(entry);
-                out.write(data, 0, data.length);
+                writeEntry(out, this.relationships.get(i).getRootFolder(), createRelationshipDocument(this.relationships.get(i)));
             }
-            for (int i = 0; i < this.dataList.size(); i++)
+            for (PartData part : this.parts)
             {
-                data = this.dataList.get(i);
-                entry = new ZipEntry(this.pathList.get(i));
-                out.putNextEntry(entry);
-                out.write(data, 0, data.length);
+                writeEntry(out, part);
             }
-            out.flush();
-            out.close();
+            out.finish();
+            stream.close();
         }
         catch(Exception e)
         {
+            if (out != null)
+            {
+                out.close();
+            }
+            if (this.lowLevelReference.isCancelled() == true && e instanceof ch.rabanti.picoxlsx4j.exception.IOException)
+            {
+                throw (ch.rabanti.picoxlsx4j.exception.IOException)e;
+            }
             throw new ch.rabanti.picoxlsx4j.exception.IOException("PackingException","There was an error while packing the file. Please see the inner exception.", e);
         }
     }
     
+    /**
+     * Method to pack the data into a XLSX file, based on an existing file. The content types, relationships and new parts are written first, then all unchanged entries of the existing file are copied as compressed bytes
+     * @param stream OutputStream to save the data into
+     * @throws ch.rabanti.picoxlsx4j.exception.IOException Thrown in case of a error while packing or writing
+     */
+    private void packAppended(OutputStream stream) throws ch.rabanti.picoxlsx4j.exception.IOException
+    {
+        ZipWriter out = null;
+        try (FileChannel source = FileChannel.open(this.appendSource.getPath(), StandardOpenOption.READ))
+        {
+            this.appendSource.checkUnchanged();
+            StaticPart contentTypes = createContentTypeDocument();
+            out = new ZipWriter(stream instanceof ChannelOutputStream ? stream : new BufferedOutputStream(stream), this.lowLevelReference.getSaveContext());
+            Set<String> replaced = new HashSet<>(this.partNames);
+            replaced.add(CONTENT_TYPE_DOCUMENT);
+            for (Relationship relationship : this.relationships)
+            {
+                replaced.add(relationship.getRootFolder());
+            }
+            List<String> copied = new ArrayList<>();
+            for (String name : this.appendSource.getEntryNames())
+            {
+                if (replaced.contains(name) == false)
+                {
+                    copied.add(name);
+                }
+            }
+            this.totalParts = 1 + this.relationships.size() + this.parts.size() + copied.size();
+            this.completedParts = 0;
+            writeEntry(out, CONTENT_TYPE_DOCUMENT, contentTypes);
+            for (int i = 0; i < this.relationships.size(); i++)
+            {
+                writeEntry(out, this.relationships.get(i).getRootFolder(), createRelationshipDocument(this.relationships.get(i)));
+            }
+            for (PartData part : this.parts)
+            {
+                writeEntry(out, part);
+            }
+            ZipWriter.Entry entry;
+            long startTime;
+            for (String name : copied)
+            {
+                this.lowLevelReference.checkCancellation();
+                startTime = System.nanoTime();
+                entry = this.appendSource.copyEntry(name, source, out);
+                reportEntry(name, entry, startTime);
+            }
+            out.finish();
+            stream.close();
+        }
+        catch(Exception e)
+        {
+            if (out != null)
+            {
+                out.close();
+            }
+            if (e instanceof ch.rabanti.picoxlsx4j.exception.IOException && (this.lowLevelReference.isCancelled() == true || "SourceChangedException".equals(((ch.rabanti.picoxlsx4j.exception.IOException)e).getExceptionTitle())))
+            {
+                throw (ch.rabanti.picoxlsx4j.exception.IOException)e;
+            }
+            throw new ch.rabanti.picoxlsx4j.exception.IOException("PackingException","There was an error while packing the file. Please see the inner exception.", e);
+        }
+    }
+
+    /**
+     * Converts a XML document into a byte array and reports the duration to the save listener
+     * @param name Filename with relative path (for reporting)
+     * @param document XML document to convert
+     * @return Returns the byte array to add into the compilation
+     * @throws ch.rabanti.picoxlsx4j.exception.IOException Thrown if the document could not be converted to a byte array
+     */
+    private byte[] transformDocument(String name, Document document) throws ch.rabanti.picoxlsx4j.exception.IOException
+    {
+        long startTime = System.nanoTime();
+        byte[] data = this.lowLevelReference.transformDocument(document);
+        this.lowLevelReference.reportPhase(SaveListener.Phase.TRANSFORM_DOCUMENT, name, startTime);
+        return data;
+    }
+
+    /**
+     * Writes a static part as zip entry with the zip writer and reports the duration and sizes to the save listener. A compressed part is written without recompression, otherwise the part is deflated
+     * @param out Zip writer to write into
+     * @param name Filename with relative path
+     * @param part Static part to write
+     * @throws java.io.IOException Thrown in case of a error while compressing or writing
+     * @throws ch.rabanti.picoxlsx4j.exception.IOException Thrown if the save process was cancelled
+     */
+    private void writeEntry(ZipWriter out, String name, StaticPart part) throws java.io.IOException, ch.rabanti.picoxlsx4j.exception.IOException
+    {
+        this.lowLevelReference.checkCancellation();
+        long startTime = System.nanoTime();
+        ZipWriter.Entry entry;
+        if (part.isCompressed() == true)
+        {
+            entry = out.writeRawEntry(name, ZipWriter.DEFLATED, part.getCrc(), part.getData().length, ByteBuffer.wrap(part.getDeflatedData()));
+        }
+        else
+        {
+            entry = out.writeEntry(name, ByteBuffer.wrap(part.getData()));
+        }
+        reportEntry(name, entry, startTime);
+    }
+
+    /**
+     * Writes a Part with the zip writer according to its source and compression, and reports the duration and sizes to the save listener. Files and buffers are written without loading or copying them completely, already deflated data is written without recompression
+     * @param out Zip writer to write into
+     * @param part Part to write
+     * @throws java.io.IOException Thrown in case of a error while reading, compressing or writing
+     * @throws ch.rabanti.picoxlsx4j.exception.IOException Thrown if the save process was cancelled
+     */
+    private void writeEntry(ZipWriter out, PartData part) throws java.io.IOException, ch.rabanti.picoxlsx4j.exception.IOException
+    {
+        this.lowLevelReference.checkCancellation();
+        long startTime = System.nanoTime();
+        ZipWriter.Entry entry;
+        if (part.file != null && part.compress == true)
+        {
+            try (InputStream data = Files.newInputStream(part.file))
+            {
+                entry = out.writeEntry(part.name, data, Files.size(part.file));
+            }
+        }
+        else if (part.file != null)
+        {
+            try (FileChannel channel = FileChannel.open(part.file, StandardOpenOption.READ))
+            {
+                entry = out.writeStoredEntry(part.name, channel);
+            }
+        }
+        else if (part.compressed == true)
+        {
+            entry = out.writeRawEntry(part.name, ZipWriter.DEFLATED, part.crc, part.size, part.buffer);
+        }
+        else if (part.buffer != null && part.compress == true)
+        {
+            entry = out.writeEntry(part.name, part.buffer);
+        }
+        else if (part.buffer != null)
+        {
+            entry = out.writeStoredEntry(part.name, part.buffer);
+        }
+        else if (part.stream != null)
+        {
+            entry = out.writeEntry(part.name, part.stream);
+        }
+        else
+        {
+            entry = out.writeEntry(part.name, ByteBuffer.wrap(part.data));
+        }
+        reportEntry(part.name, entry, startTime);
+    }
+
+    /**
+     * Reports a written entry of the zip writer to the save listener
+     * @param name Filename with relative path
+     * @param entry Written entry
+     * @param startTime Start time of the writing (System.nanoTime)
+     */
+    private void reportEntry(String name, ZipWriter.Entry entry, long startTime)
+    {
+        this.lowLevelReference.reportPhase(SaveListener.Phase.PACK, name, startTime);
+        this.lowLevelReference.reportPart(name, entry.getSize(), entry.getCompressedSize());
+        this.completedParts++;
+        this.lowLevelReference.reportPartsCompleted(this.completedParts, this.totalParts);
+    }
+
 // ### S U B  C L A S S E S ###    
+    /**
+     * Nested class representing the data of a Part. Exactly one source (byte array, file, buffer or stream) is defined
+     */
+    private static final class PartData
+    {
+        private ByteBuffer buffer;
+        private boolean compress;
+        private boolean compressed;
+        private final String contentType;
+        private long crc;
+        private byte[] data;
+        private Path file;
+        private final boolean includeInContentType;
+        private final String name;
+        private long size;
+        private InputStream stream;
+
+        /**
+         * Constructor with the common properties of a Part
+         * @param name Filename with relative path
+         * @param contentType URL with information about the content type (MSXML)
+         * @param includeInContentType If true, the content type will be added in the main content type file, otherwise not
+         */
+        PartData(String name, String contentType, boolean includeInContentType)
+        {
+            this.name = name;
+            this.contentType = contentType;
+            this.includeInContentType = includeInContentType;
+        }
+    }
+
     /**
      * Nested class representing a relationship (MSXML)
      */
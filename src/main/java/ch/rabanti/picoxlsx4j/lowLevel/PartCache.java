@@ -0,0 +1,114 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Class representing a cache of serialized static parts (e.g. styles, workbook, relationships), with the part name as key. The parts are cached with their deflated data and CRC, so that they are written without recompression. A cached part is reused as long as its generated XML string is unchanged, so the creation, transformation and compression of the XML document is skipped<br>
+ * A part can also be cached with a frozen state (e.g. unchanged styles of the template). As long as the state is equal, the part is reused without generating its XML string<br>
+ * The cache is thread-safe and can be used by several save processes at the same time. This class is only for internal use
+ * @author Raphael Stoeckli
+ */
+public class PartCache {
+
+// ### P R I V A T E  F I E L D S ###
+    private final ConcurrentHashMap<String, CachedPart> parts;
+
+// ### G E T T E R S  &  S E T T E R S ###
+    /**
+     * Gets the number of cached parts
+     * @return Number of parts
+     */
+    public int getSize() {
+        return parts.size();
+    }
+
+// ### C O N S T R U C T O R S ###
+    /**
+     * Default constructor
+     */
+    public PartCache()
+    {
+        this.parts = new ConcurrentHashMap<>();
+    }
+
+// ### M E T H O D S ###
+    /**
+     * Gets a cached part by its frozen state
+     * @param name Part name with relative path
+     * @param state Frozen state of the part
+     * @return Cached part, or null if the part is not cached or was cached with another or without state
+     */
+    StaticPart get(String name, Object state)
+    {
+        CachedPart part = this.parts.get(name);
+        if (part == null || part.state == null || part.state.equals(state) == false)
+        {
+            return null;
+        }
+        return part.data;
+    }
+
+    /**
+     * Gets a cached part by its XML string. If the part is found and a frozen state is defined, the state is cached with the part
+     * @param name Part name with relative path
+     * @param state Frozen state of the part or null if the part cannot be frozen
+     * @param rawInput Generated XML string of the part
+     * @return Cached part, or null if the part is not cached or its XML string has changed
+     */
+    StaticPart get(String name, Object state, String rawInput)
+    {
+        CachedPart part = this.parts.get(name);
+        if (part == null || part.rawInput.equals(rawInput) == false)
+        {
+            return null;
+        }
+        if (state != null && state.equals(part.state) == false)
+        {
+            this.parts.put(name, new CachedPart(rawInput, state, part.data));
+        }
+        return part.data;
+    }
+
+    /**
+     * Puts a part into the cache. An existing part with the same name is replaced
+     * @param name Part name with relative path
+     * @param state Frozen state of the part or null if the part cannot be frozen
+     * @param rawInput Generated XML string of the part
+     * @param data Compressed part
+     */
+    void put(String name, Object state, String rawInput, StaticPart data)
+    {
+        this.parts.put(name, new CachedPart(rawInput, state, data));
+    }
+
+// ### S U B  C L A S S E S ###
+    /**
+     * Class representing a cached part with its XML string and frozen state
+     */
+    private static final class CachedPart
+    {
+        private final StaticPart data;
+        private final String rawInput;
+        private final Object state;
+
+        /**
+         * Constructor with XML string, state and data
+         * @param rawInput Generated XML string
+         * @param state Frozen state or null
+         * @param data Compressed part
+         */
+        CachedPart(String rawInput, Object state, StaticPart data)
+        {
+            this.rawInput = rawInput;
+            this.state = state;
+            this.data = data;
+        }
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+import ch.rabanti.picoxlsx4j.SortedIntMap;
+import ch.rabanti.picoxlsx4j.Worksheet;
+import ch.rabanti.picoxlsx4j.style.Style;
+
+import java.util.BitSet;
+
+/**
+ * Class to resolve the optional attributes (height, hidden state and default style) of the rows of a worksheet while the rows are written in ascending order. The sorted row heights and styles are walked sequentially instead of a lookup per row
+ * @author Raphael Stoeckli
+ */
+class RowAttributeCursor {
+
+// ### P R I V A T E  F I E L D S ###
+    private final float defaultRowHeight;
+    private int heightIndex;
+    private final SortedIntMap<Float> heights;
+    private final BitSet hiddenRows;
+    private int nextHeightIndex;
+    private int nextStyleIndex;
+    private int styleIndex;
+    private final int styleOffset;
+    private final SortedIntMap<Style> styles;
+
+// ### C O N S T R U C T O R S ###
+    /**
+     * Constructor with worksheet
+     * @param worksheet Worksheet to process
+     * @param styleOffset Offset to add to the style IDs (used when appending to an existing style sheet)
+     */
+    RowAttributeCursor(Worksheet worksheet, int styleOffset)
+    {
+        this.styleOffset = styleOffset;
+        this.defaultRowHeight = worksheet.getDefaultRowHeight();
+        this.heights = worksheet.getRowHeights();
+        this.hiddenRows = worksheet.getHiddenRowSet();
+        this.styles = worksheet.getRowStyles();
+    }
+
+// ### M E T H O D S ###
+    /**
+     * Appends the attributes of a row. The row numbers must be passed in ascending order
+     * @param sb StringBuilder to append the attributes (with leading white space) to
+     * @param rowNumber Row number (zero-based)
+     */
+    void appendAttributes(StringBuilder sb, int rowNumber)
+    {
+        while (this.heightIndex < this.heights.size() && this.heights.keyAt(this.heightIndex) < rowNumber)
+        {
+            this.heightIndex++;
+        }
+        if (this.heightIndex < this.heights.size() && this.heights.keyAt(this.heightIndex) == rowNumber && this.heights.valueAt(this.heightIndex) != this.defaultRowHeight)
+        {
+            sb.append(" x14ac:dyDescent=\"0.25\" customHeight=\"1\" ht=\"").append(this.heights.valueAt(this.heightIndex)).append("\"");
+        }
+        if (this.hiddenRows.get(rowNumber) == true)
+        {
+            sb.append(" hidden=\"1\"");
+        }
+        while (this.styleIndex < this.styles.size() && this.styles.keyAt(this.styleIndex) < rowNumber)
+        {
+            this.styleIndex++;
+        }
+        if (this.styleIndex < this.styles.size() && this.styles.keyAt(this.styleIndex) == rowNumber)
+        {
+            sb.append(" s=\"").append(this.styles.valueAt(this.styleIndex).getInternalID() + this.styleOffset).append("\" customFormat=\"1\"");
+        }
+    }
+
+    /**
+     * Gets the next row number with at least one attribute. The row numbers must be passed in ascending order
+     * @param rowNumber Row number (zero-based) to start the search from (inclusive)
+     * @return Row number or -1 if no further row has attributes
+     */
+    int nextRow(int rowNumber)
+    {
+        while (this.nextHeightIndex < this.heights.size() && (this.heights.keyAt(this.nextHeightIndex) < rowNumber || this.heights.valueAt(this.nextHeightIndex) == this.defaultRowHeight))
+        {
+            this.nextHeightIndex++;
+        }
+        while (this.nextStyleIndex < this.styles.size() && this.styles.keyAt(this.nextStyleIndex) < rowNumber)
+        {
+            this.nextStyleIndex++;
+        }
+        int next = this.hiddenRows.nextSetBit(rowNumber);
+        if (this.nextHeightIndex < this.heights.size() && (next < 0 || this.heights.keyAt(this.nextHeightIndex) < next))
+        {
+            next = this.heights.keyAt(this.nextHeightIndex);
+        }
+        if (this.nextStyleIndex < this.styles.size() && (next < 0 || this.styles.keyAt(this.nextStyleIndex) < next))
+        {
+            next = this.styles.keyAt(this.nextStyleIndex);
+        }
+        return next;
+    }
+
+}
@@ -0,0 +1,232 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Class representing the reusable resources of a save process: the deflater, the CRC and the buffers of the zip writer, the document builder, the transformer, the output buffer of serialized parts and the string builder of worksheet parts<br>
+ * Contexts are kept in a small pool and are reset cheaply when they are returned after a save process, so that the fixed cost of saving many small workbooks is reduced. Buffers that grew beyond a limit are dropped when the context is released. A context is used by one save process at a time. This class is only for internal use
+ * @author Raphael Stoeckli
+ */
+final class SaveContext {
+
+// ### C O N S T A N T S ###
+    /**
+     * Size of the buffers of the zip writer
+     */
+    static final int BUFFER_SIZE = 65536;
+    /**
+     * Maximum number of bytes or characters of a growable buffer, which is kept when the context is released
+     */
+    private static final int MAX_RETAINED_SIZE = 1048576;
+    /**
+     * Maximum number of pooled contexts
+     */
+    private static final int MAX_POOL_SIZE = Runtime.getRuntime().availableProcessors();
+
+// ### S T A T I C   F I E L D S ###
+    private static final ConcurrentLinkedDeque<SaveContext> POOL = new ConcurrentLinkedDeque<>();
+    private static final AtomicInteger POOL_SIZE = new AtomicInteger();
+
+// ### P R I V A T E  F I E L D S ###
+    private final byte[] buffer;
+    private final StringBuilder builder;
+    private final CRC32 crc;
+    private final Deflater deflater;
+    private DocumentBuilder documentBuilder;
+    private final byte[] input;
+    private ByteArrayOutputStream output;
+    private Transformer transformer;
+
+// ### G E T T E R S  &  S E T T E R S ###
+    /**
+     * Gets the output buffer of the zip writer
+     * @return Byte array with the size BUFFER_SIZE
+     */
+    byte[] getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Gets the CRC of the zip writer
+     * @return CRC-32 instance
+     */
+    CRC32 getCrc() {
+        return crc;
+    }
+
+    /**
+     * Gets the deflater of the zip writer (raw deflate without zlib header). The deflater must be reset before each entry and must not be ended
+     * @return Deflater instance
+     */
+    Deflater getDeflater() {
+        return deflater;
+    }
+
+    /**
+     * Gets the input buffer of the zip writer
+     * @return Byte array with the size BUFFER_SIZE
+     */
+    byte[] getInput() {
+        return input;
+    }
+
+// ### C O N S T R U C T O R S ###
+    /**
+     * Default constructor. The document builder, the transformer and the output buffer are created on the first use
+     */
+    SaveContext()
+    {
+        this.buffer = new byte[BUFFER_SIZE];
+        this.input = new byte[BUFFER_SIZE];
+        this.builder = new StringBuilder();
+        this.crc = new CRC32();
+        this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    }
+
+// ### M E T H O D S ###
+    /**
+     * Gets the string builder of the context. The builder is emptied but keeps its capacity. Only one part can be built at a time
+     * @return Empty string builder
+     */
+    StringBuilder getStringBuilder()
+    {
+        this.builder.setLength(0);
+        return this.builder;
+    }
+
+    /**
+     * Parses a XML string into a document. The document builder is reset before parsing
+     * @param rawInput String to parse
+     * @return XML document
+     * @throws Exception Thrown in case of an error while creating the document builder or parsing the string
+     */
+    Document parse(String rawInput) throws Exception
+    {
+        if (this.documentBuilder == null)
+        {
+            this.documentBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+        }
+        else
+        {
+            this.documentBuilder.reset();
+        }
+        InputSource input = new InputSource(new StringReader(rawInput));
+        input.setEncoding("UTF-8");
+        return this.documentBuilder.parse(input);
+    }
+
+    /**
+     * Converts a XML document into a byte array. The transformer and the output buffer are reset before the conversion. An output buffer, which grew beyond the retained size, is dropped afterwards
+     * @param document Document to process
+     * @return Array of bytes (UTF-8)
+     * @throws TransformerException Thrown in case of an error while creating the transformer or transforming the document
+     */
+    byte[] transform(Document document) throws TransformerException
+    {
+        if (this.transformer == null)
+        {
+            this.transformer = TransformerFactory.newInstance().newTransformer();
+        }
+        else
+        {
+            this.transformer.reset();
+        }
+        this.transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+        if (this.output == null)
+        {
+            this.output = new ByteArrayOutputStream(BUFFER_SIZE);
+        }
+        else
+        {
+            this.output.reset();
+        }
+        this.transformer.transform(new DOMSource(document), new StreamResult(this.output));
+        byte[] bytes = this.output.toByteArray();
+        if (bytes.length > MAX_RETAINED_SIZE)
+        {
+            this.output = null; // The grown buffer is not kept
+        }
+        return bytes;
+    }
+
+    /**
+     * Drops the string builder if it grew beyond the retained size and resets the deflater and the CRC
+     */
+    private void trim()
+    {
+        if (this.builder.capacity() > MAX_RETAINED_SIZE)
+        {
+            this.builder.setLength(0);
+            this.builder.trimToSize();
+        }
+        this.deflater.reset();
+        this.crc.reset();
+    }
+
+    /**
+     * Releases the native resources of the deflater. The context cannot be used afterwards
+     */
+    void dispose()
+    {
+        this.deflater.end();
+    }
+
+// ### S T A T I C   M E T H O D S ###
+    /**
+     * Gets the most recently released context from the pool (with the warmest buffers) or creates a new one if the pool is empty
+     * @return Context for one save process
+     */
+    static SaveContext acquire()
+    {
+        SaveContext context = POOL.pollFirst();
+        if (context == null)
+        {
+            return new SaveContext();
+        }
+        POOL_SIZE.decrementAndGet();
+        return context;
+    }
+
+    /**
+     * Returns a context to the pool. If the pool is full, the native resources of the context are released instead
+     * @param context Context to return. Null is ignored
+     */
+    static void release(SaveContext context)
+    {
+        if (context == null)
+        {
+            return;
+        }
+        context.trim();
+        if (POOL_SIZE.incrementAndGet() > MAX_POOL_SIZE)
+        {
+            POOL_SIZE.decrementAndGet();
+            context.dispose();
+            return;
+        }
+        POOL.offerFirst(context);
+    }
+
+}
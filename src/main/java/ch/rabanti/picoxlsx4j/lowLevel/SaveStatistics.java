@@ -0,0 +1,191 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+import ch.rabanti.picoxlsx4j.SaveListener;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Class representing the aggregated statistics of a save process (see SaveListener). The statistics are collected by the LowLevel class during saving
+ * @author Raphael Stoeckli
+ */
+public class SaveStatistics {
+
+// ### P R I V A T E  F I E L D S ###
+    private int cellCount;
+    private long compressedBytes;
+    private final Map<SaveListener.Phase, Long> phaseDurations;
+    private int partCount;
+    private long rawBytes;
+    private int rowCount;
+    private int sharedStringCount;
+    private long totalDuration;
+    private int uniqueSharedStringCount;
+
+// ### G E T T E R S  &  S E T T E R S ###
+    /**
+     * Gets the number of written cells in all worksheets
+     * @return Number of cells
+     */
+    public int getCellCount() {
+        return cellCount;
+    }
+
+    /**
+     * Gets the total compressed size of all parts
+     * @return Size in bytes
+     */
+    public long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    /**
+     * Gets the accumulated duration of a phase over all parts
+     * @param phase Phase to query
+     * @return Duration in nanoseconds. 0 if the phase was not executed
+     */
+    public long getPhaseDuration(SaveListener.Phase phase) {
+        Long duration = phaseDurations.get(phase);
+        if (duration == null) { return 0; }
+        return duration;
+    }
+
+    /**
+     * Gets the number of parts in the zip container, including the content type document and the relationship parts
+     * @return Number of parts
+     */
+    public int getPartCount() {
+        return partCount;
+    }
+
+    /**
+     * Gets the total uncompressed size of all parts
+     * @return Size in bytes
+     */
+    public long getRawBytes() {
+        return rawBytes;
+    }
+
+    /**
+     * Gets the number of written rows in all worksheets
+     * @return Number of rows
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Gets the number of string cells that reference a shared string
+     * @return Number of shared string references
+     */
+    public int getSharedStringCount() {
+        return sharedStringCount;
+    }
+
+    /**
+     * Gets the total duration of the save process
+     * @return Duration in nanoseconds
+     */
+    public long getTotalDuration() {
+        return totalDuration;
+    }
+
+    /**
+     * Gets the number of unique shared strings
+     * @return Number of unique shared strings
+     */
+    public int getUniqueSharedStringCount() {
+        return uniqueSharedStringCount;
+    }
+
+// ### C O N S T R U C T O R S ###
+    /**
+     * Default constructor
+     */
+    SaveStatistics()
+    {
+        this.phaseDurations = new EnumMap<>(SaveListener.Phase.class);
+    }
+
+// ### M E T H O D S ###
+    /**
+     * Adds the duration of a phase
+     * @param phase Phase of the duration
+     * @param durationNanos Duration in nanoseconds
+     */
+    void addPhaseDuration(SaveListener.Phase phase, long durationNanos)
+    {
+        this.phaseDurations.put(phase, getPhaseDuration(phase) + durationNanos);
+    }
+
+    /**
+     * Adds the sizes of a written part
+     * @param rawBytes Uncompressed size in bytes
+     * @param compressedBytes Compressed size in bytes
+     */
+    void addPart(long rawBytes, long compressedBytes)
+    {
+        this.partCount++;
+        this.rawBytes += rawBytes;
+        this.compressedBytes += compressedBytes;
+    }
+
+    /**
+     * Adds the numbers of a processed worksheet
+     * @param rowCount Number of rows
+     * @param cellCount Number of cells
+     */
+    void addWorksheet(int rowCount, int cellCount)
+    {
+        this.rowCount += rowCount;
+        this.cellCount += cellCount;
+    }
+
+    /**
+     * Sets the shared string numbers
+     * @param sharedStringCount Number of shared string references
+     * @param uniqueSharedStringCount Number of unique shared strings
+     */
+    void setSharedStrings(int sharedStringCount, int uniqueSharedStringCount)
+    {
+        this.sharedStringCount = sharedStringCount;
+        this.uniqueSharedStringCount = uniqueSharedStringCount;
+    }
+
+    /**
+     * Sets the total duration of the save process
+     * @param totalDuration Duration in nanoseconds
+     */
+    void setTotalDuration(long totalDuration)
+    {
+        this.totalDuration = totalDuration;
+    }
+
+    /**
+     * Override toString method
+     * @return Summary of the statistics
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Total: ").append(this.totalDuration / 1000000).append(" ms");
+        for (Map.Entry<SaveListener.Phase, Long> entry : this.phaseDurations.entrySet())
+        {
+            sb.append(", ").append(entry.getKey()).append(": ").append(entry.getValue() / 1000000).append(" ms");
+        }
+        sb.append(", rows: ").append(this.rowCount);
+        sb.append(", cells: ").append(this.cellCount);
+        sb.append(", shared strings: ").append(this.sharedStringCount).append(" (").append(this.uniqueSharedStringCount).append(" unique)");
+        sb.append(", parts: ").append(this.partCount);
+        sb.append(", bytes: ").append(this.rawBytes).append(" (").append(this.compressedBytes).append(" compressed)");
+        return sb.toString();
+    }
+
+}
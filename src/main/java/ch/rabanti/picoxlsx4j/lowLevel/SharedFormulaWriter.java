@@ -0,0 +1,233 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+import ch.rabanti.picoxlsx4j.Cell;
+import ch.rabanti.picoxlsx4j.FormulaTemplate;
+import ch.rabanti.picoxlsx4j.SharedFormula;
+import ch.rabanti.picoxlsx4j.Worksheet;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Class to write the formulas of a worksheet, including shared formulas (t="shared") and formula templates. The cells must be written in the order of the sorted sheet data (row by row)
+ * @author Raphael Stoeckli
+ */
+class SharedFormulaWriter {
+
+// ### P R I V A T E  F I E L D S ###
+    private final int[] activeIndices;
+    private final int[] activeLastRows;
+    private final IdentityHashMap<Cell, int[]> detectedMasters;
+    private int nextIndex;
+    private final IdentityHashMap<SharedFormula, Integer> sharedIndices;
+
+// ### C O N S T R U C T O R S ###
+    /**
+     * Constructor with worksheet and sorted sheet data. If the detection of shared formulas is enabled in the worksheet, the formulas of consecutive rows are compared column by column
+     * @param worksheet Worksheet to process
+     * @param sheetData Cells of the worksheet, sorted and grouped by rows
+     */
+    public SharedFormulaWriter(Worksheet worksheet, List<List<Cell>> sheetData)
+    {
+        this.sharedIndices = new IdentityHashMap<>();
+        this.detectedMasters = new IdentityHashMap<>();
+        this.nextIndex = 0;
+        int columns = Math.max(worksheet.getLastColumnNumber() + 1, 0);
+        this.activeIndices = new int[columns];
+        this.activeLastRows = new int[columns];
+        Arrays.fill(this.activeLastRows, -1);
+        if (worksheet.isUseSharedFormulaDetection() == true)
+        {
+            detectSharedFormulas(sheetData, columns);
+        }
+    }
+
+// ### M E T H O D S ###
+    /**
+     * Appends the formula element of a formula cell
+     * @param sb StringBuilder to append
+     * @param cell Formula cell
+     */
+    public void appendFormula(StringBuilder sb, Cell cell)
+    {
+        Object value = cell.getValue();
+        if (value instanceof SharedFormula)
+        {
+            appendSharedFormula(sb, cell, (SharedFormula)value);
+            return;
+        }
+        int column = cell.getColumnNumber();
+        int[] master = this.detectedMasters.get(cell);
+        if (master != null)
+        {
+            this.activeIndices[column] = master[0];
+            this.activeLastRows[column] = master[1];
+            appendMaster(sb, cell.getCellAddress() + ":" + Cell.resolveCellAddress(column, master[1]), master[0]);
+            appendFormulaText(sb, cell, value);
+            sb.append("</f>");
+        }
+        else if (column < this.activeLastRows.length && this.activeLastRows[column] >= cell.getRowNumber())
+        {
+            appendChild(sb, this.activeIndices[column]);
+        }
+        else
+        {
+            sb.append("<f>");
+            appendFormulaText(sb, cell, value);
+            sb.append("</f>");
+        }
+    }
+
+    /**
+     * Appends the escaped formula text of a cell. Formula templates are rendered directly for the address of the cell
+     * @param sb StringBuilder to append
+     * @param cell Formula cell
+     * @param value Value of the cell (formula string or template)
+     */
+    private static void appendFormulaText(StringBuilder sb, Cell cell, Object value)
+    {
+        if (value instanceof FormulaTemplate)
+        {
+            ((FormulaTemplate)value).renderXmlAt(sb, cell.getColumnNumber(), cell.getRowNumber());
+        }
+        else
+        {
+            sb.append(LowLevel.escapeXMLChars(value.toString()));
+        }
+    }
+
+    /**
+     * Appends the formula element of a cell with an explicitly defined shared formula. The first cell of the range is the master. If the first cell was removed or replaced, the cells get the moved formula as normal formula
+     * @param sb StringBuilder to append
+     * @param cell Formula cell
+     * @param sharedFormula Shared formula of the cell
+     */
+    private void appendSharedFormula(StringBuilder sb, Cell cell, SharedFormula sharedFormula)
+    {
+        Integer index = this.sharedIndices.get(sharedFormula);
+        if (index == null)
+        {
+            if (cell.getColumnNumber() == sharedFormula.getRange().StartAddress.Column && cell.getRowNumber() == sharedFormula.getRange().StartAddress.Row)
+            {
+                index = this.nextIndex;
+                this.nextIndex++;
+                this.sharedIndices.put(sharedFormula, index);
+                appendMaster(sb, sharedFormula.getRange().toString(), index);
+                sb.append(LowLevel.escapeXMLChars(sharedFormula.getFormula())).append("</f>");
+                return;
+            }
+            index = -1;
+            this.sharedIndices.put(sharedFormula, index);
+        }
+        if (index < 0)
+        {
+            sb.append("<f>");
+            sharedFormula.getTemplate().renderXmlAt(sb, cell.getColumnNumber(), cell.getRowNumber());
+            sb.append("</f>");
+        }
+        else
+        {
+            appendChild(sb, index);
+        }
+    }
+
+    /**
+     * Appends the opening formula element of a master cell of a shared formula. The formula text and the closing element must be appended by the caller
+     * @param sb StringBuilder to append
+     * @param range Range of the shared formula
+     * @param index Shared index (si)
+     */
+    private static void appendMaster(StringBuilder sb, String range, int index)
+    {
+        sb.append("<f t=\"shared\" ref=\"").append(range).append("\" si=\"").append(index).append("\">");
+    }
+
+    /**
+     * Appends the formula element of a cell that uses a shared formula
+     * @param sb StringBuilder to append
+     * @param index Shared index (si)
+     */
+    private static void appendChild(StringBuilder sb, int index)
+    {
+        sb.append("<f t=\"shared\" si=\"").append(index).append("\"/>");
+    }
+
+    /**
+     * Detects runs of formulas in consecutive rows of a column that differ only by the row offset. Runs of at least two cells are registered with the first cell as master. Cells with the same formula template are compared by reference without parsing
+     * @param sheetData Cells of the worksheet, sorted and grouped by rows
+     * @param columns Number of columns
+     */
+    private void detectSharedFormulas(List<List<Cell>> sheetData, int columns)
+    {
+        Cell[] runStarts = new Cell[columns];
+        FormulaTemplate[] previous = new FormulaTemplate[columns];
+        int[] previousRows = new int[columns];
+        boolean[] previousIsTemplate = new boolean[columns];
+        int column, row;
+        boolean isTemplate, continues;
+        FormulaTemplate template;
+        for (List<Cell> line : sheetData)
+        {
+            for (Cell cell : line)
+            {
+                column = cell.getColumnNumber();
+                row = cell.getRowNumber();
+                isTemplate = cell.getValue() instanceof FormulaTemplate;
+                if (cell.getDataType() != Cell.CellType.FORMULA || (isTemplate == false && (cell.getValue() instanceof String) == false))
+                {
+                    closeRun(runStarts, previous, previousRows, column);
+                    continue;
+                }
+                if (isTemplate == true)
+                {
+                    template = (FormulaTemplate)cell.getValue();
+                    continues = previousIsTemplate[column] == true && previous[column] == template;
+                }
+                else
+                {
+                    template = FormulaTemplate.parse((String)cell.getValue());
+                    continues = previousIsTemplate[column] == false && previous[column] != null && template.isRowShiftOf(previous[column], 1);
+                }
+                if (continues == false || previousRows[column] != row - 1 || template.getReferenceCount() == 0)
+                {
+                    closeRun(runStarts, previous, previousRows, column);
+                    runStarts[column] = cell;
+                }
+                previous[column] = template;
+                previousRows[column] = row;
+                previousIsTemplate[column] = isTemplate;
+            }
+        }
+        for (int i = 0; i < columns; i++)
+        {
+            closeRun(runStarts, previous, previousRows, i);
+        }
+    }
+
+    /**
+     * Closes the current run of a column and registers it, if it contains at least two cells
+     * @param runStarts First cells of the current runs
+     * @param previous Parsed formulas of the previous rows
+     * @param previousRows Row numbers of the previous formulas
+     * @param column Column to close
+     */
+    private void closeRun(Cell[] runStarts, FormulaTemplate[] previous, int[] previousRows, int column)
+    {
+        Cell start = runStarts[column];
+        if (start != null && previousRows[column] > start.getRowNumber())
+        {
+            this.detectedMasters.put(start, new int[] { this.nextIndex, previousRows[column] });
+            this.nextIndex++;
+        }
+        runStarts[column] = null;
+        previous[column] = null;
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Class representing a serialized static part (e.g. styles, workbook, relationships). A part of the part cache of a template holds its deflated data with the CRC, so that it is written into the package without recompression
+ * @author Raphael Stoeckli
+ */
+final class StaticPart {
+
+// ### P R I V A T E  F I E L D S ###
+    private final long crc;
+    private final byte[] data;
+    private final byte[] deflatedData;
+
+// ### G E T T E R S  &  S E T T E R S ###
+    /**
+     * Gets the CRC-32 of the serialized data
+     * @return CRC value. Only defined if the part is compressed
+     */
+    long getCrc() {
+        return crc;
+    }
+
+    /**
+     * Gets the serialized data
+     * @return Serialized part (UTF-8)
+     */
+    byte[] getData() {
+        return data;
+    }
+
+    /**
+     * Gets the deflated data (raw deflate without zlib header)
+     * @return Deflated data or null if the part is not compressed
+     */
+    byte[] getDeflatedData() {
+        return deflatedData;
+    }
+
+    /**
+     * Gets whether the deflated data of the part is available
+     * @return True if the part is compressed, otherwise false
+     */
+    boolean isCompressed() {
+        return deflatedData != null;
+    }
+
+// ### C O N S T R U C T O R S ###
+    /**
+     * Constructor for an uncompressed part. The part is deflated while packing
+     * @param data Serialized part (UTF-8)
+     */
+    StaticPart(byte[] data)
+    {
+        this(data, null, 0);
+    }
+
+    /**
+     * Constructor for a compressed part
+     * @param data Serialized part (UTF-8)
+     * @param deflatedData Deflated data (raw deflate without zlib header) or null
+     * @param crc CRC-32 of the serialized data
+     */
+    private StaticPart(byte[] data, byte[] deflatedData, long crc)
+    {
+        this.data = data;
+        this.deflatedData = deflatedData;
+        this.crc = crc;
+    }
+
+// ### S T A T I C   M E T H O D S ###
+    /**
+     * Creates a compressed part. The data is deflated with the deflater of the save context, which is reset before and after
+     * @param data Serialized part (UTF-8)
+     * @param context Context of the save process
+     * @return Compressed part
+     */
+    static StaticPart deflate(byte[] data, SaveContext context)
+    {
+        Deflater deflater = context.getDeflater();
+        CRC32 crc = context.getCrc();
+        byte[] buffer = context.getBuffer();
+        ByteArrayOutputStream output = new ByteArrayOutputStream(data.length / 4 + 64);
+        crc.reset();
+        crc.update(data, 0, data.length);
+        deflater.reset();
+        deflater.setInput(data);
+        deflater.finish();
+        int length;
+        while (deflater.finished() == false)
+        {
+            length = deflater.deflate(buffer);
+            output.write(buffer, 0, length);
+        }
+        deflater.reset();
+        return new StaticPart(data, output.toByteArray(), crc.getValue());
+    }
+
+}
@@ -0,0 +1,717 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Class representing a minimal zip writer. Entries are either deflated while writing (with a trailing data descriptor), stored without compression or copied as already compressed bytes, e.g. from an existing package. The central directory is written when the writer is finished<br>
+ * Entries are streamed with a CRC calculated on the fly and are never buffered as a whole. Zip64 extensions are written as needed: entries larger than 4 GB (if their size is known in advance), offsets beyond 4 GB and more than 65535 entries are supported. Whether an entry uses Zip64 extensions is decided once, before its local header is written<br>
+ * This class is only for internal use
+ * @author Raphael Stoeckli
+ */
+class ZipWriter {
+
+// ### C O N S T A N T S ###
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int FLAG_DATA_DESCRIPTOR = 0x0008;
+    private static final int FLAG_UTF8 = 0x0800;
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final long MAX_SIZE = 0xFFFFFFFFL;
+    private static final int MAX_ENTRIES = 0xFFFF;
+    private static final int VERSION = 20;
+    private static final int VERSION_ZIP64 = 45;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+
+    /**
+     * Compression method of stored (uncompressed) entries
+     */
+    static final int STORED = 0;
+    /**
+     * Compression method of deflated entries
+     */
+    static final int DEFLATED = 8;
+
+// ### P R I V A T E  F I E L D S ###
+    private final byte[] buffer;
+    private final SaveContext context;
+    private final CRC32 crc;
+    private final Deflater deflater;
+    private final int dosTime;
+    private final List<Entry> entries;
+    private final byte[] header;
+    private final byte[] input;
+    private final OutputStream out;
+    private final boolean ownContext;
+    private long position;
+
+// ### C O N S T R U C T O R S ###
+    /**
+     * Constructor with output stream. The stream is not closed by the writer
+     * @param out Stream to write into
+     */
+    ZipWriter(OutputStream out)
+    {
+        this(out, null);
+    }
+
+    /**
+     * Constructor with output stream and the context of the save process. The deflater, the CRC and the buffers of the context are used and the deflater is not ended by the writer. The stream is not closed by the writer
+     * @param out Stream to write into
+     * @param context Context of the save process. If null, the writer uses own resources, which are released by finish() or close()
+     */
+    ZipWriter(OutputStream out, SaveContext context)
+    {
+        this.out = out;
+        this.ownContext = context == null;
+        this.context = context == null ? new SaveContext() : context;
+        this.buffer = this.context.getBuffer();
+        this.input = this.context.getInput();
+        this.header = new byte[56];
+        this.crc = this.context.getCrc();
+        this.deflater = this.context.getDeflater();
+        this.dosTime = toDosTime(LocalDateTime.now());
+        this.entries = new ArrayList<>();
+    }
+
+// ### M E T H O D S ###
+    /**
+     * Writes an entry, which is deflated while writing. The CRC and sizes are written in a data descriptor after the data. Since the size is not known in advance, the entry is written without Zip64 extensions and must not exceed 4 GB
+     * @param name Entry name with relative path
+     * @param data Stream with the uncompressed data. The stream is read to its end, but not closed
+     * @return Written entry
+     * @throws IOException Thrown in case of an error while reading or writing, or if the entry exceeds 4 GB
+     */
+    Entry writeEntry(String name, InputStream data) throws IOException
+    {
+        return writeEntry(name, data, -1);
+    }
+
+    /**
+     * Writes an entry with an expected size, which is deflated while writing. The CRC and sizes are written in a data descriptor after the data. If the expected size is 4 GB or more, the entry uses Zip64 extensions: the local header and the central directory contain a Zip64 extra field and the data descriptor contains 64 bit sizes
+     * @param name Entry name with relative path
+     * @param data Stream with the uncompressed data. The stream is read to its end, but not closed
+     * @param expectedSize Expected uncompressed size in bytes or -1 if unknown. An entry without Zip64 extensions must not exceed 4 GB
+     * @return Written entry
+     * @throws IOException Thrown in case of an error while reading or writing, or if an entry without Zip64 extensions exceeds 4 GB
+     */
+    Entry writeEntry(String name, InputStream data, long expectedSize) throws IOException
+    {
+        Entry entry = beginDeflatedEntry(name, expectedSize);
+        int read;
+        while ((read = data.read(this.input)) > 0)
+        {
+            deflateInput(this.input, 0, read);
+        }
+        return finishDeflatedEntry(entry);
+    }
+
+    /**
+     * Writes an entry from a buffer, which is deflated while writing. The CRC and sizes are written in a data descriptor after the data. Heap buffers are deflated without copying
+     * @param name Entry name with relative path
+     * @param data Buffer with the uncompressed data between its position and limit. The position of the buffer is not changed
+     * @return Written entry
+     * @throws IOException Thrown in case of an error while writing
+     */
+    Entry writeEntry(String name, ByteBuffer data) throws IOException
+    {
+        Entry entry = beginDeflatedEntry(name, data.remaining());
+        if (data.hasArray() == true)
+        {
+            deflateInput(data.array(), data.arrayOffset() + data.position(), data.remaining());
+        }
+        else
+        {
+            ByteBuffer source = data.duplicate();
+            int length;
+            while (source.hasRemaining() == true)
+            {
+                length = Math.min(this.input.length, source.remaining());
+                source.get(this.input, 0, length);
+                deflateInput(this.input, 0, length);
+            }
+        }
+        return finishDeflatedEntry(entry);
+    }
+
+    /**
+     * Writes an entry from a buffer without compression. The CRC is calculated before the local header is written, so no data descriptor is needed
+     * @param name Entry name with relative path
+     * @param data Buffer with the data between its position and limit. The position of the buffer is not changed
+     * @return Written entry
+     * @throws IOException Thrown in case of an error while writing
+     */
+    Entry writeStoredEntry(String name, ByteBuffer data) throws IOException
+    {
+        this.crc.reset();
+        this.crc.update(data.duplicate());
+        Entry entry = new Entry(name, STORED, FLAG_UTF8, this.dosTime, this.position);
+        entry.crc = this.crc.getValue();
+        entry.compressedSize = data.remaining();
+        entry.size = data.remaining();
+        writeLocalHeader(entry);
+        writeBuffer(data);
+        this.entries.add(entry);
+        return entry;
+    }
+
+    /**
+     * Writes an entry from a file without compression, without loading it completely into memory. If the output is a stream into a file channel, the file is read once: the data is written through the direct buffer of the stream and the CRC is calculated on the way, then it is written into the local header. Otherwise, the file is read once to calculate the CRC and then transferred into the output
+     * @param name Entry name with relative path
+     * @param channel File channel with the data. All bytes from position 0 to the size of the channel are written
+     * @return Written entry
+     * @throws IOException Thrown in case of an error while reading or writing
+     */
+    Entry writeStoredEntry(String name, FileChannel channel) throws IOException
+    {
+        FileChannel output = this.out instanceof ChannelOutputStream ? ((ChannelOutputStream)this.out).getFileChannel() : null;
+        if (output != null)
+        {
+            return writeStoredEntry(name, channel, (ChannelOutputStream)this.out, output);
+        }
+        long size = channel.size();
+        this.crc.reset();
+        ByteBuffer target = ByteBuffer.wrap(this.input);
+        long offset = 0;
+        int read;
+        while (offset < size)
+        {
+            target.clear();
+            read = channel.read(target, offset);
+            if (read < 0)
+            {
+                break;
+            }
+            this.crc.update(this.input, 0, read);
+            offset += read;
+        }
+        Entry entry = new Entry(name, STORED, FLAG_UTF8, this.dosTime, this.position);
+        entry.crc = this.crc.getValue();
+        entry.compressedSize = size;
+        entry.size = size;
+        writeLocalHeader(entry);
+        transfer(name, channel, 0, size);
+        this.entries.add(entry);
+        return entry;
+    }
+
+    /**
+     * Writes an entry from a file without compression into a stream of a file channel. The local header is written with a CRC of 0, which is replaced when the data was written
+     * @param name Entry name with relative path
+     * @param channel File channel with the data. All bytes from position 0 to the size of the channel are written
+     * @param stream Output stream of the writer
+     * @param target File channel of the output stream
+     * @return Written entry
+     * @throws IOException Thrown in case of an error while reading or writing, or if the file changed its size while writing
+     */
+    private Entry writeStoredEntry(String name, FileChannel channel, ChannelOutputStream stream, FileChannel target) throws IOException
+    {
+        long size = channel.size();
+        Entry entry = new Entry(name, STORED, FLAG_UTF8, this.dosTime, this.position);
+        entry.compressedSize = size;
+        entry.size = size;
+        stream.flush();
+        long headerPosition = target.position();
+        writeLocalHeader(entry);
+        this.crc.reset();
+        if (stream.transferFrom(channel, this.crc) != size)
+        {
+            throw new IOException("The data of the entry '" + name + "' changed its size while writing.");
+        }
+        this.position += size;
+        entry.crc = this.crc.getValue();
+        putInt(this.header, 0, entry.crc);
+        ByteBuffer crcField = ByteBuffer.wrap(this.header, 0, 4);
+        while (crcField.hasRemaining() == true)
+        {
+            target.write(crcField, headerPosition + 14 + crcField.position());
+        }
+        this.entries.add(entry);
+        return entry;
+    }
+
+    /**
+     * Writes an already compressed entry. The compressed data is copied from the file channel without inflating it
+     * @param name Entry name with relative path
+     * @param method Compression method (STORED or DEFLATED)
+     * @param crc CRC-32 of the uncompressed data
+     * @param compressedSize Size of the compressed data in bytes
+     * @param size Size of the uncompressed data in bytes
+     * @param dosTime Modification time in the MS-DOS format
+     * @param channel File channel with the compressed data
+     * @param dataOffset Position of the compressed data in the file channel
+     * @return Written entry
+     * @throws IOException Thrown in case of an error while reading or writing
+     */
+    Entry writeRawEntry(String name, int method, long crc, long compressedSize, long size, int dosTime, FileChannel channel, long dataOffset) throws IOException
+    {
+        Entry entry = new Entry(name, method, FLAG_UTF8, dosTime, this.position);
+        entry.crc = crc;
+        entry.compressedSize = compressedSize;
+        entry.size = size;
+        writeLocalHeader(entry);
+        transfer(name, channel, dataOffset, compressedSize);
+        this.entries.add(entry);
+        return entry;
+    }
+
+    /**
+     * Writes an already compressed entry from a buffer. The compressed data is written without inflating it
+     * @param name Entry name with relative path
+     * @param method Compression method (STORED or DEFLATED)
+     * @param crc CRC-32 of the uncompressed data
+     * @param size Size of the uncompressed data in bytes
+     * @param data Buffer with the compressed data between its position and limit. The position of the buffer is not changed
+     * @return Written entry
+     * @throws IOException Thrown in case of an error while writing
+     */
+    Entry writeRawEntry(String name, int method, long crc, long size, ByteBuffer data) throws IOException
+    {
+        Entry entry = new Entry(name, method, FLAG_UTF8, this.dosTime, this.position);
+        entry.crc = crc;
+        entry.compressedSize = data.remaining();
+        entry.size = size;
+        writeLocalHeader(entry);
+        writeBuffer(data);
+        this.entries.add(entry);
+        return entry;
+    }
+
+    /**
+     * Writes the central directory and the end of central directory record. If the package exceeds the limits of a zip file (entries, sizes or offsets), the Zip64 end of central directory record and its locator are written before. The output stream is flushed, but not closed. No further entries can be written afterwards
+     * @throws IOException Thrown in case of an error while writing
+     */
+    void finish() throws IOException
+    {
+        try
+        {
+            long centralDirectoryOffset = this.position;
+            byte[] name;
+            int extraLength;
+            for (Entry entry : this.entries)
+            {
+                name = entry.name.getBytes(StandardCharsets.UTF_8);
+                extraLength = (entry.zip64 == true ? 16 : 0) + (entry.offset >= MAX_SIZE ? 8 : 0);
+                if (extraLength > 0)
+                {
+                    extraLength += 4;
+                }
+                putInt(this.header, 0, CENTRAL_HEADER_SIGNATURE);
+                putShort(this.header, 4, extraLength > 0 || entry.zip64 == true ? VERSION_ZIP64 : VERSION);
+                putShort(this.header, 6, extraLength > 0 || entry.zip64 == true ? VERSION_ZIP64 : VERSION);
+                putShort(this.header, 8, entry.flags);
+                putShort(this.header, 10, entry.method);
+                putInt(this.header, 12, entry.dosTime);
+                putInt(this.header, 16, entry.crc);
+                putInt(this.header, 20, entry.zip64 == true ? MAX_SIZE : entry.compressedSize);
+                putInt(this.header, 24, entry.zip64 == true ? MAX_SIZE : entry.size);
+                putShort(this.header, 28, name.length);
+                putShort(this.header, 30, extraLength);
+                putShort(this.header, 32, 0); // Comment length
+                putShort(this.header, 34, 0); // Disk number
+                putShort(this.header, 36, 0); // Internal attributes
+                putInt(this.header, 38, 0); // External attributes
+                putInt(this.header, 42, Math.min(entry.offset, MAX_SIZE));
+                write(this.header, 46);
+                write(name, name.length);
+                if (extraLength > 0)
+                {
+                    // The Zip64 extra field contains only the values, which are replaced by 0xFFFFFFFF in the 32 bit fields, in this order
+                    putShort(this.header, 0, ZIP64_EXTRA_ID);
+                    putShort(this.header, 2, extraLength - 4);
+                    int index = 4;
+                    if (entry.zip64 == true)
+                    {
+                        putLong(this.header, index, entry.size);
+                        putLong(this.header, index + 8, entry.compressedSize);
+                        index += 16;
+                    }
+                    if (entry.offset >= MAX_SIZE) { putLong(this.header, index, entry.offset); index += 8; }
+                    write(this.header, index);
+                }
+            }
+            long centralDirectorySize = this.position - centralDirectoryOffset;
+            if (this.entries.size() >= MAX_ENTRIES || centralDirectoryOffset >= MAX_SIZE || centralDirectorySize >= MAX_SIZE)
+            {
+                long zip64Offset = this.position;
+                putInt(this.header, 0, ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE);
+                putLong(this.header, 4, 44); // Size of the remaining record
+                putShort(this.header, 12, VERSION_ZIP64);
+                putShort(this.header, 14, VERSION_ZIP64);
+                putInt(this.header, 16, 0); // Disk number
+                putInt(this.header, 20, 0); // Disk with the central directory
+                putLong(this.header, 24, this.entries.size());
+                putLong(this.header, 32, this.entries.size());
+                putLong(this.header, 40, centralDirectorySize);
+                putLong(this.header, 48, centralDirectoryOffset);
+                write(this.header, 56);
+                putInt(this.header, 0, ZIP64_LOCATOR_SIGNATURE);
+                putInt(this.header, 4, 0); // Disk with the Zip64 end of central directory record
+                putLong(this.header, 8, zip64Offset);
+                putInt(this.header, 16, 1); // Total number of disks
+                write(this.header, 20);
+            }
+            putInt(this.header, 0, END_OF_CENTRAL_DIRECTORY_SIGNATURE);
+            putShort(this.header, 4, 0); // Disk number
+            putShort(this.header, 6, 0); // Disk with the central directory
+            putShort(this.header, 8, Math.min(this.entries.size(), MAX_ENTRIES));
+            putShort(this.header, 10, Math.min(this.entries.size(), MAX_ENTRIES));
+            putInt(this.header, 12, Math.min(centralDirectorySize, MAX_SIZE));
+            putInt(this.header, 16, Math.min(centralDirectoryOffset, MAX_SIZE));
+            putShort(this.header, 20, 0); // Comment length
+            write(this.header, 22);
+            this.out.flush();
+        }
+        finally
+        {
+            close();
+        }
+    }
+
+    /**
+     * Releases the native resources of the deflater if the writer uses own resources. A deflater of a save context is kept for the next save process. This method can be called several times and is called implicitly by finish()
+     */
+    void close()
+    {
+        if (this.ownContext == true)
+        {
+            this.context.dispose();
+        }
+    }
+
+    /**
+     * Resets the CRC and the deflater and writes the local header of a deflated entry with data descriptor
+     * @param name Entry name with relative path
+     * @param expectedSize Expected uncompressed size in bytes or -1 if unknown. Determines whether the local header contains a Zip64 extra field
+     * @return Started entry
+     * @throws IOException Thrown in case of an error while writing
+     */
+    private Entry beginDeflatedEntry(String name, long expectedSize) throws IOException
+    {
+        Entry entry = new Entry(name, DEFLATED, FLAG_DATA_DESCRIPTOR | FLAG_UTF8, this.dosTime, this.position);
+        entry.zip64 = expectedSize >= MAX_SIZE;
+        writeLocalHeader(entry);
+        this.crc.reset();
+        this.deflater.reset();
+        return entry;
+    }
+
+    /**
+     * Feeds uncompressed data into the CRC and the deflater and writes the compressed output. The input array must not be the output buffer of the writer
+     * @param data Uncompressed data
+     * @param offset Start index in the array
+     * @param length Number of bytes
+     * @throws IOException Thrown in case of an error while writing
+     */
+    private void deflateInput(byte[] data, int offset, int length) throws IOException
+    {
+        this.crc.update(data, offset, length);
+        this.deflater.setInput(data, offset, length);
+        while (this.deflater.needsInput() == false)
+        {
+            deflate();
+        }
+    }
+
+    /**
+     * Finishes the deflater, writes the remaining compressed data and the data descriptor of a deflated entry. The data descriptor contains 64 bit sizes if the entry uses Zip64 extensions, as decided when the entry was started
+     * @param entry Started entry
+     * @return Written entry
+     * @throws IOException Thrown in case of an error while writing, or if an entry without Zip64 extensions exceeds 4 GB
+     */
+    private Entry finishDeflatedEntry(Entry entry) throws IOException
+    {
+        this.deflater.finish();
+        while (this.deflater.finished() == false)
+        {
+            deflate();
+        }
+        entry.crc = this.crc.getValue();
+        entry.size = this.deflater.getBytesRead();
+        entry.compressedSize = this.deflater.getBytesWritten();
+        if (entry.zip64 == false && (entry.size >= MAX_SIZE || entry.compressedSize >= MAX_SIZE))
+        {
+            // The local header was already written without Zip64 extra field, so the entry cannot be completed
+            throw new IOException("The entry '" + entry.name + "' exceeds 4 GB, but its size was not expected in advance.");
+        }
+        putInt(this.header, 0, DATA_DESCRIPTOR_SIGNATURE);
+        putInt(this.header, 4, entry.crc);
+        if (entry.zip64 == true)
+        {
+            putLong(this.header, 8, entry.compressedSize);
+            putLong(this.header, 16, entry.size);
+            write(this.header, 24);
+        }
+        else
+        {
+            putInt(this.header, 8, entry.compressedSize);
+            putInt(this.header, 12, entry.size);
+            write(this.header, 16);
+        }
+        this.entries.add(entry);
+        return entry;
+    }
+
+    /**
+     * Transfers a range of a file channel into the output stream, without loading it completely into memory. If the output is a stream of a channel, the range is transferred into the channel with FileChannel.transferTo
+     * @param name Entry name (for the error message)
+     * @param channel File channel to read from
+     * @param offset Position of the first byte in the channel
+     * @param length Number of bytes to transfer
+     * @throws IOException Thrown in case of an error while reading or writing, or if the channel ends before the range
+     */
+    private void transfer(String name, FileChannel channel, long offset, long length) throws IOException
+    {
+        if (this.out instanceof ChannelOutputStream)
+        {
+            if (((ChannelOutputStream)this.out).transferFrom(channel, offset, length) != length)
+            {
+                throw new IOException("The data of the entry '" + name + "' is truncated.");
+            }
+            this.position += length;
+            return;
+        }
+        WritableByteChannel target = Channels.newChannel(this.out);
+        long remaining = length;
+        long transferred;
+        while (remaining > 0)
+        {
+            transferred = channel.transferTo(offset, remaining, target);
+            if (transferred <= 0)
+            {
+                throw new IOException("The data of the entry '" + name + "' is truncated.");
+            }
+            offset += transferred;
+            remaining -= transferred;
+        }
+        this.position += length;
+    }
+
+    /**
+     * Writes the content of a buffer into the output stream. Heap buffers are written without copying. The position of the buffer is not changed
+     * @param data Buffer with the data between its position and limit
+     * @throws IOException Thrown in case of an error while writing
+     */
+    private void writeBuffer(ByteBuffer data) throws IOException
+    {
+        if (data.hasArray() == true)
+        {
+            write(data.array(), data.arrayOffset() + data.position(), data.remaining());
+            return;
+        }
+        ByteBuffer source = data.duplicate();
+        int length;
+        while (source.hasRemaining() == true)
+        {
+            length = Math.min(this.buffer.length, source.remaining());
+            source.get(this.buffer, 0, length);
+            write(this.buffer, length);
+        }
+    }
+
+    /**
+     * Writes the pending compressed data of the deflater into the output stream
+     * @throws IOException Thrown in case of an error while writing
+     */
+    private void deflate() throws IOException
+    {
+        int length = this.deflater.deflate(this.buffer, 0, this.buffer.length);
+        if (length > 0)
+        {
+            write(this.buffer, length);
+        }
+    }
+
+    /**
+     * Writes the local file header of an entry. CRC and sizes are zero if the entry uses a data descriptor
+     * @param entry Entry to write the header for
+     * @throws IOException Thrown in case of an error while writing
+     */
+    private void writeLocalHeader(Entry entry) throws IOException
+    {
+        byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+        boolean descriptor = (entry.flags & FLAG_DATA_DESCRIPTOR) != 0;
+        if (descriptor == false)
+        {
+            entry.zip64 = entry.size >= MAX_SIZE || entry.compressedSize >= MAX_SIZE;
+        }
+        putInt(this.header, 0, LOCAL_HEADER_SIGNATURE);
+        putShort(this.header, 4, entry.zip64 == true ? VERSION_ZIP64 : VERSION);
+        putShort(this.header, 6, entry.flags);
+        putShort(this.header, 8, entry.method);
+        putInt(this.header, 10, entry.dosTime);
+        putInt(this.header, 14, descriptor == true ? 0 : entry.crc);
+        if (entry.zip64 == true)
+        {
+            putInt(this.header, 18, MAX_SIZE);
+            putInt(this.header, 22, MAX_SIZE);
+        }
+        else
+        {
+            putInt(this.header, 18, descriptor == true ? 0 : entry.compressedSize);
+            putInt(this.header, 22, descriptor == true ? 0 : entry.size);
+        }
+        putShort(this.header, 26, name.length);
+        putShort(this.header, 28, entry.zip64 == true ? 20 : 0); // Extra field length
+        write(this.header, 30);
+        write(name, name.length);
+        if (entry.zip64 == true)
+        {
+            // The sizes of entries with data descriptor are not known yet and are written as 0
+            putShort(this.header, 0, ZIP64_EXTRA_ID);
+            putShort(this.header, 2, 16);
+            putLong(this.header, 4, descriptor == true ? 0 : entry.size);
+            putLong(this.header, 12, descriptor == true ? 0 : entry.compressedSize);
+            write(this.header, 20);
+        }
+    }
+
+    /**
+     * Writes bytes into the output stream and advances the position
+     * @param data Data to write
+     * @param length Number of bytes to write, starting at index 0
+     * @throws IOException Thrown in case of an error while writing
+     */
+    private void write(byte[] data, int length) throws IOException
+    {
+        write(data, 0, length);
+    }
+
+    /**
+     * Writes a range of bytes into the output stream and advances the position
+     * @param data Data to write
+     * @param offset Start index in the array
+     * @param length Number of bytes to write
+     * @throws IOException Thrown in case of an error while writing
+     */
+    private void write(byte[] data, int offset, int length) throws IOException
+    {
+        this.out.write(data, offset, length);
+        this.position += length;
+    }
+
+// ### S T A T I C   M E T H O D S ###
+    /**
+     * Writes a 16 bit value in little endian order
+     * @param data Target array
+     * @param index Start index
+     * @param value Value to write
+     */
+    private static void putShort(byte[] data, int index, int value)
+    {
+        data[index] = (byte)value;
+        data[index + 1] = (byte)(value >>> 8);
+    }
+
+    /**
+     * Writes a 32 bit value in little endian order
+     * @param data Target array
+     * @param index Start index
+     * @param value Value to write (only the lower 32 bits are used)
+     */
+    private static void putInt(byte[] data, int index, long value)
+    {
+        data[index] = (byte)value;
+        data[index + 1] = (byte)(value >>> 8);
+        data[index + 2] = (byte)(value >>> 16);
+        data[index + 3] = (byte)(value >>> 24);
+    }
+
+    /**
+     * Writes a 64 bit value in little endian order
+     * @param data Target array
+     * @param index Start index
+     * @param value Value to write
+     */
+    private static void putLong(byte[] data, int index, long value)
+    {
+        putInt(data, index, value);
+        putInt(data, index + 4, value >>> 32);
+    }
+
+    /**
+     * Converts a date and time into the MS-DOS format of zip entries (date in the upper, time in the lower 16 bits)
+     * @param time Date and time to convert
+     * @return MS-DOS date and time. Dates before 1980 are set to 1980-01-01
+     */
+    private static int toDosTime(LocalDateTime time)
+    {
+        if (time.getYear() < 1980)
+        {
+            return (1 << 21) | (1 << 16);
+        }
+        return (time.getYear() - 1980) << 25 | time.getMonthValue() << 21 | time.getDayOfMonth() << 16
+                | time.getHour() << 11 | time.getMinute() << 5 | time.getSecond() >> 1;
+    }
+
+// ### S U B  C L A S S E S ###
+    /**
+     * Class representing a written entry with its central directory information
+     */
+    static final class Entry
+    {
+        private long compressedSize;
+        private long crc;
+        private final int dosTime;
+        private final int flags;
+        private final int method;
+        private final String name;
+        private final long offset;
+        private long size;
+        private boolean zip64;
+
+        /**
+         * Gets the size of the compressed data
+         * @return Size in bytes
+         */
+        long getCompressedSize() {
+            return compressedSize;
+        }
+
+        /**
+         * Gets the size of the uncompressed data
+         * @return Size in bytes
+         */
+        long getSize() {
+            return size;
+        }
+
+        /**
+         * Constructor with header information
+         * @param name Entry name with relative path
+         * @param method Compression method
+         * @param flags General purpose flags
+         * @param dosTime Modification time in the MS-DOS format
+         * @param offset Position of the local header
+         */
+        Entry(String name, int method, int flags, int dosTime, long offset)
+        {
+            this.name = name;
+            this.method = method;
+            this.flags = flags;
+            this.dosTime = dosTime;
+            this.offset = offset;
+        }
+    }
+
+}
@@ -0,0 +1,213 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.reader;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Class representing an index of the shared strings of a workbook. The strings are parsed once and written to a temporary file. Only the offsets of the strings are kept in memory, so that the memory usage does not depend on the length of the strings<br>
+ * A string is read from the file when it is requested by its index. The temporary file is deleted when the index is closed
+ * @author Raphael Stoeckli
+ */
+final class SharedStringIndex implements Closeable
+{
+
+// ### P R I V A T E  F I E L D S ###
+    private final FileChannel channel;
+    private int count;
+    private final Path file;
+    private long[] offsets;
+
+// ### G E T T E R S  &  S E T T E R S ###
+    /**
+     * Gets the number of indexed strings
+     * @return Number of strings
+     */
+    int getCount() {
+        return count;
+    }
+
+// ### C O N S T R U C T O R S ###
+    /**
+     * Constructor with temporary file. Use the method create to build an index
+     * @param file Temporary file of the strings
+     * @param channel Open channel of the temporary file
+     */
+    private SharedStringIndex(Path file, FileChannel channel)
+    {
+        this.file = file;
+        this.channel = channel;
+        this.offsets = new long[64];
+    }
+
+// ### M E T H O D S ###
+    /**
+     * Closes the index and deletes the temporary file
+     * @throws IOException Thrown if the temporary file cannot be deleted
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            this.channel.close();
+        }
+        finally
+        {
+            Files.deleteIfExists(this.file);
+        }
+    }
+
+    /**
+     * Gets a shared string by its index
+     * @param index Zero-based index of the string (value of a cell with the type 's')
+     * @return Shared string
+     * @throws IOException Thrown if the index is out of range or the temporary file cannot be read
+     */
+    String get(int index) throws IOException
+    {
+        if (index < 0 || index >= this.count)
+        {
+            throw new IOException("The shared string index " + index + " is out of range. The workbook contains " + this.count + " shared strings.");
+        }
+        long position = this.offsets[index];
+        ByteBuffer buffer = ByteBuffer.allocate((int)(this.offsets[index + 1] - position));
+        while (buffer.hasRemaining() == true)
+        {
+            if (this.channel.read(buffer, position + buffer.position()) < 0)
+            {
+                throw new IOException("The shared string " + index + " could not be read completely.");
+            }
+        }
+        return new String(buffer.array(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Adds the offset of the next string to the index
+     * @param offset Offset in bytes after the last written string
+     */
+    private void addOffset(long offset)
+    {
+        if (this.count + 1 >= this.offsets.length)
+        {
+            this.offsets = Arrays.copyOf(this.offsets, this.offsets.length * 2);
+        }
+        this.count++;
+        this.offsets[this.count] = offset;
+    }
+
+// ### S T A T I C   M E T H O D S ###
+    /**
+     * Creates an index of the shared strings part. All text elements of a string item (including rich text runs) are concatenated. Phonetic runs are skipped
+     * @param stream Stream of the shared strings part (xl/sharedStrings.xml)
+     * @param factory StAX factory to create the parser
+     * @return Index of the shared strings
+     * @throws IOException Thrown if the temporary file cannot be written
+     * @throws XMLStreamException Thrown if the part is malformed
+     */
+    static SharedStringIndex create(InputStream stream, XMLInputFactory factory) throws IOException, XMLStreamException
+    {
+        Path file = Files.createTempFile("picoxlsx4j-sst", ".tmp");
+        SharedStringIndex index = null;
+        XMLStreamReader parser = null;
+        try
+        {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            index = new SharedStringIndex(file, channel);
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), 65536);
+            parser = factory.createXMLStreamReader(stream);
+            StringBuilder sb = new StringBuilder();
+            long offset = 0;
+            int phoneticDepth = 0;
+            boolean inText = false;
+            while (parser.hasNext() == true)
+            {
+                int event = parser.next();
+                if (event == XMLStreamConstants.START_ELEMENT)
+                {
+                    String name = parser.getLocalName();
+                    if (name.equals("si") == true)
+                    {
+                        sb.setLength(0);
+                    }
+                    else if (name.equals("rPh") == true)
+                    {
+                        phoneticDepth++;
+                    }
+                    else if (name.equals("t") == true && phoneticDepth == 0)
+                    {
+                        inText = true;
+                    }
+                }
+                else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA || event == XMLStreamConstants.SPACE)
+                {
+                    if (inText == true)
+                    {
+                        sb.append(parser.getTextCharacters(), parser.getTextStart(), parser.getTextLength());
+                    }
+                }
+                else if (event == XMLStreamConstants.END_ELEMENT)
+                {
+                    String name = parser.getLocalName();
+                    if (name.equals("t") == true)
+                    {
+                        inText = false;
+                    }
+                    else if (name.equals("rPh") == true)
+                    {
+                        phoneticDepth--;
+                    }
+                    else if (name.equals("si") == true)
+                    {
+                        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+                        out.write(bytes);
+                        offset += bytes.length;
+                        index.addOffset(offset);
+                    }
+                }
+            }
+            out.flush();
+            return index;
+        }
+        catch (IOException | XMLStreamException | RuntimeException e)
+        {
+            if (index != null)
+            {
+                index.close();
+            }
+            else
+            {
+                Files.deleteIfExists(file);
+            }
+            throw e;
+        }
+        finally
+        {
+            if (parser != null)
+            {
+                parser.close();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,302 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.reader;
+
+import ch.rabanti.picoxlsx4j.style.Font;
+import ch.rabanti.picoxlsx4j.style.NumberFormat;
+import ch.rabanti.picoxlsx4j.style.Style;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class representing the cell formats of a style sheet, as far as they are needed to verify written files. Only the number formats and the main font attributes are resolved. Fills, borders and alignments are not read<br>
+ * The style sheet is small compared to the worksheets and is therefore kept in memory
+ * @author Raphael Stoeckli
+ */
+final class StyleSheet
+{
+
+// ### P R I V A T E  F I E L D S ###
+    private final List<Boolean> dateFormats;
+    private final List<Style> styles;
+
+// ### C O N S T R U C T O R S ###
+    /**
+     * Default constructor (empty style sheet)
+     */
+    StyleSheet()
+    {
+        this.styles = new ArrayList<>();
+        this.dateFormats = new ArrayList<>();
+    }
+
+// ### M E T H O D S ###
+    /**
+     * Gets the style of a cell format
+     * @param index Index of the cell format (value of the attribute 's' of a cell)
+     * @return Style or null if the index is not defined
+     */
+    Style getStyle(int index)
+    {
+        if (index < 0 || index >= this.styles.size())
+        {
+            return null;
+        }
+        return this.styles.get(index);
+    }
+
+    /**
+     * Gets whether a cell format has a date or time number format. Numeric cells with such a format are read as dates
+     * @param index Index of the cell format (value of the attribute 's' of a cell)
+     * @return True if the number format is a date or time format
+     */
+    boolean isDateFormat(int index)
+    {
+        if (index < 0 || index >= this.dateFormats.size())
+        {
+            return false;
+        }
+        return this.dateFormats.get(index);
+    }
+
+// ### S T A T I C   M E T H O D S ###
+    /**
+     * Reads the cell formats of a style sheet part
+     * @param stream Stream of the style sheet part (xl/styles.xml)
+     * @param factory StAX factory to create the parser
+     * @return Style sheet
+     * @throws XMLStreamException Thrown if the part is malformed
+     */
+    static StyleSheet read(InputStream stream, XMLInputFactory factory) throws XMLStreamException
+    {
+        StyleSheet styleSheet = new StyleSheet();
+        Map<Integer, String> customFormats = new HashMap<>();
+        List<Font> fonts = new ArrayList<>();
+        XMLStreamReader parser = factory.createXMLStreamReader(stream);
+        try
+        {
+            String section = "";
+            Font font = null;
+            while (parser.hasNext() == true)
+            {
+                int event = parser.next();
+                if (event == XMLStreamConstants.END_ELEMENT)
+                {
+                    String name = parser.getLocalName();
+                    if (name.equals(section) == true)
+                    {
+                        section = "";
+                    }
+                    else if (name.equals("font") == true && font != null)
+                    {
+                        fonts.add(font);
+                        font = null;
+                    }
+                    continue;
+                }
+                if (event != XMLStreamConstants.START_ELEMENT)
+                {
+                    continue;
+                }
+                String name = parser.getLocalName();
+                if (name.equals("numFmts") == true || name.equals("fonts") == true || name.equals("cellXfs") == true)
+                {
+                    section = name;
+                }
+                else if (section.equals("numFmts") == true && name.equals("numFmt") == true)
+                {
+                    customFormats.put(Integer.parseInt(parser.getAttributeValue(null, "numFmtId")), parser.getAttributeValue(null, "formatCode"));
+                }
+                else if (section.equals("fonts") == true)
+                {
+                    if (name.equals("font") == true)
+                    {
+                        font = new Font();
+                    }
+                    else if (font != null)
+                    {
+                        readFontAttribute(parser, name, font);
+                    }
+                }
+                else if (section.equals("cellXfs") == true && name.equals("xf") == true)
+                {
+                    int numberFormatId = parseInt(parser.getAttributeValue(null, "numFmtId"));
+                    int fontId = parseInt(parser.getAttributeValue(null, "fontId"));
+                    Style style = new Style();
+                    if (fontId < fonts.size())
+                    {
+                        style.setFont(fonts.get(fontId).copy());
+                    }
+                    style.setNumberFormat(createNumberFormat(numberFormatId, customFormats.get(numberFormatId)));
+                    styleSheet.styles.add(style);
+                    styleSheet.dateFormats.add(isDateFormat(numberFormatId, customFormats.get(numberFormatId)));
+                }
+            }
+        }
+        finally
+        {
+            parser.close();
+        }
+        return styleSheet;
+    }
+
+    /**
+     * Creates a number format of a built-in or custom format ID
+     * @param id Format ID
+     * @param code Format code in case of a custom format, otherwise null
+     * @return Number format. Unknown built-in IDs are mapped to 'none'
+     */
+    private static NumberFormat createNumberFormat(int id, String code)
+    {
+        NumberFormat numberFormat = new NumberFormat();
+        if (code != null)
+        {
+            numberFormat.setNumber(NumberFormat.FormatNumber.custom);
+            numberFormat.setCustomFormatID(id);
+            numberFormat.setCustomFormatCode(code);
+            return numberFormat;
+        }
+        for (NumberFormat.FormatNumber number : NumberFormat.FormatNumber.values())
+        {
+            if (number.getValue() == id && number != NumberFormat.FormatNumber.custom)
+            {
+                numberFormat.setNumber(number);
+                break;
+            }
+        }
+        return numberFormat;
+    }
+
+    /**
+     * Checks whether a number format is a date or time format. Built-in formats are resolved by their ID. Custom formats are considered as date format if they contain a date or time placeholder outside of quoted text and brackets (except elapsed time like [h])
+     * @param id Format ID
+     * @param code Format code in case of a custom format, otherwise null
+     * @return True if the number format represents a date or time
+     */
+    private static boolean isDateFormat(int id, String code)
+    {
+        if (code == null)
+        {
+            return (id >= 14 && id <= 22) || (id >= 45 && id <= 47);
+        }
+        boolean quoted = false;
+        boolean bracket = false;
+        for (int i = 0; i < code.length(); i++)
+        {
+            char c = code.charAt(i);
+            if (c == '\\' || c == '_' || c == '*')
+            {
+                i++; // Escaped or padding character
+            }
+            else if (c == '"')
+            {
+                quoted = !quoted;
+            }
+            else if (quoted == false && c == '[')
+            {
+                bracket = true;
+                char next = i + 1 < code.length() ? Character.toLowerCase(code.charAt(i + 1)) : ' ';
+                if (next == 'h' || next == 'm' || next == 's')
+                {
+                    return true;
+                }
+            }
+            else if (quoted == false && c == ']')
+            {
+                bracket = false;
+            }
+            else if (quoted == false && bracket == false && "yYmMdDhHsS".indexOf(c) >= 0)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses an integer attribute
+     * @param value Attribute value
+     * @return Parsed value or 0 if the attribute is not defined
+     */
+    private static int parseInt(String value)
+    {
+        if (value == null)
+        {
+            return 0;
+        }
+        return Integer.parseInt(value);
+    }
+
+    /**
+     * Reads a child element of a font definition
+     * @param parser Parser, positioned on the start element
+     * @param name Local name of the element
+     * @param font Font to apply the attribute on
+     */
+    private static void readFontAttribute(XMLStreamReader parser, String name, Font font)
+    {
+        String value = parser.getAttributeValue(null, "val");
+        boolean enabled = value == null || (value.equals("0") == false && value.equals("false") == false);
+        switch (name)
+        {
+            case "b":
+                font.setBold(enabled);
+                break;
+            case "i":
+                font.setItalic(enabled);
+                break;
+            case "strike":
+                font.setStrike(enabled);
+                break;
+            case "u":
+                if ("double".equals(value) == true)
+                {
+                    font.setDoubleUnderline(true);
+                }
+                else
+                {
+                    font.setUnderline("none".equals(value) == false);
+                }
+                break;
+            case "sz":
+                if (value != null)
+                {
+                    font.setSize((int)Math.round(Double.parseDouble(value)));
+                }
+                break;
+            case "name":
+                if (value != null)
+                {
+                    font.setName(value);
+                }
+                break;
+            case "color":
+                String theme = parser.getAttributeValue(null, "theme");
+                String rgb = parser.getAttributeValue(null, "rgb");
+                if (theme != null)
+                {
+                    font.setColorTheme(Integer.parseInt(theme));
+                }
+                if (rgb != null)
+                {
+                    font.setColorValue(rgb);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+}
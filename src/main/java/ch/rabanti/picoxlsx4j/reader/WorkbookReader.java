@@ -0,0 +1,343 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.reader;
+
+import ch.rabanti.picoxlsx4j.exception.IOException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Class representing a lightweight, streaming reader of XLSX files. The reader is intended to verify written files (round-trip tests) and reads worksheets row by row with constant memory, independent of the number of rows<br>
+ * Only the workbook index, the relationships and the cell formats of the style sheet are kept in memory. Shared strings are written once into a temporary index file and resolved on demand. The reader must be closed to delete this file
+ * @author Raphael Stoeckli
+ */
+public class WorkbookReader implements AutoCloseable
+{
+
+// ### C O N S T A N T S ###
+    private static final String SHARED_STRINGS_TYPE = "/sharedStrings";
+    private static final String STYLES_TYPE = "/styles";
+    private static final String WORKBOOK_PART = "xl/workbook.xml";
+    private static final String WORKBOOK_RELATIONSHIPS_PART = "xl/_rels/workbook.xml.rels";
+
+// ### P R I V A T E  F I E L D S ###
+    private final XMLInputFactory factory;
+    private final Path path;
+    private SharedStringIndex sharedStrings;
+    private final List<String> sheetNames;
+    private final List<String> sheetParts;
+    private StyleSheet styleSheet;
+    private final ZipFile zipFile;
+
+// ### G E T T E R S  &  S E T T E R S ###
+    /**
+     * Gets the path of the file
+     * @return Path
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Gets the number of shared strings of the workbook
+     * @return Number of shared strings or 0 if the workbook has no shared strings part
+     */
+    public int getSharedStringCount() {
+        return sharedStrings == null ? 0 : sharedStrings.getCount();
+    }
+
+    /**
+     * Gets the names of the worksheets in the order of the workbook
+     * @return Unmodifiable list of names
+     */
+    public List<String> getWorksheetNames() {
+        return Collections.unmodifiableList(sheetNames);
+    }
+
+// ### C O N S T R U C T O R S ###
+    /**
+     * Constructor with path and opened file. Use the method open to read a file
+     * @param path Path of the file
+     * @param zipFile Opened file
+     */
+    private WorkbookReader(Path path, ZipFile zipFile)
+    {
+        this.path = path;
+        this.zipFile = zipFile;
+        this.factory = createFactory();
+        this.sheetNames = new ArrayList<>();
+        this.sheetParts = new ArrayList<>();
+    }
+
+// ### M E T H O D S ###
+    /**
+     * Closes the file and deletes the temporary shared string index. Open worksheet readers cannot be used anymore
+     * @throws IOException Thrown if the file cannot be closed or the index cannot be deleted
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            try
+            {
+                if (this.sharedStrings != null)
+                {
+                    this.sharedStrings.close();
+                }
+            }
+            finally
+            {
+                this.zipFile.close();
+            }
+        }
+        catch (java.io.IOException e)
+        {
+            throw new IOException("ReaderException", "The file '" + this.path + "' could not be closed. Please see the inner exception:" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Opens a worksheet by its index
+     * @param index Zero-based index of the worksheet
+     * @return Worksheet reader. The reader should be closed after use
+     * @throws IOException Thrown if the index is out of range or the worksheet part cannot be opened
+     */
+    public WorksheetReader getWorksheet(int index) throws IOException
+    {
+        if (index < 0 || index >= this.sheetNames.size())
+        {
+            throw new IOException("ReaderException", "The worksheet index " + index + " is out of range. The workbook contains " + this.sheetNames.size() + " worksheets.");
+        }
+        String part = this.sheetParts.get(index);
+        ZipEntry entry = this.zipFile.getEntry(part);
+        if (entry == null)
+        {
+            throw new IOException("ReaderException", "The part '" + part + "' of the worksheet '" + this.sheetNames.get(index) + "' was not found.");
+        }
+        InputStream stream = null;
+        try
+        {
+            stream = this.zipFile.getInputStream(entry);
+            return new WorksheetReader(this.sheetNames.get(index), stream, this.factory.createXMLStreamReader(stream), this.sharedStrings, this.styleSheet);
+        }
+        catch (java.io.IOException | XMLStreamException e)
+        {
+            closeQuietly(stream);
+            throw new IOException("ReaderException", "The worksheet '" + this.sheetNames.get(index) + "' could not be opened. Please see the inner exception:" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Opens a worksheet by its name
+     * @param name Name of the worksheet
+     * @return Worksheet reader. The reader should be closed after use
+     * @throws IOException Thrown if the worksheet does not exist or cannot be opened
+     */
+    public WorksheetReader getWorksheet(String name) throws IOException
+    {
+        int index = this.sheetNames.indexOf(name);
+        if (index < 0)
+        {
+            throw new IOException("ReaderException", "The worksheet '" + name + "' does not exist.");
+        }
+        return getWorksheet(index);
+    }
+
+    /**
+     * Reads the workbook index, the relationships, the style sheet and the shared strings
+     * @throws java.io.IOException Thrown if a part cannot be read
+     * @throws XMLStreamException Thrown if a part is malformed
+     */
+    private void readIndex() throws java.io.IOException, XMLStreamException
+    {
+        Map<String, String> targets = new HashMap<>();
+        String sharedStringsPart = "xl/sharedStrings.xml";
+        String stylesPart = "xl/styles.xml";
+        XMLStreamReader parser;
+        ZipEntry entry = this.zipFile.getEntry(WORKBOOK_RELATIONSHIPS_PART);
+        if (entry != null)
+        {
+            try (InputStream stream = this.zipFile.getInputStream(entry))
+            {
+                parser = this.factory.createXMLStreamReader(stream);
+                while (parser.hasNext() == true)
+                {
+                    if (parser.next() == XMLStreamConstants.START_ELEMENT && parser.getLocalName().equals("Relationship") == true)
+                    {
+                        String target = resolveTarget(parser.getAttributeValue(null, "Target"));
+                        String type = parser.getAttributeValue(null, "Type");
+                        targets.put(parser.getAttributeValue(null, "Id"), target);
+                        if (type != null && type.endsWith(SHARED_STRINGS_TYPE) == true) { sharedStringsPart = target; }
+                        else if (type != null && type.endsWith(STYLES_TYPE) == true) { stylesPart = target; }
+                    }
+                }
+                parser.close();
+            }
+        }
+        entry = this.zipFile.getEntry(WORKBOOK_PART);
+        if (entry == null)
+        {
+            throw new java.io.IOException("The part '" + WORKBOOK_PART + "' was not found. The file is not a valid XLSX file.");
+        }
+        try (InputStream stream = this.zipFile.getInputStream(entry))
+        {
+            parser = this.factory.createXMLStreamReader(stream);
+            while (parser.hasNext() == true)
+            {
+                if (parser.next() == XMLStreamConstants.START_ELEMENT && parser.getLocalName().equals("sheet") == true)
+                {
+                    String id = null;
+                    for (int i = 0; i < parser.getAttributeCount(); i++)
+                    {
+                        if (parser.getAttributeLocalName(i).equals("id") == true)
+                        {
+                            id = parser.getAttributeValue(i);
+                        }
+                    }
+                    String target = targets.get(id);
+                    if (target == null)
+                    {
+                        throw new java.io.IOException("The relationship of the worksheet '" + parser.getAttributeValue(null, "name") + "' was not found.");
+                    }
+                    this.sheetNames.add(parser.getAttributeValue(null, "name"));
+                    this.sheetParts.add(target);
+                }
+            }
+            parser.close();
+        }
+        entry = this.zipFile.getEntry(stylesPart);
+        if (entry == null)
+        {
+            this.styleSheet = new StyleSheet();
+        }
+        else
+        {
+            try (InputStream stream = this.zipFile.getInputStream(entry))
+            {
+                this.styleSheet = StyleSheet.read(stream, this.factory);
+            }
+        }
+        entry = this.zipFile.getEntry(sharedStringsPart);
+        if (entry != null)
+        {
+            try (InputStream stream = this.zipFile.getInputStream(entry))
+            {
+                this.sharedStrings = SharedStringIndex.create(stream, this.factory);
+            }
+        }
+    }
+
+// ### S T A T I C   M E T H O D S ###
+    /**
+     * Opens an XLSX file and reads its index. The worksheets are not read until they are requested
+     * @param filename File name of the XLSX file
+     * @return Workbook reader. The reader must be closed after use
+     * @throws IOException Thrown if the file cannot be opened or is not a valid XLSX file
+     */
+    public static WorkbookReader open(String filename) throws IOException
+    {
+        return open(Paths.get(filename));
+    }
+
+    /**
+     * Opens an XLSX file and reads its index. The worksheets are not read until they are requested
+     * @param path Path of the XLSX file
+     * @return Workbook reader. The reader must be closed after use
+     * @throws IOException Thrown if the file cannot be opened or is not a valid XLSX file
+     */
+    public static WorkbookReader open(Path path) throws IOException
+    {
+        WorkbookReader reader = null;
+        try
+        {
+            reader = new WorkbookReader(path, new ZipFile(path.toFile()));
+            reader.readIndex();
+            return reader;
+        }
+        catch (java.io.IOException | XMLStreamException | RuntimeException e)
+        {
+            if (reader != null)
+            {
+                try
+                {
+                    reader.close();
+                }
+                catch (IOException ex)
+                {
+                    // Original exception is thrown
+                }
+            }
+            throw new IOException("ReaderException", "The file '" + path + "' could not be opened. Please see the inner exception:" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Closes a stream without throwing an exception
+     * @param stream Stream to close or null
+     */
+    private static void closeQuietly(InputStream stream)
+    {
+        if (stream == null)
+        {
+            return;
+        }
+        try
+        {
+            stream.close();
+        }
+        catch (java.io.IOException e)
+        {
+            // Nothing to do
+        }
+    }
+
+    /**
+     * Creates a StAX factory. DTDs and external entities are not supported
+     * @return Factory
+     */
+    private static XMLInputFactory createFactory()
+    {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    /**
+     * Resolves the target of a workbook relationship to a part name
+     * @param target Absolute target (e.g. '/xl/worksheets/sheet1.xml') or target relative to the folder 'xl' (e.g. 'worksheets/sheet1.xml')
+     * @return Part name without leading slash
+     */
+    private static String resolveTarget(String target)
+    {
+        if (target == null)
+        {
+            return "";
+        }
+        if (target.startsWith("/") == true)
+        {
+            return target.substring(1);
+        }
+        return "xl/" + target;
+    }
+
+}
@@ -0,0 +1,428 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2019
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.reader;
+
+import ch.rabanti.picoxlsx4j.Address;
+import ch.rabanti.picoxlsx4j.Cell;
+import ch.rabanti.picoxlsx4j.Helper;
+import ch.rabanti.picoxlsx4j.exception.IOException;
+import ch.rabanti.picoxlsx4j.style.Style;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Class representing a streaming reader of one worksheet. The rows and cells are pulled one by one from the worksheet part, without keeping previous rows in memory<br>
+ * Call nextRow() to move to the next row and nextCell() to move to the next cell of the current row. Cells that are not read are skipped when calling nextRow() again. Empty rows and cells that are not defined in the file are not reported<br>
+ * Shared strings are resolved through the index of the workbook reader. Numeric cells with a date or time number format are read as dates (LocalDateTime)
+ * @author Raphael Stoeckli
+ */
+public class WorksheetReader implements AutoCloseable
+{
+
+// ### P R I V A T E  F I E L D S ###
+    private int columnNumber;
+    private boolean inRow;
+    private final String name;
+    private final XMLStreamReader parser;
+    private int rowNumber;
+    private final SharedStringIndex sharedStrings;
+    private final InputStream stream;
+    private int styleNumber;
+    private final StyleSheet styleSheet;
+    private Cell.CellType type;
+    private Object value;
+
+// ### G E T T E R S  &  S E T T E R S ###
+    /**
+     * Gets the cell type of the current cell. Error values are read as STRING. Formulas are read as FORMULA with the formula as value (without calculated result)
+     * @return Cell type
+     */
+    public Cell.CellType getCellType() {
+        return type;
+    }
+
+    /**
+     * Gets the column number of the current cell
+     * @return Column number (zero-based) or -1 if no cell was read in the current row
+     */
+    public int getColumnNumber() {
+        return columnNumber;
+    }
+
+    /**
+     * Gets the name of the worksheet
+     * @return Worksheet name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the row number of the current row
+     * @return Row number (zero-based) or -1 if no row was read yet
+     */
+    public int getRowNumber() {
+        return rowNumber;
+    }
+
+    /**
+     * Gets the style number (index of the cell format) of the current cell
+     * @return Style number. 0 is the default style
+     */
+    public int getStyleNumber() {
+        return styleNumber;
+    }
+
+    /**
+     * Gets the value of the current cell. Strings are returned as String, numbers as Long (integral values) or Double, booleans as Boolean and dates as LocalDateTime. Empty cells have the value null<br>
+     * Children of a shared formula have an empty formula, since only the master cell contains the formula text
+     * @return Cell value
+     */
+    public Object getValue() {
+        return value;
+    }
+
+// ### C O N S T R U C T O R S ###
+    /**
+     * Constructor with all components. Worksheet readers are created by the workbook reader
+     * @param name Name of the worksheet
+     * @param stream Stream of the worksheet part
+     * @param parser Parser of the worksheet part
+     * @param sharedStrings Index of the shared strings or null if the workbook has no shared strings
+     * @param styleSheet Cell formats of the workbook
+     */
+    WorksheetReader(String name, InputStream stream, XMLStreamReader parser, SharedStringIndex sharedStrings, StyleSheet styleSheet)
+    {
+        this.name = name;
+        this.stream = stream;
+        this.parser = parser;
+        this.sharedStrings = sharedStrings;
+        this.styleSheet = styleSheet;
+        this.rowNumber = -1;
+        this.columnNumber = -1;
+    }
+
+// ### M E T H O D S ###
+    /**
+     * Closes the worksheet part. The workbook reader remains open
+     * @throws IOException Thrown if the part cannot be closed
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            this.parser.close();
+            this.stream.close();
+        }
+        catch (XMLStreamException | java.io.IOException e)
+        {
+            throw new IOException("ReaderException", "The worksheet '" + this.name + "' could not be closed. Please see the inner exception:" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Gets the address of the current cell
+     * @return Address
+     */
+    public Address getAddress()
+    {
+        return new Address(this.columnNumber, this.rowNumber);
+    }
+
+    /**
+     * Gets the current cell as new cell object. The cell has no worksheet reference and no style
+     * @return Cell with value, type and address of the current cell
+     */
+    public Cell getCell()
+    {
+        return new Cell(this.value, this.type, this.columnNumber, this.rowNumber, null);
+    }
+
+    /**
+     * Gets the style of the current cell. Only the number format and the main font attributes (bold, italic, underline, strike, size, name and color) are resolved<br>
+     * The style object is shared by all cells with the same style number and must not be modified
+     * @return Style or null if the style number is not defined in the style sheet
+     */
+    public Style getStyle()
+    {
+        return this.styleSheet.getStyle(this.styleNumber);
+    }
+
+    /**
+     * Moves to the next cell of the current row
+     * @return True if a cell was read, false if the end of the row is reached
+     * @throws IOException Thrown if the worksheet is malformed or a shared string cannot be read
+     */
+    public boolean nextCell() throws IOException
+    {
+        if (this.inRow == false)
+        {
+            return false;
+        }
+        try
+        {
+            while (this.parser.hasNext() == true)
+            {
+                int event = this.parser.next();
+                if (event == XMLStreamConstants.START_ELEMENT && this.parser.getLocalName().equals("c") == true)
+                {
+                    readCell();
+                    return true;
+                }
+                else if (event == XMLStreamConstants.END_ELEMENT && this.parser.getLocalName().equals("row") == true)
+                {
+                    break;
+                }
+            }
+            this.inRow = false;
+            return false;
+        }
+        catch (XMLStreamException | RuntimeException e)
+        {
+            throw new IOException("ReaderException", "The worksheet '" + this.name + "' could not be read at row " + (this.rowNumber + 1) + ". Please see the inner exception:" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Moves to the next row of the worksheet. Remaining cells of the current row are skipped
+     * @return True if a row was read, false if the end of the worksheet is reached
+     * @throws IOException Thrown if the worksheet is malformed
+     */
+    public boolean nextRow() throws IOException
+    {
+        while (this.inRow == true)
+        {
+            nextCell();
+        }
+        this.columnNumber = -1;
+        this.type = null;
+        this.value = null;
+        try
+        {
+            while (this.parser.hasNext() == true)
+            {
+                int event = this.parser.next();
+                if (event == XMLStreamConstants.START_ELEMENT && this.parser.getLocalName().equals("row") == true)
+                {
+                    String reference = this.parser.getAttributeValue(null, "r");
+                    this.rowNumber = reference == null ? this.rowNumber + 1 : Integer.parseInt(reference) - 1;
+                    this.inRow = true;
+                    return true;
+                }
+                else if (event == XMLStreamConstants.END_ELEMENT && this.parser.getLocalName().equals("sheetData") == true)
+                {
+                    break;
+                }
+            }
+            return false;
+        }
+        catch (XMLStreamException | RuntimeException e)
+        {
+            throw new IOException("ReaderException", "The worksheet '" + this.name + "' could not be read after row " + (this.rowNumber + 1) + ". Please see the inner exception:" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads the cell at the current position of the parser (start element 'c') and resolves its value
+     * @throws XMLStreamException Thrown if the cell is malformed
+     * @throws IOException Thrown if a shared string cannot be read
+     */
+    private void readCell() throws XMLStreamException, IOException
+    {
+        String reference = this.parser.getAttributeValue(null, "r");
+        String typeAttribute = this.parser.getAttributeValue(null, "t");
+        String style = this.parser.getAttributeValue(null, "s");
+        if (reference == null)
+        {
+            this.columnNumber++;
+        }
+        else
+        {
+            Address address = Cell.resolveCellCoordinate(reference);
+            this.columnNumber = address.Column;
+            this.rowNumber = address.Row;
+        }
+        this.styleNumber = style == null ? 0 : Integer.parseInt(style);
+        String rawValue = null;
+        String formula = null;
+        while (this.parser.hasNext() == true)
+        {
+            int event = this.parser.next();
+            if (event == XMLStreamConstants.END_ELEMENT && this.parser.getLocalName().equals("c") == true)
+            {
+                break;
+            }
+            else if (event == XMLStreamConstants.START_ELEMENT)
+            {
+                String element = this.parser.getLocalName();
+                if (element.equals("v") == true)
+                {
+                    rawValue = this.parser.getElementText();
+                }
+                else if (element.equals("f") == true)
+                {
+                    formula = this.parser.getElementText();
+                }
+                else if (element.equals("is") == true)
+                {
+                    rawValue = readInlineString();
+                }
+            }
+        }
+        resolveValue(typeAttribute, rawValue, formula);
+    }
+
+    /**
+     * Reads an inline string at the current position of the parser (start element 'is'). Phonetic runs are skipped
+     * @return Concatenated text of the inline string
+     * @throws XMLStreamException Thrown if the inline string is malformed
+     */
+    private String readInlineString() throws XMLStreamException
+    {
+        StringBuilder sb = new StringBuilder();
+        int phoneticDepth = 0;
+        while (this.parser.hasNext() == true)
+        {
+            int event = this.parser.next();
+            if (event == XMLStreamConstants.START_ELEMENT)
+            {
+                String element = this.parser.getLocalName();
+                if (element.equals("rPh") == true)
+                {
+                    phoneticDepth++;
+                }
+                else if (element.equals("t") == true && phoneticDepth == 0)
+                {
+                    sb.append(this.parser.getElementText());
+                }
+            }
+            else if (event == XMLStreamConstants.END_ELEMENT)
+            {
+                String element = this.parser.getLocalName();
+                if (element.equals("rPh") == true)
+                {
+                    phoneticDepth--;
+                }
+                else if (element.equals("is") == true)
+                {
+                    break;
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Resolves the type and value of the current cell
+     * @param typeAttribute Value of the attribute 't' or null if not defined (number)
+     * @param rawValue Raw value of the cell or null if not defined
+     * @param formula Formula of the cell or null if the cell has no formula
+     * @throws IOException Thrown if a shared string cannot be read
+     */
+    private void resolveValue(String typeAttribute, String rawValue, String formula) throws IOException
+    {
+        if (formula != null)
+        {
+            this.type = Cell.CellType.FORMULA;
+            this.value = formula;
+            return;
+        }
+        if (typeAttribute == null)
+        {
+            typeAttribute = "n";
+        }
+        switch (typeAttribute)
+        {
+            case "s":
+                this.type = Cell.CellType.STRING;
+                this.value = resolveSharedString(rawValue);
+                break;
+            case "inlineStr":
+            case "str":
+            case "e":
+                this.type = Cell.CellType.STRING;
+                this.value = rawValue == null ? "" : rawValue;
+                break;
+            case "b":
+                this.type = Cell.CellType.BOOL;
+                this.value = "1".equals(rawValue) || "true".equals(rawValue);
+                break;
+            case "d":
+                this.type = Cell.CellType.DATE;
+                this.value = rawValue.indexOf('T') >= 0 ? LocalDateTime.parse(rawValue) : LocalDate.parse(rawValue).atStartOfDay();
+                break;
+            default:
+                if (Helper.isNullOrEmpty(rawValue) == true)
+                {
+                    this.type = Cell.CellType.EMPTY;
+                    this.value = null;
+                }
+                else if (this.styleSheet.isDateFormat(this.styleNumber) == true)
+                {
+                    this.type = Cell.CellType.DATE;
+                    this.value = Helper.getDateFromOADate(Double.parseDouble(rawValue));
+                }
+                else
+                {
+                    this.type = Cell.CellType.NUMBER;
+                    this.value = parseNumber(rawValue);
+                }
+                break;
+        }
+    }
+
+    /**
+     * Resolves a shared string by the raw value of a cell
+     * @param rawValue Raw value (index of the shared string)
+     * @return Shared string
+     * @throws IOException Thrown if the index is not valid or the string cannot be read
+     */
+    private String resolveSharedString(String rawValue) throws IOException
+    {
+        if (this.sharedStrings == null)
+        {
+            throw new IOException("ReaderException", "The worksheet '" + this.name + "' references a shared string, but the workbook contains no shared strings.");
+        }
+        try
+        {
+            return this.sharedStrings.get(Integer.parseInt(rawValue.trim()));
+        }
+        catch (java.io.IOException e)
+        {
+            throw new IOException("ReaderException", "The shared string of the cell " + Cell.resolveCellAddress(this.columnNumber, this.rowNumber) + " could not be read. Please see the inner exception:" + e.getMessage(), e);
+        }
+    }
+
+// ### S T A T I C   M E T H O D S ###
+    /**
+     * Parses a numeric value. Integral values without decimal point or exponent are returned as Long, all other values as Double
+     * @param rawValue Raw value of the cell
+     * @return Long or Double
+     */
+    private static Object parseNumber(String rawValue)
+    {
+        if (rawValue.indexOf('.') < 0 && rawValue.indexOf('E') < 0 && rawValue.indexOf('e') < 0)
+        {
+            try
+            {
+                return Long.parseLong(rawValue);
+            }
+            catch (NumberFormatException e)
+            {
+                // Out of range of long, parsed as double
+            }
+        }
+        return Double.parseDouble(rawValue);
+    }
+
+}
@@ -21,6 +21,8 @@ public abstract class AbstractStyle implements Comparable<AbstractStyle> {
 
     @AppendAnnotation(ignore = true)
     private Integer internalID = null;
+    @AppendAnnotation(ignore = true)
+    private long registrationNumber;
 
 // ### G E T T E R S  &  S E T T E R S ###
 
@@ -42,6 +44,24 @@ public abstract class AbstractStyle implements Comparable<AbstractStyle> {
         this.internalID = internalID;
     }
 
+    /**
+     * Gets the number of the registration in the style manager. Components with the same internal ID are ordered by this number
+     *
+     * @return Ascending registration number
+     */
+    long getRegistrationNumber() {
+        return registrationNumber;
+    }
+
+    /**
+     * Sets the number of the registration in the style manager
+     *
+     * @param registrationNumber Ascending registration number
+     */
+    void setRegistrationNumber(long registrationNumber) {
+        this.registrationNumber = registrationNumber;
+    }
+
 
     // ### M E T H O D S ###
     /**
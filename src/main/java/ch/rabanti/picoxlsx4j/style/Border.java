@@ -485,18 +485,18 @@ public class Border extends AbstractStyle {
     public int hashCode() {
         int p = 271;
         int r = 1;
-        r *= p + this.bottomStyle.value;
-        r *= p + this.diagonalStyle.value;
-        r *= p + this.topStyle.value;
-        r *= p + this.leftStyle.value;
-        r *= p + this.rightStyle.value;
-        r *= p + this.bottomColor.hashCode();
-        r *= p + this.diagonalColor.hashCode();
-        r *= p + this.topColor.hashCode();
-        r *= p + this.leftColor.hashCode();
-        r *= p + this.rightColor.hashCode();
-        r *= p + (this.diagonalDown ? 0 : 1);
-        r *= p + (this.diagonalUp ? 0 : 1);
+        r = p * r + this.bottomStyle.value;
+        r = p * r + this.diagonalStyle.value;
+        r = p * r + this.topStyle.value;
+        r = p * r + this.leftStyle.value;
+        r = p * r + this.rightStyle.value;
+        r = p * r + this.bottomColor.hashCode();
+        r = p * r + this.diagonalColor.hashCode();
+        r = p * r + this.topColor.hashCode();
+        r = p * r + this.leftColor.hashCode();
+        r = p * r + this.rightColor.hashCode();
+        r = p * r + (this.diagonalDown ? 0 : 1);
+        r = p * r + (this.diagonalUp ? 0 : 1);
         return r;
     }
 
@@ -399,14 +399,14 @@ public class CellXf extends AbstractStyle {
     public int hashCode() {
         int p = 269;
         int r = 1;
-        r *= p + this.horizontalAlign.value;
-        r *= p + this.verticalAlign.value;
-        r *= p + this.alignment.value;
-        r *= p + this.textDirection.value;
-        r *= p + this.textRotation;
-        r *= p + (this.forceApplyAlignment ? 0 : 1);
-        r *= p + (this.locked ? 0 : 1);
-        r *= p + (this.hidden ? 0 : 1);
+        r = p * r + this.horizontalAlign.value;
+        r = p * r + this.verticalAlign.value;
+        r = p * r + this.alignment.value;
+        r = p * r + this.textDirection.value;
+        r = p * r + this.textRotation;
+        r = p * r + (this.forceApplyAlignment ? 0 : 1);
+        r = p * r + (this.locked ? 0 : 1);
+        r = p * r + (this.hidden ? 0 : 1);
         return r;
     }
 
@@ -298,10 +298,10 @@ public class Fill extends AbstractStyle {
     public int hashCode() {
         int p = 263;
         int r = 1;
-        r *= p + this.indexedColor;
-        r *= p + this.patternFill.value;
-        r *= p + this.foregroundColor.hashCode();
-        r *= p + this.backgroundColor.hashCode();
+        r = p * r + this.indexedColor;
+        r = p * r + this.patternFill.value;
+        r = p * r + this.foregroundColor.hashCode();
+        r = p * r + this.backgroundColor.hashCode();
         return r;
     }
 
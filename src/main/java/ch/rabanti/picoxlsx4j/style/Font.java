@@ -401,19 +401,19 @@ public class Font extends AbstractStyle {
     public int hashCode() {
         int p = 257;
         int r = 1;
-        r *= p + (this.bold ? 0 : 1);
-        r *= p + (this.italic ? 0 : 1);
-        r *= p + (this.underline ? 0 : 1);
-        r *= p + (this.doubleUnderline ? 0 : 1);
-        r *= p + (this.strike ? 0 : 1);
-        r *= p + this.colorTheme;
-        r *= p + this.colorValue.hashCode();
-        r *= p + this.family.hashCode();
-        r *= p + this.name.hashCode();
-        r *= p + this.scheme.getValue();
-        r *= p + this.verticalAlign.value;
-        r *= p + this.charset.hashCode();
-        r *= p + this.size;
+        r = p * r + (this.bold ? 0 : 1);
+        r = p * r + (this.italic ? 0 : 1);
+        r = p * r + (this.underline ? 0 : 1);
+        r = p * r + (this.doubleUnderline ? 0 : 1);
+        r = p * r + (this.strike ? 0 : 1);
+        r = p * r + this.colorTheme;
+        r = p * r + this.colorValue.hashCode();
+        r = p * r + this.family.hashCode();
+        r = p * r + this.name.hashCode();
+        r = p * r + this.scheme.getValue();
+        r = p * r + this.verticalAlign.value;
+        r = p * r + this.charset.hashCode();
+        r = p * r + this.size;
         return r;
     }
 
@@ -294,9 +294,9 @@ public class NumberFormat extends AbstractStyle {
     public int hashCode() {
         int p = 251;
         int r = 1;
-        r *= p + this.customFormatCode.hashCode();
-        r *= p + this.customFormatID;
-        r *= p + this.number.getValue();
+        r = p * r + this.customFormatCode.hashCode();
+        r = p * r + this.customFormatID;
+        r = p * r + this.number.getValue();
         return r;
     }
 
@@ -289,11 +289,11 @@ public class Style extends AbstractStyle {
         }
         int p = 241;
         int r = 1;
-        r *= p + this.borderRef.hashCode();
-        r *= p + this.cellXfRef.hashCode();
-        r *= p + this.fillRef.hashCode();
-        r *= p + this.fontRef.hashCode();
-        r *= p + this.numberFormatRef.hashCode();
+        r = p * r + this.borderRef.hashCode();
+        r = p * r + this.cellXfRef.hashCode();
+        r = p * r + this.fillRef.hashCode();
+        r = p * r + this.fontRef.hashCode();
+        r = p * r + this.numberFormatRef.hashCode();
         return r;
     }
 
@@ -9,24 +9,32 @@ package ch.rabanti.picoxlsx4j.style;
 import ch.rabanti.picoxlsx4j.exception.StyleException;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Class representing a style manager to maintain all styles and its components of a workbook
+ * Class representing a style manager to maintain all styles and its components of a workbook<br>
+ * Styles can be added concurrently (e.g. by several threads that fill different worksheets). The styles and components are interned in concurrent maps and get an ascending registration number. The order and the internal IDs are only determined (frozen) when the styles or components are requested, e.g. when saving. Removing styles and saving must not run concurrently with other modifications
  *
  * @author Raphael Stockeli
  */
 public class StyleManager {
 
     // ### P R I V A T E  F I E L D S ###
-    private final ArrayList<AbstractStyle> borders;
-    private final ArrayList<AbstractStyle> cellXfs;
-    private final ArrayList<AbstractStyle> fills;
-    private final ArrayList<AbstractStyle> fonts;
-    private final ArrayList<AbstractStyle> numberFormats;
-    private final ArrayList<AbstractStyle> styles;
-    private final ArrayList<String> styleNames;
-    //private final Map<String, AbstractStyle> internalStyleCache;
+    private final StyleManager base;
+    private final ComponentRegistry borders;
+    private final ComponentRegistry cellXfs;
+    private final ComponentRegistry fills;
+    private final ComponentRegistry fonts;
+    private final ComponentRegistry numberFormats;
+    private final AtomicLong registrations;
+    private final ComponentRegistry styles;
+    private final Set<String> styleNames;
 
 // ### C O N S T R U C T O R S ### 
 
@@ -34,33 +42,45 @@ public class StyleManager {
      * Default constructor
      */
     public StyleManager() {
-        this.borders = new ArrayList<>();
-        this.cellXfs = new ArrayList<>();
-        this.fills = new ArrayList<>();
-        this.fonts = new ArrayList<>();
-        this.numberFormats = new ArrayList<>();
-        this.styles = new ArrayList<>();
-        this.styleNames = new ArrayList<>();
-        //this.internalStyleCache = new HashMap<>();
+        this.base = null;
+        this.borders = new ComponentRegistry();
+        this.cellXfs = new ComponentRegistry();
+        this.fills = new ComponentRegistry();
+        this.fonts = new ComponentRegistry();
+        this.numberFormats = new ComponentRegistry();
+        this.registrations = new AtomicLong();
+        this.styles = new ComponentRegistry();
+        this.styleNames = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * Constructor with a base style manager (e.g. of a template). The styles and components of the base are frozen and taken over with their internal IDs. Styles added to this manager are ordered after them and are not visible in the base
+     *
+     * @param base Style manager with the base styles. It must not be modified afterwards
+     */
+    public StyleManager(StyleManager base) {
+        base.freeze();
+        this.base = base;
+        this.borders = new ComponentRegistry(base.borders);
+        this.cellXfs = new ComponentRegistry(base.cellXfs);
+        this.fills = new ComponentRegistry(base.fills);
+        this.fonts = new ComponentRegistry(base.fonts);
+        this.numberFormats = new ComponentRegistry(base.numberFormats);
+        this.registrations = new AtomicLong(base.registrations.get());
+        this.styles = new ComponentRegistry(base.styles);
+        this.styleNames = ConcurrentHashMap.newKeySet();
+        this.styleNames.addAll(base.styleNames);
     }
 
 // ###  M E T H O D S ###
 
     /**
-     * Gets a component by its hash
+     * Gets whether the style manager has a base style manager and no styles were added to it. The styles and components are equal to those of the base in this case
      *
-     * @param list List to check
-     * @param hash Hash of the component
-     * @return Determined component. If not found, null will be returned
+     * @return True if only the styles of the base are registered, otherwise false
      */
-    private AbstractStyle getComponentByHash(ArrayList<AbstractStyle> list, int hash) {
-        int len = list.size();
-        for (int i = 0; i < len; i++) {
-            if (list.get(i).hashCode() == hash) {
-                return list.get(i);
-            }
-        }
-        return null;
+    public boolean isBaseUnchanged() {
+        return this.base != null && this.registrations.get() == this.base.registrations.get();
     }
 
     /**
@@ -71,11 +91,7 @@ public class StyleManager {
      * @throws StyleException Throws a StyleException if the border was not found in the style manager
      */
     public Border getBorderByHash(int hash) {
-        AbstractStyle component = getComponentByHash(this.borders, hash);
-        if (component == null) {
-            throw new StyleException("MissingReferenceException", "The style component with the hash '" + hash + "' was not found");
-        }
-        return (Border) component;
+        return (Border) getComponentByHash(this.borders, hash);
     }
 
     /**
@@ -84,7 +100,8 @@ public class StyleManager {
      * @return Array of borders
      */
     public Border[] getBorders() {
-        return this.borders.toArray(new Border[this.borders.size()]);
+        freeze();
+        return this.borders.getOrdered(Border[].class);
     }
 
     /**
@@ -104,11 +121,7 @@ public class StyleManager {
      * @throws StyleException Throws a StyleException if the cellXf was not found in the style manager
      */
     public CellXf getCellXfByHash(int hash) {
-        AbstractStyle component = getComponentByHash(this.cellXfs, hash);
-        if (component == null) {
-            throw new StyleException("MissingReferenceException", "The style component with the hash '" + hash + "' was not found");
-        }
-        return (CellXf) component;
+        return (CellXf) getComponentByHash(this.cellXfs, hash);
     }
 
     /**
@@ -117,7 +130,8 @@ public class StyleManager {
      * @return Array of cellXfs
      */
     public CellXf[] getCellXfs() {
-        return this.cellXfs.toArray(new CellXf[this.cellXfs.size()]);
+        freeze();
+        return this.cellXfs.getOrdered(CellXf[].class);
     }
 
     /**
@@ -130,18 +144,14 @@ public class StyleManager {
     }
 
     /**
-     * Gets a font by its hash
+     * Gets a fill by its hash
      *
-     * @param hash Hash of the font
-     * @return Determined font
-     * @throws StyleException Throws a StyleException if the font was not found in the style manager
+     * @param hash Hash of the fill
+     * @return Determined fill
+     * @throws StyleException Throws a StyleException if the fill was not found in the style manager
      */
     public Fill getFillByHash(int hash) {
-        AbstractStyle component = getComponentByHash(this.fills, hash);
-        if (component == null) {
-            throw new StyleException("MissingReferenceException", "The style component with the hash '" + hash + "' was not found");
-        }
-        return (Fill) component;
+        return (Fill) getComponentByHash(this.fills, hash);
     }
 
     /**
@@ -150,7 +160,8 @@ public class StyleManager {
      * @return Array of fills
      */
     public Fill[] getFills() {
-        return this.fills.toArray(new Fill[this.fills.size()]);
+        freeze();
+        return this.fills.getOrdered(Fill[].class);
     }
 
     /**
@@ -170,11 +181,7 @@ public class StyleManager {
      * @throws StyleException Throws a StyleException if the font was not found in the style manager
      */
     public Font getFontByHash(int hash) {
-        AbstractStyle component = getComponentByHash(this.fonts, hash);
-        if (component == null) {
-            throw new StyleException("MissingReferenceException", "The style component with the hash '" + hash + "' was not found");
-        }
-        return (Font) component;
+        return (Font) getComponentByHash(this.fonts, hash);
     }
 
     /**
@@ -183,7 +190,8 @@ public class StyleManager {
      * @return Array of fonts
      */
     public Font[] getFonts() {
-        return this.fonts.toArray(new Font[this.fonts.size()]);
+        freeze();
+        return this.fonts.getOrdered(Font[].class);
     }
 
     /**
@@ -203,11 +211,7 @@ public class StyleManager {
      * @throws StyleException Throws a StyleException if the number format was not found in the style manager
      */
     public NumberFormat getNumberFormatByHash(int hash) {
-        AbstractStyle component = getComponentByHash(this.numberFormats, hash);
-        if (component == null) {
-            throw new StyleException("MissingReferenceException", "The style component with the hash '" + hash + "' was not found");
-        }
-        return (NumberFormat) component;
+        return (NumberFormat) getComponentByHash(this.numberFormats, hash);
     }
 
     /**
@@ -216,7 +220,8 @@ public class StyleManager {
      * @return Array of number formats
      */
     public NumberFormat[] getNumberFormats() {
-        return this.numberFormats.toArray(new NumberFormat[this.numberFormats.size()]);
+        freeze();
+        return this.numberFormats.getOrdered(NumberFormat[].class);
     }
 
     /**
@@ -236,10 +241,9 @@ public class StyleManager {
      * @throws StyleException Throws a StyleException if the style was not found in the style manager
      */
     public Style getStyleByName(String name) {
-        int len = this.styles.size();
-        for (int i = 0; i < len; i++) {
-            if (((Style) this.styles.get(i)).getName().equals(name)) {
-                return (Style) this.styles.get(i);
+        for (AbstractStyle style : this.styles.values()) {
+            if (((Style) style).getName().equals(name)) {
+                return (Style) style;
             }
         }
         throw new StyleException("MissingReferenceException", "The style with the name '" + name + "' was not found");
@@ -253,7 +257,7 @@ public class StyleManager {
      * @throws StyleException Throws a StyleException if the style was not found in the style manager
      */
     public Style getStyleByHash(int hash) {
-        AbstractStyle component = getComponentByHash(this.styles, hash);
+        AbstractStyle component = this.styles.get(hash);
         if (component == null) {
             throw new StyleException("MissingReferenceException", "The style with the hash '" + hash + "' was not found");
         }
@@ -266,8 +270,8 @@ public class StyleManager {
      * @return Array of styles
      */
     public Style[] getStyles() {
-        return this.styles.toArray(new Style[this.styles.size()]);
-
+        freeze();
+        return this.styles.getOrdered(Style[].class);
     }
 
     /**
@@ -280,223 +284,248 @@ public class StyleManager {
     }
 
     /**
-     * Adds a style component to the manager
+     * Adds a style component to the manager. This method is thread-safe. If an equal style is already registered, the existing one is returned and the passed style is not changed
      *
      * @param style Style to add
      * @return Added or determined style in the manager
      */
     public Style addStyle(Style style) {
-        int hash = addStyleComponent(style);
-        return (Style) this.getComponentByHash(this.styles, hash);
+        if (this.styleNames.contains(style.getName()) == true) {
+            throw new StyleException("StyleAlreadyExistsException", "The style with the name '" + style.getName() + "' already exists");
+        }
+        AbstractStyle existing = this.styles.get(style.hashCode());
+        if (existing != null) {
+            return (Style) existing;
+        }
+        Integer id;
+        if (style.getInternalID() == null || this.base != null) { // Styles of a manager with base are always ordered after the base styles
+            id = Integer.MAX_VALUE;
+            style.setInternalID(id);
+        } else {
+            id = style.getInternalID();
+        }
+        style.setBorder((Border) this.borders.intern(style.getBorder(), id, this.registrations.incrementAndGet()));
+        style.setCellXf((CellXf) this.cellXfs.intern(style.getCellXf(), id, this.registrations.incrementAndGet()));
+        style.setFill((Fill) this.fills.intern(style.getFill(), id, this.registrations.incrementAndGet()));
+        style.setFont((Font) this.fonts.intern(style.getFont(), id, this.registrations.incrementAndGet()));
+        style.setNumberFormat((NumberFormat) this.numberFormats.intern(style.getNumberFormat(), id, this.registrations.incrementAndGet()));
+        return (Style) this.styles.intern(style, id, this.registrations.incrementAndGet());
     }
 
     /**
-     * Adds a style component to the manager with an ID
+     * Gets a component by its hash
      *
-     * @param style Component to add
-     * @param id    Id of the component
-     * @return Hash of the added or determined component
+     * @param registry Registry to check
+     * @param hash     Hash of the component
+     * @return Determined component
+     * @throws StyleException Throws a StyleException if the component was not found in the style manager
      */
-    private int addStyleComponent(AbstractStyle style, Integer id) {
-        style.setInternalID(id);
-        return addStyleComponent(style);
+    private AbstractStyle getComponentByHash(ComponentRegistry registry, int hash) {
+        AbstractStyle component = registry.get(hash);
+        if (component == null) {
+            throw new StyleException("MissingReferenceException", "The style component with the hash '" + hash + "' was not found");
+        }
+        return component;
     }
 
     /**
-     * Adds a style component to the manager
-     *
-     * @param style Component to add
-     * @return Hash of the added or determined component
+     * Determines the order and the internal IDs of all styles and components that were added or removed since the last call
      */
-    private int addStyleComponent(AbstractStyle style) {
-        int hash = style.hashCode();
-        if (style instanceof Border) {
-            if (this.getComponentByHash(this.borders, hash) == null) {
-                this.borders.add(style);
-            }
-            reorganize(borders);
-        } else if (style instanceof CellXf) {
-            if (this.getComponentByHash(this.cellXfs, hash) == null) {
-                this.cellXfs.add(style);
-            }
-            reorganize(cellXfs);
-        } else if (style instanceof Fill) {
-            if (this.getComponentByHash(this.fills, hash) == null) {
-                this.fills.add(style);
-            }
-            reorganize(fills);
-        } else if (style instanceof Font) {
-            if (this.getComponentByHash(this.fonts, hash) == null) {
-                this.fonts.add(style);
-            }
-            reorganize(fonts);
-        } else if (style instanceof NumberFormat) {
-            if (this.getComponentByHash(this.numberFormats, hash) == null) {
-                this.numberFormats.add(style);
-            }
-            reorganize(numberFormats);
-        } else if (style instanceof Style) {
-            Style s = (Style) style;
-            if (this.styleNames.contains(s.getName()) == true) {
-                throw new StyleException("StyleAlreadyExistsException", "The style with the name '" + s.getName() + "' already exists");
-            }
-            if (this.getComponentByHash(this.styles, hash) == null) {
-                Integer id;
-                if (s.getInternalID() == null) {
-                    id = Integer.MAX_VALUE;
-                    s.setInternalID(id);
-                } else {
-                    id = s.getInternalID();
-                }
-                int temp = this.addStyleComponent(s.getBorder(), id);
-                s.setBorder((Border) this.getComponentByHash(this.borders, temp));
-                temp = this.addStyleComponent(s.getCellXf(), id);
-                s.setCellXf((CellXf) this.getComponentByHash(this.cellXfs, temp));
-                temp = this.addStyleComponent(s.getFill(), id);
-                s.setFill((Fill) this.getComponentByHash(this.fills, temp));
-                temp = this.addStyleComponent(s.getFont(), id);
-                s.setFont((Font) this.getComponentByHash(this.fonts, temp));
-                temp = this.addStyleComponent(s.getNumberFormat(), id);
-                s.setNumberFormat((NumberFormat) this.getComponentByHash(this.numberFormats, temp));
-                this.styles.add(s);
-            }
-            reorganize(styles);
-            hash = s.hashCode();
-        }
-        return hash;
+    private void freeze() {
+        this.borders.order();
+        this.cellXfs.order();
+        this.fills.order();
+        this.fonts.order();
+        this.numberFormats.order();
+        this.styles.order();
     }
 
     /**
      * Removes a style and all its components from the style manager
      *
      * @param styleName Name of the style to remove
-     * @throws StyleException Throws a StyleException if the style was not found in the style manager
+     * @throws StyleException Throws a StyleException if the style was not found in the style manager or is a style of the base style manager
      */
     public void removeStyle(String styleName) {
-//        String hash = null;
-        boolean match = false;
-        int len = this.styles.size();
-        int index = -1;
-        for (int i = 0; i < len; i++) {
-            if (((Style) this.styles.get(i)).getName().equals(styleName) == true) {
-                match = true;
-//                hash = ((Style)this.styles.get(i)).getHash();
-                index = i;
+        Style match = null;
+        for (AbstractStyle style : this.styles.values()) {
+            if (((Style) style).getName().equals(styleName) == true) {
+                match = (Style) style;
                 break;
             }
         }
-        if (match == false) {
+        if (match == null) {
             throw new StyleException("MissingReferenceException", "The style with the name '" + styleName + "' was not found in the style manager");
         }
-        this.styles.remove(index);
+        if (this.base != null && this.base.styles.get(match.hashCode()) != null) {
+            throw new StyleException("UnsupportedStyleException", "The style with the name '" + styleName + "' is a style of the template and cannot be removed");
+        }
+        this.styles.remove(match.hashCode());
         cleanupStyleComponents();
     }
 
     /**
-     * Method to reorganize / reorder a list of style components
-     *
-     * @param list List to reorganize
+     * Method to cleanup style components in the style manager. Components that are not used by a style anymore are removed
      */
-    private void reorganize(ArrayList<AbstractStyle> list) {
-        int len = list.size();
-        Collections.sort(list);
-        int id = 0;
-        for (int i = 0; i < len; i++) {
-            list.get(i).setInternalID(id);
-            id++;
+    private void cleanupStyleComponents() {
+        Set<Integer> usedBorders = new HashSet<>();
+        Set<Integer> usedCellXfs = new HashSet<>();
+        Set<Integer> usedFills = new HashSet<>();
+        Set<Integer> usedFonts = new HashSet<>();
+        Set<Integer> usedNumberFormats = new HashSet<>();
+        Style s;
+        for (AbstractStyle style : this.styles.values()) {
+            s = (Style) style;
+            usedBorders.add(s.getBorder().hashCode());
+            usedCellXfs.add(s.getCellXf().hashCode());
+            usedFills.add(s.getFill().hashCode());
+            usedFonts.add(s.getFont().hashCode());
+            usedNumberFormats.add(s.getNumberFormat().hashCode());
         }
+        this.borders.retain(usedBorders);
+        this.cellXfs.retain(usedCellXfs);
+        this.fills.retain(usedFills);
+        this.fonts.retain(usedFonts);
+        this.numberFormats.retain(usedNumberFormats);
     }
 
+// ### S U B  C L A S S E S ###
+
     /**
-     * Method to cleanup style components in the style manager
+     * Class representing the interned components of one type, with their hash as key. The order is determined lazily
      */
-    private void cleanupStyleComponents() {
-        Border border;
-        CellXf cellXf;
-        Fill fill;
-        Font font;
-        NumberFormat numberFormat;
-        int len = this.borders.size();
-        int i;
-        for (i = len; i >= 0; i--) {
-            border = (Border) this.borders.get(i);
-            if (isUsedByStyle(border) == false) {
-                this.borders.remove(i);
-            }
+    private static final class ComponentRegistry {
+
+        /**
+         * Order of the components: ascending internal ID, then ascending registration number
+         */
+        private static final Comparator<AbstractStyle> ORDER = Comparator.comparing(AbstractStyle::getInternalID, Comparator.nullsFirst(Comparator.naturalOrder())).thenComparingLong(AbstractStyle::getRegistrationNumber);
+
+        private final ConcurrentHashMap<Integer, AbstractStyle> components;
+        private volatile AbstractStyle[] ordered;
+
+        /**
+         * Default constructor
+         */
+        ComponentRegistry() {
+            this.components = new ConcurrentHashMap<>();
+            this.ordered = new AbstractStyle[0];
         }
-        len = this.cellXfs.size();
-        for (i = len; i >= 0; i--) {
-            cellXf = (CellXf) this.cellXfs.get(i);
-            if (isUsedByStyle(cellXf) == false) {
-                this.cellXfs.remove(i);
-            }
+
+        /**
+         * Constructor with an ordered registry, whose components are taken over. The order of the taken components is unchanged as long as they are the first ones
+         *
+         * @param base Registry to copy
+         */
+        ComponentRegistry(ComponentRegistry base) {
+            this.components = new ConcurrentHashMap<>(base.components);
+            this.ordered = base.order();
         }
-        len = this.fills.size();
-        for (i = len; i >= 0; i--) {
-            fill = (Fill) this.fills.get(i);
-            if (isUsedByStyle(fill) == false) {
-                this.fills.remove(i);
-            }
+
+        /**
+         * Gets a component by its hash
+         *
+         * @param hash Hash of the component
+         * @return Component or null if not registered
+         */
+        AbstractStyle get(int hash) {
+            return this.components.get(hash);
         }
-        len = this.fonts.size();
-        for (i = len; i >= 0; i--) {
-            font = (Font) this.fonts.get(i);
-            if (isUsedByStyle(font) == false) {
-                this.fonts.remove(i);
-            }
+
+        /**
+         * Gets a typed copy of the ordered components
+         *
+         * @param type Array type of the components
+         * @param <T>  Type of the components
+         * @return Array of components, ordered by their internal ID
+         */
+        <T> T[] getOrdered(Class<? extends T[]> type) {
+            AbstractStyle[] current = order();
+            return Arrays.copyOf(current, current.length, type);
         }
-        len = this.numberFormats.size();
-        for (i = len; i >= 0; i--) {
-            numberFormat = (NumberFormat) this.numberFormats.get(i);
-            if (isUsedByStyle(numberFormat) == false) {
-                this.numberFormats.remove(i);
+
+        /**
+         * Interns a component. If an equal component (same hash) is already registered, the existing one is returned
+         *
+         * @param component          Component to add
+         * @param id                 Internal ID for sorting purpose
+         * @param registrationNumber Ascending registration number
+         * @return Registered component
+         */
+        AbstractStyle intern(AbstractStyle component, Integer id, long registrationNumber) {
+            int hash = component.hashCode();
+            AbstractStyle existing = this.components.get(hash);
+            if (existing != null) {
+                return existing;
+            }
+            component.setInternalID(id);
+            component.setRegistrationNumber(registrationNumber);
+            existing = this.components.putIfAbsent(hash, component);
+            if (existing != null) {
+                return existing;
             }
+            this.ordered = null;
+            return component;
         }
-    }
 
-    /**
-     * Checks whether a style component in the style manager is used by a style
-     *
-     * @param component Component to check
-     * @return If true, the component is in use
-     */
-    private boolean isUsedByStyle(AbstractStyle component) {
-        Style s;
-        boolean match = false;
-        int hash = component.hashCode();
-        int len = this.styles.size();
-        for (int i = 0; i < len; i++) {
-            s = (Style) this.styles.get(i);
-            if (component instanceof Border) {
-                if (s.getBorder().hashCode() == hash) {
-                    match = true;
-                    break;
-                }
-            } else if (component instanceof CellXf) {
-                if (s.getCellXf().hashCode() == hash) {
-                    match = true;
-                    break;
-                }
+        /**
+         * Determines the order of the components and renumbers their internal IDs (starting at 0), if components were added or removed since the last call
+         *
+         * @return Array of components, ordered by their internal ID
+         */
+        synchronized AbstractStyle[] order() {
+            AbstractStyle[] current = this.ordered;
+            if (current != null) {
+                return current;
             }
-            if (component instanceof Fill) {
-                if (s.getFill().hashCode() == hash) {
-                    match = true;
-                    break;
-                }
+            List<AbstractStyle> list = new ArrayList<>(this.components.values());
+            list.sort(ORDER);
+            for (int i = 0; i < list.size(); i++) {
+                list.get(i).setInternalID(i);
             }
-            if (component instanceof Font) {
-                if (s.getFont().hashCode() == hash) {
-                    match = true;
-                    break;
-                }
+            current = list.toArray(new AbstractStyle[list.size()]);
+            this.ordered = current;
+            return current;
+        }
+
+        /**
+         * Removes a component
+         *
+         * @param hash Hash of the component
+         */
+        void remove(int hash) {
+            if (this.components.remove(hash) != null) {
+                this.ordered = null;
             }
-            if (component instanceof NumberFormat) {
-                if (s.getNumberFormat().hashCode() == hash) {
-                    match = true;
-                    break;
-                }
+        }
+
+        /**
+         * Removes all components that are not in the passed set of hashes
+         *
+         * @param hashes Hashes of the components to keep
+         */
+        void retain(Set<Integer> hashes) {
+            if (this.components.keySet().retainAll(hashes) == true) {
+                this.ordered = null;
             }
         }
-        return match;
+
+        /**
+         * Gets the number of components
+         *
+         * @return Number of registered components
+         */
+        int size() {
+            return this.components.size();
+        }
+
+        /**
+         * Gets the registered components in undefined order
+         *
+         * @return Collection of components
+         */
+        Iterable<AbstractStyle> values() {
+            return this.components.values();
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,60 @@
+package ch.rabanti.picoxlsx4j;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipFile;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.notNullValue;
+
+class ChannelSaveTest {
+
+    @DisplayName("Should overwrite an existing, larger file completely when saving into a file channel")
+    @Test
+    void saveAsChannelTest(@TempDir Path directory) throws Exception {
+        Path file = createLargeFile(directory);
+        createWorkbook().saveAsChannel(FileChannel.open(file, StandardOpenOption.WRITE));
+        assertValidFile(file);
+    }
+
+    @DisplayName("Should overwrite an existing, larger file completely when saving into an asynchronous file channel")
+    @Test
+    void saveAsChannelAsyncTest(@TempDir Path directory) throws Exception {
+        Path file = createLargeFile(directory);
+        createWorkbook().saveAsChannelAsync(AsynchronousFileChannel.open(file, StandardOpenOption.WRITE)).get(30, TimeUnit.SECONDS);
+        assertValidFile(file);
+    }
+
+    private static Workbook createWorkbook() {
+        Workbook workbook = new Workbook("Sheet1");
+        for (int i = 0; i < 100; i++) {
+            workbook.getCurrentWorksheet().addNextCell("value" + i);
+            workbook.getCurrentWorksheet().goToNextRow();
+        }
+        return workbook;
+    }
+
+    private static Path createLargeFile(Path directory) throws java.io.IOException {
+        Path file = directory.resolve("existing.xlsx");
+        Files.write(file, new byte[1048576]);
+        return file;
+    }
+
+    private static void assertValidFile(Path file) throws java.io.IOException {
+        assertThat(Files.size(file), is(lessThan(1048576L)));
+        try (ZipFile zip = new ZipFile(file.toFile())) {
+            assertThat(zip.getEntry("xl/worksheets/sheet1.xml"), is(notNullValue()));
+        }
+    }
+
+}
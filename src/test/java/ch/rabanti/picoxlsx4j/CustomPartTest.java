@@ -0,0 +1,127 @@
+package ch.rabanti.picoxlsx4j;
+
+import ch.rabanti.picoxlsx4j.exception.FormatException;
+import ch.rabanti.picoxlsx4j.exception.IOException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static ch.rabanti.picoxlsx4j.utils.ZipEntryReader.readEntry;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CustomPartTest {
+
+    @DisplayName("Should write custom parts from files, buffers and precompressed data with content types and relationships")
+    @Test
+    void saveCustomPartsTest(@TempDir Path directory) throws Exception {
+        byte[] image = new byte[100000];
+        new Random(1).nextBytes(image);
+        Path imageFile = directory.resolve("image.png");
+        Files.write(imageFile, image);
+        byte[] xml = "<item>custom</item>".getBytes(StandardCharsets.UTF_8);
+        byte[] deflated = new byte[256];
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(xml);
+        deflater.finish();
+        int length = deflater.deflate(deflated);
+        deflater.end();
+        CRC32 crc = new CRC32();
+        crc.update(xml);
+
+        String filename = directory.resolve("customParts.xlsx").toString();
+        Workbook workbook = new Workbook(filename, "Sheet1");
+        CustomPart imagePart = CustomPart.fromFile("xl/media/image1.png", "image/png", imageFile, false);
+        imagePart.setRelationship("", "http://example.com/relationships/image");
+        workbook.addCustomPart(imagePart);
+        ByteBuffer direct = ByteBuffer.allocateDirect(image.length);
+        direct.put(image).flip();
+        workbook.addCustomPart(CustomPart.fromBuffer("xl/media/image2.bin", "application/octet-stream", direct, true));
+        CustomPart xmlPart = CustomPart.fromCompressed("customXml/item1.xml", "application/xml", ByteBuffer.wrap(deflated, 0, length), crc.getValue(), xml.length);
+        xmlPart.setRelationship("xl/workbook.xml", "http://schemas.openxmlformats.org/officeDocument/2006/relationships/customXml");
+        workbook.addCustomPart(xmlPart);
+        workbook.save();
+
+        try (ZipFile zipFile = new ZipFile(filename)) {
+            ZipEntry entry = zipFile.getEntry("xl/media/image1.png");
+            assertThat(entry.getMethod(), is(ZipEntry.STORED));
+            assertThat(readEntry(zipFile, "xl/media/image1.png"), is(image));
+            assertThat(readEntry(zipFile, "xl/media/image2.bin"), is(image));
+            assertThat(readEntry(zipFile, "customXml/item1.xml"), is(xml));
+            String contentTypes = new String(readEntry(zipFile, "[Content_Types].xml"), StandardCharsets.UTF_8);
+            assertThat(contentTypes, containsString("/xl/media/image1.png"));
+            assertThat(contentTypes, containsString("/customXml/item1.xml"));
+            assertThat(new String(readEntry(zipFile, "_rels/.rels"), StandardCharsets.UTF_8), containsString("/xl/media/image1.png"));
+            assertThat(new String(readEntry(zipFile, "xl/_rels/workbook.xml.rels"), StandardCharsets.UTF_8), containsString("/customXml/item1.xml"));
+        }
+    }
+
+    @DisplayName("Should write uncompressed file parts with the CRC in the local header into files and streams")
+    @Test
+    void storedFilePartTest(@TempDir Path directory) throws Exception {
+        byte[] image = new byte[600000];
+        new Random(2).nextBytes(image);
+        Path imageFile = directory.resolve("image.png");
+        Files.write(imageFile, image);
+        CRC32 crc = new CRC32();
+        crc.update(image);
+        Path file = directory.resolve("stored.xlsx");
+        Workbook workbook = new Workbook(file.toString(), "Sheet1");
+        workbook.addCustomPart(CustomPart.fromFile("xl/media/image1.png", "image/png", imageFile, false));
+        workbook.addCustomPart(CustomPart.fromFile("xl/media/image2.png", "image/png", imageFile, false));
+        workbook.save();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        workbook.saveAsStream(stream);
+
+        for (byte[] data : new byte[][]{Files.readAllBytes(file), stream.toByteArray()}) {
+            int found = 0;
+            try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(data))) {
+                ZipEntry entry;
+                while ((entry = zip.getNextEntry()) != null) {
+                    if (entry.getName().startsWith("xl/media/") == false) {
+                        continue;
+                    }
+                    assertThat(entry.getMethod(), is(ZipEntry.STORED));
+                    assertThat(entry.getCrc(), is(crc.getValue()));
+                    assertThat(zip.readAllBytes(), is(image)); // The stream verifies the CRC of the local header
+                    found++;
+                }
+            }
+            assertThat(found, is(2));
+        }
+        try (ZipFile zipFile = new ZipFile(file.toFile())) {
+            assertThat(zipFile.getEntry("xl/media/image2.png").getCrc(), is(crc.getValue()));
+            assertThat(readEntry(zipFile, "xl/workbook.xml").length > 0, is(true));
+        }
+    }
+
+    @DisplayName("Should throw an exception if the name of a custom part is invalid or already used")
+    @Test
+    void customPartNameFailTest(@TempDir Path directory) {
+        ByteBuffer data = ByteBuffer.wrap(new byte[]{1, 2, 3});
+        assertThrows(FormatException.class, () -> CustomPart.fromBuffer("/xl/media/image1.png", "image/png", data, false));
+        assertThrows(FormatException.class, () -> CustomPart.fromBuffer("xl/media/image1.png", "", data, false));
+        Workbook workbook = new Workbook(directory.resolve("duplicate.xlsx").toString(), "Sheet1");
+        workbook.addCustomPart(CustomPart.fromBuffer("xl/media/image1.png", "image/png", data, false));
+        assertThrows(FormatException.class, () -> workbook.addCustomPart(CustomPart.fromBuffer("xl/media/image1.png", "image/png", data, false)));
+        workbook.addCustomPart(CustomPart.fromBuffer("xl/styles.xml", "application/xml", data, false));
+        assertThrows(IOException.class, workbook::save);
+    }
+
+
+}
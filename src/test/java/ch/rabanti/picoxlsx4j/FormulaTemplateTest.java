@@ -0,0 +1,65 @@
+package ch.rabanti.picoxlsx4j;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+class FormulaTemplateTest {
+
+    @DisplayName("Should move only the relative references of a formula")
+    @ParameterizedTest(name = "Formula {0} moved by {1} rows and {2} columns should be {3}")
+    @CsvSource(delimiter = ';', value = {
+            "B1*C1;1;0;B2*C2",
+            "$B$1+B1;2;1;$B$1+C3",
+            "$B1+B$1;1;1;$B2+C$1",
+            "SUM(A1:A10);5;0;SUM(A6:A15)",
+            "LOG10(A1);1;0;LOG10(A2)",
+            "Sheet1!A1+'My Sheet'!B2;1;0;Sheet1!A2+'My Sheet'!B3",
+            "\"A1\"&A1;1;0;\"A1\"&A2",
+            "A1+1.5E10+XFE1;1;0;A2+1.5E10+XFE1",
+            "A1;-1;0;#REF!",
+            "SUM(Table1[Amt2])+A1;1;0;SUM(Table1[Amt2])+A2",
+            "Table1[[#This Row],[B2]]*B2;1;1;Table1[[#This Row],[B2]]*C3",
+            "SUM(Table1['[B2']])+B2;1;0;SUM(Table1['[B2']])+B3",
+            "SUM(A:A);5;1;SUM(B:B)",
+            "SUM($A:B)+C1;5;1;SUM($A:C)+D6",
+            "SUM(Sheet1!C:D);0;-2;SUM(Sheet1!A:B)",
+            "SUM(1:1);2;3;SUM(3:3)",
+            "SUM($1:2);2;0;SUM($1:4)",
+            "SUM(A:A);0;-1;SUM(#REF!:#REF!)",
+            "SUM(A:1);1;0;SUM(A:1)",
+    })
+    void renderTest(String formula, int rowOffset, int columnOffset, String expected) {
+        assertThat(FormulaTemplate.parse(formula).render(rowOffset, columnOffset), is(expected));
+    }
+
+    @DisplayName("Should recognize formulas that differ only by the row offset")
+    @Test
+    void isRowShiftOfTest() {
+        FormulaTemplate first = FormulaTemplate.parse("B1*C1+$D$1");
+        assertThat(FormulaTemplate.parse("B2*C2+$D$1").isRowShiftOf(first, 1), is(true));
+        assertThat(FormulaTemplate.parse("B3*C3+$D$1").isRowShiftOf(first, 2), is(true));
+        assertThat(FormulaTemplate.parse("B2*C2+$D$2").isRowShiftOf(first, 1), is(false));
+        assertThat(FormulaTemplate.parse("B2*C3+$D$1").isRowShiftOf(first, 1), is(false));
+        assertThat(FormulaTemplate.parse("B2+C2+$D$1").isRowShiftOf(first, 1), is(false));
+        FormulaTemplate ranges = FormulaTemplate.parse("SUM(A:A)+SUM(1:1)+Table1[B1]");
+        assertThat(FormulaTemplate.parse("SUM(A:A)+SUM(2:2)+Table1[B1]").isRowShiftOf(ranges, 1), is(true));
+        assertThat(FormulaTemplate.parse("SUM(A2:A2)+SUM(2:2)+Table1[B1]").isRowShiftOf(ranges, 1), is(false));
+        assertThat(FormulaTemplate.parse("SUM(A:A)+SUM(2:2)+Table1[B2]").isRowShiftOf(ranges, 1), is(false));
+    }
+
+    @DisplayName("Should render a template for a cell relative to its anchor cell")
+    @Test
+    void renderAtTest() {
+        FormulaTemplate template = BasicFormulas.toTemplate(BasicFormulas.Sum(new Range("B1:B10")), new Address("B11"));
+        assertThat(template.renderAt(1, 10), is("SUM(B1:B10)"));
+        assertThat(template.renderAt(2, 20), is("SUM(C11:C20)"));
+        StringBuilder sb = new StringBuilder();
+        FormulaTemplate.parse("IF(A1<0,\"<&>\",A1)", "B1").renderXmlAt(sb, 1, 1);
+        assertThat(sb.toString(), is("IF(A2&lt;0,\"&lt;&amp;&gt;\",A2)"));
+    }
+}
@@ -0,0 +1,85 @@
+package ch.rabanti.picoxlsx4j;
+
+import ch.rabanti.picoxlsx4j.exception.FormatException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Date;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HelperTest {
+
+    @DisplayName("Should return a valid OA date according to the passed local date")
+    @ParameterizedTest(name = "Date {0} should lead to the OA date {1}")
+    @CsvSource({
+            "1899-12-30,0",
+            "1900-01-01,2",
+            "1970-01-01,25569",
+            "2019-05-21,43606",
+            "9999-12-31,2958465",
+    })
+    void getOADateLocalDateTest(String date, double expected) {
+        assertThat(Helper.getOADate(LocalDate.parse(date)), is(expected));
+    }
+
+    @DisplayName("Should return a valid OA date according to the passed local date and time")
+    @ParameterizedTest(name = "Date and time {0} should lead to the OA date {1}")
+    @CsvSource({
+            "1970-01-01T00:00:00,25569",
+            "2019-05-21T12:00:00,43606.5",
+            "2019-05-21T06:00:00,43606.25",
+            "2019-05-21T18:00:00,43606.75",
+    })
+    void getOADateLocalDateTimeTest(String dateTime, double expected) {
+        assertThat(Helper.getOADate(LocalDateTime.parse(dateTime)), is(expected));
+    }
+
+    @DisplayName("Should convert an OA date back to the local date and time")
+    @ParameterizedTest(name = "OA date {1} should lead to the date and time {0}")
+    @CsvSource({
+            "1970-01-01T00:00:00,25569",
+            "2019-05-21T12:00:00,43606.5",
+            "2019-05-21T18:00:00,43606.75",
+    })
+    void getDateFromOADateTest(String dateTime, double oaDate) {
+        assertThat(Helper.getDateFromOADate(oaDate), is(LocalDateTime.parse(dateTime)));
+    }
+
+    @DisplayName("Should resolve Date and Instant values in the passed time zone")
+    @Test
+    void getOADateZoneTest() {
+        Instant instant = Instant.parse("2019-05-21T22:00:00Z");
+        assertThat(Helper.getOADate(instant, ZoneOffset.UTC), is(43606d + 22d / 24d));
+        assertThat(Helper.getOADate(instant, ZoneOffset.ofHours(2)), is(43607d));
+        assertThat(Helper.getOADate(Date.from(instant), ZoneId.of("UTC")), is(43606d + 22d / 24d));
+        assertThat(Helper.getOADate((Object)instant, ZoneOffset.ofHours(2)), is(43607d));
+    }
+
+    @DisplayName("Should throw a FormatException if the date is before the OA root date or not a date")
+    @Test
+    void getOADateFailTest() {
+        assertThrows(FormatException.class, () -> Helper.getOADate(LocalDate.of(1899, 12, 29)));
+        assertThrows(FormatException.class, () -> Helper.getOADate("2019-05-21", ZoneOffset.UTC));
+    }
+
+    @DisplayName("Should format OA dates without decimals if no time fraction is present")
+    @ParameterizedTest(name = "OA date {0} should be formatted as {1}")
+    @CsvSource({
+            "43606,43606",
+            "43606.5,43606.5",
+            "0,0",
+    })
+    void formatOADateTest(double oaDate, String expected) {
+        assertThat(Helper.formatOADate(oaDate), is(expected));
+    }
+}
@@ -0,0 +1,80 @@
+package ch.rabanti.picoxlsx4j;
+
+import ch.rabanti.picoxlsx4j.exception.RangeException;
+import ch.rabanti.picoxlsx4j.style.BasicStyles;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RolloverWriterTest {
+
+    @DisplayName("Should continue on new worksheets and repeat the header row and column widths")
+    @Test
+    void rolloverTest() {
+        Workbook workbook = new Workbook("test.xlsx", "Data");
+        Worksheet worksheet = workbook.getCurrentWorksheet();
+        worksheet.setColumnWidth(0, 30f);
+        worksheet.addNextCell("ID", BasicStyles.Bold());
+        worksheet.goToNextRow();
+        RolloverWriter writer = new RolloverWriter(worksheet, 1, 9);
+        for (int i = 0; i < 25; i++) {
+            writer.addRow(Arrays.asList((Object)i, "name" + i));
+        }
+        assertThat(writer.getWorksheets().size(), is(3));
+        Worksheet last = writer.getWorksheet();
+        assertThat(last.getSheetName(), is("Data (3)"));
+        assertThat(last.getCell(0, 0).getValue(), is("ID"));
+        assertThat(last.getCell(0, 0).getCellStyle().getFont().isBold(), is(true));
+        assertThat(last.getCell(0, 1).getValue(), is(18));
+        assertThat(last.getColumns().get(0).getWidth(), is(30f));
+        assertThat(workbook.getWorksheets().get(1).getLastRowNumber(), is(9));
+    }
+
+    @DisplayName("Should repeat only explicitly defined column widths and the automatic column width on new worksheets")
+    @Test
+    void rolloverColumnWidthTest() {
+        Workbook workbook = new Workbook("test.xlsx", "Data");
+        Worksheet worksheet = workbook.getCurrentWorksheet();
+        worksheet.setAutoColumnWidth(true);
+        worksheet.setColumnWidth(0, 30f);
+        worksheet.addHiddenColumn(1);
+        worksheet.setColumnDefaultStyle(2, BasicStyles.Bold());
+        RolloverWriter writer = new RolloverWriter(worksheet, 0, 2);
+        for (int i = 0; i < 5; i++) {
+            writer.addRow(Arrays.asList((Object)i, "name" + i, "value"));
+        }
+        Worksheet last = writer.getWorksheet();
+        assertThat(last.getSheetName(), is("Data (2)"));
+        assertThat(last.isAutoColumnWidth(), is(true));
+        assertThat(last.getColumns().get(0).hasCustomWidth(), is(true));
+        assertThat(last.getColumns().get(0).getWidth(), is(30f));
+        assertThat(last.getColumns().get(1).isHidden(), is(true));
+        assertThat(last.getColumns().get(1).hasCustomWidth(), is(false));
+        assertThat(last.getColumns().get(2).hasCustomWidth(), is(false));
+        assertThat(last.getColumns().get(2).getDefaultStyle().getFont().isBold(), is(true));
+    }
+
+    @DisplayName("Should shorten the base name of new worksheets to 31 characters")
+    @Test
+    void rolloverNameTest() {
+        Workbook workbook = new Workbook("test.xlsx", "ABCDEFGHIJKLMNOPQRSTUVWXYZ01234");
+        RolloverWriter writer = new RolloverWriter(workbook.getCurrentWorksheet(), 0, 0);
+        writer.addNextCell(1);
+        writer.goToNextRow();
+        writer.addNextCell(2);
+        assertThat(writer.getWorksheet().getSheetName(), is("ABCDEFGHIJKLMNOPQRSTUVWXYZ0 (2)"));
+    }
+
+    @DisplayName("Should throw a RangeException if the header rows exceed the row limit")
+    @Test
+    void headerRowCountFailTest() {
+        Workbook workbook = new Workbook("test.xlsx", "Data");
+        assertThrows(RangeException.class, () -> new RolloverWriter(workbook.getCurrentWorksheet(), 11, 10));
+    }
+
+}
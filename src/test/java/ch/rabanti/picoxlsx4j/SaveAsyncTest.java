@@ -0,0 +1,174 @@
+package ch.rabanti.picoxlsx4j;
+
+import ch.rabanti.picoxlsx4j.lowLevel.SaveStatistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipFile;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SaveAsyncTest {
+
+    @DisplayName("Should save a workbook asynchronously into a file and a stream")
+    @Test
+    void saveAsyncTest(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("async.xlsx");
+        Workbook workbook = createWorkbook(10);
+        workbook.saveAsAsync(file.toString()).get(30, TimeUnit.SECONDS);
+        try (ZipFile zip = new ZipFile(file.toFile())) {
+            assertThat(zip.getEntry("xl/worksheets/sheet1.xml"), is(notNullValue()));
+        }
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        workbook.saveAsStreamAsync(stream).get(30, TimeUnit.SECONDS);
+        assertThat(stream.size(), is(greaterThan(0)));
+    }
+
+    @DisplayName("Should complete a cancelled future only after the save process stopped and the partial file was deleted")
+    @Test
+    void cancelSaveAsyncTest(@TempDir Path directory) {
+        Path file = directory.resolve("cancelled.xlsx");
+        Workbook workbook = createWorkbook(5000);
+        List<Runnable> tasks = new ArrayList<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        List<Boolean> doneOnCancel = new ArrayList<>();
+        workbook.setSaveListener(new SaveListener() {
+            @Override
+            public void rowsCompleted(Worksheet worksheet, int completedRows, int totalRows) {
+                if (completedRows == 1000) {
+                    futures.get(0).cancel(true);
+                    doneOnCancel.add(futures.get(0).isDone());
+                    assertThat(Files.exists(file), is(true));
+                }
+            }
+        });
+        futures.add(workbook.saveAsAsync(file.toString(), tasks::add));
+        assertThat(tasks.size(), is(1));
+        tasks.get(0).run();
+        assertThat(doneOnCancel.size(), is(1));
+        assertThat(doneOnCancel.get(0), is(false));
+        assertThat(futures.get(0).isCancelled(), is(true));
+        assertThrows(CancellationException.class, () -> futures.get(0).join());
+        assertThat(Files.exists(file), is(false));
+    }
+
+    @DisplayName("Should stop a save process that is cancelled after the last part was written")
+    @Test
+    void lateCancelSaveAsyncTest(@TempDir Path directory) {
+        Path file = directory.resolve("late.xlsx");
+        Workbook workbook = createWorkbook(10);
+        List<Runnable> tasks = new ArrayList<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        List<Boolean> cancelResults = new ArrayList<>();
+        workbook.setSaveListener(new SaveListener() {
+            @Override
+            public void partsCompleted(int completedParts, int totalParts) {
+                if (completedParts == totalParts) {
+                    cancelResults.add(futures.get(0).cancel(true));
+                }
+            }
+        });
+        futures.add(workbook.saveAsAsync(file.toString(), tasks::add));
+        tasks.get(0).run();
+        assertThat(cancelResults.size(), is(1));
+        assertThat(cancelResults.get(0), is(true));
+        assertThat(futures.get(0).isCancelled(), is(true));
+        assertThrows(CancellationException.class, () -> futures.get(0).join());
+        assertThat(Files.exists(file), is(false));
+    }
+
+    @DisplayName("Should reject the cancellation of a save process that was already completed")
+    @Test
+    void completedCancelSaveAsyncTest(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("completed.xlsx");
+        Workbook workbook = createWorkbook(10);
+        List<Runnable> tasks = new ArrayList<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        List<Boolean> cancelResults = new ArrayList<>();
+        workbook.setSaveListener(new SaveListener() {
+            @Override
+            public void saveCompleted(SaveStatistics statistics) {
+                cancelResults.add(futures.get(0).cancel(true));
+            }
+        });
+        futures.add(workbook.saveAsAsync(file.toString(), tasks::add));
+        tasks.get(0).run();
+        assertThat(cancelResults.size(), is(1));
+        assertThat(cancelResults.get(0), is(false));
+        assertThat(futures.get(0).isCancelled(), is(false));
+        futures.get(0).get(30, TimeUnit.SECONDS);
+        assertThat(Files.exists(file), is(true));
+    }
+
+    @DisplayName("Should complete the future exceptionally if the save process throws an error")
+    @Test
+    void errorSaveAsyncTest() {
+        Workbook workbook = createWorkbook(10);
+        workbook.setSaveListener(new SaveListener() {
+            @Override
+            public void saveStarted(Workbook workbook) {
+                throw new StackOverflowError("test");
+            }
+        });
+        List<Runnable> tasks = new ArrayList<>();
+        CompletableFuture<Void> future = workbook.saveAsStreamAsync(new ByteArrayOutputStream(), tasks::add);
+        tasks.get(0).run();
+        assertThat(future.isCompletedExceptionally(), is(true));
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> future.get(30, TimeUnit.SECONDS));
+        assertThat(exception.getCause() instanceof StackOverflowError, is(true));
+    }
+
+    @DisplayName("Should report the progress of rows and parts until all are completed")
+    @Test
+    void progressTest() throws Exception {
+        Workbook workbook = createWorkbook(2500);
+        List<Integer> rows = new ArrayList<>();
+        List<Integer> parts = new ArrayList<>();
+        List<Integer> totalParts = new ArrayList<>();
+        workbook.setSaveListener(new SaveListener() {
+            @Override
+            public void rowsCompleted(Worksheet worksheet, int completedRows, int totalRows) {
+                assertThat(totalRows, is(2500));
+                rows.add(completedRows);
+            }
+
+            @Override
+            public void partsCompleted(int completedParts, int total) {
+                parts.add(completedParts);
+                totalParts.add(total);
+            }
+        });
+        workbook.saveAsStreamAsync(new ByteArrayOutputStream()).get(30, TimeUnit.SECONDS);
+        assertThat(rows.size(), is(3));
+        assertThat(rows.get(0), is(1000));
+        assertThat(rows.get(1), is(2000));
+        assertThat(rows.get(2), is(2500));
+        assertThat(parts.size(), is(greaterThan(0)));
+        assertThat(parts.get(parts.size() - 1), is(totalParts.get(totalParts.size() - 1)));
+    }
+
+    private static Workbook createWorkbook(int rowCount) {
+        Workbook workbook = new Workbook("Sheet1");
+        for (int i = 0; i < rowCount; i++) {
+            workbook.getCurrentWorksheet().addNextCell(i);
+            workbook.getCurrentWorksheet().addNextCell("value" + i);
+            workbook.getCurrentWorksheet().goToNextRow();
+        }
+        return workbook;
+    }
+
+}
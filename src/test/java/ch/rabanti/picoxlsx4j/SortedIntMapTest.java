@@ -0,0 +1,55 @@
+package ch.rabanti.picoxlsx4j;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+class SortedIntMapTest {
+
+    @DisplayName("Should keep the keys sorted, independent of the insertion order")
+    @ParameterizedTest(name = "Keys {0} should lead to {1}")
+    @CsvSource({
+            "'3,1,2','1,2,3'",
+            "'10,20,30','10,20,30'",
+            "'7,7,5,100,0','0,5,7,100'",
+            "'1048575,0,16383','0,16383,1048575'"
+    })
+    public void putTest(String input, String expectedKeys) {
+        SortedIntMap<String> map = new SortedIntMap<>();
+        for (String key : input.split(",")) {
+            map.put(Integer.parseInt(key), "v" + key);
+        }
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < map.size(); i++) {
+            keys.add(Integer.toString(map.keyAt(i)));
+            assertThat(map.get(map.keyAt(i)), is("v" + map.keyAt(i)));
+        }
+        assertThat(String.join(",", keys), is(expectedKeys));
+        assertThat(map.keySet().toString(), is("[" + expectedKeys.replace(",", ", ") + "]"));
+    }
+
+    @DisplayName("Should remove entries and return null for missing keys")
+    @ParameterizedTest(name = "Removing {1} from {0} should lead to {2}")
+    @CsvSource({
+            "'1,2,3',2,'{1=a, 3=a}'",
+            "'1,2,3',4,'{1=a, 2=a, 3=a}'",
+            "'5',5,'{}'"
+    })
+    public void removeTest(String input, int key, String expected) {
+        SortedIntMap<String> map = new SortedIntMap<>();
+        for (String k : input.split(",")) {
+            map.put(Integer.parseInt(k), "a");
+        }
+        map.remove(key);
+        assertThat(map.toString(), is(expected));
+        assertThat(map.get(key), is(nullValue()));
+        assertThat(map.containsKey(key), is(false));
+    }
+}
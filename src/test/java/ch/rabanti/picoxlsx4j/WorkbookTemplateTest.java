@@ -0,0 +1,122 @@
+package ch.rabanti.picoxlsx4j;
+
+import ch.rabanti.picoxlsx4j.exception.WorksheetException;
+import ch.rabanti.picoxlsx4j.style.BasicStyles;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static ch.rabanti.picoxlsx4j.utils.ZipEntryReader.readEntry;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WorkbookTemplateTest {
+
+    @DisplayName("Should create independent workbooks with the layout of the template and cached static parts")
+    @Test
+    void createWorkbookTest() throws Exception {
+        Workbook layout = new Workbook("layout.xlsx", "Report");
+        layout.getCurrentWorksheet().setColumnWidth(0, 30f);
+        layout.getCurrentWorksheet().addCell("Title", 0, 0, BasicStyles.Bold());
+        layout.getCurrentWorksheet().mergeCells("A1:C1");
+        WorkbookTemplate template = new WorkbookTemplate(layout);
+        assertThat(template.getPartCache().getSize(), is(greaterThan(0)));
+
+        Workbook first = template.createWorkbook("first.xlsx");
+        Workbook second = template.createWorkbook("second.xlsx");
+        assertThat(first.getTemplate(), is(sameInstance(template)));
+        assertThat(first.getCurrentWorksheet(), is(not(sameInstance(layout.getCurrentWorksheet()))));
+        assertThat(first.getCurrentWorksheet().getColumns().get(0).getWidth(), is(30f));
+        assertThat(first.getCurrentWorksheet().getMergedCells().size(), is(1));
+        assertThat(first.getCurrentWorksheet().getCells().get("A1").getValue(), is("Title"));
+
+        first.getCurrentWorksheet().addCell(1, 0, 1);
+        assertThat(second.getCurrentWorksheet().getCells().containsKey("A2"), is(false));
+        assertThat(layout.getCurrentWorksheet().getCells().containsKey("A2"), is(false));
+        first.saveAsStream(new ByteArrayOutputStream());
+        second.saveAsStream(new ByteArrayOutputStream());
+    }
+
+    @DisplayName("Should keep the metadata and the added styles of a workbook separate from the template and other workbooks")
+    @Test
+    void separateReportTest() throws Exception {
+        Workbook layout = new Workbook("layout.xlsx", "Report");
+        layout.getWorkbookMetadata().setTitle("Layout");
+        layout.getCurrentWorksheet().addCell("Title", 0, 0, BasicStyles.Bold());
+        WorkbookTemplate template = new WorkbookTemplate(layout);
+
+        Workbook first = template.createWorkbook("first.xlsx");
+        first.getWorkbookMetadata().setTitle("Report 1");
+        first.getCurrentWorksheet().addCell("italic", 0, 1, BasicStyles.Italic());
+        Workbook second = template.createWorkbook("second.xlsx");
+        second.getCurrentWorksheet().addCell("plain", 0, 1);
+        assertThat(layout.getWorkbookMetadata().getTitle(), is("Layout"));
+        assertThat(second.getWorkbookMetadata().getTitle(), is("Layout"));
+
+        ByteArrayOutputStream firstStream = new ByteArrayOutputStream();
+        first.saveAsStream(firstStream);
+        ByteArrayOutputStream secondStream = new ByteArrayOutputStream();
+        second.saveAsStream(secondStream);
+        assertThat(readEntry(firstStream.toByteArray(), "docProps/core.xml"), containsString("<dc:title>Report 1</dc:title>"));
+        assertThat(readEntry(secondStream.toByteArray(), "docProps/core.xml"), containsString("<dc:title>Layout</dc:title>"));
+        assertThat(readEntry(firstStream.toByteArray(), "xl/styles.xml"), containsString("<i/>"));
+        assertThat(readEntry(secondStream.toByteArray(), "xl/styles.xml"), not(containsString("<i/>")));
+        assertThat(readEntry(secondStream.toByteArray(), "xl/styles.xml"), containsString("<b/>"));
+        assertThat(layout.getStyleManager().getStyleNumber(), is(second.getStyleManager().getStyleNumber()));
+        assertThat(first.getStyleManager().getStyleNumber(), is(second.getStyleManager().getStyleNumber() + 1));
+    }
+
+    @DisplayName("Should reuse the compressed static parts of unchanged styles and render them again if the differential formats change")
+    @Test
+    void frozenStaticPartTest() throws Exception {
+        Workbook layout = new Workbook("layout.xlsx", "Report");
+        layout.getCurrentWorksheet().addCell("Title", 0, 0, BasicStyles.Bold());
+        WorkbookTemplate template = new WorkbookTemplate(layout);
+
+        Workbook plain = template.createWorkbook("plain.xlsx");
+        plain.getCurrentWorksheet().addCell(5, 0, 1, BasicStyles.Bold());
+        List<String> transformed = new ArrayList<>();
+        plain.setSaveListener(new SaveListener() {
+            @Override
+            public void phaseCompleted(Phase phase, String partName, long durationNanos) {
+                if (phase == Phase.TRANSFORM_DOCUMENT) {
+                    transformed.add(partName);
+                }
+            }
+        });
+        ByteArrayOutputStream plainStream = new ByteArrayOutputStream();
+        plain.saveAsStream(plainStream);
+        assertThat(transformed.contains("xl/styles.xml"), is(false));
+        assertThat(transformed.contains("docProps/app.xml"), is(false));
+        String styles = readEntry(plainStream.toByteArray(), "xl/styles.xml");
+        assertThat(styles, containsString("<b/>"));
+        assertThat(styles, not(containsString("<dxfs")));
+
+        Workbook formatted = template.createWorkbook("formatted.xlsx");
+        formatted.getCurrentWorksheet().addConditionalFormat(ConditionalFormat.cellIs(new Range("A2:A10"), ConditionalFormat.Operator.greaterThan, "5", BasicStyles.Italic()));
+        ByteArrayOutputStream formattedStream = new ByteArrayOutputStream();
+        formatted.saveAsStream(formattedStream);
+        assertThat(readEntry(formattedStream.toByteArray(), "xl/styles.xml"), containsString("<dxfs count=\"1\">"));
+
+        ByteArrayOutputStream secondStream = new ByteArrayOutputStream();
+        template.createWorkbook("second.xlsx").saveAsStream(secondStream);
+        assertThat(readEntry(secondStream.toByteArray(), "xl/styles.xml"), is(styles));
+    }
+
+    @DisplayName("Should reject layouts with tables")
+    @Test
+    void unsupportedLayoutTest() {
+        Workbook layout = new Workbook("layout.xlsx", "Report");
+        layout.getCurrentWorksheet().addTable("Table1", new Range("A1:B3"));
+        assertThrows(WorksheetException.class, () -> new WorkbookTemplate(layout));
+    }
+
+}
@@ -0,0 +1,493 @@
+package ch.rabanti.picoxlsx4j;
+
+import ch.rabanti.picoxlsx4j.exception.FormatException;
+import ch.rabanti.picoxlsx4j.exception.MemoryBudgetException;
+import ch.rabanti.picoxlsx4j.exception.RangeException;
+import ch.rabanti.picoxlsx4j.exception.StyleException;
+import ch.rabanti.picoxlsx4j.exception.WorksheetException;
+import ch.rabanti.picoxlsx4j.style.BasicStyles;
+import ch.rabanti.picoxlsx4j.style.Style;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Iterator;
+import java.util.List;
+
+import static ch.rabanti.picoxlsx4j.utils.ZipEntryReader.readEntry;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WorksheetTest {
+
+    @DisplayName("Should return -1 and no used range for an empty worksheet")
+    @Test
+    void emptyBoundsTest() {
+        Worksheet worksheet = new Worksheet();
+        assertThat(worksheet.getFirstRowNumber(), is(-1));
+        assertThat(worksheet.getLastRowNumber(), is(-1));
+        assertThat(worksheet.getFirstColumnNumber(), is(-1));
+        assertThat(worksheet.getLastColumnNumber(), is(-1));
+        assertThat(worksheet.getLastRowNumber(0), is(-1));
+        assertThat(worksheet.getUsedRange(), is(nullValue()));
+    }
+
+    @DisplayName("Should track the bounds when cells are added")
+    @ParameterizedTest(name = "Cells {0} should lead to the used range {1}")
+    @CsvSource({
+            "A1,A1:A1",
+            "B2;C3,B2:C3",
+            "D1;A10;C5,A1:D10",
+            "C3;C3,C3:C3",
+    })
+    void addBoundsTest(String addresses, String expectedRange) {
+        Worksheet worksheet = new Worksheet();
+        for (String address : addresses.split(";")) {
+            worksheet.addCell("test", address);
+        }
+        assertThat(worksheet.getUsedRange().toString(), is(expectedRange));
+    }
+
+    @DisplayName("Should shrink the bounds when the last cells of a row or column are removed")
+    @Test
+    void removeBoundsTest() {
+        Worksheet worksheet = new Worksheet();
+        worksheet.addCell("test", "A1");
+        worksheet.addCell("test", "B5");
+        worksheet.addCell("test", "B3");
+        worksheet.addCell("test", "D2");
+        worksheet.removeCell("B5");
+        assertThat(worksheet.getLastRowNumber(), is(2));
+        assertThat(worksheet.getLastRowNumber(1), is(2));
+        worksheet.removeCell("D2");
+        assertThat(worksheet.getLastColumnNumber(), is(1));
+        worksheet.removeCell("A1");
+        assertThat(worksheet.getUsedRange().toString(), is("B3:B3"));
+        worksheet.removeCell("B3");
+        assertThat(worksheet.getUsedRange(), is(nullValue()));
+    }
+
+    @DisplayName("Should recalculate the end row of the auto filter from the filtered columns")
+    @Test
+    void recalculateAutoFilterTest() {
+        Worksheet worksheet = new Worksheet();
+        worksheet.addCell("test", "A1");
+        worksheet.addCell("test", "B4");
+        worksheet.addCell("test", "D9");
+        worksheet.setAutoFilter(0, 1);
+        assertThat(worksheet.getAutoFilterRange().toString(), is("A1:B4"));
+        worksheet.removeCell("B4");
+        worksheet.recalculateAutoFilter();
+        assertThat(worksheet.getAutoFilterRange().toString(), is("A1:B1"));
+    }
+
+    @DisplayName("Should derive unique column names of a table without changing the header cells")
+    @Test
+    void tableColumnNamesTest() {
+        Worksheet worksheet = new Worksheet();
+        worksheet.addCell("Name", "A1");
+        worksheet.addCell(2019, "B1");
+        worksheet.addCell("name", "C1");
+        worksheet.addCellFormula("=A2", "E1");
+        Table table = worksheet.addTable("Table1", "A1:E3");
+        List<String> names = worksheet.getTableColumnNames(table);
+        assertThat(names.size(), is(5));
+        assertThat(names.get(0), is("Name"));
+        assertThat(names.get(1), is("2019"));
+        assertThat(names.get(2), is("name2"));
+        assertThat(names.get(3), is("Column4"));
+        assertThat(names.get(4), is("Column5"));
+        assertThat(worksheet.getCell(new Address("B1")).getValue(), is(2019));
+        assertThat(worksheet.getCell(new Address("C1")).getValue(), is("name"));
+        assertThat(worksheet.getCell(new Address("E1")).getDataType(), is(Cell.CellType.FORMULA));
+        assertThat(worksheet.hasCell(new Address("D1")), is(false));
+    }
+
+    @DisplayName("Should throw an exception if a table overlaps another table or has an invalid name")
+    @Test
+    void addTableFailTest() {
+        Worksheet worksheet = new Worksheet();
+        worksheet.addTable("Table1", "A1:C5");
+        assertThrows(WorksheetException.class, () -> worksheet.addTable("TABLE1", "E1:F5"));
+        assertThrows(RangeException.class, () -> worksheet.addTable("Table2", "C5:D8"));
+        assertThrows(RangeException.class, () -> worksheet.addTable("Table2", "E1:F1"));
+        assertThrows(FormatException.class, () -> worksheet.addTable("AB12", "E1:F5"));
+        assertThrows(FormatException.class, () -> worksheet.addTable("My Table", "E1:F5"));
+    }
+
+    @DisplayName("Should throw an exception if a table overlaps merged cells or the auto filter")
+    @Test
+    void addTableOverlapFailTest() {
+        Worksheet worksheet = new Worksheet();
+        worksheet.mergeCells("C3:B4");
+        worksheet.setAutoFilter(5, 6);
+        assertThrows(RangeException.class, () -> worksheet.addTable("Table1", "A1:B3"));
+        assertThrows(RangeException.class, () -> worksheet.addTable("Table1", "C4:D8"));
+        assertThrows(RangeException.class, () -> worksheet.addTable("Table1", "E20:F30"));
+        worksheet.addTable("Table1", "A5:E10");
+        assertThat(worksheet.getTables().size(), is(1));
+    }
+
+    @DisplayName("Should count string characters for the memory estimation and fail fast if the budget is exceeded")
+    @Test
+    void memoryBudgetTest() {
+        Workbook workbook = new Workbook("test.xlsx", "Sheet1");
+        Worksheet worksheet = workbook.getCurrentWorksheet();
+        worksheet.addCell("test", "A1");
+        worksheet.addCell("replaced", "A2");
+        worksheet.addCell(42, "A2");
+        assertThat(worksheet.getStringCellCount(), is(1));
+        assertThat(worksheet.getStringCharacterCount(), is(4L));
+        worksheet.removeCell("A1");
+        assertThat(worksheet.getStringCharacterCount(), is(0L));
+        workbook.setMemoryBudget(workbook.estimateSaveMemoryUsage());
+        assertThrows(MemoryBudgetException.class, () -> {
+            for (int i = 0; i < 10000; i++) {
+                worksheet.addNextCell(i);
+            }
+        });
+    }
+
+    @DisplayName("Should not add the cell if the memory budget is exceeded, so that the cell can be added again")
+    @Test
+    void memoryBudgetRollbackTest() {
+        Workbook workbook = new Workbook("test.xlsx", "Sheet1");
+        Worksheet worksheet = workbook.getCurrentWorksheet();
+        worksheet.setCurrentCellDirection(Worksheet.CellDirection.RowToRow);
+        workbook.setMemoryBudget(workbook.estimateSaveMemoryUsage());
+        int added = 0;
+        try {
+            for (int i = 0; i < 10000; i++) {
+                worksheet.addNextCell(i);
+                added++;
+            }
+        }
+        catch (MemoryBudgetException e) {
+            // Expected
+        }
+        assertThat(worksheet.getCells().size(), is(added));
+        assertThat(worksheet.getCurrentRowNumber(), is(added));
+        assertThat(worksheet.hasCell(0, added), is(false));
+        workbook.setMemoryBudget(0);
+        worksheet.addNextCell(added);
+        assertThat(worksheet.getCells().size(), is(added + 1));
+        assertThat(worksheet.getCell(0, added).getValue(), is(added));
+    }
+
+    @DisplayName("Should move completed rows into the off-heap storage and reject cells of stored rows")
+    @Test
+    void offHeapStorageTest() {
+        Worksheet worksheet = new Worksheet();
+        worksheet.enableOffHeapStorage();
+        try {
+            worksheet.addCell("test", "A1");
+            worksheet.addCell(42, "B1");
+            worksheet.addCell(true, "A2");
+            worksheet.addCell(1.5d, "C3");
+            assertThat(worksheet.getOffHeapStore().getRowCount(), is(2));
+            assertThat(worksheet.getOffHeapStore().getCellCount(), is(3L));
+            assertThat(worksheet.getCells().size(), is(1));
+            assertThat(worksheet.getLastRowNumber(), is(2));
+            assertThrows(WorksheetException.class, () -> worksheet.addCell(1, "D2"));
+            assertThrows(WorksheetException.class, () -> worksheet.addTable("Table1", new Range("A1:B3")));
+        }
+        finally {
+            worksheet.releaseOffHeapStorage();
+        }
+        assertThat(worksheet.isOffHeapStorage(), is(false));
+    }
+
+    @DisplayName("Should throw an exception if the rows of a closed off-heap storage are read")
+    @Test
+    void closedOffHeapStorageTest() {
+        Worksheet worksheet = new Worksheet();
+        worksheet.enableOffHeapStorage();
+        OffHeapCellStore store = worksheet.getOffHeapStore();
+        worksheet.addCell("test", "A1");
+        worksheet.addCell("test", "A2");
+        worksheet.addCell("test", "A3");
+        Iterator<List<Cell>> rows = store.rows(worksheet);
+        assertThat(rows.next().size(), is(1));
+        worksheet.releaseOffHeapStorage();
+        assertThat(store.getRowCount(), is(2));
+        assertThrows(IllegalStateException.class, rows::next);
+        assertThrows(IllegalStateException.class, () -> store.rows(worksheet));
+    }
+
+    @DisplayName("Should reject merged cells in stored rows and resolve merged cells when their rows are moved into the off-heap storage")
+    @Test
+    void offHeapMergedCellsTest() throws Exception {
+        Workbook workbook = new Workbook("test.xlsx", "Sheet1");
+        Worksheet worksheet = workbook.getCurrentWorksheet();
+        worksheet.enableOffHeapStorage();
+        try {
+            for (int i = 0; i < 5; i++) {
+                worksheet.addCell("row" + i, 0, i);
+            }
+            assertThrows(WorksheetException.class, () -> worksheet.mergeCells("A1:B2"));
+            worksheet.mergeCells("A8:B9");
+            worksheet.addCell("hidden", "B9");
+            for (int i = 9; i < 20; i++) {
+                worksheet.addCell(i, 0, i);
+            }
+            assertThat(worksheet.getOffHeapStore().getLastRowNumber(), is(18));
+            worksheet.mergeCells("A25:A26");
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            workbook.saveAsStream(stream);
+            String sheet = readEntry(stream.toByteArray(), "xl/worksheets/sheet1.xml");
+            assertThat(sheet, containsString("<row r=\"8\" spans=\"1:2\">"));
+            assertThat(sheet, containsString("<row r=\"26\" spans=\"1:1\">"));
+            assertThat(readEntry(stream.toByteArray(), "xl/sharedStrings.xml"), not(containsString("hidden")));
+            assertThat(sheet, containsString("<mergeCell ref=\"A8:B9\"/>"));
+        }
+        finally {
+            worksheet.releaseOffHeapStorage();
+        }
+    }
+
+    @DisplayName("Should merge concurrently filled row blocks in row order and reject overlapping reservations")
+    @Test
+    void rowBlockTest() throws Exception {
+        Workbook workbook = new Workbook("test.xlsx", "Sheet1");
+        Worksheet worksheet = workbook.getCurrentWorksheet();
+        RowBlock first = worksheet.reserveRows(0, 100);
+        RowBlock second = worksheet.reserveRows(100, 100);
+        assertThrows(RangeException.class, () -> worksheet.reserveRows(50, 100));
+        Thread producer = new Thread(() -> {
+            for (int i = 100; i < 200; i++) {
+                second.addCell(i, 0, i);
+            }
+            second.complete();
+        });
+        producer.start();
+        for (int i = 0; i < 100; i++) {
+            first.addCell("row" + i, 0, i);
+        }
+        assertThrows(RangeException.class, () -> first.addCell(1, 0, 100));
+        producer.join();
+        assertThrows(WorksheetException.class, worksheet::mergeRowBlocks);
+        first.complete();
+        worksheet.mergeRowBlocks();
+        assertThat(worksheet.getCells().size(), is(200));
+        assertThat(worksheet.getCell(0, 150).getValue(), is(150));
+        assertThat(worksheet.getStringCellCount(), is(100));
+        assertThrows(WorksheetException.class, () -> first.addCell(1, 0, 0));
+    }
+
+    @DisplayName("Should keep the cells of row blocks if a merge fails and reject reservations of stored rows")
+    @Test
+    void rowBlockMergeFailTest() {
+        Workbook workbook = new Workbook("test.xlsx", "Sheet1");
+        Worksheet worksheet = workbook.getCurrentWorksheet();
+        RowBlock block = worksheet.reserveRows(0, 10000);
+        for (int i = 0; i < 10000; i++) {
+            block.addCell(i, 0, i);
+        }
+        block.complete();
+        workbook.setMemoryBudget(workbook.estimateSaveMemoryUsage() + 1000);
+        assertThrows(MemoryBudgetException.class, worksheet::mergeRowBlocks);
+        workbook.setMemoryBudget(0);
+        worksheet.mergeRowBlocks();
+        assertThat(worksheet.getCells().size(), is(10000));
+        assertThat(worksheet.getCell(0, 9999).getValue(), is(9999));
+
+        Worksheet offHeap = new Worksheet();
+        offHeap.enableOffHeapStorage();
+        try {
+            for (int i = 0; i < 5; i++) {
+                offHeap.addCell(i, 0, i);
+            }
+            assertThrows(WorksheetException.class, () -> offHeap.reserveRows(2, 5));
+            assertThrows(WorksheetException.class, () -> offHeap.reserveRows(3, 1));
+            RowBlock next = offHeap.reserveRows(4, 2);
+            next.addCell(1, 1, 5);
+            next.complete();
+            offHeap.addCell(1, 0, 10);
+            assertThrows(WorksheetException.class, offHeap::mergeRowBlocks);
+            assertThrows(WorksheetException.class, offHeap::mergeRowBlocks);
+        }
+        finally {
+            offHeap.releaseOffHeapStorage();
+        }
+    }
+
+    @DisplayName("Should keep a running maximum of the estimated column width while cells are added")
+    @Test
+    void autoColumnWidthTest() {
+        Workbook workbook = new Workbook("test.xlsx", "Sheet1");
+        Worksheet worksheet = workbook.getCurrentWorksheet();
+        worksheet.addCell("a fairly long text value", 0, 0);
+        worksheet.setAutoColumnWidth(true);
+        float existing = worksheet.getAutoColumnWidths()[0];
+        assertThat(existing > Worksheet.DEFAULT_COLUMN_WIDTH, is(true));
+        worksheet.addCell("short", 0, 1);
+        assertThat(worksheet.getAutoColumnWidths()[0], is(existing));
+        worksheet.addCell(12345, 1, 0);
+        worksheet.addCell(123456789, 1, 1);
+        assertThat(worksheet.getAutoColumnWidths()[1] > worksheet.getAutoColumnWidths()[2], is(true));
+        worksheet.addCellFormula("=A1", 40, 0);
+        assertThat(worksheet.getAutoColumnWidths()[40], is(0f));
+        worksheet.setAutoColumnWidth(false);
+        assertThat(worksheet.getAutoColumnWidths(), is(nullValue()));
+    }
+
+    @DisplayName("Should estimate the column width with the current size of a font that was changed after it was measured")
+    @Test
+    void autoColumnWidthFontChangeTest() {
+        Workbook workbook = new Workbook("test.xlsx", "Sheet1");
+        Worksheet worksheet = workbook.getCurrentWorksheet();
+        worksheet.setAutoColumnWidth(true);
+        Style style = new Style();
+        worksheet.addCell("a fairly long text value", 0, 0, style);
+        worksheet.addCell("a fairly long text value", 1, 0, style);
+        assertThat(worksheet.getAutoColumnWidths()[1], is(worksheet.getAutoColumnWidths()[0]));
+        style.getFont().setSize(22);
+        worksheet.addCell("a fairly long text value", 2, 0, style);
+        assertThat(worksheet.getAutoColumnWidths()[2] > worksheet.getAutoColumnWidths()[0], is(true));
+    }
+
+    @DisplayName("Should keep an explicit column width, even if it is the default width, instead of the estimated width")
+    @Test
+    void explicitColumnWidthTest() throws Exception {
+        Workbook workbook = new Workbook("test.xlsx", "Sheet1");
+        Worksheet worksheet = workbook.getCurrentWorksheet();
+        worksheet.setAutoColumnWidth(true);
+        worksheet.addCell("a fairly long text value", 0, 0);
+        worksheet.addCell("a fairly long text value", 1, 0);
+        worksheet.setColumnWidth(1, Worksheet.DEFAULT_COLUMN_WIDTH);
+        float estimated = worksheet.getAutoColumnWidths()[0];
+        assertThat(worksheet.getColumns().get(1).hasCustomWidth(), is(true));
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        workbook.saveAsStream(stream);
+        String sheet = readEntry(stream.toByteArray(), "xl/worksheets/sheet1.xml");
+        assertThat(sheet, containsString("<col customWidth=\"1\" max=\"1\" min=\"1\" width=\"" + estimated + "\"/>"));
+        assertThat(sheet, containsString("<col customWidth=\"1\" max=\"2\" min=\"2\" width=\"" + Worksheet.DEFAULT_COLUMN_WIDTH + "\"/>"));
+        assertThat(worksheet.getColumns().get(1), is(notNullValue()));
+    }
+
+    @DisplayName("Should write grouped conditional formatting rules with priorities and shared differential formats")
+    @Test
+    void conditionalFormatTest() throws Exception {
+        Workbook workbook = new Workbook("test.xlsx", "Sheet1");
+        Worksheet worksheet = workbook.getCurrentWorksheet();
+        for (int i = 0; i < 10; i++) {
+            worksheet.addCell(i, 0, i);
+        }
+        Range column = new Range("A1:A10");
+        worksheet.addConditionalFormat(ConditionalFormat.colorScale(column, "f8696b", "FFEB84", "63BE7B"));
+        worksheet.addConditionalFormat(ConditionalFormat.cellIs(column, ConditionalFormat.Operator.greaterThan, "5", BasicStyles.Bold()));
+        worksheet.addConditionalFormat(ConditionalFormat.cellIs(new Range("B1:B10"), ConditionalFormat.Operator.between, "1", "3", BasicStyles.colorizedBackground("FF0000")));
+        worksheet.addConditionalFormat(ConditionalFormat.expression(new Range("C1:C10"), "A1<5", BasicStyles.Bold()));
+        worksheet.addConditionalFormat(ConditionalFormat.dataBar(new Range("D1:D10"), "638EC6"));
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        workbook.saveAsStream(stream);
+        String sheet = readEntry(stream.toByteArray(), "xl/worksheets/sheet1.xml");
+        String styles = readEntry(stream.toByteArray(), "xl/styles.xml");
+
+        assertThat(styles, containsString("<dxfs count=\"2\"><dxf><font><b/></font></dxf><dxf><fill><patternFill patternType=\"solid\">"));
+        assertThat(sheet, containsString("<conditionalFormatting sqref=\"A1:A10\">"
+                + "<cfRule priority=\"1\" type=\"colorScale\"><colorScale><cfvo type=\"min\"/><cfvo type=\"percentile\" val=\"50\"/><cfvo type=\"max\"/>"
+                + "<color rgb=\"FFF8696B\"/><color rgb=\"FFFFEB84\"/><color rgb=\"FF63BE7B\"/></colorScale></cfRule>"
+                + "<cfRule dxfId=\"0\" operator=\"greaterThan\" priority=\"2\" type=\"cellIs\"><formula>5</formula></cfRule></conditionalFormatting>"));
+        assertThat(sheet, containsString("<conditionalFormatting sqref=\"B1:B10\"><cfRule dxfId=\"1\" operator=\"between\" priority=\"3\" type=\"cellIs\"><formula>1</formula><formula>3</formula></cfRule></conditionalFormatting>"));
+        assertThat(sheet, containsString("<conditionalFormatting sqref=\"C1:C10\"><cfRule dxfId=\"0\" priority=\"4\" type=\"expression\"><formula>A1&lt;5</formula></cfRule></conditionalFormatting>"));
+        assertThat(sheet, containsString("<conditionalFormatting sqref=\"D1:D10\"><cfRule priority=\"5\" type=\"dataBar\"><dataBar><cfvo type=\"min\"/><cfvo type=\"max\"/><color rgb=\"FF638EC6\"/></dataBar></cfRule></conditionalFormatting>"));
+    }
+
+    @DisplayName("Should throw an exception if a conditional formatting rule has an invalid operator, color or no style")
+    @Test
+    void conditionalFormatFailTest() {
+        Range range = new Range("A1:A10");
+        assertThrows(FormatException.class, () -> ConditionalFormat.cellIs(range, ConditionalFormat.Operator.between, "1", BasicStyles.Bold()));
+        assertThrows(FormatException.class, () -> ConditionalFormat.cellIs(range, ConditionalFormat.Operator.notBetween, "1", BasicStyles.Bold()));
+        assertThrows(FormatException.class, () -> ConditionalFormat.cellIs(range, ConditionalFormat.Operator.equal, "1", "2", BasicStyles.Bold()));
+        assertThrows(StyleException.class, () -> ConditionalFormat.cellIs(range, ConditionalFormat.Operator.equal, "1", null));
+        assertThrows(StyleException.class, () -> ConditionalFormat.expression(range, "A1>1", null));
+        assertThrows(FormatException.class, () -> ConditionalFormat.dataBar(range, "FF00000"));
+        assertThrows(FormatException.class, () -> ConditionalFormat.colorScale(range, "GG0000", "00FF00"));
+    }
+
+    @DisplayName("Should write the used range as dimension and the column span of each row")
+    @Test
+    void dimensionAndSpansTest() throws Exception {
+        Workbook workbook = new Workbook("test.xlsx", "Empty");
+        workbook.addWorksheet("Sparse");
+        workbook.getCurrentWorksheet().addCell("a", "B2");
+        workbook.getCurrentWorksheet().addCell("b", "D2");
+        workbook.getCurrentWorksheet().addCell(1, "E7");
+        workbook.addWorksheet("Attributes");
+        workbook.getCurrentWorksheet().setRowHeight(4, 30f);
+        workbook.getCurrentWorksheet().addHiddenRow(6);
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        workbook.saveAsStream(stream);
+
+        String empty = readEntry(stream.toByteArray(), "xl/worksheets/sheet1.xml");
+        assertThat(empty, containsString("<dimension ref=\"A1\"/>"));
+        assertThat(empty, not(containsString("<row")));
+
+        String sparse = readEntry(stream.toByteArray(), "xl/worksheets/sheet2.xml");
+        assertThat(sparse, containsString("<dimension ref=\"B2:E7\"/>"));
+        assertThat(sparse, containsString("<row r=\"2\" spans=\"2:4\">"));
+        assertThat(sparse, containsString("<row r=\"7\" spans=\"5:5\">"));
+
+        String attributes = readEntry(stream.toByteArray(), "xl/worksheets/sheet3.xml");
+        assertThat(attributes, containsString("<dimension ref=\"A1\"/>"));
+        assertThat(attributes, containsString("<row customHeight=\"1\" ht=\"30.0\" r=\"5\" x14ac:dyDescent=\"0.25\"/>"));
+        assertThat(attributes, containsString("<row hidden=\"1\" r=\"7\"/>"));
+        assertThat(attributes, not(containsString("spans")));
+    }
+
+    @DisplayName("Should write the default styles of columns and rows and apply them to new cells without style")
+    @Test
+    void defaultStyleTest() throws Exception {
+        Workbook workbook = new Workbook("test.xlsx", "Sheet1");
+        Worksheet worksheet = workbook.getCurrentWorksheet();
+        worksheet.setColumnDefaultStyle(1, BasicStyles.Bold());
+        worksheet.setRowDefaultStyle(3, BasicStyles.Italic());
+        worksheet.addCell("column", "B1");
+        worksheet.addCell("row", "B4");
+        worksheet.addCell("none", "A1");
+        worksheet.addCell("explicit", "B2", BasicStyles.Strike());
+        assertThat(worksheet.getCell(new Address("B1")).getCellStyle(), is(sameInstance(worksheet.getColumns().get(1).getDefaultStyle())));
+        assertThat(worksheet.getCell(new Address("B4")).getCellStyle(), is(sameInstance(worksheet.getRowStyles().get(3))));
+        assertThat(worksheet.getCell(new Address("A1")).getCellStyle(), is(nullValue()));
+        assertThat(worksheet.getCell(new Address("B2")).getCellStyle().getFont().isStrike(), is(true));
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        workbook.saveAsStream(stream);
+        int columnStyle = worksheet.getColumns().get(1).getDefaultStyle().getInternalID();
+        int rowStyle = worksheet.getRowStyles().get(3).getInternalID();
+        assertThat(columnStyle, is(not(rowStyle)));
+        String sheet = readEntry(stream.toByteArray(), "xl/worksheets/sheet1.xml");
+        assertThat(sheet, containsString("<col max=\"2\" min=\"2\" style=\"" + columnStyle + "\""));
+        assertThat(sheet, containsString("<row customFormat=\"1\" r=\"4\" s=\"" + rowStyle + "\""));
+        assertThat(sheet, containsString("<c r=\"B1\" s=\"" + columnStyle + "\""));
+        assertThat(sheet, containsString("<c r=\"B4\" s=\"" + rowStyle + "\""));
+        assertThat(sheet, containsString("<c r=\"A1\" t=\"s\">"));
+    }
+
+    @DisplayName("Should keep structured references and move whole columns and rows if a shared formula is written without its master cell")
+    @Test
+    void sharedFormulaFallbackTest() throws Exception {
+        Workbook workbook = new Workbook("test.xlsx", "Sheet1");
+        Worksheet worksheet = workbook.getCurrentWorksheet();
+        worksheet.addSharedFormula("SUM(Table1[Amt2])+SUM(A:A)+SUM(1:1)+A1", "B1:C2");
+        worksheet.addCell("replaced", "B1");
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        workbook.saveAsStream(stream);
+        String sheet = readEntry(stream.toByteArray(), "xl/worksheets/sheet1.xml");
+        assertThat(sheet, not(containsString("t=\"shared\"")));
+        assertThat(sheet, containsString("<f>SUM(Table1[Amt2])+SUM(A:A)+SUM(2:2)+A2</f>"));
+        assertThat(sheet, containsString("<f>SUM(Table1[Amt2])+SUM(B:B)+SUM(1:1)+B1</f>"));
+        assertThat(sheet, containsString("<f>SUM(Table1[Amt2])+SUM(B:B)+SUM(2:2)+B2</f>"));
+    }
+
+}
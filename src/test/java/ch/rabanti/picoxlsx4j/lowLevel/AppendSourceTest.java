@@ -0,0 +1,133 @@
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+import ch.rabanti.picoxlsx4j.CustomPart;
+import ch.rabanti.picoxlsx4j.Workbook;
+import ch.rabanti.picoxlsx4j.exception.IOException;
+import ch.rabanti.picoxlsx4j.exception.WorksheetException;
+import ch.rabanti.picoxlsx4j.style.BasicStyles;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static ch.rabanti.picoxlsx4j.utils.ZipEntryReader.readEntry;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AppendSourceTest {
+
+    @DisplayName("Should append a worksheet and copy the existing entries as compressed bytes")
+    @Test
+    void appendTest(@TempDir Path directory) throws Exception {
+        String filename = directory.resolve("base.xlsx").toString();
+        Workbook workbook = new Workbook(filename, "Data");
+        for (int i = 0; i < 100; i++) {
+            workbook.getCurrentWorksheet().addCell("row" + i, 0, i, BasicStyles.Bold());
+        }
+        workbook.save();
+        long existingSize;
+        try (ZipFile zip = new ZipFile(filename)) {
+            existingSize = zip.getEntry("xl/worksheets/sheet1.xml").getCompressedSize();
+        }
+
+        Workbook append = Workbook.openForAppend(filename);
+        assertThat(append.getAppendSource().getSheetNames(), is(Arrays.asList("Data")));
+        assertThrows(WorksheetException.class, () -> append.addWorksheet("Data"));
+        append.addWorksheet("Data", true);
+        append.getCurrentWorksheet().addCell("new", "A1", BasicStyles.Italic());
+        String target = directory.resolve("appended.xlsx").toString();
+        append.saveAs(target);
+
+        try (ZipFile zip = new ZipFile(target)) {
+            ZipEntry existing = zip.getEntry("xl/worksheets/sheet1.xml");
+            assertThat(existing.getCompressedSize(), is(existingSize));
+            String book = new String(readEntry(zip, "xl/workbook.xml"), "UTF-8");
+            assertThat(book, containsString("name=\"Data1\""));
+            assertThat(book, containsString("sheetId=\"2\""));
+            String sheet = new String(readEntry(zip, "xl/worksheets/sheet2.xml"), "UTF-8");
+            assertThat(sheet, containsString("<is><t>new</t></is>"));
+            assertThat(zip.getEntry("xl/sharedStrings.xml") != null, is(true));
+        }
+    }
+
+    @DisplayName("Should reject a second save after the existing file was modified")
+    @Test
+    void modifiedSourceTest(@TempDir Path directory) throws Exception {
+        String filename = directory.resolve("base.xlsx").toString();
+        new Workbook(filename, "Data").save();
+        Workbook append = Workbook.openForAppend(filename);
+        append.addWorksheet("Second");
+        append.save();
+        assertThrows(IOException.class, append::save);
+    }
+
+    @DisplayName("Should write a file with more than 65535 entries as Zip64 and append to it")
+    @Test
+    void appendZip64Test(@TempDir Path directory) throws Exception {
+        String filename = directory.resolve("zip64.xlsx").toString();
+        Workbook workbook = new Workbook(filename, "Data");
+        for (int i = 0; i < 70000; i++) {
+            workbook.addCustomPart(CustomPart.fromBuffer("customXml/part" + i + ".bin", "application/octet-stream", ByteBuffer.wrap(new byte[]{(byte)i}), false));
+        }
+        workbook.save();
+        try (ZipFile zip = new ZipFile(filename)) {
+            assertThat(zip.size() > 70000, is(true));
+            assertThat(readEntry(zip, "customXml/part69999.bin"), is(new byte[]{(byte)69999}));
+        }
+
+        Workbook append = Workbook.openForAppend(filename);
+        append.addWorksheet("Second");
+        append.getCurrentWorksheet().addCell("new", "A1");
+        append.save();
+
+        try (ZipFile zip = new ZipFile(filename)) {
+            assertThat(readEntry(zip, "customXml/part12345.bin"), is(new byte[]{(byte)12345}));
+            assertThat(new String(readEntry(zip, "xl/workbook.xml"), "UTF-8"), containsString("name=\"Second\""));
+        }
+    }
+
+    @DisplayName("Should reject an existing file with a doctype declaration and an external entity")
+    @Test
+    void appendEntityFailTest(@TempDir Path directory) throws Exception {
+        Path secret = directory.resolve("secret.txt");
+        Files.write(secret, "secret".getBytes(StandardCharsets.UTF_8));
+        String filename = directory.resolve("base.xlsx").toString();
+        Workbook workbook = new Workbook(filename, "Data");
+        workbook.getCurrentWorksheet().addCell("value", "A1");
+        workbook.save();
+        String target = directory.resolve("entity.xlsx").toString();
+        try (ZipFile zip = new ZipFile(filename); ZipOutputStream output = new ZipOutputStream(new FileOutputStream(target))) {
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                byte[] data = readEntry(zip, entry.getName());
+                if (entry.getName().equals("xl/workbook.xml")) {
+                    String book = new String(data, StandardCharsets.UTF_8);
+                    int index = book.indexOf("<workbook");
+                    book = book.substring(0, index) + "<!DOCTYPE workbook [<!ENTITY x SYSTEM \"" + secret.toUri() + "\">]>" + book.substring(index);
+                    data = book.replace("</workbook>", "<definedNames><definedName name=\"n\">&x;</definedName></definedNames></workbook>").getBytes(StandardCharsets.UTF_8);
+                }
+                output.putNextEntry(new ZipEntry(entry.getName()));
+                output.write(data);
+                output.closeEntry();
+            }
+        }
+
+        assertThrows(IOException.class, () -> {
+            Workbook append = Workbook.openForAppend(target);
+            append.addWorksheet("Second");
+            append.saveAs(directory.resolve("appended.xlsx").toString());
+        });
+    }
+
+}
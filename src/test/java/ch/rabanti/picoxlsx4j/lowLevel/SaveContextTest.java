@@ -0,0 +1,56 @@
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+import ch.rabanti.picoxlsx4j.Workbook;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+
+import static ch.rabanti.picoxlsx4j.utils.ZipEntryReader.readEntry;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.sameInstance;
+
+class SaveContextTest {
+
+    @DisplayName("Should reuse a released context and drop its grown string builder")
+    @Test
+    void reuseContextTest() {
+        SaveContext context = SaveContext.acquire();
+        StringBuilder builder = context.getStringBuilder();
+        builder.append(new char[2000000]);
+        SaveContext.release(context);
+
+        SaveContext reused = SaveContext.acquire();
+        assertThat(reused, is(sameInstance(context)));
+        assertThat(reused.getStringBuilder().length(), is(0));
+        assertThat(reused.getStringBuilder().capacity(), is(lessThan(2000000)));
+        SaveContext.release(reused);
+    }
+
+    @DisplayName("Should write the same worksheet content on repeated saves with a pooled context")
+    @Test
+    void repeatedSaveTest() throws Exception {
+        String first = null;
+        for (int i = 0; i < 3; i++) {
+            Workbook workbook = new Workbook("Sheet1");
+            for (int row = 0; row < 50; row++) {
+                workbook.getCurrentWorksheet().addNextCell(row);
+                workbook.getCurrentWorksheet().addNextCell("value" + row);
+                workbook.getCurrentWorksheet().goToNextRow();
+            }
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            workbook.saveAsStream(stream);
+            String sheet = readEntry(stream.toByteArray(), "xl/worksheets/sheet1.xml");
+            assertThat(sheet, containsString("<row r=\"50\""));
+            if (first == null) {
+                first = sheet;
+            }
+            assertThat(sheet, is(first));
+        }
+    }
+
+
+}
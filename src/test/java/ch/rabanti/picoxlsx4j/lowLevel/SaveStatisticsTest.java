@@ -0,0 +1,105 @@
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+import ch.rabanti.picoxlsx4j.SaveListener;
+import ch.rabanti.picoxlsx4j.Workbook;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+
+class SaveStatisticsTest {
+
+    @DisplayName("Should report the phases and part sizes of a save process and aggregate them in the statistics")
+    @Test
+    void recordingListenerTest() throws Exception {
+        Workbook workbook = new Workbook("Sheet1");
+        for (int i = 0; i < 100; i++) {
+            workbook.getCurrentWorksheet().addNextCell(i);
+            workbook.getCurrentWorksheet().addNextCell("value" + (i % 10));
+            workbook.getCurrentWorksheet().goToNextRow();
+        }
+        RecordingListener listener = new RecordingListener();
+        workbook.setSaveListener(listener);
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        workbook.saveAsStream(stream);
+
+        SaveStatistics statistics = listener.statistics;
+        assertThat(statistics, is(notNullValue()));
+        assertThat(listener.phases.keySet(), hasItem(SaveListener.Phase.RESOLVE_MERGED_CELLS));
+        assertThat(listener.phases.keySet(), hasItem(SaveListener.Phase.SORT_CELLS));
+        assertThat(listener.phases.keySet(), hasItem(SaveListener.Phase.CREATE_ROWS));
+        assertThat(listener.phases.keySet(), hasItem(SaveListener.Phase.PACK));
+        for (Map.Entry<SaveListener.Phase, Long> phase : listener.phases.entrySet()) {
+            assertThat(statistics.getPhaseDuration(phase.getKey()), is(phase.getValue()));
+        }
+
+        Map<String, Long> entrySizes = readEntrySizes(stream.toByteArray());
+        assertThat(listener.partNames, hasItem("[Content_Types].xml"));
+        assertThat(listener.partNames.size(), is(entrySizes.size()));
+        assertThat(statistics.getPartCount(), is(entrySizes.size()));
+        long rawBytes = 0;
+        for (int i = 0; i < listener.partNames.size(); i++) {
+            assertThat(listener.rawSizes.get(i), is(entrySizes.get(listener.partNames.get(i))));
+            rawBytes += listener.rawSizes.get(i);
+        }
+        assertThat(statistics.getRawBytes(), is(rawBytes));
+        assertThat(statistics.getRowCount(), is(100));
+        assertThat(statistics.getCellCount(), is(200));
+        assertThat(statistics.getSharedStringCount(), is(100));
+        assertThat(statistics.getUniqueSharedStringCount(), is(10));
+    }
+
+    private static Map<String, Long> readEntrySizes(byte[] data) throws java.io.IOException {
+        Map<String, Long> sizes = new HashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(data))) {
+            ZipEntry entry;
+            byte[] buffer = new byte[8192];
+            while ((entry = zip.getNextEntry()) != null) {
+                long size = 0;
+                int read;
+                while ((read = zip.read(buffer)) > 0) {
+                    size += read;
+                }
+                sizes.put(entry.getName(), size);
+            }
+        }
+        return sizes;
+    }
+
+    private static class RecordingListener implements SaveListener {
+        private final Map<SaveListener.Phase, Long> phases = new EnumMap<>(SaveListener.Phase.class);
+        private final List<String> partNames = new ArrayList<>();
+        private final List<Long> rawSizes = new ArrayList<>();
+        private SaveStatistics statistics;
+
+        @Override
+        public void phaseCompleted(Phase phase, String partName, long durationNanos) {
+            phases.merge(phase, durationNanos, Long::sum);
+        }
+
+        @Override
+        public void partWritten(String partName, long rawBytes, long compressedBytes) {
+            partNames.add(partName);
+            rawSizes.add(rawBytes);
+        }
+
+        @Override
+        public void saveCompleted(SaveStatistics statistics) {
+            this.statistics = statistics;
+        }
+    }
+
+}
@@ -0,0 +1,156 @@
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Enumeration;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static ch.rabanti.picoxlsx4j.utils.ZipEntryReader.readEntry;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+
+class ZipWriterTest {
+
+    private static final long ZIP64_SIZE = 0x100000000L;
+
+    @DisplayName("Should write more than 65535 entries, which are readable with ZipFile and ZipInputStream")
+    @Test
+    void manyEntriesTest(@TempDir Path directory) throws Exception {
+        int count = 70000;
+        Path file = directory.resolve("entries.zip");
+        try (OutputStream stream = new BufferedOutputStream(Files.newOutputStream(file))) {
+            ZipWriter writer = new ZipWriter(stream);
+            for (int i = 0; i < count; i++) {
+                ByteBuffer data = ByteBuffer.wrap(("part" + i).getBytes(StandardCharsets.UTF_8));
+                if (i % 2 == 0) {
+                    writer.writeEntry("parts/part" + i + ".xml", data);
+                } else {
+                    writer.writeStoredEntry("parts/part" + i + ".xml", data);
+                }
+            }
+            writer.finish();
+        }
+        try (ZipFile zip = new ZipFile(file.toFile())) {
+            assertThat(zip.size(), is(count));
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            int index = 0;
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                assertThat(entry.getName(), is("parts/part" + index + ".xml"));
+                index++;
+            }
+            assertThat(new String(readEntry(zip, "parts/part69999.xml"), StandardCharsets.UTF_8), is("part69999"));
+        }
+        try (ZipInputStream zip = new ZipInputStream(Files.newInputStream(file))) {
+            ZipEntry entry;
+            int index = 0;
+            while ((entry = zip.getNextEntry()) != null) {
+                assertThat(entry.getName(), is("parts/part" + index + ".xml"));
+                assertThat(new String(zip.readAllBytes(), StandardCharsets.UTF_8), is("part" + index));
+                index++;
+            }
+            assertThat(index, is(count));
+        }
+    }
+
+    @DisplayName("Should write the Zip64 extra field of the local header and a 64 bit data descriptor for an entry, which is expected to exceed 4 GB")
+    @Test
+    void zip64DataDescriptorTest() throws Exception {
+        byte[] content = "zip64 content".getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        ZipWriter writer = new ZipWriter(stream);
+        ZipWriter.Entry entry = writer.writeEntry("large.xml", new ByteArrayInputStream(content), ZIP64_SIZE);
+        writer.finish();
+        ByteBuffer data = ByteBuffer.wrap(stream.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+        assertThat(data.getInt(0), is(0x04034b50));
+        assertThat((int) data.getShort(4), is(45));
+        assertThat(data.getInt(18), is(0xFFFFFFFF));
+        assertThat(data.getInt(22), is(0xFFFFFFFF));
+        int nameLength = data.getShort(26);
+        assertThat((int) data.getShort(28), is(20));
+        assertThat((int) data.getShort(30 + nameLength), is(0x0001));
+        assertThat((int) data.getShort(32 + nameLength), is(16));
+        int descriptor = 30 + nameLength + 20 + (int) entry.getCompressedSize();
+        assertThat(data.getInt(descriptor), is(0x08074b50));
+        assertThat(data.getLong(descriptor + 8), is(entry.getCompressedSize()));
+        assertThat(data.getLong(descriptor + 16), is((long) content.length));
+        assertThat(data.getInt(descriptor + 24), is(0x02014b50)); // Central directory follows the 24 byte descriptor
+    }
+
+    @DisplayName("Should write the Zip64 extra field of the central directory for an entry with Zip64 extensions and read it with ZipFile")
+    @Test
+    void zip64CentralDirectoryTest(@TempDir Path directory) throws Exception {
+        byte[] content = "zip64 content".getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        ZipWriter writer = new ZipWriter(stream);
+        ZipWriter.Entry entry = writer.writeEntry("large.xml", new ByteArrayInputStream(content), ZIP64_SIZE);
+        writer.writeEntry("small.xml", new ByteArrayInputStream(content));
+        writer.finish();
+        byte[] bytes = stream.toByteArray();
+        ByteBuffer data = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        int central = data.getInt(bytes.length - 6); // Offset of the central directory in the end record
+        assertThat(data.getInt(central), is(0x02014b50));
+        assertThat((int) data.getShort(central + 6), is(45));
+        assertThat(data.getInt(central + 20), is(0xFFFFFFFF));
+        assertThat(data.getInt(central + 24), is(0xFFFFFFFF));
+        int nameLength = data.getShort(central + 28);
+        assertThat((int) data.getShort(central + 30), is(20));
+        int extra = central + 46 + nameLength;
+        assertThat((int) data.getShort(extra), is(0x0001));
+        assertThat((int) data.getShort(extra + 2), is(16));
+        assertThat(data.getLong(extra + 4), is((long) content.length));
+        assertThat(data.getLong(extra + 12), is(entry.getCompressedSize()));
+        int next = extra + 20;
+        assertThat(data.getInt(next), is(0x02014b50));
+        assertThat((int) data.getShort(next + 6), is(20));
+        assertThat((int) data.getShort(next + 30), is(0));
+
+        Path file = directory.resolve("zip64.zip");
+        Files.write(file, bytes);
+        try (ZipFile zip = new ZipFile(file.toFile())) {
+            ZipEntry large = zip.getEntry("large.xml");
+            assertThat(large, is(notNullValue()));
+            assertThat(large.getSize(), is((long) content.length));
+            assertThat(readEntry(zip, "large.xml"), is(content));
+            assertThat(readEntry(zip, "small.xml"), is(content));
+        }
+    }
+
+    @DisplayName("Should write a 32 bit data descriptor for an entry without Zip64 extensions")
+    @Test
+    void dataDescriptorTest() throws Exception {
+        byte[] content = "content".getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        ZipWriter writer = new ZipWriter(stream);
+        ZipWriter.Entry entry = writer.writeEntry("small.xml", new ByteArrayInputStream(content));
+        writer.finish();
+        ByteBuffer data = ByteBuffer.wrap(stream.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+        assertThat((int) data.getShort(4), is(20));
+        int nameLength = data.getShort(26);
+        assertThat((int) data.getShort(28), is(0));
+        int descriptor = 30 + nameLength + (int) entry.getCompressedSize();
+        assertThat(data.getInt(descriptor), is(0x08074b50));
+        assertThat(data.getInt(descriptor + 8), is((int) entry.getCompressedSize()));
+        assertThat(data.getInt(descriptor + 12), is(content.length));
+        assertThat(data.getInt(descriptor + 16), is(0x02014b50));
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(stream.toByteArray()))) {
+            assertThat(zip.getNextEntry().getName(), is("small.xml"));
+            assertThat(zip.readAllBytes(), is(content));
+        }
+    }
+
+}
@@ -0,0 +1,72 @@
+package ch.rabanti.picoxlsx4j.reader;
+
+import ch.rabanti.picoxlsx4j.Address;
+import ch.rabanti.picoxlsx4j.Cell;
+import ch.rabanti.picoxlsx4j.Workbook;
+import ch.rabanti.picoxlsx4j.Worksheet;
+import ch.rabanti.picoxlsx4j.exception.IOException;
+import ch.rabanti.picoxlsx4j.style.BasicStyles;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WorkbookReaderTest {
+
+    @DisplayName("Should read back the values, types and styles of a written workbook")
+    @Test
+    void roundTripTest(@TempDir Path directory) throws Exception {
+        String filename = directory.resolve("roundTrip.xlsx").toString();
+        LocalDateTime date = LocalDateTime.of(2020, 5, 17, 13, 45, 30);
+        Workbook workbook = new Workbook(filename, "Data");
+        Worksheet worksheet = workbook.getCurrentWorksheet();
+        worksheet.addCell("text", 0, 0, BasicStyles.Bold());
+        worksheet.addCell(42, 1, 0);
+        worksheet.addCell(2.5, 2, 0);
+        worksheet.addCell(true, 3, 0);
+        worksheet.addCell(date, 4, 0);
+        worksheet.addCell(new Cell("B1*2", Cell.CellType.FORMULA), 5, 0);
+        for (int i = 2; i < 1000; i++) {
+            worksheet.addCell("row" + (i % 10), 0, i);
+        }
+        workbook.addWorksheet("Second");
+        workbook.save();
+
+        try (WorkbookReader reader = WorkbookReader.open(filename)) {
+            assertThat(reader.getWorksheetNames(), is(Arrays.asList("Data", "Second")));
+            assertThat(reader.getSharedStringCount(), is(11));
+            try (WorksheetReader sheet = reader.getWorksheet("Data")) {
+                assertThat(sheet.nextRow(), is(true));
+                Object[] expectedValues = {"text", 42L, 2.5, true, date, "B1*2"};
+                Cell.CellType[] expectedTypes = {Cell.CellType.STRING, Cell.CellType.NUMBER, Cell.CellType.NUMBER, Cell.CellType.BOOL, Cell.CellType.DATE, Cell.CellType.FORMULA};
+                for (int i = 0; i < expectedValues.length; i++) {
+                    assertThat(sheet.nextCell(), is(true));
+                    assertThat(sheet.getAddress(), is(new Address(i, 0)));
+                    assertThat(sheet.getCellType(), is(expectedTypes[i]));
+                    assertThat(sheet.getValue(), is(expectedValues[i]));
+                }
+                assertThat(sheet.nextCell(), is(false));
+                int rows = 1;
+                while (sheet.nextRow()) {
+                    rows++;
+                }
+                assertThat(rows, is(999));
+                assertThat(sheet.getRowNumber(), is(999));
+            }
+            try (WorksheetReader sheet = reader.getWorksheet(0)) {
+                sheet.nextRow();
+                sheet.nextCell();
+                assertThat(sheet.getStyle().getFont().isBold(), is(true));
+            }
+            assertThrows(IOException.class, () -> reader.getWorksheet("Missing"));
+        }
+    }
+
+}
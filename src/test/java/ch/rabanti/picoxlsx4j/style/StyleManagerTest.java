@@ -0,0 +1,58 @@
+package ch.rabanti.picoxlsx4j.style;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+class StyleManagerTest {
+
+    @DisplayName("Should distinguish styles that only differ in the swapped values of two properties")
+    @Test
+    void distinctStylesTest() {
+        StyleManager manager = new StyleManager();
+        Style bold = manager.addStyle(BasicStyles.Bold());
+        Style italic = manager.addStyle(BasicStyles.Italic());
+        assertThat(bold, not(sameInstance(italic)));
+        assertThat(manager.getStyleNumber(), is(2));
+        assertThat(manager.getFontStyleNumber(), is(2));
+        assertThat(manager.addStyle(BasicStyles.Bold()), sameInstance(bold));
+    }
+
+    @DisplayName("Should intern concurrently added styles and assign consecutive internal IDs in registration order")
+    @Test
+    void concurrentAddStyleTest() throws Exception {
+        StyleManager manager = new StyleManager();
+        Style first = manager.addStyle(BasicStyles.Bold());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    manager.addStyle(BasicStyles.font("Arial", 8 + i % 50));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        Style last = manager.addStyle(BasicStyles.Strike());
+        Style[] styles = manager.getStyles();
+        assertThat(styles.length, is(52));
+        for (int i = 0; i < styles.length; i++) {
+            assertThat(styles[i].getInternalID(), is(i));
+        }
+        assertThat(styles[0], sameInstance(first));
+        assertThat(styles[51], sameInstance(last));
+    }
+}
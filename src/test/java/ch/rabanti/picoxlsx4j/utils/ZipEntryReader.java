@@ -0,0 +1,40 @@
+package ch.rabanti.picoxlsx4j.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+public class ZipEntryReader {
+    public static String readEntry(byte[] data, String name) throws IOException {
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(data))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.getName().equals(name)) {
+                    return new String(readAll(zip), StandardCharsets.UTF_8);
+                }
+            }
+        }
+        return null;
+    }
+
+    public static byte[] readEntry(ZipFile zipFile, String name) throws IOException {
+        try (InputStream input = zipFile.getInputStream(zipFile.getEntry(name))) {
+            return readAll(input);
+        }
+    }
+
+    private static byte[] readAll(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = input.read(buffer)) > 0) {
+            output.write(buffer, 0, read);
+        }
+        return output.toByteArray();
+    }
+}